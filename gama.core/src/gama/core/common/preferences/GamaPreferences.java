@@ -356,6 +356,16 @@ public class GamaPreferences {
 				create("pref_display_synchronized", "Synchronize outputs with the simulation", false, IType.BOOL, true)
 						.in(NAME, EXECUTION);
 
+		/** The Constant CORE_PIPELINED_OUTPUTS. */
+		public static final Pref<Boolean> CORE_PIPELINED_OUTPUTS = create("pref_outputs_pipelined",
+				"Update file outputs and monitors on a separate thread while the next cycle is computed", false,
+				IType.BOOL, true).in(NAME, EXECUTION);
+
+		/** The Constant CORE_PIPELINE_CAPACITY. */
+		public static final Pref<Integer> CORE_PIPELINE_CAPACITY = create("pref_outputs_pipeline_capacity",
+				"Max. number of output updates waiting to be performed (beyond, the simulation waits for them)", 64,
+				IType.INT, true).between(1, null).in(NAME, EXECUTION);
+
 		/** The Constant PARAMETERS. */
 		public static final String PARAMETERS = "Parameters";
 
@@ -424,6 +434,18 @@ public class GamaPreferences {
 		public static final Pref<Boolean> CORE_MEMORY_ACTION = create("pref_memory_action",
 				"If true, when running out of memory, GAMA will try to close the experiment, otherwise it exits", true,
 				IType.BOOL, true).in(NAME, MEMORY);
+		/** The Constant METRICS. */
+		public static final String METRICS = "Metrics";
+
+		/** The Constant CORE_METRICS_ENDPOINT. */
+		public static final Pref<Boolean> CORE_METRICS_ENDPOINT = create("pref_metrics_endpoint",
+				"Serve the runtime metrics on http://localhost:<port>/metrics (Prometheus format) and /metrics.json",
+				false, IType.BOOL, true).in(NAME, METRICS).activates("pref_metrics_port");
+
+		/** The Constant CORE_METRICS_PORT. */
+		public static final Pref<Integer> CORE_METRICS_PORT = create("pref_metrics_port",
+				"Port of the metrics endpoint", 9464, IType.INT, true).between(1024, 65535).in(NAME, METRICS);
+
 		/**
 		 * Errors & warnings
 		 */
@@ -751,8 +773,8 @@ public class GamaPreferences {
 
 		/** The Constant USE_POOLING. */
 		public static final Pref<Boolean> USE_POOLING =
-				create("pref_use_pooling", "Use object pooling to reduce memory usage (still experimental)", false,
-						IType.BOOL, true).in(NAME, OPTIMIZATIONS).hidden();
+				create("pref_use_pooling", "Reuse temporary objects (envelopes, collectors, points) to reduce memory usage",
+						true, IType.BOOL, true).in(NAME, OPTIMIZATIONS);
 
 		/** The Constant TOLERANCE_POINTS. */
 		public static final Pref<Double> TOLERANCE_POINTS =
@@ -846,6 +868,21 @@ public class GamaPreferences {
 				"Forces the spatial index to synchronize its operations. Useful for interactive models where the users interfere or parallel models with concurrency errors. Note that it may slow down simulations with a lot of mobile agents",
 				true, IType.BOOL, true).in(NAME, CATEGORY);
 
+		/** The Constant QUADTREE_CONCURRENT. */
+		public static final Pref<Boolean> QUADTREE_CONCURRENT = create("pref_concurrent_quadtree",
+				"Use a concurrent spatial index, where queries never block each other, in place of the default quadtree. Recommended for parallel models with a lot of mobile agents (replaces the synchronization of the quadtree)",
+				false, IType.BOOL, true).in(NAME, CATEGORY);
+
+		/** The Constant GRAPH_COMPRESSED_ROUTING. */
+		public static final Pref<Boolean> GRAPH_COMPRESSED_ROUTING = create("pref_graph_compressed_routing",
+				"Compute the shortest paths of spatial graphs (Dijkstra, bidirectional Dijkstra, A* and NBA* algorithms) on a compressed snapshot of the graph, rebuilt after each modification",
+				true, IType.BOOL, true).in(NAME, CATEGORY);
+
+		/** The Constant DIFFUSION_FFT_THRESHOLD. */
+		public static final Pref<Integer> DIFFUSION_FFT_THRESHOLD = create("pref_diffusion_fft_threshold",
+				"Number of cells of the matrices of diffusion above which diffusions without mask nor gradient are computed with fast Fourier transforms (results within a relative tolerance of 1e-10; 0 to disable)",
+				225, IType.INT, true).between(0, null).in(NAME, CATEGORY);
+
 	}
 
 	/** The prefs. */
@@ -10,11 +10,15 @@
  ********************************************************************************************************/
 package gama.core.common.util;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Queue;
 import java.util.Set;
-
-import com.google.common.collect.Queues;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import gama.annotations.common.interfaces.IDisposable;
 import gama.core.common.preferences.GamaPreferences;
@@ -28,6 +32,12 @@ public class PoolUtils {
 	/** The pools. */
 	static Set<ObjectPool> POOLS = new LinkedHashSet<>();
 	
+	/** The number of objects kept by each thread in its magazine. */
+	static final int MAGAZINE_SIZE = 64;
+
+	/** The maximal number of full magazines kept in the depot shared by the threads. */
+	static final int DEPOT_SIZE = 32;
+
 	/** The pool. */
 	static public boolean POOL = GamaPreferences.External.USE_POOLING.getValue();
 	static {
@@ -45,12 +55,24 @@ public class PoolUtils {
 		if (!DEBUG.IS_ON()) return;
 		DEBUG.SECTION("Pool statistics");
 		POOLS.forEach(p -> {
-			long percentage = p.accessed == 0 ? 100 : 100 - (long) (p.created * 100d / p.accessed);
-			DEBUG.OUT(p.name, 30, "instances created " + p.created + " / instances asked " + p.accessed + " = "
+			final long accessed = p.getAccessed(), created = p.getCreated();
+			long percentage = accessed == 0 ? 100 : 100 - (long) (created * 100d / accessed);
+			DEBUG.OUT(p.name, 30, "instances created " + created + " / instances asked " + accessed + " = "
 					+ percentage + "% of coverage");
 		});
 	}
 
+	/**
+	 * The pools created so far.
+	 *
+	 * @return a copy of the list of pools
+	 */
+	public static List<ObjectPool> getPools() {
+		synchronized (POOLS) {
+			return new ArrayList<>(POOLS);
+		}
+	}
+
 	/**
 	 * A factory for creating Object objects.
 	 *
@@ -92,30 +114,58 @@ public class PoolUtils {
  void clean(T object); }
 
 	/**
-	 * The Class ObjectPool.
+	 * The Class ObjectPool. Each thread keeps the objects it releases in its own magazine (an array of at most
+	 * {@link #MAGAZINE_SIZE} objects), from which it takes them back without synchronization. A thread whose magazine
+	 * is full gives it to a depot shared by the threads (of at most {@link #DEPOT_SIZE} magazines, beyond which the
+	 * objects are left to the garbage collector), and a thread whose magazine is empty takes a full one from the depot
+	 * before creating new objects. The statistics are {@link LongAdder}s, exact even when the pool is used concurrently.
 	 *
 	 * @param <T> the generic type
 	 */
 	public static class ObjectPool<T> implements IDisposable {
 
+		/**
+		 * The magazine of a thread.
+		 */
+		private static final class Magazine {
+
+			/** The objects. */
+			Object[] objects = new Object[MAGAZINE_SIZE];
+
+			/** The number of objects. */
+			int size;
+
+			/** The generation of the pool the objects belong to. */
+			int generation;
+		}
+
 		/** The name. */
 		private String name;
-		
+
 		/** The created. */
-		private long accessed, released, created;
-		
+		private final LongAdder accessed = new LongAdder(), released = new LongAdder(), created = new LongAdder();
+
 		/** The factory. */
 		private final ObjectFactory<T> factory;
-		
+
 		/** The copy. */
 		private final ObjectCopy<T> copy;
-		
+
 		/** The cleaner. */
 		private final ObjectCleaner<T> cleaner;
-		
-		/** The objects. */
-		private final Queue<T> objects;
-		
+
+		/** The magazines of the threads. */
+		private final ThreadLocal<Magazine> magazines = ThreadLocal.withInitial(Magazine::new);
+
+		/** The depot: the full magazines shared by the threads. */
+		private final Queue<Object[]> depot = new ConcurrentLinkedQueue<>();
+
+		/** The number of magazines in the depot. */
+		private final AtomicInteger depotSize = new AtomicInteger();
+
+		/** The generation, incremented when the pool is disposed so that the magazines of the threads are emptied. */
+		private volatile int generation;
+
 		/** The active. */
 		public boolean active;
 
@@ -130,7 +180,22 @@ public class PoolUtils {
 			this.factory = factory;
 			this.copy = copy;
 			this.cleaner = cleaner;
-			objects = Queues.synchronizedDeque(Queues.newArrayDeque());
+		}
+
+		/**
+		 * The magazine of the current thread, emptied if the pool has been disposed since it was last used.
+		 *
+		 * @return the magazine
+		 */
+		private Magazine magazine() {
+			final Magazine m = magazines.get();
+			final int g = generation;
+			if (m.generation != g) {
+				Arrays.fill(m.objects, 0, m.size, null);
+				m.size = 0;
+				m.generation = g;
+			}
+			return m;
 		}
 
 		/**
@@ -138,15 +203,23 @@ public class PoolUtils {
 		 *
 		 * @return the t
 		 */
+		@SuppressWarnings ("unchecked")
 		public T get() {
 			if (!POOL || !active) return factory.createNew();
-			accessed++;
-
-			T result = objects.poll();
-			if (result == null) {
-				created++;
-				result = factory.createNew();
+			accessed.increment();
+			final Magazine m = magazine();
+			if (m.size == 0) {
+				final Object[] full = depot.poll();
+				if (full == null) {
+					created.increment();
+					return factory.createNew();
+				}
+				depotSize.decrementAndGet();
+				m.objects = full;
+				m.size = full.length;
 			}
+			final T result = (T) m.objects[--m.size];
+			m.objects[m.size] = null;
 			return result;
 		}
 
@@ -172,17 +245,57 @@ public class PoolUtils {
 			for (T t : tt) {
 				if (cleaner != null) { cleaner.clean(t); }
 				if (POOL && active) {
-					released++;
-					objects.offer(t);
+					released.increment();
+					final Magazine m = magazine();
+					if (m.size == MAGAZINE_SIZE) {
+						if (depotSize.incrementAndGet() <= DEPOT_SIZE) {
+							depot.offer(m.objects);
+						} else {
+							depotSize.decrementAndGet();
+						}
+						m.objects = new Object[MAGAZINE_SIZE];
+						m.size = 0;
+					}
+					m.objects[m.size++] = t;
 				}
 			}
 
 		}
 
 		@Override
-		public void dispose() {
-			objects.clear();
+		public synchronized void dispose() {
+			generation++;
+			depot.clear();
+			depotSize.set(0);
 		}
+
+		/**
+		 * Gets the name.
+		 *
+		 * @return the name
+		 */
+		public String getName() { return name; }
+
+		/**
+		 * Gets the number of objects asked to the pool.
+		 *
+		 * @return the number of objects asked
+		 */
+		public long getAccessed() { return accessed.sum(); }
+
+		/**
+		 * Gets the number of objects created by the pool.
+		 *
+		 * @return the number of objects created
+		 */
+		public long getCreated() { return created.sum(); }
+
+		/**
+		 * Gets the number of objects returned to the pool.
+		 *
+		 * @return the number of objects returned
+		 */
+		public long getReleased() { return released.sum(); }
 	}
 
 	/**
@@ -210,7 +323,9 @@ public class PoolUtils {
 		result.active = active;
 		result.name = name;
 		// if (DEBUG.IS_ON()) {
-		POOLS.add(result);
+		synchronized (POOLS) {
+			POOLS.add(result);
+		}
 		// }
 		return result;
 	}
@@ -132,6 +132,22 @@ public class RandomUtils {
 		setGenerator(rng, true);
 	}
 
+	/**
+	 * Instantiates a new random utils that draws from a generator built elsewhere (and not from the seed).
+	 *
+	 * @param seed
+	 *            the seed
+	 * @param rng
+	 *            the name of the generator
+	 * @param generator
+	 *            the generator
+	 */
+	protected RandomUtils(final Double seed, final String rng, final IGamaRNG generator) {
+		this.seed = seed;
+		this.generatorName = rng;
+		this.generator = generator;
+	}
+
 	/**
 	 * Instantiates a new random utils.
 	 *
@@ -9,6 +9,8 @@
  ********************************************************************************************************/
 package gama.core.kernel.experiment;
 
+import static gama.core.runtime.concurrent.GamaExecutorService.CONCURRENCY_BATCH_ASYNCHRONOUS;
+import static gama.core.runtime.concurrent.GamaExecutorService.EXCEPTION_HANDLER;
 import static gaml.core.operators.Cast.asFloat;
 
 import java.util.ArrayList;
@@ -19,6 +21,13 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.DoubleStream;
 
 import org.jfree.data.statistics.Statistics;
@@ -33,6 +42,7 @@ import gama.core.kernel.batch.optimization.AOptimizationAlgorithm;
 import gama.core.kernel.experiment.IParameter.Batch;
 import gama.core.kernel.simulation.SimulationAgent;
 import gama.core.kernel.simulation.SimulationPopulation;
+import gama.core.kernel.simulation.SimulationSnapshot;
 import gama.core.metamodel.agent.AbstractAgent;
 import gama.core.metamodel.agent.IAgent;
 import gama.core.metamodel.population.IPopulation;
@@ -42,6 +52,7 @@ import gama.core.runtime.IScope;
 import gama.core.runtime.exceptions.GamaRuntimeException;
 import gama.core.util.GamaListFactory;
 import gama.core.util.GamaMapFactory;
+import gama.core.util.IList;
 import gama.core.util.IMap;
 import gama.dev.THREADS;
 import gaml.core.expressions.IExpression;
@@ -91,6 +102,12 @@ public class BatchAgent extends ExperimentAgent {
 	/** Keep simulations between ''runs'' */
 	private boolean simDispose;
 
+	/** The snapshot from which the simulations are forked, if the experiment forks them */
+	private SimulationSnapshot snapshot;
+
+	/** The threads running the simulations asynchronously, shared by all the solutions of the exploration */
+	private ExecutorService executor;
+
 	/**
 	 * Instantiates a new batch agent.
 	 *
@@ -196,18 +213,28 @@ public class BatchAgent extends ExperimentAgent {
 	 */
 	private IMap<String, Object> manageOutputAndCloseSimulation(final IAgent sim, final ParametersSet sol,
 			final boolean memorize, final boolean dispose) {
+		final IMap<String, Object> out = readOutputAndCloseSimulation(sim, dispose);
+		recordOutput(sol, out, memorize);
+		return out;
+	}
+
+	/**
+	 * Reads the outputs of interest of a batch simulation (the fitness or the variables of interest) and closes it.
+	 *
+	 * @param sim
+	 *            the simulation
+	 * @param dispose
+	 *            whether to dispose of the simulation
+	 * @return the outputs
+	 */
+	private IMap<String, Object> readOutputAndCloseSimulation(final IAgent sim, final boolean dispose) {
 		IMap<String, Object> out = GamaMapFactory.create();
 		if (getSpecies().getExplorationAlgorithm().isFitnessBased()) {
 			final IExpression fitness =
 					((AOptimizationAlgorithm) getSpecies().getExplorationAlgorithm()).getFitnessExpression();
 			double lastFitnessValue = 0;
-			if (fitness != null) {
-				lastFitnessValue = Cast.asFloat(sim.getScope(), fitness.value(sim.getScope()));
-				if (memorize) { fitnessValues.add(lastFitnessValue); }
-			}
+			if (fitness != null) { lastFitnessValue = Cast.asFloat(sim.getScope(), fitness.value(sim.getScope())); }
 			out.put(IKeyword.FITNESS, lastFitnessValue);
-			final FileOutput output = getSpecies().getLog();
-			if (output != null) { getSpecies().getLog().doRefreshWriteAndClose(sol, out); }
 		} else {
 			AExplorationAlgorithm exp = (AExplorationAlgorithm) getSpecies().getExplorationAlgorithm();
 			final IExpression outputs = exp.getOutputs();
@@ -216,9 +243,37 @@ public class BatchAgent extends ExperimentAgent {
 						Cast.asList(sim.getScope(), outputs.value(sim.getScope())));
 				for (String s : outputVals) {
 					Object v = sim.hasAttribute(s) ? sim.getDirectVarValue(getScope(), s) : null;
-					trackedValues.put(s, v);
 					out.put(s, v);
 				}
+			}
+		}
+		if (dispose && sim instanceof AbstractAgent agent) { agent.primDie(sim.getScope()); }
+		return out;
+	}
+
+	/**
+	 * Records the outputs of a batch simulation: memorizes its fitness, tracks its variables of interest and writes
+	 * them to the log of the experiment.
+	 *
+	 * @param sol
+	 *            the parameters of the simulation
+	 * @param out
+	 *            the outputs read by {@link #readOutputAndCloseSimulation(IAgent, boolean)}
+	 * @param memorize
+	 *            whether to memorize the fitness
+	 */
+	private void recordOutput(final ParametersSet sol, final IMap<String, Object> out, final boolean memorize) {
+		if (getSpecies().getExplorationAlgorithm().isFitnessBased()) {
+			final AOptimizationAlgorithm algo = (AOptimizationAlgorithm) getSpecies().getExplorationAlgorithm();
+			if (memorize && algo.getFitnessExpression() != null) {
+				fitnessValues.add((Double) out.get(IKeyword.FITNESS));
+			}
+			final FileOutput output = getSpecies().getLog();
+			if (output != null) { getSpecies().getLog().doRefreshWriteAndClose(sol, out); }
+		} else {
+			AExplorationAlgorithm exp = (AExplorationAlgorithm) getSpecies().getExplorationAlgorithm();
+			if (exp.getOutputs() != null) {
+				trackedValues.putAll(out);
 				final FileOutput output = getSpecies().getLog();
 				if (output != null) {
 					getSpecies().getLog().doRefreshWriteAndClose(sol, out);
@@ -226,9 +281,6 @@ public class BatchAgent extends ExperimentAgent {
 				}
 			}
 		}
-
-		if (dispose && sim instanceof AbstractAgent agent) { agent.primDie(sim.getScope()); }
-		return out;
 	}
 
 	/**
@@ -242,7 +294,15 @@ public class BatchAgent extends ExperimentAgent {
 	public boolean step(final IScope scope) {
 		// We run the exloration algorithm. The future steps will be called by the exploration algorithm through the
 		// launchSimulationsWithSolution() method
-		getSpecies().getExplorationAlgorithm().run(scope);
+		try {
+			getSpecies().getExplorationAlgorithm().run(scope);
+		} finally {
+			snapshot = null;
+			if (executor != null) {
+				executor.shutdown();
+				executor = null;
+			}
+		}
 		// Once the algorithm has finished exploring the solutions, the agent is
 		// killed.
 		scope.getGui().getStatus().informStatus(scope, endStatus());
@@ -280,13 +340,47 @@ public class BatchAgent extends ExperimentAgent {
 	 */
 	private SimulationAgent createSimulation(final Map<String, Object> sim,
 			final Map<IAgent, ParametersSet> simToParameter) {
-		ParametersSet sol = (ParametersSet) sim.get("parameters");
-		final SimulationAgent s = createSimulation(sol, true);
+		final SimulationAgent s = createSimulation(sim);
+		simToParameter.put(s, (ParametersSet) sim.get("parameters"));
+		return s;
+	}
+
+	/**
+	 * Creates the simulation of a set of parameters and a seed.
+	 *
+	 * @param sim
+	 *            the parameters and the seed
+	 * @return the simulation agent
+	 */
+	private SimulationAgent createSimulation(final Map<String, Object> sim) {
+		final SimulationAgent s = createSimulation((ParametersSet) sim.get("parameters"), true);
 		s.setSeed((Double) sim.get("seed"));
-		simToParameter.put(s, sol);
 		return s;
 	}
 
+	/**
+	 * Creates a simulation. If the experiment forks its simulations (facet 'fork'), only the first one is initialized:
+	 * a snapshot is taken after its initialization, from which the next ones are forked with their own parameters and
+	 * seed.
+	 */
+	@Override
+	public SimulationAgent createSimulation(final ParametersSet parameters, final boolean scheduleIt) {
+		if (!getSpecies().forksSimulations()) return super.createSimulation(parameters, scheduleIt);
+		if (snapshot == null) {
+			final SimulationAgent sim = super.createSimulation(parameters, scheduleIt);
+			if (sim != null && !sim.dead()) { snapshot = SimulationSnapshot.capture(sim.getScope(), sim); }
+			return sim;
+		}
+		final IPopulation<? extends IAgent> pop = getSimulationPopulation();
+		if (pop == null) return null;
+		final ParametersSet ps = getParameterValues();
+		ps.putAll(parameters);
+		final IList<Map<String, Object>> list = GamaListFactory.create(Types.MAP);
+		list.add(Collections.singletonMap(IKeyword.SIMULATION, snapshot.fork(getScope(), ps, getSeed(), getRng())));
+		final IList<? extends IAgent> c = pop.createAgents(getScope(), 1, list, true, scheduleIt);
+		return (SimulationAgent) c.get(0);
+	}
+
 	/**
 	 * Launch simulations with solution.
 	 *
@@ -327,44 +421,57 @@ public class BatchAgent extends ExperimentAgent {
 			}
 		}
 
-		int nb = Math.min(sims.size(), numberOfCores);
+		if (CONCURRENCY_BATCH_ASYNCHRONOUS.getValue()) {
+			runAsynchronously(sims, numberOfCores, this::createSimulation, (sim, localRes) -> {
+				final ParametersSet ps = (ParametersSet) sim.get("parameters");
+				currentSolution = new ParametersSet(ps);
+				recordOutput(ps, localRes, false);
+				if (!res.containsKey(ps)) { res.put(ps, GamaMapFactory.create()); }
+				for (final String output : localRes.keySet()) {
+					if (!res.get(ps).containsKey(output)) { res.get(ps).put(output, GamaListFactory.create()); }
+					res.get(ps).get(output).add(localRes.get(output));
+				}
+			});
+		} else {
+			int nb = Math.min(sims.size(), numberOfCores);
 
-		List<Map<String, Object>> simsToRun = new Vector<>();
+			List<Map<String, Object>> simsToRun = new Vector<>();
 
-		for (int i = 0; i < nb; i++) { simsToRun.add(sims.remove(0)); }
-		Map<IAgent, ParametersSet> simToParameter = GamaMapFactory.create();
-		Iterator<Map<String, Object>> it = simsToRun.iterator();
-		while (it.hasNext()) { createSimulation(it.next(), simToParameter); }
+			for (int i = 0; i < nb; i++) { simsToRun.add(sims.remove(0)); }
+			Map<IAgent, ParametersSet> simToParameter = GamaMapFactory.create();
+			Iterator<Map<String, Object>> it = simsToRun.iterator();
+			while (it.hasNext()) { createSimulation(it.next(), simToParameter); }
 
-		while (pop.hasScheduledSimulations() && !dead) {
-			// We step all the simulations
-			pop.step(getScope());
-			for (final IScopedStepable st : new ArrayList<>(pop.getActiveStepables())) {
-				final SimulationAgent agent = (SimulationAgent) st;
-				ParametersSet ps = simToParameter.get(agent);
-				currentSolution = new ParametersSet(ps);
+			while (pop.hasScheduledSimulations() && !dead) {
+				// We step all the simulations
+				pop.step(getScope());
+				for (final IScopedStepable st : new ArrayList<>(pop.getActiveStepables())) {
+					final SimulationAgent agent = (SimulationAgent) st;
+					ParametersSet ps = simToParameter.get(agent);
+					currentSolution = new ParametersSet(ps);
 
-				// test the condition first in case it is paused
-				final boolean stopConditionMet = dead
-						|| Cast.asBool(agent.getScope(), agent.getScope().evaluate(stopCondition, agent).getValue());
-				final boolean mustStop = stopConditionMet || agent.dead() || agent.getScope().isPaused();
-				if (mustStop) {
-					pop.unscheduleSimulation(agent);
-					// pop.remove(agent);
-					IMap<String, Object> localRes = manageOutputAndCloseSimulation(agent, ps, false, simDispose);
-
-					if (!res.containsKey(ps)) { res.put(ps, GamaMapFactory.create()); }
-					for (String output : localRes.keySet()) {
-						if (!res.get(ps).containsKey(output)) { res.get(ps).put(output, GamaListFactory.create()); }
-						res.get(ps).get(output).add(localRes.get(output));
-					}
+					// test the condition first in case it is paused
+					final boolean stopConditionMet = dead || Cast.asBool(agent.getScope(),
+							agent.getScope().evaluate(stopCondition, agent).getValue());
+					final boolean mustStop = stopConditionMet || agent.dead() || agent.getScope().isPaused();
+					if (mustStop) {
+						pop.unscheduleSimulation(agent);
+						// pop.remove(agent);
+						IMap<String, Object> localRes = manageOutputAndCloseSimulation(agent, ps, false, simDispose);
+
+						if (!res.containsKey(ps)) { res.put(ps, GamaMapFactory.create()); }
+						for (String output : localRes.keySet()) {
+							if (!res.get(ps).containsKey(output)) { res.get(ps).put(output, GamaListFactory.create()); }
+							res.get(ps).get(output).add(localRes.get(output));
+						}
 
-					if (!sims.isEmpty()) { createSimulation(sims.remove(0), simToParameter); }
+						if (!sims.isEmpty()) { createSimulation(sims.remove(0), simToParameter); }
 
+					}
 				}
+				// We then verify that the front scheduler has not been paused
+				while (getSpecies().getController().isPaused() && !dead) { THREADS.WAIT(100); }
 			}
-			// We then verify that the front scheduler has not been paused
-			while (getSpecies().getController().isPaused() && !dead) { THREADS.WAIT(100); }
 		}
 
 		// When the simulations are finished, we give a chance to the outputs of
@@ -442,52 +549,75 @@ public class BatchAgent extends ExperimentAgent {
 
 		int numberOfCores = pop.getMaxNumberOfConcurrentSimulations();
 		if (numberOfCores == 0) { numberOfCores = 1; }
-		int repeatIndex = 0;
-		while (repeatIndex < getSeeds().length && !dead) {
-			for (int coreIndex = 0; coreIndex < numberOfCores; coreIndex++) {
+		if (CONCURRENCY_BATCH_ASYNCHRONOUS.getValue()) {
+			final int[] finished = { 0 };
+			runAsynchronously(new ArrayList<>(Arrays.asList(getSeeds())), numberOfCores, seed -> {
 				runNumber = runNumber + 1;
-
-				setSeed(getSeeds()[repeatIndex]);
-				createSimulation(currentSolution, true);
-				repeatIndex++;
-				if (repeatIndex == getSeeds().length || dead) { break; }
-			}
-			String suffix = "";
-			while (pop.hasScheduledSimulations() && !dead) {
-				// We step all the simulations
-				pop.step(getScope());
-				// String cycles = "";
-				// We evaluate their stopCondition and unschedule the ones who
-				// return true
-				for (final IAgent sim : pop.toArray()) {
-					final SimulationAgent agent = (SimulationAgent) sim;
-					// cycles += " " + simulation.getClock().getCycle();
-					// test the condition first in case it is paused
-					final boolean stopConditionMet =
-							dead || Cast.asBool(sim.getScope(), sim.getScope().evaluate(stopCondition, sim).getValue());
-					final boolean mustStop = stopConditionMet || agent.dead() || agent.getScope().isPaused();
-					if (mustStop) {
-						pop.unscheduleSimulation(agent);
-						Map<String, Object> out =
-								manageOutputAndCloseSimulation(agent, currentSolution, true, simDispose);
-						for (String out_vars : out.keySet()) {
-							if (!outputs.containsKey(out_vars)) { outputs.put(out_vars, GamaListFactory.create()); }
-							outputs.get(out_vars).add(out.get(out_vars));
-						}
-					}
+				setSeed(seed);
+				return createSimulation(currentSolution, true);
+			}, (seed, out) -> {
+				recordOutput(currentSolution, out, true);
+				for (final String outVar : out.keySet()) {
+					if (!outputs.containsKey(outVar)) { outputs.put(outVar, GamaListFactory.create()); }
+					outputs.get(outVar).add(out.get(outVar));
 				}
-				// We inform the status line
+				finished[0]++;
 				if (!dead) {
 					getScope().getGui().getStatus().setStatus(getScope(),
-							"Run " + runNumber + " | " + repeatIndex + "/" + seeds.length + " simulations (using "
-									+ pop.getNumberOfActiveThreads() + " threads)",
-							"overlays/small.exp.batch.white" + suffix);
+							"Run " + runNumber + " | " + finished[0] + "/" + seeds.length + " simulations",
+							"overlays/small.exp.batch.white");
+				}
+			});
+		} else {
+			int repeatIndex = 0;
+			while (repeatIndex < getSeeds().length && !dead) {
+				for (int coreIndex = 0; coreIndex < numberOfCores; coreIndex++) {
+					runNumber = runNumber + 1;
+
+					setSeed(getSeeds()[repeatIndex]);
+					createSimulation(currentSolution, true);
+					repeatIndex++;
+					if (repeatIndex == getSeeds().length || dead) { break; }
+				}
+				String suffix = "";
+				while (pop.hasScheduledSimulations() && !dead) {
+					// We step all the simulations
+					pop.step(getScope());
+					// String cycles = "";
+					// We evaluate their stopCondition and unschedule the ones who
+					// return true
+					for (final IAgent sim : pop.toArray()) {
+						final SimulationAgent agent = (SimulationAgent) sim;
+						// cycles += " " + simulation.getClock().getCycle();
+						// test the condition first in case it is paused
+						final boolean stopConditionMet = dead
+								|| Cast.asBool(sim.getScope(), sim.getScope().evaluate(stopCondition, sim).getValue());
+						final boolean mustStop = stopConditionMet || agent.dead() || agent.getScope().isPaused();
+						if (mustStop) {
+							pop.unscheduleSimulation(agent);
+							Map<String, Object> out =
+									manageOutputAndCloseSimulation(agent, currentSolution, true, simDispose);
+							for (String out_vars : out.keySet()) {
+								if (!outputs.containsKey(out_vars)) {
+									outputs.put(out_vars, GamaListFactory.create());
+								}
+								outputs.get(out_vars).add(out.get(out_vars));
+							}
+						}
+					}
+					// We inform the status line
+					if (!dead) {
+						getScope().getGui().getStatus().setStatus(getScope(),
+								"Run " + runNumber + " | " + repeatIndex + "/" + seeds.length + " simulations (using "
+										+ pop.getNumberOfActiveThreads() + " threads)",
+								"overlays/small.exp.batch.white" + suffix);
+					}
+					suffix = suffix == "" ? "2" : "";
+					// We then verify that the front scheduler has not been paused
+					while (getSpecies().getController().isPaused() && !dead) { THREADS.WAIT(100); }
 				}
-				suffix = suffix == "" ? "2" : "";
-				// We then verify that the front scheduler has not been paused
-				while (getSpecies().getController().isPaused() && !dead) { THREADS.WAIT(100); }
-			}
 
+			}
 		}
 
 		// When the simulations are finished, we give a chance to the outputs of
@@ -526,6 +656,99 @@ public class BatchAgent extends ExperimentAgent {
 
 	}
 
+	/**
+	 * Runs a simulation for each job, without stepping the simulations in lock-step: each simulation is stepped by a
+	 * worker until its stop condition is met, independently of the others, and is replaced by the simulation of the
+	 * next job as soon as it finishes. The simulations are created, and their outputs read, in the thread of the
+	 * experiment, in the order in which they finish; the outputs are then recorded in the order of the jobs, so that
+	 * the results and the logs do not depend on the durations of the simulations. If the batch is killed, the running
+	 * simulations stop at the end of their current cycle and are collected as well. If the creation of a simulation
+	 * fails, the running ones are stopped and disposed of. The workers are created once for the whole exploration.
+	 *
+	 * @param <J>
+	 *            the type of the jobs
+	 * @param jobs
+	 *            the jobs, which are removed from the list when their simulation is created
+	 * @param workers
+	 *            the maximal number of simulations running at the same time
+	 * @param creator
+	 *            creates the simulation of a job
+	 * @param recorder
+	 *            records the outputs of the simulation of a job
+	 */
+	private <J> void runAsynchronously(final List<J> jobs, final int workers,
+			final Function<J, SimulationAgent> creator, final BiConsumer<J, IMap<String, Object>> recorder) {
+		final SimulationPopulation pop = getSimulationPopulation();
+		final BlockingQueue<SimulationAgent> finished = new LinkedBlockingQueue<>();
+		if (executor == null) { executor = Executors.newFixedThreadPool(workers); }
+		final AtomicBoolean cancelled = new AtomicBoolean();
+		// The jobs started, the index of the job of each running simulation and the outputs not yet recorded
+		final List<J> started = new ArrayList<>();
+		final Map<SimulationAgent, Integer> runningJobs = new HashMap<>();
+		final Map<Integer, IMap<String, Object>> outputs = new HashMap<>();
+		int nextToRecord = 0;
+		try {
+			while (!runningJobs.isEmpty() || !jobs.isEmpty() && !dead) {
+				while (runningJobs.size() < workers && !jobs.isEmpty() && !dead) {
+					final J job = jobs.remove(0);
+					final SimulationAgent sim = creator.apply(job);
+					// The simulation is stepped by its worker, not by the population
+					pop.unscheduleSimulation(sim);
+					runningJobs.put(sim, started.size());
+					started.add(job);
+					executor.execute(() -> {
+						runToCompletion(sim, cancelled);
+						finished.add(sim);
+					});
+				}
+				final SimulationAgent sim = finished.take();
+				outputs.put(runningJobs.remove(sim), readOutputAndCloseSimulation(sim, simDispose));
+				while (outputs.containsKey(nextToRecord)) {
+					recorder.accept(started.get(nextToRecord), outputs.remove(nextToRecord));
+					nextToRecord++;
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			// Only non-empty if the loop has been interrupted or has failed: the running simulations are stopped at
+			// the end of their current cycle and disposed of
+			cancelled.set(true);
+			if (!runningJobs.isEmpty()) {
+				try {
+					for (int i = runningJobs.size(); i > 0; i--) { finished.take(); }
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				for (final SimulationAgent sim : runningJobs.keySet()) { sim.primDie(sim.getScope()); }
+			}
+		}
+	}
+
+	/**
+	 * Steps a simulation until its stop condition is met, it dies, it is paused, the batch is killed or the run is
+	 * cancelled.
+	 *
+	 * @param sim
+	 *            the simulation
+	 * @param cancelled
+	 *            whether the run of the simulations has been cancelled
+	 */
+	private void runToCompletion(final SimulationAgent sim, final AtomicBoolean cancelled) {
+		try {
+			while (!dead && !cancelled.get()) {
+				sim.step();
+				if (sim.dead() || sim.getScope().isPaused()
+						|| Cast.asBool(sim.getScope(), sim.getScope().evaluate(stopCondition, sim).getValue()))
+					return;
+				// We then verify that the front scheduler has not been paused
+				while (getSpecies().getController().isPaused() && !dead && !cancelled.get()) { THREADS.WAIT(100); }
+			}
+		} catch (final Throwable t) {
+			EXCEPTION_HANDLER.uncaughtException(Thread.currentThread(), t);
+		}
+	}
+
 	/**
 	 * Gets the parameters to explore.
 	 *
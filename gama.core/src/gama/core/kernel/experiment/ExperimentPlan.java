@@ -14,8 +14,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Supplier;
 
 import com.google.common.collect.Iterables;
@@ -49,7 +51,9 @@ import gama.core.runtime.GAMA;
 import gama.core.runtime.IScope;
 import gama.core.runtime.exceptions.GamaRuntimeException;
 import gama.core.util.GamaColor;
+import gama.core.util.Collector;
 import gama.core.util.GamaMapFactory;
+import gama.core.util.ICollector;
 import gama.core.util.IList;
 import gaml.core.compilation.IDescriptionValidator;
 import gaml.core.compilation.ISymbol;
@@ -58,6 +62,10 @@ import gaml.core.compilation.annotations.validator;
 import gaml.core.compilation.kernel.GamaMetaModel;
 import gaml.core.descriptions.ExperimentDescription;
 import gaml.core.descriptions.IDescription;
+import gaml.core.descriptions.IVarDescriptionUser;
+import gaml.core.descriptions.ModelDescription;
+import gaml.core.descriptions.SpeciesDescription;
+import gaml.core.descriptions.VariableDescription;
 import gaml.core.expressions.IExpression;
 import gaml.core.operators.Cast;
 import gaml.core.species.GamlSpecies;
@@ -160,6 +168,16 @@ import gaml.core.variables.IVariable;
 						type = { IType.BOOL, IType.INT },
 						optional = true,
 						doc = @doc ("When set to true, use multiple threads to run its simulations. Setting it to n will set the numbers of threads to use")),
+				@facet (
+						name = IExperimentPlan.PHASED,
+						type = IType.BOOL,
+						optional = true,
+						doc = @doc ("When set to true, the simulations are stepped by long-lived threads that wait for each other at the end of each cycle, instead of being submitted to an executor at each cycle. Faster for experiments hosting many small simulations (false by default)")),
+				@facet (
+						name = IExperimentPlan.FORK,
+						type = IType.BOOL,
+						optional = true,
+						doc = @doc ("Only for batch experiments. When set to true, the model is initialized only once: the other simulations are forked from a copy of the first one taken after its initialization, in which the values of the parameters and the seed are replaced by theirs. As the initialization is not run again, the parameters read during it (in the initial values of the attributes, in the init blocks or in the actions they call) keep in the forked simulations the values computed from the parameters of the first one: a warning is emitted for them. The random number generator of a forked simulation restarts from its own seed after the initialization. To be used only when the parameters explored do not change the initialization of the model (false by default)")),
 				@facet (
 						name = IKeyword.TYPE,
 						type = IType.LABEL,
@@ -305,6 +323,103 @@ public class ExperimentPlan extends GamlSpecies implements IExperimentPlan {
 								+ type + " experiment",
 						IGamlIssue.MISSING_FACET, desc.getUnderlyingElement(), UNTIL, "true");
 			}
+			if (TRUE.equals(desc.getLitteral(FORK)) && desc instanceof ExperimentDescription experiment) {
+				validateFork(experiment);
+			}
+		}
+
+		/**
+		 * Warns about the parameters of an experiment whose simulations are forked that are read during the
+		 * initialization of the model: as the forked simulations do not run it again, these parameters are ignored.
+		 *
+		 * @param desc
+		 *            the description of the experiment
+		 */
+		private void validateFork(final ExperimentDescription desc) {
+			final Set<String> parameters = new LinkedHashSet<>();
+			for (final VariableDescription var : desc.getAttributes()) {
+				if (PARAMETER.equals(var.getKeyword())) {
+					parameters.add(var.hasFacet(VAR) ? var.getLitteral(VAR) : var.getName());
+				}
+			}
+			if (parameters.isEmpty()) return;
+			final ModelDescription model = desc.getModelDescription();
+			try (final ICollector<IVarDescriptionUser> processed = Collector.getSet();
+					final ICollector<VariableDescription> used = Collector.getSet()) {
+				collectInitDependencies(model, model, processed, used);
+				final Set<String> read = new LinkedHashSet<>();
+				for (final VariableDescription var : used) {
+					if (parameters.contains(var.getName())) { read.add(var.getName()); }
+				}
+				if (!read.isEmpty()) {
+					desc.warning("The parameters " + read
+							+ " are read during the initialization of the model, which is not run again in the forked "
+							+ "simulations: they will keep the values computed from the parameters of the first one",
+							IGamlIssue.CONFLICTING_FACETS, FORK);
+				}
+			}
+		}
+
+		/**
+		 * Collects the attributes of the model read by the initial values of the attributes of a species, by its init
+		 * blocks and by the actions they call, then does the same for its micro-species.
+		 *
+		 * @param model
+		 *            the description of the model
+		 * @param species
+		 *            the species
+		 * @param processed
+		 *            the descriptions and expressions already processed
+		 * @param used
+		 *            the attributes of the model found
+		 */
+		private void collectInitDependencies(final ModelDescription model, final SpeciesDescription species,
+				final ICollector<IVarDescriptionUser> processed, final ICollector<VariableDescription> used) {
+			for (final VariableDescription var : species.getAttributes()) {
+				var.visitFacets(VariableDescription.INIT_DEPENDENCIES_FACETS, (name, exp) -> {
+					final IExpression expression = exp.getExpression();
+					if (expression != null) { expression.collectUsedVarsOf(model, processed, used); }
+					return true;
+				});
+			}
+			for (final IDescription behavior : species.getBehaviors()) {
+				if (INIT.equals(behavior.getKeyword())) { collectStatement(model, behavior, processed, used); }
+			}
+			species.visitMicroSpecies(micro -> {
+				collectInitDependencies(model, micro, processed, used);
+				return true;
+			});
+		}
+
+		/**
+		 * Collects the attributes of the model read by a statement, by its children and by the actions called in them.
+		 *
+		 * @param model
+		 *            the description of the model
+		 * @param statement
+		 *            the statement
+		 * @param processed
+		 *            the descriptions and expressions already processed
+		 * @param used
+		 *            the attributes of the model found
+		 */
+		private void collectStatement(final ModelDescription model, final IDescription statement,
+				final ICollector<IVarDescriptionUser> processed, final ICollector<VariableDescription> used) {
+			if (statement == null || processed.contains(statement)) return;
+			processed.add(statement);
+			statement.visitFacets((name, exp) -> {
+				final IExpression expression = exp.getExpression();
+				if (expression != null) { expression.collectUsedVarsOf(model, processed, used); }
+				return true;
+			});
+			if (DO.equals(statement.getKeyword()) && statement.getSpeciesContext() != null) {
+				collectStatement(model, statement.getSpeciesContext().getAction(statement.getLitteral(ACTION)),
+						processed, used);
+			}
+			statement.visitOwnChildren(child -> {
+				collectStatement(model, child, processed, used);
+				return true;
+			});
 		}
 	}
 
@@ -361,6 +476,12 @@ public class ExperimentPlan extends GamlSpecies implements IExperimentPlan {
 	/** The benchmarkable. */
 	private final boolean benchmarkable;
 
+	/** The phased. */
+	private final boolean phased;
+
+	/** The fork. */
+	private final boolean fork;
+
 	/** The sync. */
 
 	/** The displayables. */
@@ -478,6 +599,10 @@ public class ExperimentPlan extends GamlSpecies implements IExperimentPlan {
 		}
 		final IExpression bm = getFacet(IKeyword.BENCHMARK);
 		benchmarkable = bm != null && Cast.asBool(myScope, bm.value(myScope));
+		final IExpression ph = getFacet(PHASED);
+		phased = ph != null && Cast.asBool(myScope, ph.value(myScope));
+		final IExpression fk = getFacet(FORK);
+		fork = fk != null && Cast.asBool(myScope, fk.value(myScope));
 	}
 
 	@Override
@@ -1076,6 +1201,12 @@ public class ExperimentPlan extends GamlSpecies implements IExperimentPlan {
 		return benchmarkable;
 	}
 
+	@Override
+	public boolean isPhased() { return phased; }
+
+	@Override
+	public boolean forksSimulations() { return fork; }
+
 	@Override
 	public List<IExperimentDisplayable> getDisplayables() { return displayables; }
 
@@ -34,6 +34,12 @@ public interface IExperimentPlan extends ISpecies {
 	/** The batch category name. */
 	String BATCH_CATEGORY_NAME = "Exploration method";
 
+	/** The phased facet. */
+	String PHASED = "phased";
+
+	/** The fork facet. */
+	String FORK = "fork";
+
 	/** The test category name. */
 	String TEST_CATEGORY_NAME = "Configuration of tests";
 
@@ -270,6 +276,22 @@ public interface IExperimentPlan extends ISpecies {
 	 */
 	boolean shouldBeBenchmarked();
 
+	/**
+	 * Whether the simulations of this experiment are stepped by long-lived threads synchronized by a barrier (see
+	 * PhasedSimulationRunner) rather than submitted as tasks to an executor at each cycle.
+	 *
+	 * @return true, if is phased
+	 */
+	boolean isPhased();
+
+	/**
+	 * Whether, in a batch experiment, the model is initialized only once and the other simulations are forked from a
+	 * snapshot of the first one taken after its initialization (see SimulationSnapshot).
+	 *
+	 * @return true, if the simulations are forked
+	 */
+	boolean forksSimulations();
+
 	/**
 	 * Gets the displayables.
 	 *
@@ -40,12 +40,15 @@ import gama.core.metamodel.topology.continuous.AmorphousTopology;
 import gama.core.outputs.IOutputManager;
 import gama.core.runtime.ExecutionScope;
 import gama.core.runtime.GAMA;
+import gama.core.runtime.GamaMetrics;
 import gama.core.runtime.IScope;
 import gama.core.runtime.MemoryUtils;
+import gama.core.runtime.MetricsEndpoint;
 import gama.core.runtime.exceptions.GamaRuntimeException;
 import gama.core.util.GamaColor;
 import gama.core.util.GamaMapFactory;
 import gama.core.util.IList;
+import gama.core.util.IMap;
 import gaml.core.compilation.kernel.GamaMetaModel;
 import gaml.core.expressions.IExpression;
 import gaml.core.operators.Containers;
@@ -101,6 +104,13 @@ import one.util.streamex.StreamEx;
 				constant = false,
 				doc = @doc (
 						value = "Returns the maximum amount of memory available to GAMA in bytes")),
+		@variable (
+				name = "metrics",
+				type = IType.MAP,
+				constant = false,
+				doc = @doc (
+						value = "Returns the current values of the runtime metrics of GAMA (durations of the cycles, agents created and killed, spatial queries, pools, garbage collections...), by name",
+						comment = "The same values are served in the Prometheus format on http://localhost:<port>/metrics when the corresponding preference is enabled")),
 		@variable (
 				name = "workspace",
 				type = IType.FILE,
@@ -163,6 +173,17 @@ public class PlatformAgent extends GamlAgent implements ITopLevelAgent, IExpress
 			stopPollingMemory();
 			startPollingMemory();
 		});
+		if (GamaPreferences.Runtime.CORE_METRICS_ENDPOINT.getValue()) {
+			MetricsEndpoint.start(GamaPreferences.Runtime.CORE_METRICS_PORT.getValue());
+		}
+		GamaPreferences.Runtime.CORE_METRICS_ENDPOINT.onChange(newValue -> {
+			MetricsEndpoint.stop();
+			if (newValue) { MetricsEndpoint.start(GamaPreferences.Runtime.CORE_METRICS_PORT.getValue()); }
+		});
+		GamaPreferences.Runtime.CORE_METRICS_PORT.onChange(newValue -> {
+			MetricsEndpoint.stop();
+			if (GamaPreferences.Runtime.CORE_METRICS_ENDPOINT.getValue()) { MetricsEndpoint.start(newValue); }
+		});
 	}
 
 	/**
@@ -204,6 +225,7 @@ public class PlatformAgent extends GamlAgent implements ITopLevelAgent, IExpress
 	public Object primDie(final IScope scope) {
 		stopPollingMemory();
 		polling.cancel();
+		MetricsEndpoint.stop();
 		GAMA.closeAllExperiments(false, true);
 		scope.getGui().exit();
 		return null;
@@ -344,6 +366,19 @@ public class PlatformAgent extends GamlAgent implements ITopLevelAgent, IExpress
 	@getter (PlatformAgent.MACHINE_TIME)
 	public Double getMachineTime() { return (double) System.currentTimeMillis(); }
 
+	/**
+	 * Gets the metrics.
+	 *
+	 * @return the metrics
+	 */
+	@SuppressWarnings ("unchecked")
+	@getter ("metrics")
+	public IMap<String, Double> getMetrics() {
+		final IMap<String, Double> result = GamaMapFactory.create(Types.STRING, Types.FLOAT);
+		result.putAll(GamaMetrics.asMap());
+		return result;
+	}
+
 	@Override
 	public String getTitle() { return "gama platform agent"; }
 
@@ -51,6 +51,7 @@ import gama.core.outputs.IOutputManager;
 import gama.core.outputs.SimulationOutputManager;
 import gama.core.runtime.ExecutionScope;
 import gama.core.runtime.GAMA;
+import gama.core.runtime.GamaMetrics;
 import gama.core.runtime.IScope;
 import gama.core.runtime.concurrent.GamaExecutorService;
 import gama.core.runtime.concurrent.GamaExecutorService.Caller;
@@ -198,6 +199,9 @@ public class SimulationAgent extends GamlAgent implements ITopLevelAgent {
 	/** The own clock. */
 	final SimulationClock ownClock;
 
+	/** The beginning of the current cycle (see {@link GamaMetrics#CYCLES}). */
+	private long cycleStart;
+
 	/** The color. */
 	GamaColor color;
 
@@ -361,6 +365,7 @@ public class SimulationAgent extends GamlAgent implements ITopLevelAgent {
 
 	@Override
 	protected boolean preStep(final IScope scope) {
+		cycleStart = System.nanoTime();
 		ownClock.beginCycle();
 		executer.executeBeginActions();
 		return super.preStep(scope);
@@ -373,6 +378,7 @@ public class SimulationAgent extends GamlAgent implements ITopLevelAgent {
 		executer.executeOneShotActions();
 		if (outputs != null) { outputs.step(this.getScope()); }
 		ownClock.step();
+		GamaMetrics.endCycle(cycleStart);
 	}
 
 	@Override
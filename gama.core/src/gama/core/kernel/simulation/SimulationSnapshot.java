@@ -0,0 +1,426 @@
+/*******************************************************************************************************
+ *
+ * SimulationSnapshot.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.kernel.simulation;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gama.annotations.common.interfaces.IKeyword;
+import gama.core.common.interfaces.IValue;
+import gama.core.metamodel.agent.IAgent;
+import gama.core.metamodel.agent.IMacroAgent;
+import gama.core.metamodel.agent.SavedAgent;
+import gama.core.metamodel.population.IPopulation;
+import gama.core.runtime.IScope;
+import gama.core.util.GamaListFactory;
+import gama.core.util.GamaMapFactory;
+import gama.core.util.IList;
+import gama.core.util.IMap;
+import gama.core.util.IReference;
+import gama.core.util.file.IGamaFile;
+import gama.core.util.graph.GamaGraph;
+import gaml.core.types.IType;
+
+/**
+ * The Class SimulationSnapshot. A copy, kept in memory, of the state of a simulation (its attributes and the ones of
+ * its agents, as a {@link SavedAgent}), from which new simulations can be forked instead of being initialized (see the
+ * facet 'fork' of batch experiments).
+ *
+ * The snapshot does not share any mutable value with the simulation it has been taken from: the agents are replaced
+ * by their paths (species and indices from the simulation), the lists, maps and graphs by descriptions of their
+ * contents, and the other values by copies. Each fork receives its own copies of these values, the ones referring to
+ * agents being resolved, once all the agents of the fork are created, as {@link IReference references}. Files are
+ * shared, as their contents are not modified by the simulations.
+ *
+ * Only the agents of the simulation and their direct micro-agents are restored (see
+ * {@link SimulationAgent#updateWith(IScope, SavedAgent)}). Matrices referring to agents are copied as they are.
+ *
+ * @since 2026
+ *
+ */
+public final class SimulationSnapshot {
+
+	/** The saved simulation. */
+	private final SavedAgent simulation;
+
+	/**
+	 * Instantiates a new simulation snapshot.
+	 *
+	 * @param simulation
+	 *            the saved simulation
+	 */
+	private SimulationSnapshot(final SavedAgent simulation) {
+		this.simulation = simulation;
+	}
+
+	/**
+	 * Takes a snapshot of a simulation.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param sim
+	 *            the simulation
+	 * @return the snapshot
+	 */
+	public static SimulationSnapshot capture(final IScope scope, final SimulationAgent sim) {
+		return new SimulationSnapshot(new Capture(scope, sim).agent(new SavedAgent(scope, sim)));
+	}
+
+	/**
+	 * Returns the saved agent from which a new simulation is to be created (see
+	 * {@link SimulationPopulation#createAgents(IScope, int, List, boolean, boolean)}), with its own copies of the
+	 * values of the snapshot, in which the values of the parameters, the seed and the random number generator are
+	 * replaced.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param parameters
+	 *            the values of the parameters of the new simulation
+	 * @param seed
+	 *            the seed of the new simulation
+	 * @param rng
+	 *            the name of its random number generator
+	 * @return the saved agent
+	 */
+	public SavedAgent fork(final IScope scope, final Map<String, Object> parameters, final Double seed,
+			final String rng) {
+		final SavedAgent result = new Fork(scope).agent(simulation);
+		parameters.forEach((name, value) -> { if (result.containsKey(name)) { result.put(name, value); } });
+		result.put(IKeyword.SEED, seed);
+		result.put(IKeyword.RNG, rng);
+		result.put(SimulationAgent.USAGE, 0);
+		return result;
+	}
+
+	/**
+	 * The path of an agent of the simulation: the names of the species and the indices of the agent and of its hosts,
+	 * from the simulation down to the agent.
+	 */
+	private record AgentPath(String[] species, int[] indices) {
+
+		/**
+		 * Finds the corresponding agent in a simulation.
+		 *
+		 * @param sim
+		 *            the simulation
+		 * @return the agent, or null if it does not exist
+		 */
+		IAgent resolve(final SimulationAgent sim) {
+			IAgent agent = sim;
+			for (int i = 0; i < species.length && agent instanceof IMacroAgent macro; i++) {
+				final IPopulation<? extends IAgent> pop = macro.getMicroPopulation(species[i]);
+				agent = pop == null ? null : pop.getAgent(indices[i]);
+			}
+			return agent;
+		}
+	}
+
+	/** The contents of a list. */
+	private record ListValue(IType<?> contentType, Object[] elements) {}
+
+	/** The contents of a map. */
+	private record MapValue(IType<?> keyType, IType<?> contentType, Object[] keys, Object[] values) {}
+
+	/** The contents of a graph, and an empty graph of the same kind. */
+	private record GraphValue(GamaGraph<?, ?> prototype, Object[] vertices, double[] vertexWeights, Object[] edges,
+			Object[] sources, Object[] targets, double[] edgeWeights) {}
+
+	/**
+	 * The copy of the values of a simulation into the snapshot. The values found several times are copied once.
+	 */
+	private static final class Capture {
+
+		/** The scope. */
+		final IScope scope;
+
+		/** The simulation. */
+		final SimulationAgent sim;
+
+		/** The copies of the values already encountered. */
+		final Map<Object, Object> copies = new IdentityHashMap<>();
+
+		/**
+		 * Instantiates a new capture.
+		 *
+		 * @param scope
+		 *            the scope
+		 * @param sim
+		 *            the simulation
+		 */
+		Capture(final IScope scope, final SimulationAgent sim) {
+			this.scope = scope;
+			this.sim = sim;
+		}
+
+		/**
+		 * Copies a saved agent and its micro-agents.
+		 *
+		 * @param saved
+		 *            the saved agent
+		 * @return the copy
+		 */
+		SavedAgent agent(final SavedAgent saved) {
+			final Map<String, Object> values = new LinkedHashMap<>();
+			saved.forEach((name, value) -> values.put(name, value(value)));
+			Map<String, List<SavedAgent>> micros = null;
+			if (saved.getInnerPopulations() != null) {
+				micros = GamaMapFactory.create();
+				for (final Map.Entry<String, List<SavedAgent>> entry : saved.getInnerPopulations().entrySet()) {
+					final List<SavedAgent> agents = new ArrayList<>(entry.getValue().size());
+					for (final SavedAgent micro : entry.getValue()) { agents.add(agent(micro)); }
+					micros.put(entry.getKey(), agents);
+				}
+			}
+			return new SavedAgent(saved.getIndex(), values, micros);
+		}
+
+		/**
+		 * Copies a value.
+		 *
+		 * @param value
+		 *            the value
+		 * @return the copy
+		 */
+		Object value(final Object value) {
+			if (value == null) return null;
+			final Object existing = copies.get(value);
+			if (existing != null) return existing;
+			if (value instanceof IAgent agent) return path(agent);
+			if (value instanceof GamaGraph<?, ?> graph) return graph(graph);
+			if (value instanceof IList<?> list) return list(list);
+			if (value instanceof IMap<?, ?> map) return map(map);
+			if (value instanceof IGamaFile || !(value instanceof IValue v)) return value;
+			final Object copy = v.copy(scope);
+			copies.put(value, copy);
+			return copy;
+		}
+
+		/**
+		 * The path of an agent, or the agent itself if it does not belong to the simulation.
+		 */
+		private Object path(final IAgent agent) {
+			final List<IAgent> chain = new ArrayList<>();
+			IAgent a = agent;
+			while (a != null && a != sim) {
+				chain.add(0, a);
+				a = a.getHost();
+			}
+			if (a == null) return agent;
+			final String[] species = new String[chain.size()];
+			final int[] indices = new int[chain.size()];
+			for (int i = 0; i < species.length; i++) {
+				species[i] = chain.get(i).getSpecies().getName();
+				indices[i] = chain.get(i).getIndex();
+			}
+			final AgentPath path = new AgentPath(species, indices);
+			copies.put(agent, path);
+			return path;
+		}
+
+		/**
+		 * The contents of a list.
+		 */
+		private Object list(final IList<?> list) {
+			final ListValue result = new ListValue(list.getGamlType().getContentType(), new Object[list.size()]);
+			copies.put(list, result);
+			for (int i = 0; i < result.elements.length; i++) { result.elements[i] = value(list.get(i)); }
+			return result;
+		}
+
+		/**
+		 * The contents of a map.
+		 */
+		private Object map(final IMap<?, ?> map) {
+			final MapValue result = new MapValue(map.getGamlType().getKeyType(), map.getGamlType().getContentType(),
+					new Object[map.size()], new Object[map.size()]);
+			copies.put(map, result);
+			int i = 0;
+			for (final Map.Entry<?, ?> entry : map.entrySet()) {
+				result.keys[i] = value(entry.getKey());
+				result.values[i++] = value(entry.getValue());
+			}
+			return result;
+		}
+
+		/**
+		 * The contents of a graph.
+		 */
+		private Object graph(final GamaGraph<?, ?> graph) {
+			final Object[] vertices = graph.vertexSet().toArray();
+			final Object[] edges = graph.edgeSet().toArray();
+			final GraphValue result = new GraphValue(graph.emptyCopy(scope), new Object[vertices.length],
+					new double[vertices.length], new Object[edges.length], new Object[edges.length],
+					new Object[edges.length], new double[edges.length]);
+			copies.put(graph, result);
+			for (int i = 0; i < vertices.length; i++) {
+				result.vertices[i] = value(vertices[i]);
+				result.vertexWeights[i] = graph.getWeightOf(vertices[i]);
+			}
+			for (int i = 0; i < edges.length; i++) {
+				result.edges[i] = value(edges[i]);
+				result.sources[i] = value(graph.getEdgeSource(edges[i]));
+				result.targets[i] = value(graph.getEdgeTarget(edges[i]));
+				result.edgeWeights[i] = graph.getWeightOf(edges[i]);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * The copy of the values of the snapshot into a new simulation. The values referring to agents are resolved once
+	 * all the agents are created; the values found several times are copied once.
+	 */
+	private static final class Fork {
+
+		/** The scope. */
+		final IScope scope;
+
+		/** The copies of the values already encountered. */
+		final Map<Object, Object> copies = new IdentityHashMap<>();
+
+		/**
+		 * Instantiates a new fork.
+		 *
+		 * @param scope
+		 *            the scope
+		 */
+		Fork(final IScope scope) {
+			this.scope = scope;
+		}
+
+		/**
+		 * Copies a saved agent of the snapshot and its micro-agents.
+		 *
+		 * @param saved
+		 *            the saved agent
+		 * @return the copy
+		 */
+		SavedAgent agent(final SavedAgent saved) {
+			final Map<String, Object> values = new LinkedHashMap<>();
+			saved.forEach((name, value) -> values.put(name, isResolved(value) ? new Reference(this, value)
+					: value(scope, value, null)));
+			Map<String, List<SavedAgent>> micros = null;
+			if (saved.getInnerPopulations() != null) {
+				micros = GamaMapFactory.create();
+				for (final Map.Entry<String, List<SavedAgent>> entry : saved.getInnerPopulations().entrySet()) {
+					final List<SavedAgent> agents = new ArrayList<>(entry.getValue().size());
+					for (final SavedAgent micro : entry.getValue()) { agents.add(agent(micro)); }
+					micros.put(entry.getKey(), agents);
+				}
+			}
+			return new SavedAgent(saved.getIndex(), values, micros);
+		}
+
+		/**
+		 * Whether a value of the snapshot is to be resolved once the agents of the simulation are created.
+		 */
+		private boolean isResolved(final Object value) {
+			return value instanceof AgentPath || value instanceof ListValue || value instanceof MapValue
+					|| value instanceof GraphValue;
+		}
+
+		/**
+		 * Copies a value of the snapshot.
+		 *
+		 * @param s
+		 *            the scope
+		 * @param value
+		 *            the value
+		 * @param sim
+		 *            the simulation in which the agents are resolved (only used by the values to be resolved)
+		 * @return the copy
+		 */
+		@SuppressWarnings ({ "unchecked", "rawtypes" })
+		Object value(final IScope s, final Object value, final SimulationAgent sim) {
+			if (value == null) return null;
+			final Object existing = copies.get(value);
+			if (existing != null) return existing;
+			if (value instanceof AgentPath path) {
+				final IAgent agent = path.resolve(sim);
+				copies.put(value, agent);
+				return agent;
+			}
+			if (value instanceof ListValue l) {
+				final IList list = GamaListFactory.create(l.contentType, l.elements.length);
+				copies.put(value, list);
+				for (final Object element : l.elements) { list.add(value(s, element, sim)); }
+				return list;
+			}
+			if (value instanceof MapValue m) {
+				final IMap map = GamaMapFactory.create(m.keyType, m.contentType, m.keys.length);
+				copies.put(value, map);
+				for (int i = 0; i < m.keys.length; i++) {
+					map.put(value(s, m.keys[i], sim), value(s, m.values[i], sim));
+				}
+				return map;
+			}
+			if (value instanceof GraphValue g) {
+				final GamaGraph graph = g.prototype.emptyCopy(s);
+				copies.put(value, graph);
+				for (int i = 0; i < g.vertices.length; i++) {
+					final Object vertex = value(s, g.vertices[i], sim);
+					graph.addVertex(vertex);
+					graph.setVertexWeight(vertex, g.vertexWeights[i]);
+				}
+				for (int i = 0; i < g.edges.length; i++) {
+					final Object edge = value(s, g.edges[i], sim);
+					graph.addEdge(value(s, g.sources[i], sim), value(s, g.targets[i], sim), edge);
+					graph.setEdgeWeight(edge, g.edgeWeights[i]);
+				}
+				return graph;
+			}
+			if (value instanceof IGamaFile || !(value instanceof IValue v)) return value;
+			final Object copy = v.copy(s);
+			copies.put(value, copy);
+			return copy;
+		}
+	}
+
+	/**
+	 * A value of the snapshot referring to agents, resolved once all the agents of the new simulation are created.
+	 */
+	private static final class Reference implements IReference {
+
+		/** The fork. */
+		final Fork fork;
+
+		/** The value of the snapshot. */
+		final Object value;
+
+		/** The attributes of the agents receiving the value. */
+		final ArrayList<AgentAttribute> attributes = new ArrayList<>();
+
+		/**
+		 * Instantiates a new reference.
+		 *
+		 * @param fork
+		 *            the fork
+		 * @param value
+		 *            the value of the snapshot
+		 */
+		Reference(final Fork fork, final Object value) {
+			this.fork = fork;
+			this.value = value;
+		}
+
+		@Override
+		public Object constructReferencedObject(final SimulationAgent sim) {
+			return fork.value(sim.getScope(), value, sim);
+		}
+
+		@Override
+		public ArrayList<AgentAttribute> getAgentAttributes() { return attributes; }
+	}
+
+}
@@ -27,7 +27,9 @@ import gama.core.metamodel.shape.GamaPoint;
 import gama.core.metamodel.shape.IShape;
 import gama.core.metamodel.topology.ITopology;
 import gama.core.runtime.GAMA;
+import gama.core.runtime.GamaMetrics;
 import gama.core.runtime.IScope;
+import gama.core.runtime.concurrent.DeterministicStep;
 import gama.core.runtime.exceptions.GamaRuntimeException;
 import gama.core.util.GamaListFactory;
 import gama.core.util.IList;
@@ -84,6 +86,7 @@ public abstract class AbstractAgent implements IAgent {
 	 */
 	protected AbstractAgent(final int index) {
 		this.index = index;
+		GamaMetrics.AGENTS_CREATED.increment();
 	}
 
 	@Override
@@ -96,6 +99,7 @@ public abstract class AbstractAgent implements IAgent {
 	public void dispose() {
 		if (dead) return;
 		dead = true;
+		GamaMetrics.AGENTS_KILLED.increment();
 		final IPopulation<? extends IAgent> p = getPopulation();
 		if (p != null) { p.removeValue(null, this); }
 		final IShape s = getGeometry();
@@ -520,7 +524,8 @@ public abstract class AbstractAgent implements IAgent {
 			dying = true;
 			getSpecies().getArchitecture().abort(scope);
 			scope.setDeathStatus();
-			dispose();
+			// Within a deterministic parallel step, agents die at the end of the step
+			if (!DeterministicStep.deferDeath(scope, this)) { dispose(); }
 		}
 		return null;
 	}
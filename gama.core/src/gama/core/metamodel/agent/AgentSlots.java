@@ -0,0 +1,202 @@
+/*******************************************************************************************************
+ *
+ * AgentSlots.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.metamodel.agent;
+
+import java.util.Map;
+
+import gama.annotations.common.interfaces.BiConsumerWithPruning;
+
+/**
+ * The Class AgentSlots. The storage of the declared attributes of an agent, organized following the {@link SlotLayout}
+ * of its species. Float, int and bool values are kept unboxed in primitive arrays. A value that does not fit in the
+ * lane of its slot (for instance nil for a float attribute) is refused by {@link #set(int, Object)}, so that the caller
+ * can keep it in the map of attributes instead.
+ *
+ * @since 2026
+ *
+ */
+public final class AgentSlots {
+
+	/** The layout. */
+	final SlotLayout layout;
+
+	/** The objects. */
+	final Object[] objects;
+
+	/** The floats. */
+	final double[] floats;
+
+	/** The ints. */
+	final int[] ints;
+
+	/** The bools. */
+	final boolean[] bools;
+
+	/** Which slots have been assigned a value. */
+	final long[] assigned;
+
+	/**
+	 * Instantiates new slots.
+	 *
+	 * @param layout
+	 *            the layout
+	 */
+	AgentSlots(final SlotLayout layout) {
+		this.layout = layout;
+		objects = new Object[layout.objects];
+		floats = new double[layout.floats];
+		ints = new int[layout.ints];
+		bools = new boolean[layout.bools];
+		assigned = new long[(layout.size() + 63) >>> 6];
+	}
+
+	/**
+	 * Gets the layout.
+	 *
+	 * @return the layout
+	 */
+	public SlotLayout getLayout() { return layout; }
+
+	/**
+	 * Checks if the slot has been assigned a value
+	 *
+	 * @param index
+	 *            the index
+	 * @return true, if is sets the
+	 */
+	public boolean isSet(final int index) {
+		return (assigned[index >>> 6] & 1L << index) != 0;
+	}
+
+	/**
+	 * Returns the value stored in the slot. Primitive values are boxed.
+	 *
+	 * @param index
+	 *            the index
+	 * @return the object
+	 */
+	public Object get(final int index) {
+		final int lane = layout.lanes[index];
+		return switch (layout.kinds[index]) {
+			case SlotLayout.FLOAT -> floats[lane];
+			case SlotLayout.INT -> ints[lane];
+			case SlotLayout.BOOL -> bools[lane];
+			default -> objects[lane];
+		};
+	}
+
+	/**
+	 * Returns the value of a float slot without boxing it
+	 *
+	 * @param index
+	 *            the index of a slot of kind FLOAT
+	 * @return the double
+	 */
+	public double getFloat(final int index) {
+		return floats[layout.lanes[index]];
+	}
+
+	/**
+	 * Returns the value of an int slot without boxing it
+	 *
+	 * @param index
+	 *            the index of a slot of kind INT
+	 * @return the int
+	 */
+	public int getInt(final int index) {
+		return ints[layout.lanes[index]];
+	}
+
+	/**
+	 * Returns the value of a bool slot without boxing it
+	 *
+	 * @param index
+	 *            the index of a slot of kind BOOL
+	 * @return the boolean
+	 */
+	public boolean getBool(final int index) {
+		return bools[layout.lanes[index]];
+	}
+
+	/**
+	 * Stores the value in the slot if it fits in its lane.
+	 *
+	 * @param index
+	 *            the index
+	 * @param value
+	 *            the value
+	 * @return true if the value has been stored, false if it must be stored elsewhere (the slot is then marked as
+	 *         unassigned)
+	 */
+	public boolean set(final int index, final Object value) {
+		final int lane = layout.lanes[index];
+		switch (layout.kinds[index]) {
+			case SlotLayout.FLOAT:
+				if (!(value instanceof Double d)) return unset(index);
+				floats[lane] = d;
+				break;
+			case SlotLayout.INT:
+				if (!(value instanceof Integer i)) return unset(index);
+				ints[lane] = i;
+				break;
+			case SlotLayout.BOOL:
+				if (!(value instanceof Boolean b)) return unset(index);
+				bools[lane] = b;
+				break;
+			default:
+				objects[lane] = value;
+		}
+		assigned[index >>> 6] |= 1L << index;
+		return true;
+	}
+
+	/**
+	 * Marks the slot as unassigned.
+	 *
+	 * @param index
+	 *            the index
+	 * @return false
+	 */
+	boolean unset(final int index) {
+		assigned[index >>> 6] &= ~(1L << index);
+		return false;
+	}
+
+	/**
+	 * Moves the values of the assigned slots to a map, and marks the slots as unassigned.
+	 *
+	 * @param map
+	 *            the map
+	 */
+	public void moveTo(final Map<String, Object> map) {
+		for (int i = 0; i < layout.size(); i++) {
+			if (isSet(i)) {
+				map.put(layout.names[i], get(i));
+				unset(i);
+			}
+		}
+	}
+
+	/**
+	 * Visits the assigned slots, in the order of the layout.
+	 *
+	 * @param visitor
+	 *            the visitor
+	 * @return false if the visit has been pruned
+	 */
+	public boolean forEach(final BiConsumerWithPruning<String, Object> visitor) {
+		for (int i = 0; i < layout.size(); i++) {
+			if (isSet(i) && !visitor.process(layout.names[i], get(i))) return false;
+		}
+		return true;
+	}
+
+}
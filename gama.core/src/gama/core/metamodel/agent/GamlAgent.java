@@ -13,8 +13,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import gama.annotations.common.interfaces.BiConsumerWithPruning;
 import gama.core.metamodel.population.IPopulation;
 import gama.core.metamodel.population.MetaPopulation;
+import gama.core.metamodel.shape.GamaShape;
 import gama.core.metamodel.shape.IShape;
 import gama.core.runtime.IScope;
 import gama.core.runtime.exceptions.GamaRuntimeException;
@@ -52,6 +54,13 @@ public class GamlAgent extends MinimalAgent implements IMacroAgent {
 
 	// end-hqnghi
 
+	/**
+	 * The values of the attributes declared in the species, stored following its slot layout. Lazily created when the
+	 * first of these attributes is assigned. The map of attributes of the geometry is only used for attributes that are
+	 * not part of the layout (dynamically added ones, attributes of built-in species, etc.)
+	 */
+	protected AgentSlots slots;
+
 	/**
 	 * @param s
 	 *            the population used to prototype the agent.
@@ -68,6 +77,93 @@ public class GamlAgent extends MinimalAgent implements IMacroAgent {
 		super(gridPopulation, index, geometry);
 	}
 
+	/**
+	 * Returns the slots of this agent, creating them if necessary. Returns null if the species of the agent does not
+	 * declare attributes stored in slots. When they are created, the map of attributes of the geometry is replaced by
+	 * a {@link SlottedAttributes} backed by them.
+	 *
+	 * @return the agent slots or null
+	 */
+	protected AgentSlots getOrCreateSlots() {
+		if (slots == null) {
+			final IPopulation<? extends IAgent> pop = getPopulation();
+			final ISpecies species = pop == null ? null : pop.getSpecies();
+			if (species == null || species.getDescription() == null) return null;
+			final SlotLayout layout = species.getDescription().getSlotLayout();
+			if (layout.size() == 0) return null;
+			slots = layout.newSlots();
+			if (getGeometry() instanceof GamaShape shape) { shape.setAttributesMap(new SlottedAttributes(slots)); }
+		}
+		return slots;
+	}
+
+	/**
+	 * Returns the slots of this agent (can be null if no attribute stored in slots has been assigned yet)
+	 *
+	 * @return the slots
+	 */
+	public AgentSlots getSlots() { return slots; }
+
+	@Override
+	public Object getAttribute(final String key) {
+		final AgentSlots s = slots;
+		if (s != null) {
+			final int index = s.layout.indexOf(key);
+			if (index != SlotLayout.NONE && s.isSet(index)) return s.get(index);
+		}
+		return super.getAttribute(key);
+	}
+
+	@Override
+	public void setAttribute(final String name, final Object val) {
+		final AgentSlots s = getOrCreateSlots();
+		if (s != null) {
+			final int index = s.layout.indexOf(name);
+			if (index != SlotLayout.NONE && s.set(index, val)) return;
+		}
+		// The values that do not fit in their slot are kept in the map of the geometry
+		getGeometry().getOrCreateAttributes().put(name, val);
+	}
+
+	/**
+	 * Returns the map of attributes, which is backed by the slots (see {@link SlottedAttributes}), so that the callers
+	 * that read or modify the map directly (like the container statements applied to agents) see and modify the values
+	 * of the slots. Only if the geometry cannot hold such a map are the values of the assigned slots moved to the map
+	 * (the slots are then used again when their attributes are next assigned).
+	 */
+	@Override
+	public IMap<String, Object> getOrCreateAttributes() {
+		final AgentSlots s = getOrCreateSlots();
+		final IMap<String, Object> map = super.getOrCreateAttributes();
+		if (s != null && !(map instanceof SlottedAttributes)) { s.moveTo(map); }
+		return map;
+	}
+
+	@Override
+	public boolean hasAttribute(final String key) {
+		final AgentSlots s = slots;
+		if (s != null) {
+			final int index = s.layout.indexOf(key);
+			if (index != SlotLayout.NONE && s.isSet(index)) return true;
+		}
+		return super.hasAttribute(key);
+	}
+
+	@Override
+	public void forEachAttribute(final BiConsumerWithPruning<String, Object> visitor) {
+		final AgentSlots s = slots;
+		if (s == null) {
+			super.forEachAttribute(visitor);
+			return;
+		}
+		if (!s.forEach(visitor)) return;
+		// Values of the map that are shadowed by a slot are not visited
+		super.forEachAttribute((k, v) -> {
+			final int index = s.layout.indexOf(k);
+			return index != SlotLayout.NONE && s.isSet(index) || visitor.process(k, v);
+		});
+	}
+
 	/**
 	 * Checks if is population.
 	 *
@@ -0,0 +1,268 @@
+/*******************************************************************************************************
+ *
+ * SlotLayout.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.metamodel.agent;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The Class SlotLayout. Describes, for a given species, the fixed position of each of its declared attributes in the
+ * slot storage of its agents (see {@link AgentSlots}). Attributes of type float, int and bool are stored in primitive
+ * "lanes" (double[], int[], boolean[]), all the others in an Object[] lane.
+ *
+ * A layout is computed once per species (see SpeciesDescription#getSlotLayout()) and always begins with the layout of
+ * the parent species, so that the index of an attribute is the same in a species and in all its sub-species. This
+ * allows expressions to resolve the index of an attribute once and to use it for any agent of the species or of its
+ * sub-species.
+ *
+ * @since 2026
+ *
+ */
+public final class SlotLayout {
+
+	/** The kinds of slots. */
+	public static final byte OBJECT = 0, FLOAT = 1, INT = 2, BOOL = 3;
+
+	/** The index returned when an attribute is not part of the layout */
+	public static final int NONE = -1;
+
+	/** The empty layout, used by species that do not declare attributes. */
+	public static final SlotLayout EMPTY = new SlotLayout(new String[0], new byte[0], new int[0], new boolean[0]);
+
+	/** The names of the attributes, by slot index. */
+	final String[] names;
+
+	/** The kind of each slot. */
+	final byte[] kinds;
+
+	/** The position of each slot in its lane. */
+	final int[] lanes;
+
+	/** Whether the value of the slot can be read directly (i.e. the attribute has no getter nor function). */
+	final boolean[] direct;
+
+	/** The indices of the attributes, by name. */
+	final Map<String, Integer> indices;
+
+	/** The sizes of the lanes. */
+	final int objects, floats, ints, bools;
+
+	/**
+	 * Instantiates a new slot layout.
+	 *
+	 * @param names
+	 *            the names
+	 * @param kinds
+	 *            the kinds
+	 * @param lanes
+	 *            the lanes
+	 * @param direct
+	 *            the direct
+	 */
+	private SlotLayout(final String[] names, final byte[] kinds, final int[] lanes, final boolean[] direct) {
+		this.names = names;
+		this.kinds = kinds;
+		this.lanes = lanes;
+		this.direct = direct;
+		indices = new HashMap<>();
+		int o = 0, f = 0, i = 0, b = 0;
+		for (int index = 0; index < names.length; index++) {
+			indices.put(names[index], index);
+			switch (kinds[index]) {
+				case FLOAT -> f++;
+				case INT -> i++;
+				case BOOL -> b++;
+				default -> o++;
+			}
+		}
+		objects = o;
+		floats = f;
+		ints = i;
+		bools = b;
+	}
+
+	/**
+	 * Returns the index of the slot of the attribute, or {@link #NONE} if this attribute is not stored in slots
+	 *
+	 * @param name
+	 *            the name of the attribute
+	 * @return the index of its slot or NONE
+	 */
+	public int indexOf(final String name) {
+		final Integer index = indices.get(name);
+		return index == null ? NONE : index;
+	}
+
+	/**
+	 * Returns the name of the attribute stored in this slot.
+	 *
+	 * @param index
+	 *            a valid index of slot
+	 * @return the name of the attribute
+	 */
+	public String getName(final int index) {
+		return names[index];
+	}
+
+	/**
+	 * Whether the value of the attribute stored in this slot can be read directly from the slot, without going through
+	 * the variable (i.e. it has no getter nor function in this species)
+	 *
+	 * @param index
+	 *            a valid index of slot
+	 * @return true if the value can be read directly
+	 */
+	public boolean isDirect(final int index) {
+		return direct[index];
+	}
+
+	/**
+	 * Whether the slot at this index describes the same attribute in this layout. Used to verify that an index resolved
+	 * against the layout of a species can be used on an agent that may belong to another species
+	 *
+	 * @param index
+	 *            the index
+	 * @param name
+	 *            the name of the attribute
+	 * @return true if the slot can be used to access this attribute
+	 */
+	public boolean matches(final int index, final String name) {
+		return index >= 0 && index < names.length && name.equals(names[index]);
+	}
+
+	/**
+	 * Size.
+	 *
+	 * @return the number of slots
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * Creates a new, empty, storage for an agent
+	 *
+	 * @return the agent slots
+	 */
+	public AgentSlots newSlots() {
+		return new AgentSlots(this);
+	}
+
+	/**
+	 * Returns a builder whose first slots are the ones of this layout
+	 *
+	 * @return a new builder
+	 */
+	public Builder extend() {
+		return new Builder(this);
+	}
+
+	/**
+	 * The Class Builder.
+	 */
+	public static class Builder {
+
+		/** The names. */
+		String[] names;
+
+		/** The kinds. */
+		byte[] kinds;
+
+		/** The direct. */
+		boolean[] direct;
+
+		/** The size. */
+		int size;
+
+		/** The indices. */
+		final Map<String, Integer> indices = new HashMap<>();
+
+		/**
+		 * Instantiates a new builder.
+		 *
+		 * @param parent
+		 *            the parent
+		 */
+		Builder(final SlotLayout parent) {
+			size = parent.names.length;
+			names = Arrays.copyOf(parent.names, size + 8);
+			kinds = Arrays.copyOf(parent.kinds, size + 8);
+			direct = Arrays.copyOf(parent.direct, size + 8);
+			indices.putAll(parent.indices);
+		}
+
+		/**
+		 * Adds an attribute to the layout. If the attribute is already present (i.e. inherited from the parent
+		 * layout), it keeps its index and kind and only its direct status is updated.
+		 *
+		 * @param name
+		 *            the name
+		 * @param kind
+		 *            the kind
+		 * @param isDirect
+		 *            the is direct
+		 * @return the builder
+		 */
+		public Builder add(final String name, final byte kind, final boolean isDirect) {
+			final Integer existing = indices.get(name);
+			if (existing != null) {
+				direct[existing] = isDirect && kinds[existing] == kind;
+				return this;
+			}
+			if (size == names.length) {
+				names = Arrays.copyOf(names, size * 2 + 1);
+				kinds = Arrays.copyOf(kinds, size * 2 + 1);
+				direct = Arrays.copyOf(direct, size * 2 + 1);
+			}
+			names[size] = name;
+			kinds[size] = kind;
+			direct[size] = isDirect;
+			indices.put(name, size++);
+			return this;
+		}
+
+		/**
+		 * Prevents the slot of an inherited attribute (if any) from being read directly, for instance because it is
+		 * redefined with a setter in a sub-species.
+		 *
+		 * @param name
+		 *            the name
+		 * @return the builder
+		 */
+		public Builder exclude(final String name) {
+			final Integer existing = indices.get(name);
+			if (existing != null) { direct[existing] = false; }
+			return this;
+		}
+
+		/**
+		 * Builds the layout
+		 *
+		 * @return the slot layout
+		 */
+		public SlotLayout build() {
+			final byte[] k = Arrays.copyOf(kinds, size);
+			final int[] lanes = new int[size];
+			int o = 0, f = 0, i = 0, b = 0;
+			for (int index = 0; index < size; index++) {
+				lanes[index] = switch (k[index]) {
+					case FLOAT -> f++;
+					case INT -> i++;
+					case BOOL -> b++;
+					default -> o++;
+				};
+			}
+			return new SlotLayout(Arrays.copyOf(names, size), k, lanes, Arrays.copyOf(direct, size));
+		}
+	}
+
+}
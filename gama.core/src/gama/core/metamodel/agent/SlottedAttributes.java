@@ -0,0 +1,370 @@
+/*******************************************************************************************************
+ *
+ * SlottedAttributes.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.metamodel.agent;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import gama.core.util.GamaMap;
+import gaml.core.types.Types;
+
+/**
+ * The Class SlottedAttributes. The map of attributes of an agent whose declared attributes are stored in
+ * {@link AgentSlots}: it is installed as the map of attributes of the geometry of the agent, so that the callers that
+ * read or modify the map directly (container statements applied to agents, copies and mixes of the attributes of
+ * geometries) see the values of the slots and write to them. The attributes that do not have a slot, or whose value
+ * does not fit in it, are kept in the map itself. A key is never both in a slot and in the map.
+ *
+ * @since 2026
+ *
+ */
+public final class SlottedAttributes extends GamaMap<String, Object> {
+
+	/** The slots of the agent. */
+	private final AgentSlots slots;
+
+	/**
+	 * Instantiates the attributes of an agent.
+	 *
+	 * @param slots
+	 *            the slots of the agent
+	 */
+	SlottedAttributes(final AgentSlots slots) {
+		super(10, Types.STRING, Types.NO_TYPE);
+		this.slots = slots;
+	}
+
+	/**
+	 * The index of the slot of a key, or {@link SlotLayout#NONE}.
+	 */
+	private int indexOf(final Object key) {
+		return key instanceof String s ? slots.layout.indexOf(s) : SlotLayout.NONE;
+	}
+
+	/**
+	 * The number of slots assigned.
+	 */
+	private int assigned() {
+		int result = 0;
+		for (final long bits : slots.assigned) { result += Long.bitCount(bits); }
+		return result;
+	}
+
+	@Override
+	public Object get(final Object key) {
+		final int index = indexOf(key);
+		if (index != SlotLayout.NONE && slots.isSet(index)) return slots.get(index);
+		return super.get(key);
+	}
+
+	@Override
+	public Object getOrDefault(final Object key, final Object defaultValue) {
+		return containsKey(key) ? get(key) : defaultValue;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		final int index = indexOf(key);
+		return index != SlotLayout.NONE && slots.isSet(index) || super.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(final Object value) {
+		for (int i = 0; i < slots.layout.size(); i++) {
+			if (slots.isSet(i) && Objects.equals(slots.get(i), value)) return true;
+		}
+		return super.containsValue(value);
+	}
+
+	@Override
+	public Object put(final String key, final Object value) {
+		final int index = indexOf(key);
+		if (index == SlotLayout.NONE) return super.put(key, value);
+		final Object previous = get(key);
+		// The slot refuses (and unassigns itself) the values that do not fit in it
+		if (slots.set(index, value)) {
+			super.remove(key);
+		} else {
+			super.put(key, value);
+		}
+		return previous;
+	}
+
+	@Override
+	public Object putIfAbsent(final String key, final Object value) {
+		final Object previous = get(key);
+		if (previous == null) { put(key, value); }
+		return previous;
+	}
+
+	@Override
+	public void putAll(final Map<? extends String, ? extends Object> map) {
+		map.forEach(this::put);
+	}
+
+	@Override
+	public Object remove(final Object key) {
+		final int index = indexOf(key);
+		if (index != SlotLayout.NONE && slots.isSet(index)) {
+			final Object previous = slots.get(index);
+			slots.unset(index);
+			return previous;
+		}
+		return super.remove(key);
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < slots.layout.size(); i++) { slots.unset(i); }
+		super.clear();
+	}
+
+	@Override
+	public int size() {
+		return assigned() + super.size();
+	}
+
+	@Override
+	public boolean isEmpty() { return size() == 0; }
+
+	@Override
+	public void forEach(final BiConsumer<? super String, ? super Object> action) {
+		for (int i = 0; i < slots.layout.size(); i++) {
+			if (slots.isSet(i)) { action.accept(slots.layout.names[i], slots.get(i)); }
+		}
+		super.forEach(action);
+	}
+
+	@Override
+	public void replaceAll(final BiFunction<? super String, ? super Object, ? extends Object> function) {
+		// The keys are copied first, as the new values can move from the slots to the map
+		for (final String key : new ArrayList<>(keySet())) { put(key, function.apply(key, get(key))); }
+	}
+
+	@Override
+	public boolean remove(final Object key, final Object value) {
+		if (!containsKey(key) || !Objects.equals(get(key), value)) return false;
+		remove(key);
+		return true;
+	}
+
+	@Override
+	public Object replace(final String key, final Object value) {
+		return containsKey(key) ? put(key, value) : null;
+	}
+
+	@Override
+	public boolean replace(final String key, final Object oldValue, final Object newValue) {
+		if (!containsKey(key) || !Objects.equals(get(key), oldValue)) return false;
+		put(key, newValue);
+		return true;
+	}
+
+	@Override
+	public Object computeIfAbsent(final String key, final Function<? super String, ? extends Object> function) {
+		Object value = get(key);
+		if (value == null) {
+			value = function.apply(key);
+			if (value != null) { put(key, value); }
+		}
+		return value;
+	}
+
+	@Override
+	public Object computeIfPresent(final String key,
+			final BiFunction<? super String, ? super Object, ? extends Object> function) {
+		final Object value = get(key);
+		return value == null ? null : store(key, function.apply(key, value));
+	}
+
+	@Override
+	public Object compute(final String key,
+			final BiFunction<? super String, ? super Object, ? extends Object> function) {
+		return store(key, function.apply(key, get(key)));
+	}
+
+	@Override
+	public Object merge(final String key, final Object value,
+			final BiFunction<? super Object, ? super Object, ? extends Object> function) {
+		final Object previous = get(key);
+		return store(key, previous == null ? value : function.apply(previous, value));
+	}
+
+	/**
+	 * Puts a value computed for a key, or removes the key if the value is null.
+	 */
+	private Object store(final String key, final Object value) {
+		if (value == null) {
+			remove(key);
+		} else {
+			put(key, value);
+		}
+		return value;
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		return new AbstractSet<>() {
+
+			@Override
+			public Iterator<Map.Entry<String, Object>> iterator() {
+				return new Entries();
+			}
+
+			@Override
+			public int size() {
+				return SlottedAttributes.this.size();
+			}
+		};
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return new AbstractSet<>() {
+
+			@Override
+			public Iterator<String> iterator() {
+				final Entries entries = new Entries();
+				return new Iterator<>() {
+
+					@Override
+					public boolean hasNext() {
+						return entries.hasNext();
+					}
+
+					@Override
+					public String next() {
+						return entries.next().getKey();
+					}
+
+					@Override
+					public void remove() {
+						entries.remove();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return SlottedAttributes.this.size();
+			}
+
+			@Override
+			public boolean contains(final Object o) {
+				return containsKey(o);
+			}
+		};
+	}
+
+	@Override
+	public Collection<Object> values() {
+		return new AbstractCollection<>() {
+
+			@Override
+			public Iterator<Object> iterator() {
+				final Entries entries = new Entries();
+				return new Iterator<>() {
+
+					@Override
+					public boolean hasNext() {
+						return entries.hasNext();
+					}
+
+					@Override
+					public Object next() {
+						return entries.next().getValue();
+					}
+
+					@Override
+					public void remove() {
+						entries.remove();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return SlottedAttributes.this.size();
+			}
+		};
+	}
+
+	/**
+	 * The iterator over the entries: the assigned slots, in the order of the layout, then the entries of the map. The
+	 * entries write through to the attributes.
+	 */
+	private class Entries implements Iterator<Map.Entry<String, Object>> {
+
+		/** The entries of the map, iterated once the slots have been. */
+		private final Iterator<Map.Entry<String, Object>> others = SlottedAttributes.super.entrySet().iterator();
+
+		/** The index of the next assigned slot, or the size of the layout. */
+		private int next = advance(0);
+
+		/** The key of the last slot returned, or null if the last entry comes from the map. */
+		private String last;
+
+		/**
+		 * The index of the first assigned slot from an index.
+		 */
+		private int advance(final int from) {
+			int i = from;
+			while (i < slots.layout.size() && !slots.isSet(i)) { i++; }
+			return i;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < slots.layout.size() || others.hasNext();
+		}
+
+		@Override
+		public Map.Entry<String, Object> next() {
+			if (next < slots.layout.size()) {
+				last = slots.layout.names[next];
+				final Map.Entry<String, Object> entry = new SimpleEntry<>(last, slots.get(next)) {
+
+					@Override
+					public Object setValue(final Object value) {
+						put(getKey(), value);
+						return super.setValue(value);
+					}
+				};
+				next = advance(next + 1);
+				return entry;
+			}
+			if (!others.hasNext()) throw new NoSuchElementException();
+			last = null;
+			return others.next();
+		}
+
+		@Override
+		public void remove() {
+			if (last == null) {
+				others.remove();
+			} else {
+				slots.unset(slots.layout.indexOf(last));
+			}
+		}
+	}
+
+}
@@ -54,6 +54,7 @@ import gama.core.metamodel.agent.IMacroAgent;
 import gama.core.metamodel.shape.GamaPoint;
 import gama.core.metamodel.shape.GamaShape;
 import gama.core.metamodel.shape.IShape;
+import gama.core.metamodel.topology.ISpatialIndex;
 import gama.core.metamodel.topology.ITopology;
 import gama.core.metamodel.topology.continuous.ContinuousTopology;
 import gama.core.metamodel.topology.filter.IAgentFilter;
@@ -65,6 +66,7 @@ import gama.core.runtime.FlowStatus;
 import gama.core.runtime.GAMA;
 import gama.core.runtime.IScope;
 import gama.core.runtime.benchmark.StopWatch;
+import gama.core.runtime.concurrent.DeterministicStep;
 import gama.core.runtime.concurrent.GamaExecutorService;
 import gama.core.runtime.exceptions.GamaRuntimeException;
 import gama.core.util.GamaList;
@@ -331,10 +333,29 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 		}
 		if (mirrorManagement != null) { mirrorManagement.executeOn(scope); }
 		getSpecies().getArchitecture().preStep(scope, this);
-		return stepAgents(scope);
+		final ISpatialIndex.Deferred deferred = getDeferredIndex();
+		if (deferred == null) return stepAgents(scope);
+		deferred.beginDeferring();
+		try {
+			return stepAgents(scope);
+		} finally {
+			deferred.commit();
+		}
 
 	}
 
+	/**
+	 * Returns the spatial index of the species if it defers the updates due to the moves of its agents
+	 *
+	 * @return the deferred index or null
+	 */
+	private ISpatialIndex.Deferred getDeferredIndex() {
+		if (!species.isDeferringSpatialUpdates()) return null;
+		final ITopology topology = getTopology();
+		if (topology == null || !(topology.getSpatialIndex() instanceof ISpatialIndex.Compound compound)) return null;
+		return compound.getIndex(species) instanceof ISpatialIndex.Deferred d ? d : null;
+	}
+
 	/**
 	 * Step agents.
 	 *
@@ -452,15 +473,16 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 		if (number == 0) return GamaListFactory.EMPTY_LIST;
 		final IList<T> list = GamaListFactory.create(getGamlType().getContentType(), number);
 		final IAgentConstructor<T> constr = species.getDescription().getAgentConstructor();
+		final DeterministicStep.Stream stream = DeterministicStep.streamOf(scope);
 		for (final IShape geom : geometries.iterable(scope)) {
 			// WARNING Should be redefined somehow
-			final T a = constr.createOneAgent(this, currentAgentIndex++);
+			final T a = constr.createOneAgent(this, nextIndex(stream));
 			// final int ind = currentAgentIndex++;
 			// a.setIndex(ind);
 			a.setGeometry(geom);
 			list.add(a);
 		}
-		/* agents. */addAll(list);
+		if (stream == null) { /* agents. */addAll(list); }
 
 		for (final IAgent a : list) {
 			a.schedule(scope);
@@ -472,7 +494,7 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 		// if (sequence != null && !sequence.isEmpty()) {
 		// for (final IAgent a : list) { if (!scope.execute(sequence, a, null).passed()) { break; } }
 		// }
-		fireAgentsAdded(scope, list);
+		addCreatedAgents(scope, list, stream);
 		return list;
 
 	}
@@ -501,8 +523,9 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 		if (number == 0) return GamaListFactory.EMPTY_LIST;
 		final IList<T> list = GamaListFactory.create(getGamlType().getContentType(), number);
 		final IAgentConstructor<T> constr = species.getDescription().getAgentConstructor();
+		final DeterministicStep.Stream stream = isRestored ? null : DeterministicStep.streamOf(scope);
 		for (int i = 0; i < number; i++) {
-			@SuppressWarnings ("unchecked") final T a = constr.createOneAgent(this, currentAgentIndex++);
+			@SuppressWarnings ("unchecked") final T a = constr.createOneAgent(this, nextIndex(stream));
 			// final int ind = currentAgentIndex++;
 			// a.setIndex(ind);
 			// Try to grab the location earlier
@@ -526,7 +549,7 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 
 		createVariablesFor(scope, list, initialValues);
 		// #3626 ??
-		addAll(list);
+		if (stream == null) { addAll(list); }
 		if (!isRestored) {
 			for (final IAgent a : list) {
 				// if agent is restored (on the capture or release); then don't
@@ -548,10 +571,50 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 			}
 
 		}
-		fireAgentsAdded(scope, list);
+		addCreatedAgents(scope, list, stream);
 		return list;
 	}
 
+	/**
+	 * The index of the next agent created. Within a deterministic parallel step, it depends on the creating agent and
+	 * not on the order in which the threads create agents (see {@link DeterministicStep.Stream#nextIndex})
+	 *
+	 * @param stream
+	 *            the stream of the creating agent, or null if it is not in a deterministic step
+	 * @return the index
+	 */
+	private int nextIndex(final DeterministicStep.Stream stream) {
+		return stream == null ? currentAgentIndex++ : stream.nextIndex(this, currentAgentIndex);
+	}
+
+	/**
+	 * Notifies the listeners that agents have been created. Within a deterministic parallel step, the agents are added
+	 * to the population at the end of the step, in the order of their creators.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param list
+	 *            the agents created
+	 * @param stream
+	 *            the stream of the creating agent, or null if it is not in a deterministic step
+	 */
+	private void addCreatedAgents(final IScope scope, final IList<T> list, final DeterministicStep.Stream stream) {
+		if (stream == null) {
+			fireAgentsAdded(scope, list);
+			return;
+		}
+		stream.defer(s -> {
+			// Agents can have been killed (by agents placed before their creator) before being added
+			final IList<T> living = GamaListFactory.create(getGamlType().getContentType(), list.size());
+			for (final T a : list) {
+				currentAgentIndex = Math.max(currentAgentIndex, a.getIndex() + 1);
+				if (!a.dead()) { living.add(a); }
+			}
+			addAll(living);
+			fireAgentsAdded(s, living);
+		});
+	}
+
 	/**
 	 * Creates the variables for.
 	 *
@@ -719,6 +719,18 @@ public class GamaShape implements IShape {
 		return attributes;
 	}
 
+	/**
+	 * Replaces the map of attributes by another one (like the one of an agent that stores some of its attributes
+	 * elsewhere), to which the current attributes are copied.
+	 *
+	 * @param map
+	 *            the new map of attributes
+	 */
+	public void setAttributesMap(final IMap<String, Object> map) {
+		if (attributes != null) { map.putAll(attributes); }
+		attributes = map;
+	}
+
 	// @Override
 	// public GamaMap getAttributes() {
 	// return attributes;
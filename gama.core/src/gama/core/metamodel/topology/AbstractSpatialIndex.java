@@ -0,0 +1,186 @@
+/*******************************************************************************************************
+ *
+ * AbstractSpatialIndex.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.metamodel.topology;
+
+import java.util.Collection;
+
+import org.locationtech.jts.geom.Envelope;
+
+import com.google.common.collect.Ordering;
+
+import gama.annotations.common.interfaces.ConsumerWithPruning;
+import gama.core.common.geometry.Envelope3D;
+import gama.core.metamodel.agent.IAgent;
+import gama.core.metamodel.shape.GamaPoint;
+import gama.core.metamodel.shape.IShape;
+import gama.core.metamodel.topology.filter.IAgentFilter;
+import gama.core.runtime.IScope;
+import gama.core.util.Collector;
+import gama.core.util.GamaListFactory;
+import gama.core.util.ICollector;
+import gaml.core.operators.Maths;
+
+/**
+ * The Class AbstractSpatialIndex. Implements the queries of ISpatialIndex on top of a single primitive: the collection
+ * of the agents whose envelope intersects a given envelope. Subclasses only have to provide the storage of the agents
+ * (insert, remove) and this primitive.
+ *
+ * @since 2026
+ *
+ */
+public abstract class AbstractSpatialIndex implements ISpatialIndex {
+
+	/**
+	 * Adds to the result all the agents whose envelope intersects r. The result may contain duplicates (they are
+	 * removed afterwards)
+	 *
+	 * @param r
+	 *            the envelope to intersect
+	 * @param result
+	 *            the result
+	 */
+	protected abstract void collectIntersecting(final Envelope r, final Collection<IAgent> result);
+
+	/**
+	 * Visits the agents whose envelope intersects r, each of them only once. The default implementation collects them
+	 * first: subclasses should override it to visit their contents directly.
+	 *
+	 * @param r
+	 *            the envelope to intersect
+	 * @param visitor
+	 *            the visitor
+	 * @return false if the visit has been interrupted by the visitor
+	 */
+	protected boolean visitIntersecting(final Envelope r, final ConsumerWithPruning<IAgent> visitor) {
+		try (final ICollector<IAgent> list = Collector.getOrderedSet()) {
+			collectIntersecting(r, list);
+			for (final IAgent a : list) { if (!visitor.process(a)) return false; }
+			return true;
+		}
+	}
+
+	/**
+	 * Find intersects.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param source
+	 *            the source
+	 * @param r
+	 *            the r
+	 * @param filter
+	 *            the filter
+	 * @return the collection
+	 */
+	protected Collection<IAgent> findIntersects(final IScope scope, final IShape source, final Envelope r,
+			final IAgentFilter filter) {
+		// Adresses Issue 722 by explicitly shuffling the results with GAMA
+		// random procedures and removing duplicates
+		try (final ICollector<IAgent> list = Collector.getOrderedSet()) {
+			collectIntersecting(r, list);
+			if (list.isEmpty()) return GamaListFactory.create();
+			filter.filter(scope, source, list);
+			list.shuffleInPlaceWith(scope.getRandom());
+			return list.items();
+		}
+	}
+
+	@Override
+	public Collection<IAgent> allAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f) {
+		// TODO filter result by topology's bounds
+		final double exp = dist * Maths.SQRT2;
+		final Envelope3D env = Envelope3D.of(source.getEnvelope());
+		env.expandBy(exp);
+		try {
+			final Collection<IAgent> result = findIntersects(scope, source, env, f);
+			if (result.isEmpty()) return GamaListFactory.create();
+			result.removeIf(each -> source.euclidianDistanceTo(each) > dist);
+			return result;
+		} finally {
+			env.dispose();
+		}
+	}
+
+	@Override
+	public boolean forEachAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f, final ConsumerWithPruning<IAgent> visitor) {
+		final Envelope3D env = Envelope3D.of(source.getEnvelope());
+		env.expandBy(dist);
+		// When both the source and the agent are points, the distance is computed directly on their coordinates
+		final GamaPoint p = source.isPoint() ? source.getLocation() : null;
+		final double sx = p == null ? 0 : p.x, sy = p == null ? 0 : p.y, sz = p == null ? 0 : p.z;
+		try {
+			return visitIntersecting(env, a -> {
+				final double d;
+				if (p != null && a.isPoint()) {
+					final GamaPoint l = a.getLocation();
+					final double dx = l.x - sx, dy = l.y - sy, dz = l.z - sz;
+					d = Math.sqrt(dx * dx + dy * dy + dz * dz);
+				} else {
+					d = source.euclidianDistanceTo(a);
+				}
+				if (d > dist || !f.accept(scope, source, a)) return true;
+				return visitor.process(a);
+			});
+		} finally {
+			env.dispose();
+		}
+	}
+
+	@Override
+	public Collection<IAgent> firstAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f, final int number, final Collection<IAgent> alreadyChosen) {
+		final double exp = dist * Maths.SQRT2;
+		final Envelope3D env = Envelope3D.of(source.getEnvelope());
+		env.expandBy(exp);
+		try {
+			final Collection<IAgent> in_square = findIntersects(scope, source, env, f);
+			in_square.removeAll(alreadyChosen);
+			if (in_square.isEmpty()) return GamaListFactory.create();
+
+			if (in_square.size() <= number) return in_square;
+			final Ordering<IShape> ordering = Ordering.natural().onResultOf(input -> source.euclidianDistanceTo(input));
+			return ordering.leastOf(in_square, number);
+		} finally {
+			env.dispose();
+		}
+	}
+
+	@Override
+	public IAgent firstAtDistance(final IScope scope, final IShape source, final double dist, final IAgentFilter f) {
+		final Envelope3D env = Envelope3D.of(source.getEnvelope());
+		env.expandBy(dist * Maths.SQRT2);
+		try {
+			final Collection<IAgent> in_square = findIntersects(scope, source, env, f);
+			if (in_square.isEmpty()) return null;
+			double min_distance = dist;
+			IAgent min_agent = null;
+			for (final IAgent a : in_square) {
+				final Double dd = source.euclidianDistanceTo(a);
+				if (dd < min_distance) {
+					min_distance = dd;
+					min_agent = a;
+				}
+			}
+			return min_agent;
+		} finally {
+			env.dispose();
+		}
+	}
+
+	@Override
+	public Collection<IAgent> allInEnvelope(final IScope scope, final IShape source, final Envelope envelope,
+			final IAgentFilter f, final boolean contained) {
+		return findIntersects(scope, source, envelope, f);
+	}
+
+}
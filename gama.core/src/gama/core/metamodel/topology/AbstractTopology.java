@@ -27,6 +27,7 @@ import com.google.common.collect.Ordering;
 
 import gama.core.common.geometry.Envelope3D;
 import gama.core.common.geometry.GeometryUtils;
+import gama.core.common.util.PoolUtils;
 import gama.core.metamodel.agent.IAgent;
 import gama.core.metamodel.population.IPopulation;
 import gama.core.metamodel.shape.GamaPoint;
@@ -53,6 +54,10 @@ import gaml.core.types.Types;
  */
 public abstract class AbstractTopology implements ITopology {
 
+	/** The pool of the points tried when normalizing a location in a torus environment. */
+	private static final PoolUtils.ObjectPool<GamaPoint> POINTS =
+			PoolUtils.create("Torus points", true, GamaPoint::new, (from, to) -> to.setLocation(from), null);
+
 	@Override
 	public IType<?> getGamlType() { return Types.TOPOLOGY; }
 
@@ -292,8 +297,11 @@ public abstract class AbstractTopology implements ITopology {
 			for (int cnt = 0; cnt < 8; cnt++) {
 				final AffineTransformation at = new AffineTransformation();
 				at.translate(getAdjustedXYVector()[cnt][0], getAdjustedXYVector()[cnt][1]);
-				final GamaPoint newPt = new GamaPoint(at.transform(pt).getCoordinate());
+				final GamaPoint newPt = POINTS.get();
+				newPt.setCoordinate(at.transform(pt).getCoordinate());
 				if (environment.getGeometry().covers(newPt)) return newPt;
+				// Only the point returned escapes: the others go back to the pool
+				POINTS.release(newPt);
 			}
 		}
 		// See if rounding errors of double do not interfere with the
@@ -13,6 +13,7 @@ package gama.core.metamodel.topology;
 
 import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.transform;
+import static gama.core.runtime.concurrent.GamaExecutorService.CONCURRENCY_DETERMINISTIC;
 import static java.util.Collections.singleton;
 
 import java.util.ArrayList;
@@ -23,8 +24,7 @@ import java.util.WeakHashMap;
 
 import org.locationtech.jts.geom.Envelope;
 
-import com.google.common.collect.Ordering;
-
+import gama.annotations.common.interfaces.ConsumerWithPruning;
 import gama.core.common.geometry.Envelope3D;
 import gama.core.common.preferences.GamaPreferences;
 import gama.core.metamodel.agent.IAgent;
@@ -33,6 +33,7 @@ import gama.core.metamodel.population.IPopulationSet;
 import gama.core.metamodel.shape.IShape;
 import gama.core.metamodel.topology.filter.IAgentFilter;
 import gama.core.metamodel.topology.grid.GamaSpatialMatrix.GridPopulation;
+import gama.core.runtime.GamaMetrics;
 import gama.core.runtime.IScope;
 import gama.core.util.Collector;
 import gama.core.util.ICollector;
@@ -59,9 +60,6 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 	/** The parallel. */
 	private boolean parallel;
 
-	/** The steps. */
-	final protected double[] steps;
-
 	/**
 	 * The cached species indices. Keeps a correspondance between species and the spatial indices to use to look for
 	 * agents. Used when passing a list of agents with a common species (and not a population)
@@ -79,9 +77,6 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 	public CompoundSpatialIndex(final Envelope bounds, final boolean parallel) {
 		this.bounds = bounds;
 		this.parallel = parallel;
-		final double biggest = Math.max(bounds.getWidth(), bounds.getHeight());
-		steps = new double[] { biggest / 100, biggest / 50, biggest / 20, biggest / 10, biggest / 2, biggest,
-				biggest * Math.sqrt(2) };
 	}
 
 	@Override
@@ -105,82 +100,44 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 	@Override
 	public IAgent firstAtDistance(final IScope scope, final IShape source, final double dist, final IAgentFilter f) {
 		if (disposed) return null;
-		Iterable<ISpatialIndex> indices = add(scope, f);
-		try (final Collector.AsList<IAgent> shapes = Collector.getList()) {
-			for (final double step : steps) {
-				for (final ISpatialIndex si : indices) {
-					if (si == null) { continue; }
-					final IAgent first = si.firstAtDistance(scope, source, step, f);
-					if (first != null) { shapes.add(first); }
-				}
-				if (!shapes.isEmpty()) { break; }
-			}
-			int size = shapes.items().size();
-			if (size == 0) return null;
-			if (size == 1) return shapes.items().get(0);
-			// Adresses Issue 722 by shuffling the returned list using GAMA random
-			// procedure
-			shapes.shuffleInPlaceWith(scope.getRandom());
-			double min_dist = Double.MAX_VALUE;
-			IAgent min_agent = null;
-			for (final IAgent s : shapes) {
-				final double dd = source.euclidianDistanceTo(s);
-				if (dd < min_dist) {
-					min_dist = dd;
-					min_agent = s;
-				}
-			}
-			return min_agent;
-		}
+		final List<IAgent> result = nearest(scope, source, f, 1, Collections.EMPTY_LIST);
+		return result.isEmpty() ? null : result.get(0);
+	}
+
+	@Override
+	public Collection<IAgent> firstAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f, final int number, final Collection<IAgent> alreadyChosen) {
+		if (disposed) return null;
+		return nearest(scope, source, f, number, alreadyChosen);
 	}
 
 	/**
-	 * N first at distance in all spatial indexes.
-	 *
-	 * @param scope
-	 *            the scope
-	 * @param source
-	 *            the source
-	 * @param filter
-	 *            the filter
-	 * @param number
-	 *            the number
-	 * @param alreadyChosen
-	 *            the already chosen
-	 * @return the collection
+	 * Performs a k-nearest-neighbours search in each of the indexes concerned by the filter and chooses among their
+	 * results (randomly for the agents at the same distance, cf. Issue 722). Note that the distance passed to the
+	 * firstAtDistance methods is ignored, as they have always looked for the closest agents in the whole environment.
 	 */
-	private Collection<IAgent> nFirstAtDistanceInSpatialIndexes(final IScope scope, final IShape source,
-			final IAgentFilter filter, final int number, final Collection<IAgent> alreadyChosen,
-			final Iterable<ISpatialIndex> indices) {
-		if (disposed) return null;
-		final List<IAgent> shapes = new ArrayList<>(alreadyChosen);
-		for (final double step : steps) {
+	@Override
+	public List<IAgent> nearest(final IScope scope, final IShape source, final IAgentFilter f, final int number,
+			final Collection<IAgent> alreadyChosen) {
+		if (disposed) return Collections.EMPTY_LIST;
+		final long start = System.nanoTime();
+		try {
+			final Iterable<ISpatialIndex> indices = add(scope, f);
+			final List<IAgent> candidates = new ArrayList<>();
 			for (final ISpatialIndex si : indices) {
-				final Collection<IAgent> firsts = si.firstAtDistance(scope, source, step, filter, number, shapes);
-				shapes.addAll(firsts);
+				if (si != null) { candidates.addAll(si.nearest(scope, source, f, number, alreadyChosen)); }
 			}
-			if (shapes.size() >= number) { break; }
+			return NearestNeighbourSearch.select(scope, source, candidates, number);
+		} finally {
+			GamaMetrics.SPATIAL_QUERIES.record(start);
 		}
-
-		if (shapes.size() <= number) return shapes;
-		scope.getRandom().shuffleInPlace(shapes);
-		final Ordering<IShape> ordering = Ordering.natural().onResultOf(input -> source.euclidianDistanceTo(input));
-		return ordering.leastOf(shapes, number);
-	}
-
-	@Override
-	public Collection<IAgent> firstAtDistance(final IScope scope, final IShape source, final double dist,
-			final IAgentFilter f, final int number, final Collection<IAgent> alreadyChosen) {
-		if (disposed) return null;
-		Iterable<ISpatialIndex> indices = add(scope, f);
-		// if (index != null) return nFirstAtDistanceInSpatialIndex(scope, source, f, number, alreadyChosen, index);
-		return nFirstAtDistanceInSpatialIndexes(scope, source, f, number, alreadyChosen, indices);
 	}
 
 	@Override
 	public Collection<IAgent> allInEnvelope(final IScope scope, final IShape source, final Envelope envelope,
 			final IAgentFilter f, final boolean contained) {
 		if (disposed) return Collections.EMPTY_LIST;
+		final long start = System.nanoTime();
 		Iterable<ISpatialIndex> indices = add(scope, f);
 		try (final ICollector<IAgent> agents = Collector.getOrderedSet()) {
 			for (final ISpatialIndex si : indices) {
@@ -188,6 +145,8 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 			}
 			agents.shuffleInPlaceWith(scope.getRandom());
 			return agents.items();
+		} finally {
+			GamaMetrics.SPATIAL_QUERIES.record(start);
 		}
 	}
 
@@ -195,6 +154,7 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 	public Collection<IAgent> allAtDistance(final IScope scope, final IShape source, final double dist,
 			final IAgentFilter f) {
 		if (disposed) return Collections.EMPTY_LIST;
+		final long start = System.nanoTime();
 		Iterable<ISpatialIndex> indices = add(scope, f);
 		try (final ICollector<IAgent> agents = Collector.getOrderedSet()) {
 			for (final ISpatialIndex si : indices) {
@@ -202,6 +162,23 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 			}
 			agents.shuffleInPlaceWith(scope.getRandom());
 			return agents.items();
+		} finally {
+			GamaMetrics.SPATIAL_QUERIES.record(start);
+		}
+	}
+
+	@Override
+	public boolean forEachAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f, final ConsumerWithPruning<IAgent> visitor) {
+		if (disposed) return true;
+		final long start = System.nanoTime();
+		try {
+			for (final ISpatialIndex si : add(scope, f)) {
+				if (si != null && !si.forEachAtDistance(scope, source, dist, f, visitor)) return false;
+			}
+			return true;
+		} finally {
+			GamaMetrics.SPATIAL_QUERIES.record(start);
 		}
 	}
 
@@ -242,8 +219,14 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 		if (index == null) {
 			if (pop.isGrid()) {
 				index = ((GridPopulation) pop).getTopology().getPlaces();
+			} else if (spec.isStatic() && !spec.isIndexedByGrid()) {
+				index = new GamaSTRTree(bounds, parallel);
 			} else {
-				index = GamaQuadTree.create(bounds, parallel);
+				index = spec.isIndexedByGrid() ? GamaHashGrid.create(bounds, parallel)
+						: GamaQuadTree.create(bounds, parallel);
+				if (spec.isDeferringSpatialUpdates() || CONCURRENCY_DETERMINISTIC.getValue()) {
+					index = new DeferredSpatialIndex(index, bounds);
+				}
 			}
 			spatialIndexes.put(spec, index);
 			if (insertAgents) { for (final IAgent ag : pop) { index.insert(ag); } }
@@ -299,6 +282,26 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 		}
 	}
 
+	@Override
+	public ISpatialIndex getIndex(final ISpecies species) {
+		if (disposed) return null;
+		return spatialIndexes.get(species);
+	}
+
+	@Override
+	public void beginDeferringAll() {
+		for (final ISpatialIndex index : spatialIndexes.values()) {
+			if (index instanceof Deferred deferred) { deferred.beginDeferring(); }
+		}
+	}
+
+	@Override
+	public void commitAll() {
+		for (final ISpatialIndex index : spatialIndexes.values()) {
+			if (index instanceof Deferred deferred) { deferred.commit(); }
+		}
+	}
+
 	@Override
 	public void mergeWith(final Compound spatialIndex) {
 		final CompoundSpatialIndex other = (CompoundSpatialIndex) spatialIndex;
@@ -0,0 +1,275 @@
+/*******************************************************************************************************
+ *
+ * DeferredSpatialIndex.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.metamodel.topology;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.locationtech.jts.geom.Envelope;
+
+import com.google.common.collect.Ordering;
+
+import gama.annotations.common.interfaces.ConsumerWithPruning;
+import gama.core.common.geometry.Envelope3D;
+import gama.core.metamodel.agent.IAgent;
+import gama.core.metamodel.population.IPopulation;
+import gama.core.metamodel.shape.IShape;
+import gama.core.metamodel.topology.filter.IAgentFilter;
+import gama.core.runtime.IScope;
+import gama.core.util.GamaListFactory;
+import gama.core.util.IContainer;
+import gama.core.util.IList;
+import gaml.core.species.ISpecies;
+import gaml.core.types.Types;
+
+/**
+ * The Class DeferredSpatialIndex. Wraps the spatial index of a species declared with 'defer_spatial_updates: true'.
+ * While the population of the species is stepped (between {@link #beginDeferring()} and {@link #commit()}), the moves
+ * of its agents are not applied to the wrapped index but recorded: only the envelope the agent had before its first
+ * move is kept, so that several moves of the same agent collapse into one update. At the end of the step, the recorded
+ * agents are removed from their former position and inserted at their current one, in the order of their indices
+ * (which makes the state of the index independent from the order in which parallel agents have moved).
+ *
+ * Queries made during the step remain exact: the pending agents are excluded from the results of the wrapped index
+ * (where their positions are outdated) and queried in a small concurrent quadtree, where they are kept at their current
+ * position. The results of both are sorted by index before being merged and shuffled (see Issue 722).
+ *
+ * @since 2026
+ *
+ */
+public class DeferredSpatialIndex implements ISpatialIndex.Deferred {
+
+	/** The marker of agents that have been inserted (and not moved) during the step */
+	private static final Envelope3D NEW_AGENT = Envelope3D.EMPTY;
+
+	/** The order of the agents by index. */
+	private static final Comparator<IAgent> BY_INDEX = Comparator.comparingInt(IAgent::getIndex);
+
+	/** The wrapped index. */
+	final ISpatialIndex index;
+
+	/** The bounds of the index. */
+	final Envelope bounds;
+
+	/** The pending moves: the agents and their envelope in the wrapped index. */
+	final Map<IAgent, Envelope3D> pending = new ConcurrentHashMap<>();
+
+	/** The pending agents, at their current position. Replaced at each commit. */
+	volatile ISpatialIndex moved;
+
+	/** Whether the updates are currently deferred. */
+	volatile boolean deferring;
+
+	/**
+	 * Instantiates a new deferred spatial index.
+	 *
+	 * @param index
+	 *            the wrapped index
+	 * @param bounds
+	 *            the bounds of the wrapped index
+	 */
+	public DeferredSpatialIndex(final ISpatialIndex index, final Envelope bounds) {
+		this.index = index;
+		this.bounds = bounds;
+		moved = new GamaConcurrentQuadTree(bounds);
+	}
+
+	@Override
+	public void beginDeferring() {
+		deferring = true;
+	}
+
+	@Override
+	public void commit() {
+		deferring = false;
+		if (pending.isEmpty()) return;
+		final List<Map.Entry<IAgent, Envelope3D>> moves = new ArrayList<>(pending.entrySet());
+		pending.clear();
+		moved.dispose();
+		moved = new GamaConcurrentQuadTree(bounds);
+		moves.sort(Map.Entry.comparingByKey(BY_INDEX));
+		for (final Map.Entry<IAgent, Envelope3D> move : moves) {
+			final IAgent agent = move.getKey();
+			final Envelope3D previous = move.getValue();
+			if (previous != NEW_AGENT) { index.remove(previous, agent); }
+			if (!agent.dead()) { index.insert(agent); }
+		}
+	}
+
+	@Override
+	public void insert(final IAgent agent) {
+		if (!deferring) {
+			index.insert(agent);
+			return;
+		}
+		pending.putIfAbsent(agent, NEW_AGENT);
+		moved.insert(agent);
+	}
+
+	@Override
+	public void remove(final Envelope3D previous, final IAgent agent) {
+		if (!deferring) {
+			index.remove(previous, agent);
+			return;
+		}
+		final Envelope3D env = previous == null ? agent.getEnvelope() : previous;
+		if (env == null) return;
+		// Only the first envelope is kept, as it is the one present in the wrapped index. The next ones are the
+		// positions of the agent in the index of the pending agents
+		if (pending.putIfAbsent(agent, env) != null) { moved.remove(env, agent); }
+	}
+
+	/**
+	 * Returns a filter that excludes the pending agents, if any
+	 *
+	 * @param f
+	 *            the filter
+	 * @return the filter to pass to the wrapped index
+	 */
+	private IAgentFilter exclude(final IAgentFilter f) {
+		return pending.isEmpty() ? f : new ExcludingFilter(f);
+	}
+
+	/**
+	 * Merges the results of the wrapped index and of the index of the pending agents, each sorted by index, and
+	 * shuffles them (the pending agents are inserted concurrently, in an order that is not reproducible).
+	 */
+	private Collection<IAgent> merge(final IScope scope, final Collection<IAgent> results,
+			final Collection<IAgent> pendingResults) {
+		if (pendingResults.isEmpty()) return results;
+		final IList<IAgent> result = GamaListFactory.create(Types.AGENT, results.size() + pendingResults.size());
+		result.addAll(results);
+		result.sort(BY_INDEX);
+		final List<IAgent> others = new ArrayList<>(pendingResults);
+		others.sort(BY_INDEX);
+		result.addAll(others);
+		result.shuffleInPlaceWith(scope.getRandom());
+		return result;
+	}
+
+	@Override
+	public IAgent firstAtDistance(final IScope scope, final IShape source, final double dist, final IAgentFilter f) {
+		if (pending.isEmpty()) return index.firstAtDistance(scope, source, dist, f);
+		final IAgent first = index.firstAtDistance(scope, source, dist, exclude(f));
+		final IAgent other = moved.firstAtDistance(scope, source, dist, f);
+		if (first == null || other == null) return first == null ? other : first;
+		return source.euclidianDistanceTo(other) < source.euclidianDistanceTo(first) ? other : first;
+	}
+
+	@Override
+	public Collection<IAgent> firstAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f, final int number, final Collection<IAgent> alreadyChosen) {
+		if (pending.isEmpty()) return index.firstAtDistance(scope, source, dist, f, number, alreadyChosen);
+		final Collection<IAgent> result =
+				merge(scope, index.firstAtDistance(scope, source, dist, exclude(f), number, alreadyChosen),
+						moved.firstAtDistance(scope, source, dist, f, number, alreadyChosen));
+		if (result.size() <= number) return result;
+		final Ordering<IShape> ordering = Ordering.natural().onResultOf(input -> source.euclidianDistanceTo(input));
+		return ordering.leastOf(result, number);
+	}
+
+	@Override
+	public List<IAgent> nearest(final IScope scope, final IShape source, final IAgentFilter f, final int number,
+			final Collection<IAgent> alreadyChosen) {
+		if (pending.isEmpty()) return index.nearest(scope, source, f, number, alreadyChosen);
+		final List<IAgent> result = new ArrayList<>(index.nearest(scope, source, exclude(f), number, alreadyChosen));
+		result.addAll(moved.nearest(scope, source, f, number, alreadyChosen));
+		return NearestNeighbourSearch.sortAndTruncate(source, result, number);
+	}
+
+	@Override
+	public Collection<IAgent> allInEnvelope(final IScope scope, final IShape source, final Envelope envelope,
+			final IAgentFilter f, final boolean contained) {
+		if (pending.isEmpty()) return index.allInEnvelope(scope, source, envelope, f, contained);
+		return merge(scope, index.allInEnvelope(scope, source, envelope, exclude(f), contained),
+				moved.allInEnvelope(scope, source, envelope, f, contained));
+	}
+
+	@Override
+	public Collection<IAgent> allAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f) {
+		if (pending.isEmpty()) return index.allAtDistance(scope, source, dist, f);
+		return merge(scope, index.allAtDistance(scope, source, dist, exclude(f)),
+				moved.allAtDistance(scope, source, dist, f));
+	}
+
+	@Override
+	public boolean forEachAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f, final ConsumerWithPruning<IAgent> visitor) {
+		if (pending.isEmpty()) return index.forEachAtDistance(scope, source, dist, f, visitor);
+		if (!index.forEachAtDistance(scope, source, dist, exclude(f), visitor)) return false;
+		final List<IAgent> others = new ArrayList<>(moved.allAtDistance(scope, source, dist, f));
+		others.sort(BY_INDEX);
+		for (final IAgent a : others) { if (!visitor.process(a)) return false; }
+		return true;
+	}
+
+	@Override
+	public void dispose() {
+		pending.clear();
+		moved.dispose();
+		index.dispose();
+	}
+
+	/**
+	 * A filter that delegates to another one, but rejects the agents whose move is pending
+	 */
+	class ExcludingFilter implements IAgentFilter {
+
+		/** The delegate. */
+		final IAgentFilter delegate;
+
+		/**
+		 * Instantiates a new excluding filter.
+		 *
+		 * @param delegate
+		 *            the delegate
+		 */
+		ExcludingFilter(final IAgentFilter delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public boolean hasAgentList() {
+			return delegate.hasAgentList();
+		}
+
+		@Override
+		public ISpecies getSpecies() { return delegate.getSpecies(); }
+
+		@Override
+		public IPopulation<? extends IAgent> getPopulation(final IScope scope) {
+			return delegate.getPopulation(scope);
+		}
+
+		@Override
+		public IContainer<?, ? extends IAgent> getAgents(final IScope scope) {
+			return delegate.getAgents(scope);
+		}
+
+		@Override
+		public boolean accept(final IScope scope, final IShape source, final IShape a) {
+			return !pending.containsKey(a) && delegate.accept(scope, source, a);
+		}
+
+		@Override
+		public void filter(final IScope scope, final IShape source, final Collection<? extends IShape> results) {
+			delegate.filter(scope, source, results);
+			if (!results.isEmpty()) { results.removeIf(pending::containsKey); }
+		}
+
+	}
+
+}
@@ -0,0 +1,393 @@
+/*******************************************************************************************************
+ *
+ * GamaConcurrentQuadTree.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.metamodel.topology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+import org.locationtech.jts.geom.Envelope;
+
+import gama.core.common.geometry.Envelope3D;
+import gama.core.metamodel.agent.IAgent;
+import gama.core.metamodel.shape.GamaPoint;
+import gama.core.metamodel.shape.IShape;
+import gama.core.metamodel.topology.filter.IAgentFilter;
+import gama.core.runtime.IScope;
+
+/**
+ * A quadtree that can be safely shared by several threads without a global monitor (see the preference
+ * 'pref_concurrent_quadtree').
+ * <p>
+ * The agents of a leaf are packed in arrays (the agents themselves and the coordinates of their envelopes), protected
+ * by a {@link StampedLock} specific to each node. Queries first try an optimistic read of the leaves and only acquire
+ * a read lock if a concurrent modification has been detected, so that they never block each other. Insertions and
+ * removals only lock the leaves they modify. Once split, a node is never merged again, which means that the children
+ * of a node can be traversed without any lock.
+ * <p>
+ * Like GamaQuadTree, the leaves keep the agents in their insertion order (see Issue 722), and the results of the
+ * queries are shuffled with the random generator of the scope.
+ *
+ * @since 2026
+ */
+public class GamaConcurrentQuadTree extends AbstractSpatialIndex {
+
+	/** The Constant maxCapacity. */
+	final static int maxCapacity = 100;
+
+	/** The initial capacity of the arrays of a leaf. */
+	final static int initialCapacity = 8;
+
+	/** The min size. */
+	final double minSize;
+
+	/** The root. */
+	final Node root;
+
+	/**
+	 * Instantiates a new concurrent quad tree. All computations are made in 2D (see Issue 804)
+	 *
+	 * @param bounds
+	 *            the bounds
+	 */
+	public GamaConcurrentQuadTree(final Envelope bounds) {
+		minSize = bounds.getWidth() / 100d;
+		root = new Node(bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+	}
+
+	@Override
+	public void insert(final IAgent agent) {
+		if (agent == null) return;
+		if (agent.isPoint()) {
+			final GamaPoint p = agent.getLocation();
+			root.add(p.x, p.y, p.x, p.y, agent);
+		} else {
+			final Envelope3D e = agent.getEnvelope();
+			if (e == null) return;
+			root.add(e.getMinX(), e.getMinY(), e.getMaxX(), e.getMaxY(), agent);
+			e.dispose();
+		}
+	}
+
+	@Override
+	public void remove(final Envelope3D previous, final IAgent agent) {
+		final Envelope3D current = previous == null ? agent.getEnvelope() : previous;
+		if (current == null) return;
+		// Degenerate envelopes (points) are dispatched like in insert()
+		root.remove(current.getMinX(), current.getMinY(), current.getMaxX(), current.getMaxY(), agent);
+		current.dispose();
+	}
+
+	@Override
+	protected void collectIntersecting(final Envelope r, final Collection<IAgent> result) {
+		final List<IAgent> buffer = new ArrayList<>();
+		root.collect(r.getMinX(), r.getMinY(), r.getMaxX(), r.getMaxY(), buffer);
+		result.addAll(buffer);
+	}
+
+	@Override
+	public List<IAgent> nearest(final IScope scope, final IShape source, final IAgentFilter f, final int number,
+			final Collection<IAgent> alreadyChosen) {
+		final NearestNeighbourSearch<Node> search = new NearestNeighbourSearch<>(scope, source, f, number, alreadyChosen);
+		search.addNode(root, root.minx, root.miny, root.maxx, root.maxy);
+		final List<IAgent> buffer = new ArrayList<>();
+		return search.run((node, s) -> {
+			final Node[] c = node.children;
+			if (c != null) {
+				for (final Node n : c) { s.addNode(n, n.minx, n.miny, n.maxx, n.maxy); }
+				return;
+			}
+			// The bounds of the leaf are used as a lower bound of the distance of its agents: an agent that extends
+			// beyond them is also stored in the neighbouring leaves
+			buffer.clear();
+			node.collect(node.minx, node.miny, node.maxx, node.maxy, buffer);
+			for (final IAgent a : buffer) { s.addAgent(a, node.minx, node.miny, node.maxx, node.maxy); }
+		});
+	}
+
+	@Override
+	public void dispose() {
+		root.dispose();
+	}
+
+	/**
+	 * The Class Node.
+	 */
+	final class Node {
+
+		/** The bounds. */
+		final double minx, miny, maxx, maxy;
+
+		/** The half. */
+		final double halfx, halfy;
+
+		/** The can split. */
+		final boolean canSplit;
+
+		/** The lock. Only protects the contents of the leaf, as children are never modified once created */
+		final StampedLock lock = new StampedLock();
+
+		/** The children (nw, ne, sw, se), or null if this node is a leaf */
+		volatile Node[] children;
+
+		/** The agents of the leaf, in their order of insertion. */
+		IAgent[] agents;
+
+		/** The coordinates of the envelopes of the agents. */
+		double[] xmin, ymin, xmax, ymax;
+
+		/** The number of agents. */
+		int size;
+
+		/**
+		 * Instantiates a new node.
+		 */
+		Node(final double minx, final double miny, final double maxx, final double maxy) {
+			this.minx = minx;
+			this.miny = miny;
+			this.maxx = maxx;
+			this.maxy = maxy;
+			halfx = minx + (maxx - minx) / 2;
+			halfy = miny + (maxy - miny) / 2;
+			canSplit = maxx - minx > minSize && maxy - miny > minSize;
+		}
+
+		/**
+		 * Adds an agent with the given envelope.
+		 */
+		void add(final double x0, final double y0, final double x1, final double y1, final IAgent a) {
+			Node[] c = children;
+			if (c == null) {
+				final long stamp = lock.writeLock();
+				try {
+					c = children;
+					if (c == null) {
+						append(x0, y0, x1, y1, a);
+						return;
+					}
+				} finally {
+					lock.unlockWrite(stamp);
+				}
+			}
+			if (x0 == x1 && y0 == y1) {
+				c[quadrant(x0, y0)].add(x0, y0, x1, y1, a);
+			} else {
+				for (final Node n : c) { if (n.intersects(x0, y0, x1, y1)) { n.add(x0, y0, x1, y1, a); } }
+			}
+		}
+
+		/**
+		 * Adds an agent to a node that has not been published yet (i.e. during a split). No lock is necessary
+		 */
+		void addUnpublished(final double x0, final double y0, final double x1, final double y1, final IAgent a) {
+			final Node[] c = children;
+			if (c == null) {
+				append(x0, y0, x1, y1, a);
+			} else if (x0 == x1 && y0 == y1) {
+				c[quadrant(x0, y0)].addUnpublished(x0, y0, x1, y1, a);
+			} else {
+				for (final Node n : c) { if (n.intersects(x0, y0, x1, y1)) { n.addUnpublished(x0, y0, x1, y1, a); } }
+			}
+		}
+
+		/**
+		 * Appends the agent to the arrays of the leaf and splits it if it is full. Must be called with the write lock
+		 * (or on an unpublished node)
+		 */
+		private void append(final double x0, final double y0, final double x1, final double y1, final IAgent a) {
+			if (agents == null) {
+				agents = new IAgent[initialCapacity];
+				xmin = new double[initialCapacity];
+				ymin = new double[initialCapacity];
+				xmax = new double[initialCapacity];
+				ymax = new double[initialCapacity];
+			} else if (size == agents.length) {
+				final int capacity = size * 2;
+				agents = Arrays.copyOf(agents, capacity);
+				xmin = Arrays.copyOf(xmin, capacity);
+				ymin = Arrays.copyOf(ymin, capacity);
+				xmax = Arrays.copyOf(xmax, capacity);
+				ymax = Arrays.copyOf(ymax, capacity);
+			}
+			agents[size] = a;
+			xmin[size] = x0;
+			ymin[size] = y0;
+			xmax[size] = x1;
+			ymax[size] = y1;
+			size++;
+			if (canSplit && size >= maxCapacity) { split(); }
+		}
+
+		/**
+		 * Splits the leaf. Must be called with the write lock (or on an unpublished node). The children are entirely
+		 * built before being published
+		 */
+		private void split() {
+			final Node[] c = { new Node(minx, miny, halfx, halfy), new Node(halfx, miny, maxx, halfy),
+					new Node(minx, halfy, halfx, maxy), new Node(halfx, halfy, maxx, maxy) };
+			for (int i = 0; i < size; i++) {
+				final IAgent a = agents[i];
+				if (a == null || a.dead()) { continue; }
+				final double x0 = xmin[i], y0 = ymin[i], x1 = xmax[i], y1 = ymax[i];
+				if (x0 == x1 && y0 == y1) {
+					c[quadrant(x0, y0)].addUnpublished(x0, y0, x1, y1, a);
+				} else {
+					for (final Node n : c) {
+						if (n.intersects(x0, y0, x1, y1)) { n.addUnpublished(x0, y0, x1, y1, a); }
+					}
+				}
+			}
+			children = c;
+			clear();
+		}
+
+		/**
+		 * Removes an agent whose envelope was the given one.
+		 */
+		void remove(final double x0, final double y0, final double x1, final double y1, final IAgent a) {
+			Node[] c = children;
+			if (c == null) {
+				final long stamp = lock.writeLock();
+				try {
+					c = children;
+					if (c == null) {
+						removeEntry(a);
+						return;
+					}
+				} finally {
+					lock.unlockWrite(stamp);
+				}
+			}
+			if (x0 == x1 && y0 == y1) {
+				c[quadrant(x0, y0)].remove(x0, y0, x1, y1, a);
+			} else {
+				for (final Node n : c) { if (n.intersects(x0, y0, x1, y1)) { n.remove(x0, y0, x1, y1, a); } }
+			}
+		}
+
+		/**
+		 * Removes the entry of the agent, keeping the order of the others. Must be called with the write lock
+		 */
+		private void removeEntry(final IAgent a) {
+			for (int i = 0; i < size; i++) {
+				if (agents[i] == a) {
+					final int moved = size - i - 1;
+					if (moved > 0) {
+						System.arraycopy(agents, i + 1, agents, i, moved);
+						System.arraycopy(xmin, i + 1, xmin, i, moved);
+						System.arraycopy(ymin, i + 1, ymin, i, moved);
+						System.arraycopy(xmax, i + 1, xmax, i, moved);
+						System.arraycopy(ymax, i + 1, ymax, i, moved);
+					}
+					agents[--size] = null;
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Collects the agents whose envelope intersects the given one. Leaves are first read optimistically; if a
+		 * writer has modified the leaf in the meantime, the agents collected are discarded and the leaf is read again
+		 * under a read lock
+		 */
+		void collect(final double x0, final double y0, final double x1, final double y1, final List<IAgent> buffer) {
+			if (!intersects(x0, y0, x1, y1)) return;
+			Node[] c = children;
+			if (c == null) {
+				final long optimistic = lock.tryOptimisticRead();
+				if (optimistic != 0L) {
+					c = children;
+					if (c == null) {
+						final int mark = buffer.size();
+						scan(x0, y0, x1, y1, buffer);
+						if (lock.validate(optimistic)) return;
+						buffer.subList(mark, buffer.size()).clear();
+					}
+				}
+				if (c == null) {
+					final long stamp = lock.readLock();
+					try {
+						c = children;
+						if (c == null) {
+							scan(x0, y0, x1, y1, buffer);
+							return;
+						}
+					} finally {
+						lock.unlockRead(stamp);
+					}
+				}
+			}
+			for (final Node n : c) { n.collect(x0, y0, x1, y1, buffer); }
+		}
+
+		/**
+		 * Scans the arrays of the leaf. As it can be called during an optimistic read, it must tolerate inconsistent
+		 * states (arrays being replaced, entries being shifted): the result is then discarded by the caller
+		 */
+		private void scan(final double x0, final double y0, final double x1, final double y1,
+				final List<IAgent> buffer) {
+			final IAgent[] as = agents;
+			final double[] ax0 = xmin, ay0 = ymin, ax1 = xmax, ay1 = ymax;
+			if (as == null || ax0 == null || ay0 == null || ax1 == null || ay1 == null) return;
+			int n = Math.min(size, as.length);
+			n = Math.min(n, Math.min(Math.min(ax0.length, ay0.length), Math.min(ax1.length, ay1.length)));
+			for (int i = 0; i < n; i++) {
+				if (ax0[i] <= x1 && ax1[i] >= x0 && ay0[i] <= y1 && ay1[i] >= y0) {
+					final IAgent a = as[i];
+					if (a != null) { buffer.add(a); }
+				}
+			}
+		}
+
+		/**
+		 * Whether the bounds of this node intersect the envelope
+		 */
+		boolean intersects(final double x0, final double y0, final double x1, final double y1) {
+			return !(x0 > maxx || x1 < minx || y0 > maxy || y1 < miny);
+		}
+
+		/**
+		 * Returns the index of the child that contains the point (same convention as GamaQuadTree)
+		 */
+		int quadrant(final double x, final double y) {
+			final boolean north = y >= miny && y < halfy;
+			final boolean west = x >= minx && x < halfx;
+			return north ? west ? 0 : 1 : west ? 2 : 3;
+		}
+
+		/**
+		 * Empties the leaf.
+		 */
+		private void clear() {
+			agents = null;
+			xmin = ymin = xmax = ymax = null;
+			size = 0;
+		}
+
+		/**
+		 * Dispose.
+		 */
+		void dispose() {
+			final long stamp = lock.writeLock();
+			try {
+				clear();
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+			final Node[] c = children;
+			if (c != null) { for (final Node n : c) { n.dispose(); } }
+		}
+
+	}
+
+}
@@ -0,0 +1,350 @@
+/*******************************************************************************************************
+ *
+ * GamaHashGrid.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.metamodel.topology;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Envelope;
+
+import gama.annotations.common.interfaces.ConsumerWithPruning;
+import gama.core.common.geometry.Envelope3D;
+import gama.core.common.preferences.GamaPreferences;
+import gama.core.metamodel.agent.IAgent;
+import gama.core.metamodel.shape.IShape;
+import gama.core.metamodel.topology.filter.IAgentFilter;
+import gama.core.runtime.IScope;
+
+/**
+ * The Class GamaHashGrid. A spatial index made of a uniform grid of cells, used for the species declared with
+ * 'spatial_index: "grid"'. Well suited to dense populations of (small) agents queried with a small and uniform
+ * distance, where a quadtree would be deep and its leaves crowded.
+ *
+ * Each agent is stored in the cell that contains the centre of its envelope, in a doubly linked list of slots encoded
+ * in primitive arrays ({@code head} per cell, {@code next} and {@code previous} per slot), so that moving an agent
+ * only unlinks and relinks one slot. Queries are expanded by the largest half-extent of the envelopes stored, so that
+ * non-point agents are found as well.
+ *
+ * The size of the cells follows the distances used in the queries: when the cells become more than twice larger or
+ * smaller than the largest distance recently queried, the grid is rebuilt with cells of that size at the next update
+ * (i.e. usually during the next step of the moving agents).
+ *
+ * @since 2026
+ *
+ */
+public class GamaHashGrid extends AbstractSpatialIndex {
+
+	/** The value used for the absence of slot. */
+	private static final int NONE = -1;
+
+	/** The maximum number of cells per agent (to keep the grid small when queries use very small distances). */
+	private static final int CELLS_PER_AGENT = 4;
+
+	/** The minimum number of cells allowed whatever the number of agents. */
+	private static final int MIN_CELLS = 1024;
+
+	/** The number of queries to observe before adapting the size of the cells. */
+	private static final int QUERIES_BEFORE_RESIZE = 64;
+
+	/** The bounds of the grid. */
+	final double minX, minY, width, height;
+
+	/** The size of the cells and the dimensions of the grid. */
+	double cellSize;
+
+	/** The columns and rows. */
+	int cols, rows;
+
+	/** The first slot of each cell. */
+	int[] head;
+
+	/** The next and previous slots in the same cell, and the cell of each slot. */
+	int[] next, previous, cellOf;
+
+	/** The envelope of the agent stored in each slot, at the time of its insertion. */
+	double[] xmin, ymin, xmax, ymax;
+
+	/** The agents stored in the slots. */
+	IAgent[] agents;
+
+	/** The first free slot (the free slots are chained using next). */
+	int free = NONE;
+
+	/** The number of slots ever used. */
+	int used;
+
+	/** The slots of the agents. */
+	final Map<IAgent, Integer> slots = new HashMap<>();
+
+	/** The largest half width and half height of the envelopes stored. */
+	double extentX, extentY;
+
+	/** The largest distance queried since the last resize. */
+	double queried;
+
+	/** The number of queries since the last resize. */
+	int queries;
+
+	/**
+	 * Creates a hash grid for the given bounds, synchronized if the agents can be stepped in parallel
+	 *
+	 * @param envelope
+	 *            the envelope
+	 * @param parallel
+	 *            the parallel
+	 * @return the spatial index
+	 */
+	public static ISpatialIndex create(final Envelope envelope, final boolean parallel) {
+		final ISpatialIndex grid = new GamaHashGrid(envelope);
+		if (parallel || GamaPreferences.Experimental.QUADTREE_SYNCHRONIZATION.getValue())
+			return new GamaQuadTree.QuadTreeSynchronizer(grid);
+		return grid;
+	}
+
+	/**
+	 * Instantiates a new hash grid. The initial cells are the ones of a 100 x 100 grid, like the minimal size of the
+	 * nodes of the quadtree
+	 *
+	 * @param bounds
+	 *            the bounds
+	 */
+	GamaHashGrid(final Envelope bounds) {
+		minX = bounds.getMinX();
+		minY = bounds.getMinY();
+		width = Math.max(bounds.getWidth(), Double.MIN_NORMAL);
+		height = Math.max(bounds.getHeight(), Double.MIN_NORMAL);
+		allocateSlots(64);
+		resize(Math.max(width, height) / 100d);
+	}
+
+	/**
+	 * Computes the dimensions of the grid for the given size of cells and redistributes the agents in the new cells
+	 */
+	private void resize(final double size) {
+		final int maxCells = Math.max(MIN_CELLS, CELLS_PER_AGENT * slots.size());
+		// The size is enlarged if needed so that the number of cells remains reasonable
+		cellSize = Math.max(size, Math.sqrt(width * height / maxCells));
+		cols = Math.max(1, (int) Math.ceil(width / cellSize));
+		rows = Math.max(1, (int) Math.ceil(height / cellSize));
+		head = new int[cols * rows];
+		Arrays.fill(head, NONE);
+		for (int slot = 0; slot < used; slot++) { if (agents[slot] != null) { link(slot); } }
+		queried = 0d;
+		queries = 0;
+	}
+
+	/**
+	 * Rebuilds the grid if the size of its cells does not correspond to the distances queried
+	 */
+	private void adaptCellSize() {
+		if (queries < QUERIES_BEFORE_RESIZE) return;
+		final double d = queried;
+		if (d <= 0d) return;
+		final double maxCells = Math.max(MIN_CELLS, CELLS_PER_AGENT * slots.size());
+		final double smallest = Math.sqrt(width * height / maxCells);
+		if (cellSize > 2 * d && cellSize > 2 * smallest || cellSize < d / 2) {
+			resize(d);
+		} else {
+			queries = 0;
+			queried = 0d;
+		}
+	}
+
+	/**
+	 * Records the distance of a query
+	 */
+	private void observe(final double dist) {
+		if (dist > queried && dist < Double.MAX_VALUE) { queried = dist; }
+		queries++;
+	}
+
+	/**
+	 * Grows the arrays of slots
+	 */
+	private void allocateSlots(final int capacity) {
+		next = agents == null ? new int[capacity] : Arrays.copyOf(next, capacity);
+		previous = agents == null ? new int[capacity] : Arrays.copyOf(previous, capacity);
+		cellOf = agents == null ? new int[capacity] : Arrays.copyOf(cellOf, capacity);
+		xmin = agents == null ? new double[capacity] : Arrays.copyOf(xmin, capacity);
+		ymin = agents == null ? new double[capacity] : Arrays.copyOf(ymin, capacity);
+		xmax = agents == null ? new double[capacity] : Arrays.copyOf(xmax, capacity);
+		ymax = agents == null ? new double[capacity] : Arrays.copyOf(ymax, capacity);
+		agents = agents == null ? new IAgent[capacity] : Arrays.copyOf(agents, capacity);
+	}
+
+	/**
+	 * The column of the coordinate (the coordinates outside the bounds are put in the border cells)
+	 */
+	private int col(final double x) {
+		final int c = (int) ((x - minX) / cellSize);
+		return c < 0 ? 0 : c >= cols ? cols - 1 : c;
+	}
+
+	/**
+	 * The row of the coordinate (the coordinates outside the bounds are put in the border cells)
+	 */
+	private int row(final double y) {
+		final int r = (int) ((y - minY) / cellSize);
+		return r < 0 ? 0 : r >= rows ? rows - 1 : r;
+	}
+
+	/**
+	 * Links the slot at the head of the cell containing the centre of its envelope
+	 */
+	private void link(final int slot) {
+		final int cell = row((ymin[slot] + ymax[slot]) / 2) * cols + col((xmin[slot] + xmax[slot]) / 2);
+		cellOf[slot] = cell;
+		previous[slot] = NONE;
+		next[slot] = head[cell];
+		if (head[cell] != NONE) { previous[head[cell]] = slot; }
+		head[cell] = slot;
+	}
+
+	/**
+	 * Unlinks the slot from its cell
+	 */
+	private void unlink(final int slot) {
+		final int p = previous[slot], n = next[slot];
+		if (p == NONE) {
+			head[cellOf[slot]] = n;
+		} else {
+			next[p] = n;
+		}
+		if (n != NONE) { previous[n] = p; }
+	}
+
+	@Override
+	public void insert(final IAgent agent) {
+		if (agent == null) return;
+		final Envelope3D env = agent.getEnvelope();
+		if (env == null) return;
+		adaptCellSize();
+		Integer existing = slots.get(agent);
+		final int slot;
+		if (existing != null) {
+			slot = existing;
+			unlink(slot);
+		} else if (free != NONE) {
+			slot = free;
+			free = next[slot];
+		} else {
+			if (used == agents.length) { allocateSlots(used * 2); }
+			slot = used++;
+		}
+		agents[slot] = agent;
+		xmin[slot] = env.getMinX();
+		ymin[slot] = env.getMinY();
+		xmax[slot] = env.getMaxX();
+		ymax[slot] = env.getMaxY();
+		env.dispose();
+		extentX = Math.max(extentX, (xmax[slot] - xmin[slot]) / 2);
+		extentY = Math.max(extentY, (ymax[slot] - ymin[slot]) / 2);
+		if (existing == null) { slots.put(agent, slot); }
+		link(slot);
+	}
+
+	@Override
+	public void remove(final Envelope3D previous, final IAgent agent) {
+		if (previous != null) { previous.dispose(); }
+		if (agent == null) return;
+		final Integer slot = slots.remove(agent);
+		if (slot == null) return;
+		unlink(slot);
+		agents[slot] = null;
+		next[slot] = free;
+		free = slot;
+	}
+
+	/**
+	 * Whether the envelope of the slot intersects r
+	 */
+	private boolean intersects(final int slot, final Envelope r) {
+		return xmin[slot] <= r.getMaxX() && xmax[slot] >= r.getMinX() && ymin[slot] <= r.getMaxY()
+				&& ymax[slot] >= r.getMinY();
+	}
+
+	@Override
+	protected void collectIntersecting(final Envelope r, final Collection<IAgent> result) {
+		visitIntersecting(r, a -> result.add(a));
+	}
+
+	@Override
+	protected boolean visitIntersecting(final Envelope r, final ConsumerWithPruning<IAgent> visitor) {
+		if (slots.isEmpty() || r.isNull()) return true;
+		final int c0 = col(r.getMinX() - extentX), c1 = col(r.getMaxX() + extentX);
+		final int r0 = row(r.getMinY() - extentY), r1 = row(r.getMaxY() + extentY);
+		for (int j = r0; j <= r1; j++) {
+			for (int i = c0; i <= c1; i++) {
+				for (int slot = head[j * cols + i]; slot != NONE; slot = next[slot]) {
+					if (intersects(slot, r) && !visitor.process(agents[slot])) return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public Collection<IAgent> allAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f) {
+		observe(dist);
+		return super.allAtDistance(scope, source, dist, f);
+	}
+
+	@Override
+	public boolean forEachAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f, final ConsumerWithPruning<IAgent> visitor) {
+		observe(dist);
+		return super.forEachAtDistance(scope, source, dist, f, visitor);
+	}
+
+	/**
+	 * Looks for the nearest agents ring by ring around the cells covered by the source: the agents of the ring k are
+	 * at least at (k - 1) cells from the source, minus the half-extent of their envelope
+	 */
+	@Override
+	public List<IAgent> nearest(final IScope scope, final IShape source, final IAgentFilter f, final int number,
+			final Collection<IAgent> alreadyChosen) {
+		final NearestNeighbourSearch<Integer> search =
+				new NearestNeighbourSearch<>(scope, source, f, number, alreadyChosen);
+		final Envelope3D env = source.getEnvelope();
+		final int c0 = col(env.getMinX()), c1 = col(env.getMaxX()), r0 = row(env.getMinY()), r1 = row(env.getMaxY());
+		env.dispose();
+		final int maxRing = Math.max(Math.max(c0, cols - 1 - c1), Math.max(r0, rows - 1 - r1));
+		final double extent = Math.max(extentX, extentY);
+		search.addNode(0, 0d);
+		return search.run((ring, s) -> {
+			for (int j = Math.max(0, r0 - ring); j <= Math.min(rows - 1, r1 + ring); j++) {
+				final boolean border = j == r0 - ring || j == r1 + ring;
+				for (int i = Math.max(0, c0 - ring); i <= Math.min(cols - 1, c1 + ring); i++) {
+					// The whole box covered by the source on the ring 0, only the cells of the ring itself afterwards
+					if (ring > 0 && !border && i != c0 - ring && i != c1 + ring) { continue; }
+					for (int slot = head[j * cols + i]; slot != NONE; slot = next[slot]) {
+						s.addAgent(agents[slot], xmin[slot], ymin[slot], xmax[slot], ymax[slot]);
+					}
+				}
+			}
+			if (ring < maxRing) { s.addNode(ring + 1, Math.max(0d, ring * cellSize - extent)); }
+		});
+	}
+
+	@Override
+	public void dispose() {
+		slots.clear();
+		Arrays.fill(agents, null);
+		Arrays.fill(head, NONE);
+		free = NONE;
+		used = 0;
+	}
+
+}
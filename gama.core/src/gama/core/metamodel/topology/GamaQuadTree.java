@@ -12,12 +12,12 @@
 package gama.core.metamodel.topology;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import org.locationtech.jts.geom.Envelope;
 
-import com.google.common.collect.Ordering;
-
+import gama.annotations.common.interfaces.ConsumerWithPruning;
 import gama.core.common.geometry.Envelope3D;
 import gama.core.common.geometry.IIntersectable;
 import gama.core.common.preferences.GamaPreferences;
@@ -26,12 +26,8 @@ import gama.core.metamodel.shape.GamaPoint;
 import gama.core.metamodel.shape.IShape;
 import gama.core.metamodel.topology.filter.IAgentFilter;
 import gama.core.runtime.IScope;
-import gama.core.util.Collector;
-import gama.core.util.GamaListFactory;
 import gama.core.util.GamaMapFactory;
-import gama.core.util.ICollector;
 import gama.dev.DEBUG;
-import gaml.core.operators.Maths;
 
 /**
  * A QuadTree allows to quickly find an object on a two-dimensional space.
@@ -47,7 +43,7 @@ import gaml.core.operators.Maths;
  * The Class GamaQuadTree.
  */
 @SuppressWarnings ({ "unchecked", "rawtypes" })
-public class GamaQuadTree implements ISpatialIndex {
+public class GamaQuadTree extends AbstractSpatialIndex {
 
 	static {
 		DEBUG.OFF();
@@ -75,6 +71,8 @@ public class GamaQuadTree implements ISpatialIndex {
 	 * @return the gama quad tree
 	 */
 	public static ISpatialIndex create(final Envelope envelope, final boolean parallel) {
+		// The concurrent quadtree does not need to be synchronized
+		if (GamaPreferences.Experimental.QUADTREE_CONCURRENT.getValue()) return new GamaConcurrentQuadTree(envelope);
 		ISpatialIndex qt = new GamaQuadTree(envelope, parallel);
 		if (GamaPreferences.Experimental.QUADTREE_SYNCHRONIZATION.getValue())
 			return new QuadTreeSynchronizer(qt);
@@ -121,6 +119,18 @@ public class GamaQuadTree implements ISpatialIndex {
 			return quadtree.firstAtDistance(scope, source, dist, f, number, alreadyChosen);
 		}
 
+		@Override
+		public synchronized boolean forEachAtDistance(final IScope scope, final IShape source, final double dist,
+				final IAgentFilter f, final ConsumerWithPruning<IAgent> visitor) {
+			return quadtree.forEachAtDistance(scope, source, dist, f, visitor);
+		}
+
+		@Override
+		public synchronized List<IAgent> nearest(final IScope scope, final IShape source, final IAgentFilter f,
+				final int number, final Collection<IAgent> alreadyChosen) {
+			return quadtree.nearest(scope, source, f, number, alreadyChosen);
+		}
+
 		@Override
 		public synchronized Collection<IAgent> allInEnvelope(final IScope scope, final IShape source,
 				final Envelope envelope, final IAgentFilter f, final boolean contained) {
@@ -185,95 +195,30 @@ public class GamaQuadTree implements ISpatialIndex {
 		current.dispose();
 	}
 
-	/**
-	 * Find intersects.
-	 *
-	 * @param scope
-	 *            the scope
-	 * @param source
-	 *            the source
-	 * @param r
-	 *            the r
-	 * @param filter
-	 *            the filter
-	 * @return the collection
-	 */
-	protected Collection<IAgent> findIntersects(final IScope scope, final IShape source, final Envelope r,
-			final IAgentFilter filter) {
-		// Adresses Issue 722 by explicitly shuffling the results with GAMA
-		// random procedures and removing duplicates
-		try (final ICollector<IAgent> list = Collector.getOrderedSet()) {
-			root.findIntersects(r, list);
-			if (list.isEmpty()) return GamaListFactory.create();
-			filter.filter(scope, source, list);
-			// DEBUG.OUT(list.size(), false);
-			list.shuffleInPlaceWith(scope.getRandom());
-			return list.items();
-		}
-	}
-
 	@Override
-	public Collection<IAgent> allAtDistance(final IScope scope, final IShape source, final double dist,
-			final IAgentFilter f) {
-		// TODO filter result by topology's bounds
-		final double exp = dist * Maths.SQRT2;
-		final Envelope3D env = Envelope3D.of(source.getEnvelope());
-		env.expandBy(exp);
-		try {
-			final Collection<IAgent> result = findIntersects(scope, source, env, f);
-			if (result.isEmpty()) return GamaListFactory.create();
-			result.removeIf(each -> source.euclidianDistanceTo(each) > dist);
-			return result;
-		} finally {
-			env.dispose();
-		}
+	protected void collectIntersecting(final Envelope r, final Collection<IAgent> result) {
+		root.findIntersects(r, result);
 	}
 
-	@Override
-	public Collection<IAgent> firstAtDistance(final IScope scope, final IShape source, final double dist,
-			final IAgentFilter f, final int number, final Collection<IAgent> alreadyChosen) {
-		final double exp = dist * Maths.SQRT2;
-		final Envelope3D env = Envelope3D.of(source.getEnvelope());
-		env.expandBy(exp);
-		try {
-			final Collection<IAgent> in_square = findIntersects(scope, source, env, f);
-			in_square.removeAll(alreadyChosen);
-			if (in_square.isEmpty()) return GamaListFactory.create();
-
-			if (in_square.size() <= number) return in_square;
-			final Ordering<IShape> ordering = Ordering.natural().onResultOf(input -> source.euclidianDistanceTo(input));
-			return ordering.leastOf(in_square, number);
-		} finally {
-			env.dispose();
-		}
+	/**
+	 * Whether the coordinate belongs to the interval [min, max[ (or [min, max] if max is the upper bound of the tree)
+	 */
+	static boolean owns(final double v, final double min, final double max, final double limit) {
+		return v >= min && (v < max || max >= limit);
 	}
 
 	@Override
-	public IAgent firstAtDistance(final IScope scope, final IShape source, final double dist, final IAgentFilter f) {
-		final Envelope3D env = Envelope3D.of(source.getEnvelope());
-		env.expandBy(dist * Maths.SQRT2);
-		try {
-			final Collection<IAgent> in_square = findIntersects(scope, source, env, f);
-			if (in_square.isEmpty()) return null;
-			double min_distance = dist;
-			IAgent min_agent = null;
-			for (final IAgent a : in_square) {
-				final Double dd = source.euclidianDistanceTo(a);
-				if (dd < min_distance) {
-					min_distance = dd;
-					min_agent = a;
-				}
-			}
-			return min_agent;
-		} finally {
-			env.dispose();
-		}
+	protected boolean visitIntersecting(final Envelope r, final ConsumerWithPruning<IAgent> visitor) {
+		return root.visit(r, visitor);
 	}
 
 	@Override
-	public Collection<IAgent> allInEnvelope(final IScope scope, final IShape source, final Envelope envelope,
-			final IAgentFilter f, final boolean contained) {
-		return findIntersects(scope, source, envelope, f);
+	public List<IAgent> nearest(final IScope scope, final IShape source, final IAgentFilter f, final int number,
+			final Collection<IAgent> alreadyChosen) {
+		final NearestNeighbourSearch<QuadNode> search =
+				new NearestNeighbourSearch<>(scope, source, f, number, alreadyChosen);
+		search.addNode(root, root.bounds);
+		return search.run(QuadNode::expand);
 	}
 
 	/**
@@ -454,6 +399,60 @@ public class GamaQuadTree implements ISpatialIndex {
 			}
 		}
 
+		/**
+		 * Adds the children of this node, or its agents if it is a leaf, to the search
+		 *
+		 * @param search
+		 *            the search
+		 */
+		void expand(final NearestNeighbourSearch<QuadNode> search) {
+			if (nw == null) {
+				objects.forEach((a, e) -> {
+					if (e instanceof GamaPoint p) {
+						search.addAgent(a, p.x, p.y, p.x, p.y);
+					} else if (e instanceof Envelope env) {
+						search.addAgent(a, env.getMinX(), env.getMinY(), env.getMaxX(), env.getMaxY());
+					}
+				});
+			} else {
+				search.addNode(nw, nw.bounds);
+				search.addNode(ne, ne.bounds);
+				search.addNode(sw, sw.bounds);
+				search.addNode(se, se.bounds);
+			}
+		}
+
+		/**
+		 * Visits the agents whose envelope intersects r. As an agent that is not a point can be stored in several
+		 * leaves, it is only visited in the leaf that owns the lowest corner of the intersection of its envelope, r and
+		 * the bounds of the tree (leaves own their lower bounds, and their upper bounds only on the border of the tree)
+		 *
+		 * @param r
+		 *            the envelope
+		 * @param visitor
+		 *            the visitor
+		 * @return false if the visit has been interrupted
+		 */
+		boolean visit(final Envelope r, final ConsumerWithPruning<IAgent> visitor) {
+			if (!bounds.intersects(r)) return true;
+			if (nw != null) return nw.visit(r, visitor) && ne.visit(r, visitor) && sw.visit(r, visitor)
+					&& se.visit(r, visitor);
+			final Envelope all = root.bounds;
+			final boolean[] go = { true };
+			objects.forEach((a, e) -> {
+				if (!go[0] || e == null || !e.intersects(r)) return;
+				if (e instanceof Envelope env) {
+					final double rx = Math.max(Math.max(env.getMinX(), r.getMinX()), all.getMinX());
+					final double ry = Math.max(Math.max(env.getMinY(), r.getMinY()), all.getMinY());
+					if (!owns(rx, bounds.getMinX(), bounds.getMaxX(), all.getMaxX())
+							|| !owns(ry, bounds.getMinY(), bounds.getMaxY(), all.getMaxY()))
+						return;
+				}
+				go[0] = visitor.process(a);
+			});
+			return go[0];
+		}
+
 		/**
 		 * Find intersects.
 		 *
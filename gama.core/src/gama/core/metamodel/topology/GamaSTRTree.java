@@ -0,0 +1,476 @@
+/*******************************************************************************************************
+ *
+ * GamaSTRTree.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.metamodel.topology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.locationtech.jts.geom.Envelope;
+
+import gama.annotations.common.interfaces.ConsumerWithPruning;
+import gama.core.common.geometry.Envelope3D;
+import gama.core.metamodel.agent.IAgent;
+import gama.core.metamodel.shape.IShape;
+import gama.core.metamodel.topology.filter.IAgentFilter;
+import gama.core.runtime.IScope;
+
+/**
+ * The Class GamaSTRTree. A read-only R-tree bulk-loaded with the Sort-Tile-Recursive algorithm, used for the agents of
+ * static species (buildings, roads, parcels...). The agents inserted before the tree is packed are simply buffered; the
+ * tree is packed either explicitly (see {@link #build()}, called after agents have been created from a geometry file)
+ * or lazily, before the first query. Packed nodes are stored level by level in flat arrays, the children of a node
+ * being contiguous in the level below, which gives perfectly balanced nodes with no empty space.
+ *
+ * As the tree cannot be modified once packed, the first insertion or removal that follows replaces it by a regular
+ * (dynamic) quadtree, to which all subsequent operations are delegated.
+ *
+ * @since 2026
+ *
+ */
+public class GamaSTRTree extends AbstractSpatialIndex {
+
+	/** The maximal number of entries in a node. */
+	static final int NODE_CAPACITY = 16;
+
+	/** The bounds used to create the dynamic index. */
+	final Envelope bounds;
+
+	/** The parallel. */
+	final boolean parallel;
+
+	/** The agents inserted while the tree is not packed. */
+	private Set<IAgent> loading = new LinkedHashSet<>();
+
+	/** The agents, in the order of the leaves. */
+	private IAgent[] agents;
+
+	/** The levels of the tree, from the leaves (entries = agents) to the root. */
+	private Level[] levels;
+
+	/** The dynamic index that replaces the tree after the first mutation. */
+	private volatile ISpatialIndex dynamic;
+
+	/** Whether the tree is packed. */
+	private volatile boolean packed;
+
+	/** Whether the tree has been disposed. */
+	private boolean disposed;
+
+	/**
+	 * A level of the tree: the envelopes of its entries and, for the levels above the leaves, the range of the children
+	 * of each entry in the level below.
+	 */
+	static class Level {
+
+		/** The bounds of the entries. */
+		double[] xmin, ymin, xmax, ymax;
+
+		/** The ranges of the children (from inclusive, to exclusive) in the level below. Null for the leaves. */
+		int[] from, to;
+
+		/**
+		 * Instantiates a new level.
+		 *
+		 * @param size
+		 *            the size
+		 */
+		Level(final int size) {
+			xmin = new double[size];
+			ymin = new double[size];
+			xmax = new double[size];
+			ymax = new double[size];
+		}
+
+		/**
+		 * Size.
+		 *
+		 * @return the number of entries
+		 */
+		int size() {
+			return xmin.length;
+		}
+
+		/**
+		 * Whether the entry intersects the envelope
+		 */
+		boolean intersects(final int i, final Envelope r) {
+			return xmin[i] <= r.getMaxX() && xmax[i] >= r.getMinX() && ymin[i] <= r.getMaxY() && ymax[i] >= r.getMinY();
+		}
+
+		/**
+		 * Reorders the entries of this level following the permutation
+		 *
+		 * @param order
+		 *            the order (order[i] is the former index of the i-th entry)
+		 */
+		void reorder(final Integer[] order) {
+			xmin = permute(xmin, order);
+			ymin = permute(ymin, order);
+			xmax = permute(xmax, order);
+			ymax = permute(ymax, order);
+			if (from != null) {
+				from = permute(from, order);
+				to = permute(to, order);
+			}
+		}
+
+		/**
+		 * Returns the x of the center of the entry.
+		 */
+		double centerX(final int i) {
+			return (xmin[i] + xmax[i]) / 2;
+		}
+
+		/**
+		 * Returns the y of the center of the entry.
+		 */
+		double centerY(final int i) {
+			return (ymin[i] + ymax[i]) / 2;
+		}
+	}
+
+	/**
+	 * Instantiates a new STR tree.
+	 *
+	 * @param bounds
+	 *            the bounds of the environment
+	 * @param parallel
+	 *            whether the dynamic index that may replace it must support parallel accesses
+	 */
+	public GamaSTRTree(final Envelope bounds, final boolean parallel) {
+		this.bounds = bounds;
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Packs the agents inserted so far. Does nothing if the tree is already packed or has been replaced by a dynamic
+	 * index.
+	 */
+	public synchronized void build() {
+		if (disposed || packed || dynamic != null) return;
+		final List<IAgent> list = new ArrayList<>(loading.size());
+		final List<Envelope3D> envelopes = new ArrayList<>(loading.size());
+		for (final IAgent agent : loading) {
+			final Envelope3D env = agent.getEnvelope();
+			if (env == null) { continue; }
+			list.add(agent);
+			envelopes.add(env);
+		}
+		loading = null;
+		final int n = list.size();
+		final Level leaves = new Level(n);
+		for (int i = 0; i < n; i++) {
+			final Envelope3D env = envelopes.get(i);
+			leaves.xmin[i] = env.getMinX();
+			leaves.ymin[i] = env.getMinY();
+			leaves.xmax[i] = env.getMaxX();
+			leaves.ymax[i] = env.getMaxY();
+			env.dispose();
+		}
+		final List<Level> result = new ArrayList<>();
+		result.add(leaves);
+		final Integer[] order = sortTileRecursive(leaves);
+		final IAgent[] sorted = new IAgent[n];
+		for (int i = 0; i < n; i++) { sorted[i] = list.get(order[i]); }
+		leaves.reorder(order);
+		Level current = leaves;
+		while (current.size() > NODE_CAPACITY) {
+			final Level parent = pack(current);
+			// The ranges of the children move with the nodes, so they remain valid after the sort
+			parent.reorder(sortTileRecursive(parent));
+			result.add(parent);
+			current = parent;
+		}
+		agents = sorted;
+		levels = result.toArray(new Level[result.size()]);
+		packed = true;
+	}
+
+	/**
+	 * Computes the STR order of the entries of the level: the entries are sorted by the x of their center, cut into
+	 * vertical slices of sqrt(P) nodes (P being the number of nodes needed), and each slice is sorted by the y of the
+	 * centers.
+	 *
+	 * @param level
+	 *            the level
+	 * @return the permutation to apply
+	 */
+	private static Integer[] sortTileRecursive(final Level level) {
+		final int n = level.size();
+		final Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) { order[i] = i; }
+		if (n <= NODE_CAPACITY) return order;
+		final int nodes = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+		final int slices = (int) Math.ceil(Math.sqrt(nodes));
+		final int sliceSize = slices * NODE_CAPACITY;
+		Arrays.sort(order, (a, b) -> Double.compare(level.centerX(a), level.centerX(b)));
+		for (int start = 0; start < n; start += sliceSize) {
+			Arrays.sort(order, start, Math.min(n, start + sliceSize),
+					(a, b) -> Double.compare(level.centerY(a), level.centerY(b)));
+		}
+		return order;
+	}
+
+	/**
+	 * Groups the (already sorted) entries of a level into nodes of at most NODE_CAPACITY entries
+	 *
+	 * @param children
+	 *            the level to pack
+	 * @return the level above
+	 */
+	private static Level pack(final Level children) {
+		final int n = children.size();
+		final int size = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+		final Level level = new Level(size);
+		level.from = new int[size];
+		level.to = new int[size];
+		for (int node = 0; node < size; node++) {
+			final int from = node * NODE_CAPACITY;
+			final int to = Math.min(n, from + NODE_CAPACITY);
+			double x1 = Double.POSITIVE_INFINITY, y1 = Double.POSITIVE_INFINITY, x2 = Double.NEGATIVE_INFINITY,
+					y2 = Double.NEGATIVE_INFINITY;
+			for (int i = from; i < to; i++) {
+				x1 = Math.min(x1, children.xmin[i]);
+				y1 = Math.min(y1, children.ymin[i]);
+				x2 = Math.max(x2, children.xmax[i]);
+				y2 = Math.max(y2, children.ymax[i]);
+			}
+			level.from[node] = from;
+			level.to[node] = to;
+			level.xmin[node] = x1;
+			level.ymin[node] = y1;
+			level.xmax[node] = x2;
+			level.ymax[node] = y2;
+		}
+		return level;
+	}
+
+	/**
+	 * Permute.
+	 */
+	static double[] permute(final double[] values, final Integer[] order) {
+		final double[] result = new double[values.length];
+		for (int i = 0; i < result.length; i++) { result[i] = values[order[i]]; }
+		return result;
+	}
+
+	/**
+	 * Permute.
+	 */
+	static int[] permute(final int[] values, final Integer[] order) {
+		final int[] result = new int[values.length];
+		for (int i = 0; i < result.length; i++) { result[i] = values[order[i]]; }
+		return result;
+	}
+
+	/**
+	 * Returns the dynamic index, creating it (and filling it with all the agents of the tree but the one passed) if
+	 * necessary.
+	 *
+	 * @param excluded
+	 *            an agent not to insert in the dynamic index (because it is being removed)
+	 * @return the dynamic index
+	 */
+	private synchronized ISpatialIndex toDynamic(final IAgent excluded) {
+		ISpatialIndex result = dynamic;
+		if (result != null) return result;
+		result = GamaQuadTree.create(bounds, parallel);
+		if (!disposed) {
+			final Iterable<IAgent> all = packed ? Arrays.asList(agents) : loading;
+			for (final IAgent a : all) { if (a != excluded && !a.dead()) { result.insert(a); } }
+		}
+		agents = null;
+		levels = null;
+		loading = null;
+		dynamic = result;
+		return result;
+	}
+
+	@Override
+	public void insert(final IAgent agent) {
+		ISpatialIndex d = dynamic;
+		if (d != null) {
+			d.insert(agent);
+			return;
+		}
+		synchronized (this) {
+			if (disposed) return;
+			if (dynamic == null && !packed) {
+				loading.add(agent);
+				return;
+			}
+		}
+		toDynamic(null).insert(agent);
+	}
+
+	@Override
+	public void remove(final Envelope3D previous, final IAgent agent) {
+		ISpatialIndex d = dynamic;
+		if (d != null) {
+			d.remove(previous, agent);
+			return;
+		}
+		synchronized (this) {
+			if (disposed) return;
+			if (dynamic == null && !packed) {
+				loading.remove(agent);
+				return;
+			}
+		}
+		// The agent may have already moved: it is simply left out of the new index
+		toDynamic(agent);
+	}
+
+	@Override
+	protected void collectIntersecting(final Envelope r, final Collection<IAgent> result) {
+		if (!packed) { build(); }
+		// Local copies, as the tree can be concurrently replaced by the dynamic index
+		final Level[] tree = levels;
+		final IAgent[] items = agents;
+		if (tree == null || items == null || items.length == 0) return;
+		final int top = tree.length - 1;
+		for (int i = 0; i < tree[top].size(); i++) { collect(tree, items, top, i, r, result); }
+	}
+
+	@Override
+	protected boolean visitIntersecting(final Envelope r, final ConsumerWithPruning<IAgent> visitor) {
+		if (!packed) { build(); }
+		final Level[] tree = levels;
+		final IAgent[] items = agents;
+		if (tree == null || items == null || items.length == 0) return true;
+		final int top = tree.length - 1;
+		for (int i = 0; i < tree[top].size(); i++) { if (!visit(tree, items, top, i, r, visitor)) return false; }
+		return true;
+	}
+
+	/**
+	 * Visits the agents below the entry, if it intersects the envelope
+	 */
+	private static boolean visit(final Level[] tree, final IAgent[] items, final int depth, final int entry,
+			final Envelope r, final ConsumerWithPruning<IAgent> visitor) {
+		final Level level = tree[depth];
+		if (!level.intersects(entry, r)) return true;
+		if (depth == 0) return visitor.process(items[entry]);
+		for (int child = level.from[entry]; child < level.to[entry]; child++) {
+			if (!visit(tree, items, depth - 1, child, r, visitor)) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean forEachAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f, final ConsumerWithPruning<IAgent> visitor) {
+		final ISpatialIndex d = dynamic;
+		if (d != null) return d.forEachAtDistance(scope, source, dist, f, visitor);
+		return super.forEachAtDistance(scope, source, dist, f, visitor);
+	}
+
+	/**
+	 * Collects the agents below the entry, if it intersects the envelope
+	 */
+	private static void collect(final Level[] tree, final IAgent[] items, final int depth, final int entry,
+			final Envelope r, final Collection<IAgent> result) {
+		final Level level = tree[depth];
+		if (!level.intersects(entry, r)) return;
+		if (depth == 0) {
+			result.add(items[entry]);
+			return;
+		}
+		for (int child = level.from[entry]; child < level.to[entry]; child++) {
+			collect(tree, items, depth - 1, child, r, result);
+		}
+	}
+
+	@Override
+	public List<IAgent> nearest(final IScope scope, final IShape source, final IAgentFilter f, final int number,
+			final Collection<IAgent> alreadyChosen) {
+		final ISpatialIndex d = dynamic;
+		if (d != null) return d.nearest(scope, source, f, number, alreadyChosen);
+		if (!packed) { build(); }
+		final Level[] tree = levels;
+		final IAgent[] items = agents;
+		if (tree == null || items == null) return super.nearest(scope, source, f, number, alreadyChosen);
+		// Nodes are encoded as depth * stride + entry
+		final long stride = items.length + 1L;
+		final NearestNeighbourSearch<Long> search =
+				new NearestNeighbourSearch<>(scope, source, f, number, alreadyChosen);
+		final int top = tree.length - 1;
+		final Level root = tree[top];
+		for (int i = 0; i < root.size(); i++) {
+			search.addNode(top * stride + i, root.xmin[i], root.ymin[i], root.xmax[i], root.ymax[i]);
+		}
+		return search.run((node, s) -> {
+			final int depth = (int) (node / stride);
+			final int entry = (int) (node % stride);
+			final Level level = tree[depth];
+			if (depth == 0) {
+				s.addAgent(items[entry], level.xmin[entry], level.ymin[entry], level.xmax[entry], level.ymax[entry]);
+				return;
+			}
+			final Level below = tree[depth - 1];
+			for (int child = level.from[entry]; child < level.to[entry]; child++) {
+				if (depth == 1) {
+					s.addAgent(items[child], below.xmin[child], below.ymin[child], below.xmax[child],
+							below.ymax[child]);
+				} else {
+					s.addNode((depth - 1) * stride + child, below.xmin[child], below.ymin[child], below.xmax[child],
+							below.ymax[child]);
+				}
+			}
+		});
+	}
+
+	@Override
+	public IAgent firstAtDistance(final IScope scope, final IShape source, final double dist, final IAgentFilter f) {
+		final ISpatialIndex d = dynamic;
+		if (d != null) return d.firstAtDistance(scope, source, dist, f);
+		return super.firstAtDistance(scope, source, dist, f);
+	}
+
+	@Override
+	public Collection<IAgent> firstAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f, final int number, final Collection<IAgent> alreadyChosen) {
+		final ISpatialIndex d = dynamic;
+		if (d != null) return d.firstAtDistance(scope, source, dist, f, number, alreadyChosen);
+		return super.firstAtDistance(scope, source, dist, f, number, alreadyChosen);
+	}
+
+	@Override
+	public Collection<IAgent> allInEnvelope(final IScope scope, final IShape source, final Envelope envelope,
+			final IAgentFilter f, final boolean contained) {
+		final ISpatialIndex d = dynamic;
+		if (d != null) return d.allInEnvelope(scope, source, envelope, f, contained);
+		return super.allInEnvelope(scope, source, envelope, f, contained);
+	}
+
+	@Override
+	public Collection<IAgent> allAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f) {
+		final ISpatialIndex d = dynamic;
+		if (d != null) return d.allAtDistance(scope, source, dist, f);
+		return super.allAtDistance(scope, source, dist, f);
+	}
+
+	@Override
+	public synchronized void dispose() {
+		disposed = true;
+		if (dynamic != null) { dynamic.dispose(); }
+		dynamic = null;
+		agents = null;
+		levels = null;
+		loading = null;
+	}
+
+}
@@ -11,9 +11,11 @@
 package gama.core.metamodel.topology;
 
 import java.util.Collection;
+import java.util.List;
 
 import org.locationtech.jts.geom.Envelope;
 
+import gama.annotations.common.interfaces.ConsumerWithPruning;
 import gama.core.common.geometry.Envelope3D;
 import gama.core.metamodel.agent.IAgent;
 import gama.core.metamodel.shape.IShape;
@@ -82,6 +84,32 @@ public interface ISpatialIndex {
 	Collection<IAgent> firstAtDistance(IScope scope, final IShape source, final double dist, final IAgentFilter f,
 			int number, Collection<IAgent> alreadyChosen);
 
+	/**
+	 * Returns the agents accepted by the filter (and not already chosen) that are the closest to the source, sorted by
+	 * increasing distance. The number closest agents are returned if they exist, as well as all the agents placed at
+	 * the same distance than the last one: the choice among them is left to the caller, who must make it randomly (see
+	 * {@link NearestNeighbourSearch#select(IScope, IShape, Collection, int)}). The default implementation examines all
+	 * the agents of the index; hierarchical indexes should perform a best-first search (see
+	 * {@link NearestNeighbourSearch}).
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param source
+	 *            the source
+	 * @param f
+	 *            the filter
+	 * @param number
+	 *            the number of agents to find
+	 * @param alreadyChosen
+	 *            the agents to exclude
+	 * @return the list of agents, sorted by distance
+	 */
+	default List<IAgent> nearest(final IScope scope, final IShape source, final IAgentFilter f, final int number,
+			final Collection<IAgent> alreadyChosen) {
+		return NearestNeighbourSearch.sortAndTruncate(source,
+				firstAtDistance(scope, source, Double.MAX_VALUE, f, Integer.MAX_VALUE, alreadyChosen), number);
+	}
+
 	/**
 	 * All in envelope.
 	 *
@@ -115,6 +143,29 @@ public interface ISpatialIndex {
 	 */
 	Collection<IAgent> allAtDistance(IScope scope, IShape source, double dist, IAgentFilter f);
 
+	/**
+	 * Visits the agents accepted by the filter and located at a distance <= dist from the source, without building
+	 * the collection of these agents. The visit stops as soon as the visitor returns false. Contrary to
+	 * allAtDistance(), the agents are not shuffled: they are visited in the order of the index.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param source
+	 *            the source
+	 * @param dist
+	 *            the dist
+	 * @param f
+	 *            the filter
+	 * @param visitor
+	 *            the visitor
+	 * @return false if the visit has been interrupted by the visitor, true otherwise
+	 */
+	default boolean forEachAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f, final ConsumerWithPruning<IAgent> visitor) {
+		for (final IAgent a : allAtDistance(scope, source, dist, f)) { if (!visitor.process(a)) return false; }
+		return true;
+	}
+
 	/**
 	 * Dispose.
 	 */
@@ -153,6 +204,43 @@ public interface ISpatialIndex {
 		 */
 		void mergeWith(Compound spatialIndex);
 
+		/**
+		 * Returns the index used for the agents of this species, if it has already been created
+		 *
+		 * @param species
+		 *            the species
+		 * @return the index or null
+		 */
+		ISpatialIndex getIndex(final ISpecies species);
+
+		/**
+		 * Begins recording the moves of agents in all the indexes able to defer them (see {@link Deferred}).
+		 */
+		void beginDeferringAll();
+
+		/**
+		 * Applies the moves recorded by all the indexes able to defer them and stops recording them.
+		 */
+		void commitAll();
+
+	}
+
+	/**
+	 * The Interface Deferred. Implemented by indexes able to defer the updates due to the moves of agents to the end of
+	 * the step of their population.
+	 */
+	public interface Deferred extends ISpatialIndex {
+
+		/**
+		 * Begins recording the moves of agents instead of applying them.
+		 */
+		void beginDeferring();
+
+		/**
+		 * Applies the recorded moves and stops recording them.
+		 */
+		void commit();
+
 	}
 
 }
\ No newline at end of file
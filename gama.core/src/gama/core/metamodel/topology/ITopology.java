@@ -15,6 +15,7 @@ import java.util.List;
 
 import org.locationtech.jts.geom.Geometry;
 
+import gama.annotations.common.interfaces.ConsumerWithPruning;
 import gama.annotations.common.interfaces.IKeyword;
 import gama.annotations.precompiler.GamlAnnotations.doc;
 import gama.annotations.precompiler.GamlAnnotations.getter;
@@ -165,6 +166,24 @@ public interface ITopology extends IValue {
 	Collection<IAgent> getNeighborsOf(IScope scope, final IShape source, final Double distance, IAgentFilter filter)
 			throws GamaRuntimeException;
 
+	/**
+	 * Visits the neighbors of the source (the agents returned by getNeighborsOf()) until the visitor returns false.
+	 * Topologies backed by a spatial index visit them without building their collection.
+	 *
+	 * @param scope the scope
+	 * @param source the source
+	 * @param distance the distance
+	 * @param filter the filter
+	 * @param visitor the visitor
+	 * @return false if the visit has been interrupted by the visitor, true otherwise
+	 * @throws GamaRuntimeException the gama runtime exception
+	 */
+	default boolean forEachAtDistance(final IScope scope, final IShape source, final Double distance,
+			final IAgentFilter filter, final ConsumerWithPruning<IAgent> visitor) throws GamaRuntimeException {
+		for (final IAgent a : getNeighborsOf(scope, source, distance, filter)) { if (!visitor.process(a)) return false; }
+		return true;
+	}
+
 	/**
 	 * Gets the agents in.
 	 *
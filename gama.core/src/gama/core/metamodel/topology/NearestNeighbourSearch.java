@@ -0,0 +1,327 @@
+/*******************************************************************************************************
+ *
+ * NearestNeighbourSearch.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.metamodel.topology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+import org.locationtech.jts.geom.Envelope;
+
+import gama.core.common.geometry.Envelope3D;
+import gama.core.metamodel.agent.IAgent;
+import gama.core.metamodel.shape.IShape;
+import gama.core.metamodel.topology.filter.IAgentFilter;
+import gama.core.runtime.IScope;
+
+/**
+ * The Class NearestNeighbourSearch. A best-first k-nearest-neighbours traversal of a hierarchical spatial index: nodes
+ * and agents are kept in a priority queue ordered by their (minimal) distance to the source, so that nodes are only
+ * expanded when they can contain an agent closer than the ones already found. Agents are first queued with the
+ * distance to their envelope (a lower bound) and their exact distance is only computed when they reach the head of the
+ * queue.
+ *
+ * The search returns the agents sorted by increasing distance and includes all the agents placed at the same distance
+ * than the last one, so that the final choice among them can be made randomly by the caller (see
+ * {@link #select(IScope, IShape, Collection, int)}, which addresses Issue 722).
+ *
+ * @since 2026
+ *
+ * @param <N>
+ *            the type of the nodes of the index
+ */
+@SuppressWarnings ({ "unchecked", "rawtypes" })
+public final class NearestNeighbourSearch<N> {
+
+	/**
+	 * The Interface Expander. Implemented by the indexes to push the children of a node (either nodes or agents) in the
+	 * search
+	 *
+	 * @param <N>
+	 *            the type of the nodes
+	 */
+	@FunctionalInterface
+	public interface Expander<N> {
+
+		/**
+		 * Expands the node.
+		 *
+		 * @param node
+		 *            the node
+		 * @param search
+		 *            the search in which to add its children
+		 */
+		void expand(N node, NearestNeighbourSearch<N> search);
+	}
+
+	/** The kinds of entries. Nodes and unrefined agents come before refined agents at equal distance */
+	private static final int NODE = 0, CANDIDATE = 1, AGENT = 2;
+
+	/**
+	 * An entry of the queue
+	 */
+	private record Entry(double distance, int kind, long order, Object item) {}
+
+	/** The order of the entries. */
+	private static final Comparator<Entry> ORDER = (e1, e2) -> {
+		int c = Double.compare(e1.distance, e2.distance);
+		if (c != 0) return c;
+		c = Integer.compare(e1.kind, e2.kind);
+		if (c != 0) return c;
+		return Long.compare(e1.order, e2.order);
+	};
+
+	/** The scope. */
+	final IScope scope;
+
+	/** The source. */
+	final IShape source;
+
+	/** The bounds of the source. */
+	final double sx0, sy0, sx1, sy1;
+
+	/** The filter. */
+	final IAgentFilter filter;
+
+	/** The number of agents to find. */
+	final int number;
+
+	/** The agents to exclude. */
+	final Set<IAgent> excluded;
+
+	/** The distance of the agents to the source. */
+	final ToDoubleFunction<IAgent> distance;
+
+	/** The queue. */
+	final PriorityQueue<Entry> queue = new PriorityQueue<>(ORDER);
+
+	/** The agents already examined (they can be present in several nodes). */
+	final Set<IAgent> visited = new HashSet<>();
+
+	/** The counter used to order the entries at equal distance. */
+	long counter;
+
+	/**
+	 * Instantiates a new nearest neighbour search.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param source
+	 *            the source
+	 * @param filter
+	 *            the filter
+	 * @param number
+	 *            the number of agents to find
+	 * @param excluded
+	 *            the agents to exclude (can be null)
+	 */
+	public NearestNeighbourSearch(final IScope scope, final IShape source, final IAgentFilter filter, final int number,
+			final Collection<IAgent> excluded) {
+		this(scope, source, filter, number, excluded, source::euclidianDistanceTo);
+	}
+
+	/**
+	 * Instantiates a new nearest neighbour search with another distance than the one to the geometry of the agents. The
+	 * distance to the envelope of an agent must be a lower bound of this distance.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param source
+	 *            the source
+	 * @param filter
+	 *            the filter
+	 * @param number
+	 *            the number of agents to find
+	 * @param excluded
+	 *            the agents to exclude (can be null)
+	 * @param distance
+	 *            the distance of the agents to the source
+	 */
+	public NearestNeighbourSearch(final IScope scope, final IShape source, final IAgentFilter filter, final int number,
+			final Collection<IAgent> excluded, final ToDoubleFunction<IAgent> distance) {
+		this.scope = scope;
+		this.source = source;
+		this.filter = filter;
+		this.number = number;
+		this.distance = distance;
+		// Copied once, as the collection passed is usually a list
+		if (excluded == null || excluded.isEmpty()) {
+			this.excluded = Collections.EMPTY_SET;
+		} else {
+			this.excluded = Collections.newSetFromMap(new IdentityHashMap<>(excluded.size()));
+			this.excluded.addAll(excluded);
+		}
+		final Envelope3D env = source.getEnvelope();
+		sx0 = env.getMinX();
+		sy0 = env.getMinY();
+		sx1 = env.getMaxX();
+		sy1 = env.getMaxY();
+		env.dispose();
+	}
+
+	/**
+	 * The distance between the envelope of the source and the one passed
+	 */
+	private double distanceTo(final double x0, final double y0, final double x1, final double y1) {
+		final double dx = x0 > sx1 ? x0 - sx1 : sx0 > x1 ? sx0 - x1 : 0d;
+		final double dy = y0 > sy1 ? y0 - sy1 : sy0 > y1 ? sy0 - y1 : 0d;
+		if (dx == 0d) return dy;
+		if (dy == 0d) return dx;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Adds a node covering the given bounds
+	 */
+	public void addNode(final N node, final double x0, final double y0, final double x1, final double y1) {
+		queue.add(new Entry(distanceTo(x0, y0, x1, y1), NODE, counter++, node));
+	}
+
+	/**
+	 * Adds a node covering the given envelope
+	 */
+	public void addNode(final N node, final Envelope bounds) {
+		addNode(node, bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+	}
+
+	/**
+	 * Adds a node, with a known lower bound of the distance of its contents to the source
+	 */
+	public void addNode(final N node, final double lowerBound) {
+		queue.add(new Entry(lowerBound, NODE, counter++, node));
+	}
+
+	/**
+	 * Adds an agent, whose envelope is given
+	 */
+	public void addAgent(final IAgent agent, final double x0, final double y0, final double x1, final double y1) {
+		queue.add(new Entry(distanceTo(x0, y0, x1, y1), CANDIDATE, counter++, agent));
+	}
+
+	/**
+	 * Adds an agent, with a known lower bound of its distance to the source (e.g. the distance of its node)
+	 */
+	public void addAgent(final IAgent agent, final double lowerBound) {
+		queue.add(new Entry(lowerBound, CANDIDATE, counter++, agent));
+	}
+
+	/**
+	 * Runs the search
+	 *
+	 * @param expander
+	 *            the function that expands the nodes of the index
+	 * @return the agents found, sorted by distance, including the ones at the same distance than the last one
+	 */
+	public List<IAgent> run(final Expander<N> expander) {
+		if (number <= 0) return Collections.EMPTY_LIST;
+		final List<IAgent> result = new ArrayList<>(Math.min(number, 16));
+		double last = Double.MAX_VALUE;
+		while (!queue.isEmpty()) {
+			final Entry e = queue.poll();
+			if (result.size() >= number && e.distance > last) { break; }
+			switch (e.kind) {
+				case NODE -> expander.expand((N) e.item, this);
+				case CANDIDATE -> {
+					final IAgent a = (IAgent) e.item;
+					if (visited.add(a) && !a.dead() && !excluded.contains(a) && filter.accept(scope, source, a)) {
+						queue.add(new Entry(distance.applyAsDouble(a), AGENT, counter++, a));
+					}
+				}
+				default -> {
+					result.add((IAgent) e.item);
+					last = e.distance;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Sorts the agents by increasing distance to the source and keeps the number first ones, and all the ones at the
+	 * same distance than the last one. The sort is stable.
+	 *
+	 * @param source
+	 *            the source
+	 * @param agents
+	 *            the agents
+	 * @param number
+	 *            the number
+	 * @return the list
+	 */
+	public static List<IAgent> sortAndTruncate(final IShape source, final Collection<IAgent> agents,
+			final int number) {
+		return sortAndTruncate(agents, source::euclidianDistanceTo, number);
+	}
+
+	/**
+	 * Sorts the agents by increasing distance and keeps the number first ones, and all the ones at the same distance
+	 * than the last one. The sort is stable.
+	 *
+	 * @param agents
+	 *            the agents
+	 * @param distance
+	 *            the function computing the distance of an agent
+	 * @param number
+	 *            the number
+	 * @return the list
+	 */
+	public static List<IAgent> sortAndTruncate(final Collection<IAgent> agents,
+			final ToDoubleFunction<IAgent> distance, final int number) {
+		if (number <= 0) return Collections.EMPTY_LIST;
+		final int size = agents.size();
+		final List<IAgent> sorted = new ArrayList<>(agents);
+		final double[] distances = new double[size];
+		final Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+			distances[i] = distance.applyAsDouble(sorted.get(i));
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+		final List<IAgent> result = new ArrayList<>(Math.min(size, number));
+		for (int i = 0; i < size; i++) {
+			if (i >= number && distances[order[i]] > distances[order[i - 1]]) { break; }
+			result.add(sorted.get(order[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * Chooses the number closest agents among the candidates (typically the results of several searches). Agents at
+	 * the same distance are chosen randomly (addresses Issue 722)
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param source
+	 *            the source
+	 * @param candidates
+	 *            the candidates
+	 * @param number
+	 *            the number
+	 * @return the list of at most number agents, sorted by distance
+	 */
+	public static List<IAgent> select(final IScope scope, final IShape source, final Collection<IAgent> candidates,
+			final int number) {
+		if (candidates.isEmpty()) return Collections.EMPTY_LIST;
+		final List<IAgent> list = new ArrayList<>(candidates);
+		scope.getRandom().shuffleInPlace(list);
+		final List<IAgent> result = sortAndTruncate(source, list, number);
+		return result.size() <= number ? result : result.subList(0, number);
+	}
+
+}
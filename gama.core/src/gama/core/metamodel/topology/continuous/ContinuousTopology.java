@@ -10,12 +10,15 @@
  ********************************************************************************************************/
 package gama.core.metamodel.topology.continuous;
 
+import gama.annotations.common.interfaces.ConsumerWithPruning;
 import gama.annotations.common.interfaces.IKeyword;
+import gama.core.metamodel.agent.IAgent;
 //import gama.core.common.interfaces.msi;
 import gama.core.metamodel.shape.GamaPoint;
 import gama.core.metamodel.shape.IShape;
 import gama.core.metamodel.topology.AbstractTopology;
 import gama.core.metamodel.topology.ITopology;
+import gama.core.metamodel.topology.filter.IAgentFilter;
 import gama.core.runtime.IScope;
 import gama.core.runtime.exceptions.GamaRuntimeException;
 import gama.core.util.GamaListFactory;
@@ -123,4 +126,11 @@ public class ContinuousTopology extends AbstractTopology {
 		return g1.euclidianDistanceTo(g2);
 	}
 
-}
\ No newline at end of file
+	@Override
+	public boolean forEachAtDistance(final IScope scope, final IShape source, final Double distance,
+			final IAgentFilter filter, final ConsumerWithPruning<IAgent> visitor) throws GamaRuntimeException {
+		if (isTorus()) return super.forEachAtDistance(scope, source, distance, filter, visitor);
+		return getSpatialIndex().forEachAtDistance(scope, source, distance, filter, visitor);
+	}
+
+}
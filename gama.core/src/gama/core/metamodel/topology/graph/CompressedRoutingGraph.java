@@ -0,0 +1,509 @@
+/*******************************************************************************************************
+ *
+ * CompressedRoutingGraph.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.metamodel.topology.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import gama.core.metamodel.shape.GamaPoint;
+import gama.core.metamodel.shape.IShape;
+import gama.core.util.graph._Edge;
+
+/**
+ * The Class CompressedRoutingGraph. A frozen snapshot of a spatial graph in the compressed sparse row format, used to
+ * compute shortest paths without hashing the vertices and edges at each relaxation: the edges leaving each vertex are
+ * stored contiguously in primitive arrays (targets, indices of the edges and weights), from the offset of the vertex.
+ * The edges entering each vertex are stored the same way for the backward searches (they are the same arrays for
+ * undirected graphs).
+ *
+ * The searches (bidirectional Dijkstra, A* and one-to-many Dijkstra, with a binary heap indexed by vertex) take their
+ * workspaces from a pool owned by the snapshot, and return them once done: their arrays are reused from one search to
+ * the other, a snapshot can be queried concurrently, and the arrays are released with the snapshot. A snapshot is never
+ * modified: the graph builds a new one after it has been modified.
+ *
+ * @since 2026
+ *
+ */
+@SuppressWarnings ("unchecked")
+public final class CompressedRoutingGraph {
+
+	/** The vertices. */
+	final IShape[] vertices;
+
+	/** The indices of the vertices. */
+	final Map<IShape, Integer> indices;
+
+	/** The coordinates of the vertices, used by the heuristic of A*. */
+	final double[] x, y, z;
+
+	/** The edges. */
+	final IShape[] edges;
+
+	/** The edges leaving each vertex: offsets (by vertex), targets, indices of the edges and weights (by slot). */
+	final int[] offsets, targets, edgeIds;
+
+	/** The weights. */
+	final double[] weights;
+
+	/** The edges entering each vertex: offsets (by vertex), sources, indices of the edges and weights (by slot). */
+	final int[] rOffsets, rSources, rEdgeIds;
+
+	/** The reverse weights. */
+	final double[] rWeights;
+
+	/** The pairs of workspaces (one for each direction of the searches) not in use. */
+	private final Queue<Workspace[]> workspaces = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Builds the snapshot of a graph.
+	 *
+	 * @param graph
+	 *            the graph
+	 */
+	CompressedRoutingGraph(final GamaSpatialGraph graph) {
+		final int n = graph.getVertexMap().size();
+		vertices = graph.getVertexMap().keySet().toArray(new IShape[n]);
+		indices = new HashMap<>(n * 2);
+		x = new double[n];
+		y = new double[n];
+		z = new double[n];
+		for (int i = 0; i < n; i++) {
+			indices.put(vertices[i], i);
+			final GamaPoint p = vertices[i].getLocation();
+			x[i] = p.x;
+			y[i] = p.y;
+			z[i] = p.z;
+		}
+		final boolean directed = graph.isDirected();
+		final int m = graph._internalEdgeMap().size();
+		edges = new IShape[m];
+		final int[] from = new int[m], to = new int[m];
+		final double[] w = new double[m];
+		int e = 0;
+		for (final Map.Entry<IShape, _Edge<IShape, IShape>> entry : graph._internalEdgeMap().entrySet()) {
+			final _Edge<IShape, IShape> edge = entry.getValue();
+			final Integer s = indices.get(edge.getSource()), t = indices.get(edge.getTarget());
+			if (s == null || t == null) { continue; }
+			edges[e] = entry.getKey();
+			from[e] = s;
+			to[e] = t;
+			w[e] = edge.getWeight();
+			e++;
+		}
+		final int slots = directed ? e : 2 * e;
+		offsets = new int[n + 1];
+		targets = new int[slots];
+		edgeIds = new int[slots];
+		weights = new double[slots];
+		fill(n, e, from, to, w, !directed, offsets, targets, edgeIds, weights);
+		if (directed) {
+			rOffsets = new int[n + 1];
+			rSources = new int[slots];
+			rEdgeIds = new int[slots];
+			rWeights = new double[slots];
+			fill(n, e, to, from, w, false, rOffsets, rSources, rEdgeIds, rWeights);
+		} else {
+			rOffsets = offsets;
+			rSources = targets;
+			rEdgeIds = edgeIds;
+			rWeights = weights;
+		}
+	}
+
+	/**
+	 * Fills the arrays of an adjacency with a counting sort of the edges by origin.
+	 */
+	private static void fill(final int n, final int m, final int[] from, final int[] to, final double[] w,
+			final boolean both, final int[] off, final int[] dest, final int[] ids, final double[] ws) {
+		for (int e = 0; e < m; e++) {
+			off[from[e] + 1]++;
+			if (both) { off[to[e] + 1]++; }
+		}
+		for (int v = 0; v < n; v++) { off[v + 1] += off[v]; }
+		final int[] next = Arrays.copyOf(off, n);
+		for (int e = 0; e < m; e++) {
+			int k = next[from[e]]++;
+			dest[k] = to[e];
+			ids[k] = e;
+			ws[k] = w[e];
+			if (both) {
+				k = next[to[e]]++;
+				dest[k] = from[e];
+				ids[k] = e;
+				ws[k] = w[e];
+			}
+		}
+	}
+
+	/**
+	 * The index of a vertex.
+	 *
+	 * @param vertex
+	 *            the vertex
+	 * @return its index, or -1 if it is not in the snapshot
+	 */
+	int indexOf(final IShape vertex) {
+		final Integer i = indices.get(vertex);
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 * Takes a pair of workspaces from the pool of the snapshot, or creates one if they are all in use. There are never
+	 * more pairs than searches run at the same time on the snapshot.
+	 *
+	 * @return the two workspaces, one for each direction of the searches
+	 */
+	Workspace[] acquireWorkspaces() {
+		final Workspace[] ws = workspaces.poll();
+		return ws == null ? new Workspace[] { new Workspace(), new Workspace() } : ws;
+	}
+
+	/**
+	 * Returns a pair of workspaces to the pool of the snapshot, once the search that used it is done.
+	 *
+	 * @param ws
+	 *            the workspaces
+	 */
+	void releaseWorkspaces(final Workspace[] ws) {
+		workspaces.offer(ws);
+	}
+
+	/**
+	 * The number of vertices.
+	 *
+	 * @return the number of vertices
+	 */
+	public int vertexCount() {
+		return vertices.length;
+	}
+
+	/**
+	 * Computes the shortest path between two vertices.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param heuristic
+	 *            whether to use A* with the euclidean distance to the target as heuristic, or a bidirectional Dijkstra
+	 *            search
+	 * @return the edges of the path, empty if there is none
+	 */
+	public List<IShape> shortestPath(final IShape source, final IShape target, final boolean heuristic) {
+		final int s = indexOf(source), t = indexOf(target);
+		if (s < 0 || t < 0 || s == t) return Collections.EMPTY_LIST;
+		return heuristic ? aStar(s, t) : bidirectionalDijkstra(s, t);
+	}
+
+	/**
+	 * Bidirectional Dijkstra search.
+	 */
+	private List<IShape> bidirectionalDijkstra(final int s, final int t) {
+		final Workspace[] ws = acquireWorkspaces();
+		try {
+			final Workspace f = ws[0].reset(vertices.length), b = ws[1].reset(vertices.length);
+			f.update(s, 0, 0, -1, -1);
+			b.update(t, 0, 0, -1, -1);
+			double best = Double.POSITIVE_INFINITY;
+			int meet = -1;
+			while (f.size > 0 && b.size > 0) {
+				if (f.minKey() + b.minKey() >= best) { break; }
+				final boolean forward = f.size <= b.size;
+				final Workspace search = forward ? f : b, other = forward ? b : f;
+				final int[] off = forward ? offsets : rOffsets, dest = forward ? targets : rSources;
+				final double[] w = forward ? weights : rWeights;
+				final int u = search.pop();
+				final double du = search.dist[u];
+				for (int k = off[u], end = off[u + 1]; k < end; k++) {
+					final int v = dest[k];
+					final double d = du + w[k];
+					if (d < search.distance(v)) { search.update(v, d, d, k, u); }
+					if (other.seen(v)) {
+						final double total = search.dist[v] + other.dist[v];
+						if (total < best) {
+							best = total;
+							meet = v;
+						}
+					}
+				}
+			}
+			if (meet < 0) return Collections.EMPTY_LIST;
+			final List<IShape> result = new ArrayList<>();
+			for (int v = meet; f.parentSlot[v] >= 0; v = f.parentVertex[v]) {
+				result.add(edges[edgeIds[f.parentSlot[v]]]);
+			}
+			Collections.reverse(result);
+			for (int v = meet; b.parentSlot[v] >= 0; v = b.parentVertex[v]) {
+				result.add(edges[rEdgeIds[b.parentSlot[v]]]);
+			}
+			return result;
+		} finally {
+			releaseWorkspaces(ws);
+		}
+	}
+
+	/**
+	 * A* search, with the euclidean distance to the target as heuristic.
+	 */
+	private List<IShape> aStar(final int s, final int t) {
+		final Workspace[] ws = acquireWorkspaces();
+		try {
+			final Workspace f = ws[0].reset(vertices.length);
+			f.update(s, 0, heuristic(s, t), -1, -1);
+			while (f.size > 0) {
+				final int u = f.pop();
+				if (u == t) { break; }
+				final double du = f.dist[u];
+				for (int k = offsets[u], end = offsets[u + 1]; k < end; k++) {
+					final int v = targets[k];
+					final double d = du + weights[k];
+					if (d < f.distance(v)) { f.update(v, d, d + heuristic(v, t), k, u); }
+				}
+			}
+			if (!f.seen(t)) return Collections.EMPTY_LIST;
+			return pathTo(f, t);
+		} finally {
+			releaseWorkspaces(ws);
+		}
+	}
+
+	/**
+	 * Computes the shortest paths from a source to several targets with a single Dijkstra search, stopped when all the
+	 * targets have been reached.
+	 *
+	 * @param source
+	 *            the source
+	 * @param destinations
+	 *            the targets
+	 * @return the edges of the paths, in the order of the targets (empty if there is none)
+	 */
+	public List<IShape>[] shortestPaths(final IShape source, final IShape[] destinations) {
+		final List<IShape>[] result = new List[destinations.length];
+		Arrays.fill(result, Collections.EMPTY_LIST);
+		final int s = indexOf(source);
+		if (s < 0) return result;
+		final Workspace[] ws = acquireWorkspaces();
+		try {
+			final Workspace f = ws[0].reset(vertices.length), marks = ws[1].reset(vertices.length);
+			final int[] ts = new int[destinations.length];
+			int remaining = 0;
+			for (int i = 0; i < ts.length; i++) {
+				ts[i] = indexOf(destinations[i]);
+				if (ts[i] >= 0 && ts[i] != s && marks.mark(ts[i])) { remaining++; }
+			}
+			f.update(s, 0, 0, -1, -1);
+			while (remaining > 0 && f.size > 0) {
+				final int u = f.pop();
+				if (marks.seen(u)) { remaining--; }
+				final double du = f.dist[u];
+				for (int k = offsets[u], end = offsets[u + 1]; k < end; k++) {
+					final int v = targets[k];
+					final double d = du + weights[k];
+					if (d < f.distance(v)) { f.update(v, d, d, k, u); }
+				}
+			}
+			for (int i = 0; i < ts.length; i++) {
+				if (ts[i] >= 0 && ts[i] != s && f.seen(ts[i])) { result[i] = pathTo(f, ts[i]); }
+			}
+			return result;
+		} finally {
+			releaseWorkspaces(ws);
+		}
+	}
+
+	/**
+	 * The edges leading from the origin of a forward search to a vertex.
+	 */
+	private List<IShape> pathTo(final Workspace f, final int t) {
+		final List<IShape> result = new ArrayList<>();
+		for (int v = t; f.parentSlot[v] >= 0; v = f.parentVertex[v]) { result.add(edges[edgeIds[f.parentSlot[v]]]); }
+		Collections.reverse(result);
+		return result;
+	}
+
+	/**
+	 * The euclidean distance between two vertices.
+	 */
+	private double heuristic(final int u, final int v) {
+		final double dx = x[u] - x[v], dy = y[u] - y[v], dz = z[u] - z[v];
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	/**
+	 * The Class Workspace. The state of a search: distances and parents of the vertices reached, and binary heap of
+	 * the vertices to expand, indexed by vertex. The arrays are reused from one search to the other: a vertex is
+	 * considered as reached only if its stamp is the one of the current search.
+	 */
+	static final class Workspace {
+
+		/** The stamp of the current search. */
+		int generation;
+
+		/** The stamps of the vertices. */
+		int[] stamps = new int[0];
+
+		/** The distances from the origin of the search. */
+		double[] dist;
+
+		/** The keys of the vertices in the heap. */
+		double[] keys;
+
+		/** The slot of the edge from the parent, or -1 for the origin. */
+		int[] parentSlot;
+
+		/** The parent. */
+		int[] parentVertex;
+
+		/** The position of the vertices in the heap, or -1 if they have been expanded. */
+		int[] positions;
+
+		/** The heap. */
+		int[] heap;
+
+		/** The number of vertices in the heap. */
+		int size;
+
+		/**
+		 * Prepares a new search.
+		 *
+		 * @param n
+		 *            the number of vertices
+		 * @return this
+		 */
+		Workspace reset(final int n) {
+			if (stamps.length < n) {
+				stamps = new int[n];
+				dist = new double[n];
+				keys = new double[n];
+				parentSlot = new int[n];
+				parentVertex = new int[n];
+				positions = new int[n];
+				heap = new int[n];
+				generation = 0;
+			}
+			if (++generation == 0) {
+				Arrays.fill(stamps, 0);
+				generation = 1;
+			}
+			size = 0;
+			return this;
+		}
+
+		/**
+		 * Whether a vertex has been reached by the current search.
+		 */
+		boolean seen(final int v) {
+			return stamps[v] == generation;
+		}
+
+		/**
+		 * Marks a vertex as reached, without recording a distance.
+		 *
+		 * @return true if it was not already marked
+		 */
+		boolean mark(final int v) {
+			if (seen(v)) return false;
+			stamps[v] = generation;
+			return true;
+		}
+
+		/**
+		 * The distance of a vertex, infinite if it has not been reached.
+		 */
+		double distance(final int v) {
+			return seen(v) ? dist[v] : Double.POSITIVE_INFINITY;
+		}
+
+		/**
+		 * The smallest key of the heap.
+		 */
+		double minKey() {
+			return keys[heap[0]];
+		}
+
+		/**
+		 * Records a shorter distance to a vertex and (re)inserts it in the heap.
+		 */
+		void update(final int v, final double d, final double key, final int slot, final int parent) {
+			if (!seen(v)) {
+				stamps[v] = generation;
+				positions[v] = -1;
+			}
+			dist[v] = d;
+			keys[v] = key;
+			parentSlot[v] = slot;
+			parentVertex[v] = parent;
+			int i = positions[v];
+			if (i < 0) { i = size++; }
+			siftUp(v, i);
+		}
+
+		/**
+		 * Removes the vertex of smallest key from the heap.
+		 */
+		int pop() {
+			final int result = heap[0];
+			positions[result] = -1;
+			final int last = heap[--size];
+			if (size > 0) { siftDown(last, 0); }
+			return result;
+		}
+
+		/**
+		 * Moves a vertex up the heap from a position.
+		 */
+		private void siftUp(final int v, final int from) {
+			int i = from;
+			final double key = keys[v];
+			while (i > 0) {
+				final int parent = i - 1 >>> 1;
+				final int p = heap[parent];
+				if (keys[p] <= key) { break; }
+				heap[i] = p;
+				positions[p] = i;
+				i = parent;
+			}
+			heap[i] = v;
+			positions[v] = i;
+		}
+
+		/**
+		 * Moves a vertex down the heap from a position.
+		 */
+		private void siftDown(final int v, final int from) {
+			int i = from;
+			final double key = keys[v];
+			final int half = size >>> 1;
+			while (i < half) {
+				int child = 2 * i + 1;
+				int c = heap[child];
+				final int right = child + 1;
+				if (right < size && keys[heap[right]] < keys[c]) {
+					child = right;
+					c = heap[child];
+				}
+				if (key <= keys[c]) { break; }
+				heap[i] = c;
+				positions[c] = i;
+				i = child;
+			}
+			heap[i] = v;
+			positions[v] = i;
+		}
+	}
+
+}
@@ -0,0 +1,541 @@
+/*******************************************************************************************************
+ *
+ * ContractionHierarchy.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.metamodel.topology.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+import gama.core.metamodel.shape.IShape;
+import gama.core.metamodel.topology.graph.CompressedRoutingGraph.Workspace;
+import gama.core.runtime.concurrent.GamaExecutorService;
+
+/**
+ * The Class ContractionHierarchy. A contraction hierarchy built on the {@link CompressedRoutingGraph snapshot} of a
+ * spatial graph, to answer the shortest path queries of static graphs with a few hundreds of expanded vertices.
+ *
+ * The vertices are contracted one by one, by increasing priority (number of shortcuts added minus number of arcs
+ * removed, plus number of neighbours already contracted): contracting a vertex adds a shortcut between two of its
+ * neighbours when no witness path avoiding it is found by a bounded Dijkstra search. The initial priorities are
+ * computed in parallel; the contraction itself is sequential, the priorities of the neighbours of each vertex
+ * contracted being updated, and the one of the vertex chosen checked again before contracting it. A query is a
+ * bidirectional Dijkstra search that only follows the arcs leading to vertices contracted later; the shortcuts of the
+ * path found are then unpacked into the edges of the graph.
+ *
+ * A hierarchy can be saved to a file and loaded back, provided the graph has not changed (a fingerprint of the
+ * snapshot is stored with it).
+ *
+ * @since 2026
+ *
+ */
+@SuppressWarnings ("unchecked")
+public final class ContractionHierarchy {
+
+	/** The maximal number of vertices settled by a witness search. */
+	static final int WITNESS_LIMIT = 200;
+
+	/** The first bytes of the files (and the version of their format). */
+	private static final long MAGIC = 0x47414D4143480001L;
+
+
+	/**
+	 * The Class Witness. The workspace of a witness search, and the stamps of the vertices it has to reach.
+	 */
+	static final class Witness {
+
+		/** The search. */
+		final Workspace search = new Workspace();
+
+		/** The targets, stamped with the generation of the search. */
+		int[] targets = new int[0];
+	}
+
+	/**
+	 * The Class IntList. A growable list of ints.
+	 */
+	static final class IntList {
+
+		/** The items. */
+		int[] items = new int[4];
+
+		/** The size. */
+		int size;
+
+		/**
+		 * Adds an item.
+		 */
+		void add(final int item) {
+			if (size == items.length) { items = Arrays.copyOf(items, size * 2); }
+			items[size++] = item;
+		}
+	}
+
+	/** The snapshot of the graph. */
+	final CompressedRoutingGraph graph;
+
+	/** The fingerprint of the snapshot. */
+	final long fingerprint;
+
+	/** The number of arcs (edges of the graph and shortcuts). */
+	int arcs;
+
+	/** The origin and the destination of the arcs. */
+	int[] arcFrom, arcTo;
+
+	/** The index of the edge of the arcs, or -1 for the shortcuts. */
+	int[] arcEdge;
+
+	/** The two arcs replaced by the shortcuts, or -1 for the edges. */
+	int[] arcLow1, arcLow2;
+
+	/** The weights of the arcs. */
+	double[] arcWeight;
+
+	/** The order in which the vertices have been contracted. */
+	int[] rank;
+
+	/** The arcs leading to higher vertices, by origin. */
+	int[] upOffsets, upArcs;
+
+	/** The arcs coming from higher vertices, by destination. */
+	int[] downOffsets, downArcs;
+
+	/** The workspaces of the witness searches, one per thread, released once the vertices are contracted. */
+	private ThreadLocal<Witness> witnesses = ThreadLocal.withInitial(Witness::new);
+
+	/**
+	 * Instantiates a new contraction hierarchy.
+	 *
+	 * @param graph
+	 *            the snapshot of the graph
+	 */
+	private ContractionHierarchy(final CompressedRoutingGraph graph) {
+		this.graph = graph;
+		this.fingerprint = fingerprint(graph);
+	}
+
+	/**
+	 * Builds the hierarchy of a snapshot.
+	 *
+	 * @param graph
+	 *            the snapshot of the graph
+	 * @return the contraction hierarchy
+	 */
+	public static ContractionHierarchy build(final CompressedRoutingGraph graph) {
+		final ContractionHierarchy result = new ContractionHierarchy(graph);
+		result.contract();
+		// The workspaces of the witness searches are only needed by the contraction
+		result.witnesses = null;
+		result.index();
+		return result;
+	}
+
+	/**
+	 * Loads the hierarchy of a snapshot from a file.
+	 *
+	 * @param file
+	 *            the file
+	 * @param graph
+	 *            the snapshot of the graph
+	 * @return the contraction hierarchy, or null if the file does not exist or has been built for another graph
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static ContractionHierarchy load(final File file, final CompressedRoutingGraph graph) throws IOException {
+		if (!file.isFile()) return null;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readLong() != MAGIC) return null;
+			final ContractionHierarchy result = new ContractionHierarchy(graph);
+			final int n = graph.vertices.length;
+			if (in.readLong() != result.fingerprint || in.readInt() != n) return null;
+			result.allocate(in.readInt());
+			result.rank = new int[n];
+			for (int v = 0; v < n; v++) { result.rank[v] = in.readInt(); }
+			for (int a = 0; a < result.arcFrom.length; a++) {
+				result.addArc(in.readInt(), in.readInt(), in.readDouble(), in.readInt(), in.readInt(), in.readInt());
+			}
+			result.index();
+			return result;
+		}
+	}
+
+	/**
+	 * Saves the hierarchy to a file.
+	 *
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void save(final File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeLong(MAGIC);
+			out.writeLong(fingerprint);
+			out.writeInt(rank.length);
+			out.writeInt(arcs);
+			for (final int r : rank) { out.writeInt(r); }
+			for (int a = 0; a < arcs; a++) {
+				out.writeInt(arcFrom[a]);
+				out.writeInt(arcTo[a]);
+				out.writeDouble(arcWeight[a]);
+				out.writeInt(arcEdge[a]);
+				out.writeInt(arcLow1[a]);
+				out.writeInt(arcLow2[a]);
+			}
+		}
+	}
+
+	/**
+	 * A hash of the vertices (coordinates) and edges (extremities and weights) of a snapshot.
+	 */
+	static long fingerprint(final CompressedRoutingGraph g) {
+		final int n = g.vertices.length;
+		long h = mix(0xcbf29ce484222325L, n);
+		h = mix(h, g.targets.length);
+		for (int v = 0; v < n; v++) {
+			h = mix(h, Double.doubleToLongBits(g.x[v]));
+			h = mix(h, Double.doubleToLongBits(g.y[v]));
+			h = mix(h, Double.doubleToLongBits(g.z[v]));
+			for (int k = g.offsets[v], end = g.offsets[v + 1]; k < end; k++) {
+				h = mix(h, g.targets[k]);
+				h = mix(h, g.edgeIds[k]);
+				h = mix(h, Double.doubleToLongBits(g.weights[k]));
+			}
+		}
+		return h;
+	}
+
+	/**
+	 * Mixes a value into a hash.
+	 */
+	private static long mix(final long h, final long value) {
+		return (h ^ value) * 0x100000001b3L;
+	}
+
+	/**
+	 * Allocates the arrays of the arcs.
+	 */
+	private void allocate(final int capacity) {
+		arcFrom = new int[capacity];
+		arcTo = new int[capacity];
+		arcEdge = new int[capacity];
+		arcLow1 = new int[capacity];
+		arcLow2 = new int[capacity];
+		arcWeight = new double[capacity];
+	}
+
+	/**
+	 * Adds an arc.
+	 *
+	 * @return its index
+	 */
+	private int addArc(final int from, final int to, final double weight, final int edge, final int low1,
+			final int low2) {
+		if (arcs == arcFrom.length) {
+			final int capacity = Math.max(16, arcs * 2);
+			arcFrom = Arrays.copyOf(arcFrom, capacity);
+			arcTo = Arrays.copyOf(arcTo, capacity);
+			arcEdge = Arrays.copyOf(arcEdge, capacity);
+			arcLow1 = Arrays.copyOf(arcLow1, capacity);
+			arcLow2 = Arrays.copyOf(arcLow2, capacity);
+			arcWeight = Arrays.copyOf(arcWeight, capacity);
+		}
+		arcFrom[arcs] = from;
+		arcTo[arcs] = to;
+		arcWeight[arcs] = weight;
+		arcEdge[arcs] = edge;
+		arcLow1[arcs] = low1;
+		arcLow2[arcs] = low2;
+		return arcs++;
+	}
+
+	/**
+	 * Contracts all the vertices, adding the shortcuts and computing their ranks.
+	 */
+	private void contract() {
+		final int n = graph.vertices.length;
+		final int m = graph.targets.length;
+		allocate(m * 2 + 16);
+		final IntList[] out = new IntList[n], in = new IntList[n];
+		for (int v = 0; v < n; v++) {
+			out[v] = new IntList();
+			in[v] = new IntList();
+		}
+		for (int u = 0; u < n; u++) {
+			for (int k = graph.offsets[u], end = graph.offsets[u + 1]; k < end; k++) {
+				final int a = addArc(u, graph.targets[k], graph.weights[k], graph.edgeIds[k], -1, -1);
+				out[u].add(a);
+				in[graph.targets[k]].add(a);
+			}
+		}
+		final boolean[] contracted = new boolean[n];
+		final int[] deleted = new int[n];
+		final int[] priorities = new int[n];
+		GamaExecutorService.executeThreaded(() -> IntStream.range(0, n).parallel()
+				.forEach(v -> priorities[v] = contract(v, out, in, contracted, deleted, false)));
+		final PriorityQueue<Long> queue = new PriorityQueue<>(Math.max(1, n));
+		for (int v = 0; v < n; v++) { queue.add(entry(priorities[v], v)); }
+		final int[] marks = new int[n];
+		rank = new int[n];
+		int next = 0;
+		while (!queue.isEmpty()) {
+			final long top = queue.poll();
+			final int v = (int) (top & 0xFFFFFFFFL);
+			if (contracted[v] || (int) (top >> 32) != priorities[v]) { continue; }
+			final int priority = contract(v, out, in, contracted, deleted, false);
+			if (priority > priorities[v] && !queue.isEmpty() && priority > (int) (queue.peek() >> 32)) {
+				priorities[v] = priority;
+				queue.add(entry(priority, v));
+				continue;
+			}
+			contract(v, out, in, contracted, deleted, true);
+			contracted[v] = true;
+			rank[v] = next++;
+			// The priorities of the neighbours are updated at once
+			for (final IntList list : new IntList[] { out[v], in[v] }) {
+				final boolean outgoing = list == out[v];
+				for (int i = 0; i < list.size; i++) {
+					final int w = outgoing ? arcTo[list.items[i]] : arcFrom[list.items[i]];
+					if (contracted[w] || marks[w] == next) { continue; }
+					marks[w] = next;
+					deleted[w]++;
+					prune(out[w], arcTo, contracted);
+					prune(in[w], arcFrom, contracted);
+					priorities[w] = contract(w, out, in, contracted, deleted, false);
+					queue.add(entry(priorities[w], w));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the arcs leading to (or coming from) contracted vertices from a list.
+	 */
+	private static void prune(final IntList list, final int[] ends, final boolean[] contracted) {
+		int size = 0;
+		for (int i = 0; i < list.size; i++) {
+			final int a = list.items[i];
+			if (!contracted[ends[a]]) { list.items[size++] = a; }
+		}
+		list.size = size;
+	}
+
+	/**
+	 * The entry of a vertex in the queue of the contraction, ordered by priority.
+	 */
+	private static long entry(final int priority, final int v) {
+		return ((long) priority << 32) + v;
+	}
+
+	/**
+	 * Simulates or performs the contraction of a vertex.
+	 *
+	 * @return the priority of the vertex: the number of shortcuts needed minus the number of arcs removed, plus the
+	 *         number of its neighbours already contracted
+	 */
+	private int contract(final int v, final IntList[] out, final IntList[] in, final boolean[] contracted,
+			final int[] deleted, final boolean apply) {
+		final IntList ins = in[v], outs = out[v];
+		int shortcuts = 0, removed = 0;
+		for (int i = 0; i < outs.size; i++) { if (!contracted[arcTo[outs.items[i]]]) { removed++; } }
+		for (int i = 0; i < ins.size; i++) {
+			final int a = ins.items[i];
+			final int u = arcFrom[a];
+			if (contracted[u]) { continue; }
+			removed++;
+			if (u == v) { continue; }
+			double max = -1;
+			for (int j = 0; j < outs.size; j++) {
+				final int b = outs.items[j];
+				final int x = arcTo[b];
+				if (x != u && x != v && !contracted[x]) { max = Math.max(max, arcWeight[a] + arcWeight[b]); }
+			}
+			if (max < 0) { continue; }
+			final Workspace ws = witness(u, v, max, outs, out, contracted);
+			for (int j = 0; j < outs.size; j++) {
+				final int b = outs.items[j];
+				final int x = arcTo[b];
+				if (x == u || x == v || contracted[x]) { continue; }
+				final double via = arcWeight[a] + arcWeight[b];
+				if (ws.distance(x) <= via) { continue; }
+				shortcuts++;
+				if (apply) {
+					final int s = addArc(u, x, via, -1, a, b);
+					out[u].add(s);
+					in[x].add(s);
+					// The shortcut is now a witness for the next arcs from u
+					ws.update(x, via, via, s, u);
+				}
+			}
+		}
+		return shortcuts - removed + deleted[v];
+	}
+
+	/**
+	 * A Dijkstra search from a vertex, avoiding the vertex contracted and the ones already contracted, and stopped when
+	 * the targets (the other neighbours of the vertex contracted) have been reached, beyond a distance or after
+	 * {@link #WITNESS_LIMIT} vertices.
+	 */
+	private Workspace witness(final int source, final int excluded, final double max, final IntList targets,
+			final IntList[] out, final boolean[] contracted) {
+		final Witness witness = witnesses.get();
+		final Workspace ws = witness.search.reset(graph.vertices.length);
+		if (witness.targets.length != ws.stamps.length || ws.generation == 1) {
+			witness.targets = new int[ws.stamps.length];
+		}
+		final int[] marks = witness.targets;
+		int remaining = 0;
+		for (int i = 0; i < targets.size; i++) {
+			final int x = arcTo[targets.items[i]];
+			if (x != source && x != excluded && !contracted[x] && marks[x] != ws.generation) {
+				marks[x] = ws.generation;
+				remaining++;
+			}
+		}
+		ws.update(source, 0, 0, -1, -1);
+		for (int settled = 0; ws.size > 0 && settled < WITNESS_LIMIT; settled++) {
+			final int u = ws.pop();
+			if (marks[u] == ws.generation && --remaining == 0) { break; }
+			final double du = ws.dist[u];
+			if (du > max) { break; }
+			final IntList arcsOfU = out[u];
+			for (int i = 0; i < arcsOfU.size; i++) {
+				final int a = arcsOfU.items[i];
+				final int x = arcTo[a];
+				if (x == excluded || contracted[x]) { continue; }
+				final double d = du + arcWeight[a];
+				if (d < ws.distance(x)) { ws.update(x, d, d, a, u); }
+			}
+		}
+		return ws;
+	}
+
+	/**
+	 * Builds the adjacencies of the searches: the arcs leading upwards by origin, the ones coming downwards by
+	 * destination.
+	 */
+	private void index() {
+		final int n = rank.length;
+		upOffsets = new int[n + 1];
+		downOffsets = new int[n + 1];
+		for (int a = 0; a < arcs; a++) {
+			final int from = arcFrom[a], to = arcTo[a];
+			if (rank[from] < rank[to]) {
+				upOffsets[from + 1]++;
+			} else if (rank[from] > rank[to]) { downOffsets[to + 1]++; }
+		}
+		for (int v = 0; v < n; v++) {
+			upOffsets[v + 1] += upOffsets[v];
+			downOffsets[v + 1] += downOffsets[v];
+		}
+		upArcs = new int[upOffsets[n]];
+		downArcs = new int[downOffsets[n]];
+		final int[] up = Arrays.copyOf(upOffsets, n), down = Arrays.copyOf(downOffsets, n);
+		for (int a = 0; a < arcs; a++) {
+			final int from = arcFrom[a], to = arcTo[a];
+			if (rank[from] < rank[to]) {
+				upArcs[up[from]++] = a;
+			} else if (rank[from] > rank[to]) { downArcs[down[to]++] = a; }
+		}
+	}
+
+	/**
+	 * The number of shortcuts added to the graph.
+	 *
+	 * @return the number of shortcuts
+	 */
+	public int shortcutCount() {
+		int result = 0;
+		for (int a = 0; a < arcs; a++) { if (arcEdge[a] < 0) { result++; } }
+		return result;
+	}
+
+	/**
+	 * Computes the shortest path between two vertices.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return the edges of the path, empty if there is none
+	 */
+	public List<IShape> shortestPath(final IShape source, final IShape target) {
+		final int s = graph.indexOf(source), t = graph.indexOf(target);
+		if (s < 0 || t < 0 || s == t) return Collections.EMPTY_LIST;
+		final Workspace[] ws = graph.acquireWorkspaces();
+		try {
+			final int n = rank.length;
+			final Workspace f = ws[0].reset(n), b = ws[1].reset(n);
+			f.update(s, 0, 0, -1, -1);
+			b.update(t, 0, 0, -1, -1);
+			double best = Double.POSITIVE_INFINITY;
+			int meet = -1;
+			boolean forward = false;
+			while (true) {
+				final boolean fActive = f.size > 0 && f.minKey() < best, bActive = b.size > 0 && b.minKey() < best;
+				if (!fActive && !bActive) { break; }
+				forward = fActive && (!bActive || !forward);
+				final Workspace search = forward ? f : b, other = forward ? b : f;
+				final int[] off = forward ? upOffsets : downOffsets, list = forward ? upArcs : downArcs;
+				final int u = search.pop();
+				final double du = search.dist[u];
+				if (other.seen(u) && du + other.dist[u] < best) {
+					best = du + other.dist[u];
+					meet = u;
+				}
+				for (int k = off[u], end = off[u + 1]; k < end; k++) {
+					final int a = list[k];
+					final int v = forward ? arcTo[a] : arcFrom[a];
+					final double d = du + arcWeight[a];
+					if (d < search.distance(v)) { search.update(v, d, d, a, u); }
+				}
+			}
+			if (meet < 0) return Collections.EMPTY_LIST;
+			final IntList path = new IntList();
+			for (int v = meet; f.parentSlot[v] >= 0; v = f.parentVertex[v]) { path.add(f.parentSlot[v]); }
+			for (int i = 0, j = path.size - 1; i < j; i++, j--) {
+				final int a = path.items[i];
+				path.items[i] = path.items[j];
+				path.items[j] = a;
+			}
+			for (int v = meet; b.parentSlot[v] >= 0; v = b.parentVertex[v]) { path.add(b.parentSlot[v]); }
+			final List<IShape> result = new ArrayList<>();
+			final IntList stack = new IntList();
+			for (int i = 0; i < path.size; i++) {
+				stack.add(path.items[i]);
+				while (stack.size > 0) {
+					final int a = stack.items[--stack.size];
+					if (arcEdge[a] >= 0) {
+						result.add(graph.edges[arcEdge[a]]);
+					} else {
+						stack.add(arcLow2[a]);
+						stack.add(arcLow1[a]);
+					}
+				}
+			}
+			return result;
+		} finally {
+			graph.releaseWorkspaces(ws);
+		}
+	}
+
+}
@@ -10,21 +10,28 @@
  ********************************************************************************************************/
 package gama.core.metamodel.topology.graph;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.jgrapht.Graphs;
 import org.locationtech.jts.geom.Coordinate;
 
+import gama.core.common.preferences.GamaPreferences;
 import gama.core.common.util.StringUtils;
 import gama.core.metamodel.agent.IAgent;
 import gama.core.metamodel.population.IPopulation;
 import gama.core.metamodel.shape.GamaPoint;
 import gama.core.metamodel.shape.IShape;
 import gama.core.metamodel.topology.ITopology;
+import gama.core.runtime.GAMA;
 import gama.core.runtime.IScope;
+import gama.core.runtime.concurrent.GamaExecutorService;
 import gama.core.runtime.exceptions.GamaRuntimeException;
 import gama.core.util.GamaListFactory;
 import gama.core.util.GamaMapFactory;
@@ -62,6 +69,15 @@ public class GamaSpatialGraph extends GamaGraph<IShape, IShape> implements ISpat
 	/** The tolerance. */
 	private double tolerance = 0;
 
+	/** The compressed snapshot used to compute the shortest paths. Lazily built, and invalidated when edges change. */
+	private volatile CompressedRoutingGraph routing;
+
+	/** The contraction hierarchy built on the compressed snapshot. Lazily built, and invalidated with it. */
+	private volatile ContractionHierarchy hierarchy;
+
+	/** The file where the contraction hierarchy is saved and loaded from, or null. */
+	private String hierarchyFile;
+
 	/** The vertices built. */
 	private final Map<Integer, IShape> verticesBuilt; // only used for
 														// optimization
@@ -189,6 +205,12 @@ public class GamaSpatialGraph extends GamaGraph<IShape, IShape> implements ISpat
 		verticesBuilt = new HashMap();
 	}
 
+	@Override
+	public GamaSpatialGraph emptyCopy(final IScope scope) {
+		return new GamaSpatialGraph(GamaListFactory.EMPTY_LIST, true, directed, false, vertexRelation, edgeSpecies,
+				scope, type.getKeyType(), type.getContentType());
+	}
+
 	@Override
 	public GamaSpatialGraph copy(final IScope scope) {
 		final GamaSpatialGraph g = new GamaSpatialGraph(GamaListFactory.EMPTY_LIST, true, directed, false,
@@ -209,6 +231,164 @@ public class GamaSpatialGraph extends GamaGraph<IShape, IShape> implements ISpat
 		// edges);
 	}
 
+	@Override
+	protected IList<IShape> computeShortestPath(final IScope scope, final IShape source, final IShape target) {
+		if (pathFindingAlgo == shortestPathAlgorithm.ContractionHierarchies) return GamaListFactory.create(scope,
+				getGamlType().getContentType(), getContractionHierarchy(scope).shortestPath(source, target));
+		if (GamaPreferences.Experimental.GRAPH_COMPRESSED_ROUTING.getValue()) {
+			switch (pathFindingAlgo) {
+				case Dijkstra:
+				case BidirectionalDijkstra:
+					return GamaListFactory.create(scope, getGamlType().getContentType(),
+							getRoutingGraph().shortestPath(source, target, false));
+				case AStar:
+				case NBAStar:
+					return GamaListFactory.create(scope, getGamlType().getContentType(),
+							getRoutingGraph().shortestPath(source, target, true));
+				default:
+			}
+		}
+		return super.computeShortestPath(scope, source, target);
+	}
+
+	/**
+	 * Whether the shortest paths are computed on the compressed snapshot of the graph.
+	 */
+	private boolean routesOnSnapshot() {
+		if (pathFindingAlgo == shortestPathAlgorithm.ContractionHierarchies) return true;
+		if (!GamaPreferences.Experimental.GRAPH_COMPRESSED_ROUTING.getValue()) return false;
+		return switch (pathFindingAlgo) {
+			case Dijkstra, BidirectionalDijkstra, AStar, NBAStar -> true;
+			default -> false;
+		};
+	}
+
+	/**
+	 * Computes the shortest paths of a batch on the compressed snapshot: the paths from each source are computed with a
+	 * single Dijkstra search, and the sources are processed in parallel. As the scope cannot be shared by the threads,
+	 * the lists of edges are created without it (the edges of the graph do not need to be cast).
+	 */
+	@Override
+	protected void computeBestRoutesFrom(final IScope scope, final Map<IShape, List<Integer>> groups,
+			final List<IShape> targets, final IList<IShape>[] routes) {
+		if (hasShortestPathMatrix() || !routesOnSnapshot()) {
+			super.computeBestRoutesFrom(scope, groups, targets, routes);
+			return;
+		}
+		final CompressedRoutingGraph snapshot = getRoutingGraph();
+		final IType<?> type = getGamlType().getContentType();
+		final List<Map.Entry<IShape, List<Integer>>> batch = new ArrayList<>(groups.entrySet());
+		GamaExecutorService.executeThreaded(() -> batch.parallelStream().forEach(group -> {
+			final IShape source = group.getKey();
+			final List<Integer> missing = new ArrayList<>();
+			for (final int i : group.getValue()) {
+				final IShape target = targets.get(i);
+				if (source.equals(target)) {
+					routes[i] = GamaListFactory.create(type);
+					continue;
+				}
+				final List<IShape> cached = saveComputedShortestPaths ? shortestPathComputed.get(source, target) : null;
+				if (cached == null || cached.isEmpty()) {
+					missing.add(i);
+				} else {
+					routes[i] = GamaListFactory.createWithoutCasting(type, cached);
+				}
+			}
+			if (missing.isEmpty()) return;
+			final IShape[] destinations = new IShape[missing.size()];
+			for (int k = 0; k < destinations.length; k++) { destinations[k] = targets.get(missing.get(k)); }
+			final List<IShape>[] paths = snapshot.shortestPaths(source, destinations);
+			for (int k = 0; k < destinations.length; k++) {
+				routes[missing.get(k)] = GamaListFactory.createWithoutCasting(type, paths[k]);
+				if (saveComputedShortestPaths) { saveShortestPaths(paths[k], source, destinations[k]); }
+			}
+		}));
+	}
+
+	/**
+	 * Gets the compressed snapshot of the graph used to compute the shortest paths, building it if the graph has been
+	 * modified since it was last built.
+	 *
+	 * @return the routing graph
+	 */
+	public CompressedRoutingGraph getRoutingGraph() {
+		CompressedRoutingGraph result = routing;
+		if (result == null) {
+			synchronized (this) {
+				result = routing;
+				if (result == null) { routing = result = new CompressedRoutingGraph(this); }
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the contraction hierarchy of the graph, building it (or loading it from its file, if any and if it has been
+	 * saved for the same graph) if the graph has been modified since it was last built.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @return the contraction hierarchy
+	 */
+	public ContractionHierarchy getContractionHierarchy(final IScope scope) {
+		ContractionHierarchy result = hierarchy;
+		if (result == null) {
+			synchronized (this) {
+				result = hierarchy;
+				if (result == null) { hierarchy = result = loadOrBuildHierarchy(scope); }
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Loads the contraction hierarchy from its file or builds it, then saves it to the file.
+	 */
+	private ContractionHierarchy loadOrBuildHierarchy(final IScope scope) {
+		final CompressedRoutingGraph snapshot = getRoutingGraph();
+		if (hierarchyFile == null) return ContractionHierarchy.build(snapshot);
+		final File file = new File(hierarchyFile);
+		try {
+			final ContractionHierarchy loaded = ContractionHierarchy.load(file, snapshot);
+			if (loaded != null) return loaded;
+		} catch (final IOException e) {
+			GAMA.reportError(scope, GamaRuntimeException.warning(
+					"Impossible to read the contraction hierarchy in " + hierarchyFile + ": " + e.getMessage(), scope),
+					false);
+		}
+		final ContractionHierarchy result = ContractionHierarchy.build(snapshot);
+		try {
+			if (file.getParentFile() != null) { file.getParentFile().mkdirs(); }
+			result.save(file);
+		} catch (final IOException e) {
+			GAMA.reportError(scope, GamaRuntimeException.warning(
+					"Impossible to save the contraction hierarchy in " + hierarchyFile + ": " + e.getMessage(), scope),
+					false);
+		}
+		return result;
+	}
+
+	/**
+	 * Sets the file where the contraction hierarchy is saved, and loaded from in the next runs if the graph is the
+	 * same.
+	 *
+	 * @param path
+	 *            the absolute path of the file, or null to keep the hierarchy in memory only
+	 */
+	public void setContractionHierarchyFile(final String path) {
+		synchronized (this) {
+			hierarchyFile = path;
+			hierarchy = null;
+		}
+	}
+
+	@Override
+	protected void invalidateShortestPaths() {
+		super.invalidateShortestPaths();
+		routing = null;
+		hierarchy = null;
+	}
+
 	@Override
 	protected void buildByVertices(final IScope scope, final IContainer<?, IShape> list, final boolean uniqueEdge) {
 		Iterable<? extends IShape> shapes = list.iterable(scope);
@@ -433,6 +613,7 @@ public class GamaSpatialGraph extends GamaGraph<IShape, IShape> implements ISpat
 		}
 		// if ( edge == null ) { return false; }
 		edgeMap.put(e, edge);
+		invalidateShortestPaths();
 		dispatchEvent(scope, new GraphEvent(scope, this, this, e, null, GraphEventType.EDGE_ADDED));
 		return true;
 	}
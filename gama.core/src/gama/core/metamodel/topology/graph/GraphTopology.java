@@ -279,6 +279,131 @@ public class GraphTopology extends AbstractTopology {
 		return pathBetweenCommon(scope, graph, edgeS, edgeT, sourceN, targetN, sourceNode, targetNode);
 	}
 
+	/**
+	 * Computes the shortest paths between pairs of geometries. The vertices from which each path can start and end are
+	 * resolved first; the routes between them are then computed in one batch by the graph (grouped by source, and in
+	 * parallel if the graph allows it), and each path is built from the shortest of its routes and the edges on which
+	 * its extremities lie. The pairs whose extremities cannot be resolved from the graph are computed one by one.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param sources
+	 *            the sources
+	 * @param targets
+	 *            the targets, in the same order
+	 * @return the paths, in the order of the pairs (null when there is no path)
+	 */
+	public IList<GamaSpatialPath> pathsBetween(final IScope scope, final List<? extends IShape> sources,
+			final List<? extends IShape> targets) {
+		final GamaSpatialGraph graph = (GamaSpatialGraph) getPlaces();
+		final int size = Math.min(sources.size(), targets.size());
+		final PathEnd[] starts = new PathEnd[size];
+		final PathEnd[] ends = new PathEnd[size];
+		final List<IShape> from = new ArrayList<>(), to = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			starts[i] = pathEnd(scope, graph, sources.get(i), true);
+			ends[i] = pathEnd(scope, graph, targets.get(i), false);
+			if (!batched(starts[i], ends[i])) { continue; }
+			for (final IShape s : starts[i].vertices()) {
+				for (final IShape t : ends[i].vertices()) {
+					if (s != t) {
+						from.add(s);
+						to.add(t);
+					}
+				}
+			}
+		}
+		final IList<IList<IShape>> routes =
+				from.isEmpty() ? GamaListFactory.create() : graph.computeBestRoutesBetween(scope, from, to);
+		final IList<GamaSpatialPath> result = GamaListFactory.create(Types.PATH);
+		int next = 0;
+		for (int i = 0; i < size; i++) {
+			final PathEnd start = starts[i], end = ends[i];
+			if (!batched(start, end)) {
+				result.add(pathBetween(scope, sources.get(i), targets.get(i)));
+				continue;
+			}
+			// The shortest of the routes between the vertices of the extremities, including the parts of their edges
+			IList<IShape> best = null;
+			double min = Double.MAX_VALUE;
+			for (final IShape s : start.vertices()) {
+				for (final IShape t : end.vertices()) {
+					final IList<IShape> route = s == t ? GamaListFactory.create(Types.GEOMETRY) : routes.get(next++);
+					if (s != t && (route == null || route.isEmpty())) { continue; }
+					final double length =
+							pathlengthEdges(route) + lengthToVertex(graph, start, s) + lengthToVertex(graph, end, t);
+					if (length < min) {
+						min = length;
+						best = route;
+					}
+				}
+			}
+			if (best == null) {
+				result.add(null);
+				continue;
+			}
+			// The route is copied, as it can be shared with the cache of the graph
+			final IList<IShape> edges = GamaListFactory.create(Types.GEOMETRY);
+			edges.addAll(best);
+			if (start.edge() != null && (edges.isEmpty() || edges.get(0) != start.edge())) {
+				edges.add(0, start.edge());
+			}
+			if (end.edge() != null && (edges.isEmpty() || edges.get(edges.size() - 1) != end.edge())) {
+				edges.add(end.edge());
+			}
+			result.add(PathFactory.newInstance(scope, this, start.shape(), end.shape(), edges));
+		}
+		return result;
+	}
+
+	/**
+	 * The extremity of a path: the geometry, the edge on which it lies (or null if it is a vertex) and the vertices
+	 * through which the path can leave it (or reach it).
+	 */
+	private record PathEnd(IShape shape, IShape edge, IShape[] vertices) {}
+
+	/**
+	 * Whether the path between two extremities is built from the routes computed in batch: both must be resolved, and
+	 * not lie on the same edge.
+	 */
+	private boolean batched(final PathEnd start, final PathEnd end) {
+		return start != null && end != null && (start.edge() == null || start.edge() != end.edge());
+	}
+
+	/**
+	 * Resolves the extremity of a path: the geometry itself if it is a vertex, otherwise its current edge or, for
+	 * graphs of agents, the closest edge. In directed graphs, a path can only leave the edge of its source by its
+	 * target, and reach the edge of its target by its source.
+	 *
+	 * @return the extremity, or null if it cannot be resolved
+	 */
+	private PathEnd pathEnd(final IScope scope, final GamaSpatialGraph graph, final IShape shape,
+			final boolean isSource) {
+		if (shape == null) return null;
+		if (graph.getVertexMap().containsKey(shape)) return new PathEnd(shape, null, new IShape[] { shape });
+		IShape edge = getPathEdge(scope, shape);
+		if (edge == null && graph.isAgentEdge()) {
+			edge = scope.getSimulation().getAgent().getTopology().getAgentClosestTo(scope, shape,
+					In.edgesOf(getPlaces()));
+		}
+		if (edge == null) return null;
+		final IShape source = (IShape) graph.getEdgeSource(edge);
+		final IShape target = (IShape) graph.getEdgeTarget(edge);
+		if (graph.isDirected()) return new PathEnd(shape, edge, new IShape[] { isSource ? target : source });
+		return new PathEnd(shape, edge, new IShape[] { source, target });
+	}
+
+	/**
+	 * The length of the part of the edge of an extremity between the extremity and one of the vertices of the edge (0
+	 * if the extremity is a vertex).
+	 */
+	private double lengthToVertex(final GamaSpatialGraph graph, final PathEnd end, final IShape vertex) {
+		if (end.edge() == null) return 0;
+		final IShape source = (IShape) graph.getEdgeSource(end.edge());
+		return lengthEdge(end.edge(), end.shape(), source == vertex ? (IShape) graph.getEdgeTarget(end.edge()) : source,
+				vertex);
+	}
+
 	/**
 	 * Gets the path edge.
 	 *
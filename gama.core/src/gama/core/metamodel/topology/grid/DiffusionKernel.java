@@ -0,0 +1,357 @@
+/*******************************************************************************************************
+ *
+ * DiffusionKernel.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.metamodel.topology.grid;
+
+import static gama.core.common.preferences.GamaPreferences.Experimental.DIFFUSION_FFT_THRESHOLD;
+import static gama.core.runtime.concurrent.GamaExecutorService.AGENT_PARALLEL_EXECUTOR;
+import static gama.core.runtime.concurrent.GamaExecutorService.CONCURRENCY_DIFFUSION_THRESHOLD;
+import static gama.core.runtime.concurrent.GamaExecutorService.THREADS_NUMBER;
+
+import one.util.streamex.IntStreamEx;
+
+/**
+ * The Class DiffusionKernel. The convolution used by {@link GridDiffuser} and {@link FieldDiffuser} to diffuse a
+ * variable over a grid or a field. The matrix of diffusion is flattened into a list of taps (offset and weight) and the
+ * cells are split in two: the interior ones, for which all the taps fall in the grid, and the border ones. In the
+ * interior, the taps are applied one after the other to whole rows of cells, in loops without bound checks that can be
+ * vectorized by the JIT; the border cells (and all the cells when 'avoid_mask' is used) follow the original
+ * cell-by-cell algorithm.
+ *
+ * For each cell, the taps are applied in the same order as in the original algorithm, so the results are identical.
+ * The buffers are kept between two diffusions, so that diffusing does not allocate once the sizes are known.
+ *
+ * Large grids are divided in bands of rows convolved in parallel, each output cell being written by only one band, so
+ * that the results do not change. With 'avoid_mask', the values redistributed by a masked cell are added to the open
+ * cells as soon as the masked cell is convolved, as in the original algorithm: as they can reach the cells of any band
+ * and are interleaved with the convolution of the following cells, these diffusions are always sequential.
+ *
+ * @since 2026
+ *
+ */
+final class DiffusionKernel {
+
+	/** The number of bands per thread when the diffusion is parallel (to balance the load). */
+	private static final int BANDS_PER_THREAD = 4;
+
+	/** The value of the output cells that have not received anything yet. */
+	static final double EMPTY = -Double.MAX_VALUE;
+
+	/** The dimensions of the grid. */
+	int nbCols, nbRows;
+
+	/** The options of the diffusion: torus, gradient and avoid_mask. */
+	boolean torus, gradient, avoidMask;
+
+	/** The proportion redistributed when 'avoid_mask' is used. */
+	float proportion;
+
+	/** The number of taps. */
+	int taps;
+
+	/** The weights of the taps. */
+	double[] weights = new double[9];
+
+	/** The offsets of the taps, in columns and rows. */
+	int[] dx = new int[9], dy = new int[9];
+
+	/** The extent of the kernel around its center. */
+	int left, right, top, bottom;
+
+	/** Whether each cell is open (not masked), or null if there is no mask. */
+	boolean[] open;
+
+	/** The buffer of the open cells receiving the redistributed values. */
+	int[] receivers = new int[9];
+
+	/** The convolution by fast Fourier transforms, created when a large matrix is used. */
+	private FourierConvolution fourier;
+
+	/**
+	 * Prepares the kernel for a diffusion.
+	 *
+	 * @param matrix
+	 *            the matrix of diffusion
+	 * @param mask
+	 *            the mask, indexed by column then row (null if none)
+	 * @param cols
+	 *            the number of columns of the grid
+	 * @param rows
+	 *            the number of rows of the grid
+	 * @param isTorus
+	 *            whether the grid is a torus
+	 * @param isGradient
+	 *            whether the diffusion is a gradient
+	 * @param isAvoidingMask
+	 *            whether the values falling in masked cells are redistributed
+	 * @param proportionToRedistribute
+	 *            the sum of the matrix (used if avoid_mask is true)
+	 */
+	void prepare(final double[][] matrix, final double[][] mask, final int cols, final int rows,
+			final boolean isTorus, final boolean isGradient, final boolean isAvoidingMask,
+			final float proportionToRedistribute) {
+		nbCols = cols;
+		nbRows = rows;
+		torus = isTorus;
+		gradient = isGradient;
+		avoidMask = isAvoidingMask && mask != null;
+		proportion = proportionToRedistribute;
+		final int kRows = matrix.length;
+		final int kCols = matrix[0].length;
+		final int kCenterX = kCols / 2;
+		final int kCenterY = kRows / 2;
+		taps = kRows * kCols;
+		if (weights.length < taps) {
+			weights = new double[taps];
+			dx = new int[taps];
+			dy = new int[taps];
+			receivers = new int[taps];
+		}
+		// The taps are flattened in the order of the original loops (kernel rows, then kernel columns) and the
+		// matrix is read mirrored, as in a convolution
+		int t = 0;
+		for (int m = 0; m < kRows; ++m) {
+			for (int n = 0; n < kCols; ++n) {
+				weights[t] = matrix[kRows - m - 1][kCols - n - 1];
+				dx[t] = n - kCenterX;
+				dy[t] = m - kCenterY;
+				t++;
+			}
+		}
+		left = kCenterX;
+		right = kCols - 1 - kCenterX;
+		top = kCenterY;
+		bottom = kRows - 1 - kCenterY;
+		if (mask == null) {
+			open = null;
+		} else {
+			final int size = cols * rows;
+			if (open == null || open.length != size) { open = new boolean[size]; }
+			for (int i = 0; i < cols; i++) { for (int j = 0; j < rows; j++) { open[j * cols + i] = mask[i][j] == 1; } }
+		}
+	}
+
+	/**
+	 * Convolves the input with the kernel and accumulates the result in the output (whose cells not yet reached
+	 * contain {@link #EMPTY}). Above {@link GamaExecutorService#CONCURRENCY_DIFFUSION_THRESHOLD} cells, the grid is
+	 * divided in bands processed in parallel, except when 'avoid_mask' is used. Plain diffusions with matrices larger
+	 * than {@link GamaPreferences.Experimental#DIFFUSION_FFT_THRESHOLD} cells are computed with
+	 * {@link FourierConvolution}.
+	 *
+	 * @param input
+	 *            the input
+	 * @param output
+	 *            the output
+	 */
+	void convolve(final double[] input, final double[] output) {
+		final int fftThreshold = DIFFUSION_FFT_THRESHOLD.getValue();
+		if (fftThreshold > 0 && taps >= fftThreshold && FourierConvolution.accepts(this)) {
+			if (fourier == null) { fourier = new FourierConvolution(); }
+			fourier.convolve(this, input, output);
+			return;
+		}
+		if (avoidMask) {
+			// The redistributions are interleaved with the convolution of the cells, in the order of the original
+			// algorithm: they cannot be split in bands without changing the results
+			avoidingCells(input, output);
+			return;
+		}
+		final int bands = Math.min(nbRows, BANDS_PER_THREAD * THREADS_NUMBER.getValue());
+		if (bands < 2 || nbCols * nbRows < CONCURRENCY_DIFFUSION_THRESHOLD.getValue()) {
+			rows(input, output, 0, nbRows);
+			return;
+		}
+		// Each band writes only its own rows of the output: the result does not depend on the bands
+		IntStreamEx.range(bands).parallel(AGENT_PARALLEL_EXECUTOR)
+				.forEach(b -> rows(input, output, b * nbRows / bands, (b + 1) * nbRows / bands));
+	}
+
+	/**
+	 * Convolves the rows [from, to[ of the output
+	 */
+	private void rows(final double[] input, final double[] output, final int from, final int to) {
+		// Interior cells: all the taps fall inside the grid. As the original torus wrapping also applies to some
+		// cells inside non-square grids, these grids are entirely processed as borders
+		final int i0 = left, i1 = nbCols - right, j0 = Math.max(top, from), j1 = Math.min(nbRows - bottom, to);
+		final boolean hasInterior = i0 < i1 && j0 < j1 && (!torus || nbCols == nbRows);
+		if (hasInterior) {
+			if (open == null) {
+				if (gradient) {
+					interiorGradient(input, output, i0, i1, j0, j1);
+				} else {
+					interiorPlain(input, output, i0, i1, j0, j1);
+				}
+			} else {
+				interiorMasked(input, output, i0, i1, j0, j1);
+			}
+		}
+		// Border cells
+		for (int j = from; j < to; ++j) {
+			if (hasInterior && j >= j0 && j < j1) {
+				for (int i = 0; i < i0; ++i) { borderCell(input, output, i, j); }
+				for (int i = i1; i < nbCols; ++i) { borderCell(input, output, i, j); }
+			} else {
+				for (int i = 0; i < nbCols; ++i) { borderCell(input, output, i, j); }
+			}
+		}
+	}
+
+	/**
+	 * Convolves all the cells when 'avoid_mask' is used, in the order of the original algorithm (columns, then rows)
+	 */
+	private void avoidingCells(final double[] input, final double[] output) {
+		for (int i = 0; i < nbCols; ++i) {
+			for (int j = 0; j < nbRows; ++j) { avoidingCell(input, output, i, j); }
+		}
+	}
+
+	/**
+	 * Interior cells, without mask nor gradient: after the first tap, each tap is a plain multiply-add over a row
+	 */
+	private void interiorPlain(final double[] input, final double[] output, final int i0, final int i1, final int j0,
+			final int j1) {
+		for (int j = j0; j < j1; ++j) {
+			final int row = j * nbCols;
+			final double w0 = weights[0];
+			final int off0 = row + dy[0] * nbCols + dx[0];
+			for (int i = i0; i < i1; ++i) {
+				final double v = input[off0 + i] * w0;
+				final double o = output[row + i];
+				output[row + i] = o == EMPTY ? v : o + v;
+			}
+			for (int t = 1; t < taps; ++t) {
+				final double w = weights[t];
+				final int off = row + dy[t] * nbCols + dx[t];
+				for (int i = i0; i < i1; ++i) { output[row + i] += input[off + i] * w; }
+			}
+		}
+	}
+
+	/**
+	 * Interior cells of a gradient, without mask: each cell keeps the largest value received
+	 */
+	private void interiorGradient(final double[] input, final double[] output, final int i0, final int i1,
+			final int j0, final int j1) {
+		for (int j = j0; j < j1; ++j) {
+			final int row = j * nbCols;
+			final double w0 = weights[0];
+			final int off0 = row + dy[0] * nbCols + dx[0];
+			for (int i = i0; i < i1; ++i) {
+				final double v = input[off0 + i] * w0;
+				final double o = output[row + i];
+				output[row + i] = o == EMPTY || o < v ? v : o;
+			}
+			for (int t = 1; t < taps; ++t) {
+				final double w = weights[t];
+				final int off = row + dy[t] * nbCols + dx[t];
+				for (int i = i0; i < i1; ++i) {
+					final double v = input[off + i] * w;
+					final double o = output[row + i];
+					output[row + i] = o < v ? v : o;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Interior cells with a mask: the masked input cells are skipped
+	 */
+	private void interiorMasked(final double[] input, final double[] output, final int i0, final int i1,
+			final int j0, final int j1) {
+		final boolean[] open = this.open;
+		for (int j = j0; j < j1; ++j) {
+			final int row = j * nbCols;
+			for (int t = 0; t < taps; ++t) {
+				final double w = weights[t];
+				final int off = row + dy[t] * nbCols + dx[t];
+				for (int i = i0; i < i1; ++i) {
+					if (open[off + i]) { output[row + i] = apply(output[row + i], input[off + i] * w); }
+				}
+			}
+		}
+	}
+
+	/**
+	 * Accumulates a value in an output cell
+	 */
+	private double apply(final double o, final double v) {
+		if (o == EMPTY) return v;
+		if (gradient) return o < v ? v : o;
+		return o + v;
+	}
+
+	/**
+	 * The index of the input cell reached by the tap from the output cell (i, j), or -1 if it is outside of the grid.
+	 * The torus wrapping is the one of the original algorithm (columns wrapped by the number of rows and
+	 * conversely), so that the results remain identical
+	 */
+	private int source(final int i, final int j, final int t) {
+		int ii = i + dx[t];
+		int jj = j + dy[t];
+		if (torus) {
+			if (ii < 0) {
+				ii = nbRows + ii;
+			} else if (ii >= nbRows) { ii = ii - nbRows; }
+			if (jj < 0) {
+				jj = nbCols + jj;
+			} else if (jj >= nbCols) { jj = jj - nbCols; }
+		}
+		if (ii < 0 || ii >= nbCols || jj < 0 || jj >= nbRows) return -1;
+		return jj * nbCols + ii;
+	}
+
+	/**
+	 * A border cell: the taps are checked against the bounds of the grid (or wrapped in a torus) and the mask
+	 */
+	private void borderCell(final double[] input, final double[] output, final int i, final int j) {
+		final int o = j * nbCols + i;
+		for (int t = 0; t < taps; ++t) {
+			final int s = source(i, j, t);
+			if (s >= 0 && (open == null || open[s])) { output[o] = apply(output[o], input[s] * weights[t]); }
+		}
+	}
+
+	/**
+	 * A cell when 'avoid_mask' is used: the values received by a masked cell are redistributed among the open cells
+	 * that sent them, right away (so that, in a gradient, they can still be exceeded by the cells convolved after)
+	 */
+	private void avoidingCell(final double[] input, final double[] output, final int i, final int j) {
+		final int[] buffer = receivers;
+		final int o = j * nbCols + i;
+		final boolean masked = !open[o];
+		double toRedistribute = 0;
+		int nbReceivers = 0;
+		for (int t = 0; t < taps; ++t) {
+			final int s = source(i, j, t);
+			if (s < 0 || !open[s]) { continue; }
+			final double before = output[o];
+			output[o] = apply(before, input[s] * weights[t]);
+			if (masked) {
+				toRedistribute += output[o];
+				output[o] = before;
+				buffer[nbReceivers++] = s;
+			}
+		}
+		if (toRedistribute != 0) {
+			final double toAdd = toRedistribute * proportion / nbReceivers;
+			for (int r = 0; r < nbReceivers; r++) { redistribute(output, buffer[r], toAdd); }
+		}
+	}
+
+	/**
+	 * Adds a redistributed value to an open cell
+	 */
+	private void redistribute(final double[] output, final int s, final double toAdd) {
+		if (output[s] == EMPTY) {
+			output[s] = toAdd;
+		} else if (!gradient) { output[s] += toAdd; }
+	}
+
+}
@@ -0,0 +1,341 @@
+/*******************************************************************************************************
+ *
+ * FourierConvolution.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.metamodel.topology.grid;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The Class FourierConvolution. Computes the convolution of {@link DiffusionKernel} with fast Fourier transforms, which
+ * is faster than the direct method for large matrices of diffusion (e.g. the ones obtained by composing a matrix with
+ * itself over several cycles): its cost does not depend on the size of the matrix.
+ *
+ * Only plain diffusions (no mask, no gradient) are concerned. On a torus, the grid is transformed as is (circular
+ * convolution), using radix-2 transforms when its dimensions are powers of 2 and Bluestein's algorithm otherwise;
+ * elsewhere, it is padded with zeros up to a power of 2 large enough for the values not to wrap around. The spectra
+ * of the last matrices used are kept, as the same diffusion is usually repeated at each step.
+ *
+ * The results differ from the ones of the direct method by rounding errors, of the order of 1e-10 times the largest
+ * value the convolution can produce (the largest absolute input times the sum of the absolute weights). The cells that
+ * the direct method leaves exactly at 0, i.e. the ones that no tap of non-zero weight links to a non-zero input, are
+ * set to 0: they are found by convolving the indicator of the non-zero inputs with the one of the non-zero weights,
+ * which is transformed together with the input (as the imaginary part of the grid), so that small values, even far
+ * below the rounding errors, are kept wherever the direct method produces them.
+ *
+ * @since 2026
+ *
+ */
+final class FourierConvolution {
+
+	/** The number of spectra kept. */
+	private static final int CACHED_SPECTRA = 4;
+
+	/**
+	 * The key of a spectrum: the matrix (as the weights of its taps, in order) and the dimensions of the transform
+	 */
+	private record SpectrumKey(double[] weights, int kRows, int kCols, int width, int height) {
+
+		@Override
+		public boolean equals(final Object o) {
+			return o instanceof SpectrumKey k && k.kRows == kRows && k.kCols == kCols && k.width == width
+					&& k.height == height && Arrays.equals(k.weights, weights);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(weights) * 31 + width * 17 + height;
+		}
+	}
+
+	/** The spectra of the matrices and of their supports, as real and imaginary parts. */
+	private final Map<SpectrumKey, double[][]> spectra = new LinkedHashMap<>(8, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<SpectrumKey, double[][]> eldest) {
+			return size() > CACHED_SPECTRA;
+		}
+	};
+
+	/** The plans of the 1-D transforms, by length. */
+	private final Map<Integer, Plan> plans = new HashMap<>();
+
+	/** The buffers of the transformed grid and of its product with the spectra. */
+	private double[] re = new double[0], im = new double[0], pr = new double[0], pi = new double[0];
+
+	/**
+	 * Whether the convolution of the kernel can be computed with this class: plain diffusions and, on a torus, square
+	 * grids whose matrix is not more than twice as large as the grid (as the original algorithm wraps the coordinates
+	 * only once)
+	 *
+	 * @param k
+	 *            the kernel
+	 * @return true, if successful
+	 */
+	static boolean accepts(final DiffusionKernel k) {
+		if (k.open != null || k.gradient) return false;
+		if (!k.torus) return true;
+		final int n = k.nbCols;
+		return k.nbRows == n && k.left <= n && k.right <= n && k.top <= n && k.bottom <= n;
+	}
+
+	/**
+	 * Convolves the input with the kernel and accumulates the result in the output.
+	 *
+	 * @param k
+	 *            the kernel
+	 * @param input
+	 *            the input
+	 * @param output
+	 *            the output
+	 */
+	void convolve(final DiffusionKernel k, final double[] input, final double[] output) {
+		final int cols = k.nbCols, rows = k.nbRows;
+		final int width = k.torus ? cols : powerOf2(cols + Math.max(k.left, k.right));
+		final int height = k.torus ? rows : powerOf2(rows + Math.max(k.top, k.bottom));
+		final Plan pw = plan(width), ph = plan(height);
+		final double[][] spectrum = spectrum(k, width, height, pw, ph);
+		final int size = width * height;
+		if (re.length != size) {
+			re = new double[size];
+			im = new double[size];
+			pr = new double[size];
+			pi = new double[size];
+		} else {
+			Arrays.fill(re, 0d);
+			Arrays.fill(im, 0d);
+		}
+		// The input is the real part of the grid and the indicator of its non-zero cells the imaginary one
+		for (int j = 0; j < rows; j++) {
+			for (int i = 0; i < cols; i++) {
+				final double v = input[j * cols + i];
+				re[j * width + i] = v;
+				im[j * width + i] = v == 0d ? 0d : 1d;
+			}
+		}
+		transform(re, im, width, height, pw, ph);
+		final double[] wr = spectrum[0], wi = spectrum[1], sr = spectrum[2], si = spectrum[3];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				final int p = y * width + x;
+				final int q = (height - y) % height * width + (width - x) % width;
+				// The transforms of the two real grids, separated using the symmetry of the transforms of real data
+				final double ar = (re[p] + re[q]) / 2, ai = (im[p] - im[q]) / 2;
+				final double br = (im[p] + im[q]) / 2, bi = (re[q] - re[p]) / 2;
+				// The products with the spectra of the matrix and of its support, the latter as the imaginary part.
+				// The inverse transform is computed as the conjugate of the transform of the conjugate
+				pr[p] = ar * wr[p] - ai * wi[p] - (br * si[p] + bi * sr[p]);
+				pi[p] = -(ar * wi[p] + ai * wr[p] + br * sr[p] - bi * si[p]);
+			}
+		}
+		transform(pr, pi, width, height, pw, ph);
+		for (int j = 0; j < rows; j++) {
+			for (int i = 0; i < cols; i++) {
+				final int p = j * width + i;
+				// The convolution of the indicators counts the non-zero terms of the direct method
+				final double v = -pi[p] / size < 0.5 ? 0d : pr[p] / size;
+				final int o = j * cols + i;
+				output[o] = output[o] == DiffusionKernel.EMPTY ? v : output[o] + v;
+			}
+		}
+	}
+
+	/**
+	 * The spectrum of the matrix of the kernel for a transform of the given dimensions
+	 */
+	private double[][] spectrum(final DiffusionKernel k, final int width, final int height, final Plan pw,
+			final Plan ph) {
+		final SpectrumKey key = new SpectrumKey(Arrays.copyOf(k.weights, k.taps), k.top + k.bottom + 1,
+				k.left + k.right + 1, width, height);
+		double[][] result = spectra.get(key);
+		if (result != null) return result;
+		// The output cell (i, j) receives the input cell (i + dx, j + dy) times the weight, i.e. the convolution of the
+		// input with a matrix holding the weight at (-dx, -dy)
+		final double[] kr = new double[width * height], ki = new double[width * height];
+		final double[] sr = new double[width * height], si = new double[width * height];
+		for (int t = 0; t < k.taps; t++) {
+			final int x = Math.floorMod(-k.dx[t], width), y = Math.floorMod(-k.dy[t], height);
+			kr[y * width + x] += k.weights[t];
+			if (k.weights[t] != 0d) { sr[y * width + x] += 1d; }
+		}
+		transform(kr, ki, width, height, pw, ph);
+		transform(sr, si, width, height, pw, ph);
+		result = new double[][] { kr, ki, sr, si };
+		spectra.put(key, result);
+		return result;
+	}
+
+	/**
+	 * The plan of the transforms of the given length
+	 */
+	private Plan plan(final int n) {
+		return plans.computeIfAbsent(n, Plan::new);
+	}
+
+	/**
+	 * The smallest power of 2 greater or equal to n
+	 */
+	static int powerOf2(final int n) {
+		return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+	}
+
+	/**
+	 * Computes, in place, the 2-D forward transform of the grid (rows, then columns)
+	 */
+	private static void transform(final double[] re, final double[] im, final int width, final int height,
+			final Plan pw, final Plan ph) {
+		final double[] xr = new double[Math.max(width, height)], xi = new double[xr.length];
+		for (int j = 0; j < height; j++) {
+			System.arraycopy(re, j * width, xr, 0, width);
+			System.arraycopy(im, j * width, xi, 0, width);
+			pw.forward(xr, xi);
+			System.arraycopy(xr, 0, re, j * width, width);
+			System.arraycopy(xi, 0, im, j * width, width);
+		}
+		for (int i = 0; i < width; i++) {
+			for (int j = 0; j < height; j++) {
+				xr[j] = re[j * width + i];
+				xi[j] = im[j * width + i];
+			}
+			ph.forward(xr, xi);
+			for (int j = 0; j < height; j++) {
+				re[j * width + i] = xr[j];
+				im[j * width + i] = xi[j];
+			}
+		}
+	}
+
+	/**
+	 * The plan of the 1-D transforms of a given length: the twiddle factors of the radix-2 transform and, if the
+	 * length is not a power of 2, the chirp of Bluestein's algorithm, which expresses the transform as a convolution
+	 * of a power of 2 length
+	 */
+	private static final class Plan {
+
+		/** The length of the transform and the one of the radix-2 transform. */
+		final int n, m;
+
+		/** The twiddle factors of the radix-2 transform. */
+		final double[] cos, sin;
+
+		/** The chirp (exp(-i.pi.k^2/n)) and the transform of its conjugate, for Bluestein's algorithm. */
+		final double[] chirpRe, chirpIm, filterRe, filterIm;
+
+		/** The buffers of Bluestein's algorithm. */
+		final double[] ar, ai;
+
+		/**
+		 * Instantiates a new plan.
+		 *
+		 * @param n
+		 *            the length
+		 */
+		Plan(final int n) {
+			this.n = n;
+			final boolean radix2 = Integer.bitCount(n) == 1;
+			m = radix2 ? n : powerOf2(2 * n - 1);
+			cos = new double[m / 2];
+			sin = new double[m / 2];
+			for (int k = 0; k < m / 2; k++) {
+				cos[k] = Math.cos(2 * Math.PI * k / m);
+				sin[k] = -Math.sin(2 * Math.PI * k / m);
+			}
+			if (radix2) {
+				chirpRe = chirpIm = filterRe = filterIm = ar = ai = null;
+				return;
+			}
+			chirpRe = new double[n];
+			chirpIm = new double[n];
+			filterRe = new double[m];
+			filterIm = new double[m];
+			ar = new double[m];
+			ai = new double[m];
+			for (int k = 0; k < n; k++) {
+				// k^2 is reduced modulo 2n to keep the angle accurate
+				final double angle = Math.PI * ((long) k * k % (2L * n)) / n;
+				chirpRe[k] = Math.cos(angle);
+				chirpIm[k] = -Math.sin(angle);
+				filterRe[k] = chirpRe[k];
+				filterIm[k] = -chirpIm[k];
+				if (k > 0) {
+					filterRe[m - k] = chirpRe[k];
+					filterIm[m - k] = -chirpIm[k];
+				}
+			}
+			radix2(filterRe, filterIm);
+		}
+
+		/**
+		 * Computes, in place, the forward transform of the first n values
+		 */
+		void forward(final double[] xr, final double[] xi) {
+			if (ar == null) {
+				radix2(xr, xi);
+				return;
+			}
+			Arrays.fill(ar, 0d);
+			Arrays.fill(ai, 0d);
+			for (int k = 0; k < n; k++) {
+				ar[k] = xr[k] * chirpRe[k] - xi[k] * chirpIm[k];
+				ai[k] = xr[k] * chirpIm[k] + xi[k] * chirpRe[k];
+			}
+			radix2(ar, ai);
+			for (int k = 0; k < m; k++) {
+				final double a = ar[k], b = ai[k];
+				ar[k] = a * filterRe[k] - b * filterIm[k];
+				// Conjugated, to compute the inverse transform with the forward one
+				ai[k] = -(a * filterIm[k] + b * filterRe[k]);
+			}
+			radix2(ar, ai);
+			for (int k = 0; k < n; k++) {
+				final double a = ar[k] / m, b = -ai[k] / m;
+				xr[k] = a * chirpRe[k] - b * chirpIm[k];
+				xi[k] = a * chirpIm[k] + b * chirpRe[k];
+			}
+		}
+
+		/**
+		 * The iterative radix-2 transform of the first m values
+		 */
+		private void radix2(final double[] xr, final double[] xi) {
+			for (int i = 1, j = 0; i < m; i++) {
+				int bit = m >> 1;
+				for (; (j & bit) != 0; bit >>= 1) { j ^= bit; }
+				j ^= bit;
+				if (i < j) {
+					double t = xr[i];
+					xr[i] = xr[j];
+					xr[j] = t;
+					t = xi[i];
+					xi[i] = xi[j];
+					xi[j] = t;
+				}
+			}
+			for (int len = 2; len <= m; len <<= 1) {
+				final int half = len >> 1, step = m / len;
+				for (int i = 0; i < m; i += len) {
+					for (int k = 0; k < half; k++) {
+						final double wr = cos[k * step], wi = sin[k * step];
+						final int a = i + k, b = a + half;
+						final double tr = xr[b] * wr - xi[b] * wi;
+						final double ti = xr[b] * wi + xi[b] * wr;
+						xr[b] = xr[a] - tr;
+						xi[b] = xi[a] - ti;
+						xr[a] += tr;
+						xi[a] += ti;
+					}
+				}
+			}
+		}
+	}
+
+}
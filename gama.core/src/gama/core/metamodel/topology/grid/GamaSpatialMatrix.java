@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Stream;
 
 import org.locationtech.jts.geom.Coordinate;
@@ -53,6 +54,7 @@ import gama.core.metamodel.shape.GamaProxyGeometry;
 import gama.core.metamodel.shape.GamaShape;
 import gama.core.metamodel.shape.IShape;
 import gama.core.metamodel.topology.ITopology;
+import gama.core.metamodel.topology.NearestNeighbourSearch;
 import gama.core.metamodel.topology.filter.IAgentFilter;
 import gama.core.metamodel.topology.projection.IProjection;
 import gama.core.runtime.IScope;
@@ -1736,6 +1738,57 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 		}
 	}
 
+	/**
+	 * A best-first search over the cells, ring by ring around the block of cells covering the source: ring 0 is this
+	 * block, ring r the cells at r columns or rows from it. Each ring is expanded only when it can contain a cell
+	 * closer than the ones already found, and its cells are examined in the order of the distance to their envelope.
+	 * For grid species, the distance to the location of the cells is used (as in firstAtDistance)
+	 */
+	@Override
+	public List<IAgent> nearest(final IScope scope, final IShape source, final IAgentFilter f, final int number,
+			final Collection<IAgent> alreadyChosen) {
+		if (number <= 0) return Collections.EMPTY_LIST;
+		final boolean gridSpe = f.getSpecies() != null && f.getSpecies().isGrid();
+		final ToDoubleFunction<IAgent> distance = gridSpe ? input -> source.euclidianDistanceTo(input.getLocation())
+				: source::euclidianDistanceTo;
+		final NearestNeighbourSearch<Integer> search =
+				new NearestNeighbourSearch<>(scope, source, f, number, alreadyChosen, distance);
+		// The distances between the origins of two consecutive columns and rows
+		final double dx = isHexagon && isHorizontalOrientation ? cellWidth * 0.75 : cellWidth;
+		final double dy = isHexagon && !isHorizontalOrientation ? cellHeight * 0.75 : cellHeight;
+		final Envelope3D env = source.getEnvelope();
+		final int c0 = cellIndex(env.getMinX(), dx, numCols), c1 = cellIndex(env.getMaxX(), dx, numCols);
+		final int r0 = cellIndex(env.getMinY(), dy, numRows), r1 = cellIndex(env.getMaxY(), dy, numRows);
+		env.dispose();
+		final int maxRing = Math.max(Math.max(c0, numCols - 1 - c1), Math.max(r0, numRows - 1 - r1));
+		// The cells of the ring r are at least r - 1 steps away from the source (r - 2 for the overlapping hexagons)
+		final int shift = isHexagon ? 2 : 1;
+		final double step = Math.min(dx, dy);
+		search.addNode(0, 0d);
+		return search.run((ring, s) -> {
+			for (int j = Math.max(0, r0 - ring); j <= Math.min(numRows - 1, r1 + ring); j++) {
+				final boolean border = j == r0 - ring || j == r1 + ring;
+				for (int i = Math.max(0, c0 - ring); i <= Math.min(numCols - 1, c1 + ring); i++) {
+					if (ring > 0 && !border && i != c0 - ring && i != c1 + ring) { continue; }
+					final IShape cell = matrix[getPlaceIndexAt(i, j)];
+					final IAgent agent = cell == null ? null : cell.getAgent();
+					if (agent == null || agent == source) { continue; }
+					final Envelope3D e = cell.getEnvelope();
+					s.addAgent(agent, e.getMinX(), e.getMinY(), e.getMaxX(), e.getMaxY());
+					e.dispose();
+				}
+			}
+			if (ring < maxRing) { s.addNode(ring + 1, Math.max(0d, (ring + 1 - shift) * step)); }
+		});
+	}
+
+	/**
+	 * The index of the column (or row) whose origin is the closest before a coordinate, within the grid.
+	 */
+	private static int cellIndex(final double coordinate, final double size, final int number) {
+		return Math.max(0, Math.min(number - 1, (int) Math.floor(coordinate / size)));
+	}
+
 	/**
 	 * In envelope.
 	 *
@@ -1935,7 +1988,7 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 			createAgents(scope, null);
 			for (final Map attr : initialValues) {
 				final IAgent agt = getAgent((Integer) attr.get("grid_x"), (Integer) attr.get("grid_y"));
-				agt.getOrCreateAttributes().putAll(attr);
+				attr.forEach((k, v) -> agt.setAttribute((String) k, v));
 			}
 			return (IList) getAgents(scope);
 		}
@@ -293,6 +293,9 @@ public class GridDiffuser {
 	/** The population. */
 	IPopulation<? extends IAgent> population;
 
+	/** The kernel used for the convolutions. */
+	final DiffusionKernel kernel = new DiffusionKernel();
+
 	/**
 	 * Instantiates a new grid diffuser.
 	 */
@@ -350,77 +353,8 @@ public class GridDiffuser {
 	 */
 	public void doDiffusion_with_convolution() {
 		// default method : convolution
-
-		final int kRows = mat_diffu.length;
-		final int kCols = mat_diffu[0].length;
-
-		final int kCenterX = kCols / 2;
-		final int kCenterY = kRows / 2;
-
-		for (int i = 0; i < nbCols; ++i) // output rows
-		{
-			for (int j = 0; j < nbRows; ++j) // output columns
-			{
-				double value_to_redistribute = 0;
-				final ArrayList<int[]> non_masked_cells = new ArrayList<>();
-				for (int m = 0; m < kRows; ++m) // kernel rows
-				{
-					for (int n = 0; n < kCols; ++n) // kernel columns
-					{
-						// index of input signal, used for checking boundary
-						int ii = i + n - kCenterX;
-						int jj = j + m - kCenterY;
-						// ignore input samples which are out of bound
-						if (is_torus) {
-							if (ii < 0) {
-								ii = nbRows + ii;
-							} else if (ii >= nbRows) { ii = ii - nbRows; }
-
-							if (jj < 0) {
-								jj = nbCols + jj;
-							} else if (jj >= nbCols) { jj = jj - nbCols; }
-						}
-						// diffuse if the input value is in the grid, and if the
-						// cell is not masked
-						if (ii >= 0 && ii < nbCols && jj >= 0 && jj < nbRows && (mask == null || mask[ii][jj] == 1)) {
-							final double value_before_change = output[j * nbCols + i];
-							if (output[j * nbCols + i] == -Double.MAX_VALUE) {
-								output[j * nbCols + i] =
-										input[jj * nbCols + ii] * mat_diffu[kRows - m - 1][kCols - n - 1];
-							} else if (is_gradient) {
-								if (output[j * nbCols + i] < input[jj * nbCols + ii]
-										* mat_diffu[kRows - m - 1][kCols - n - 1]) {
-									output[j * nbCols + i] =
-											input[jj * nbCols + ii] * mat_diffu[kRows - m - 1][kCols - n - 1];
-								}
-							} else {
-								output[j * nbCols + i] +=
-										input[jj * nbCols + ii] * mat_diffu[kRows - m - 1][kCols - n - 1];
-							}
-
-							// undo the changes if "avoid_mask" and if the
-							// output cell is masked.
-							if (avoid_mask && (mask == null ? false : mask[i][j] != 1)) {
-								value_to_redistribute += output[j * nbCols + i];
-								output[j * nbCols + i] = value_before_change;
-								if (mask[ii][jj] == 1) {
-									// input cell not masked
-									non_masked_cells.add(new int[] { ii, jj });
-								}
-							}
-						}
-					}
-				}
-				if (value_to_redistribute != 0) {
-					final double value_to_add = value_to_redistribute * proportion / non_masked_cells.size();
-					for (final int[] coord : non_masked_cells) {
-						if (output[coord[1] * nbCols + coord[0]] == -Double.MAX_VALUE) {
-							output[coord[1] * nbCols + coord[0]] = value_to_add;
-						} else if (!is_gradient) { output[coord[1] * nbCols + coord[0]] += value_to_add; }
-					}
-				}
-			}
-		}
+		kernel.prepare(mat_diffu, mask, nbCols, nbRows, is_torus, is_gradient, avoid_mask, proportion);
+		kernel.convolve(input, output);
 	}
 
 	/**
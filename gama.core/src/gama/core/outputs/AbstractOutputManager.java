@@ -76,6 +76,9 @@ public abstract class AbstractOutputManager extends Symbol implements IOutputMan
 	/** The has monitors. */
 	protected boolean hasMonitors;
 
+	/** The pipeline on which the outputs are updated while the next cycle is computed, or null. */
+	private volatile OutputPipeline pipeline;
+
 	/**
 	 * Instantiates a new abstract output manager.
 	 *
@@ -137,6 +140,10 @@ public abstract class AbstractOutputManager extends Symbol implements IOutputMan
 			// AD: explicit addition of an ArrayList to prevent dispose errors
 			// (when outputs remove themselves from the list)
 			GAMA.desynchronizeFrontmostExperiment();
+			if (pipeline != null) {
+				pipeline.stop();
+				pipeline = null;
+			}
 			synchronized (outputs) {
 				for (final IOutput output : new ArrayList<>(outputs.values())) { output.dispose(); }
 			}
@@ -161,6 +168,7 @@ public abstract class AbstractOutputManager extends Symbol implements IOutputMan
 	public void remove(final IOutput o) {
 		if (!(o instanceof AbstractOutput)) return;
 		if (((AbstractOutput) o).isUserCreated()) {
+			if (pipeline != null) { pipeline.drain(); }
 			o.dispose();
 			outputs.values().remove(o);
 		} else {
@@ -312,9 +320,17 @@ public abstract class AbstractOutputManager extends Symbol implements IOutputMan
 	@Override
 	public boolean step(final IScope scope) {
 		getDisplayOutputs().forEach(each -> { each.setRendered(false); });
+		final OutputPipeline p = pipeline(scope);
 		outputs.forEach((name, each) -> {
 			if (each instanceof LayeredDisplayOutput ldo) { ldo.linkScopeWithGraphics(); }
-			if (each.isRefreshable() && each.getScope().step(each).passed()) { each.update(); }
+			if (each.isRefreshable() && each.getScope().step(each).passed()) {
+				final Runnable update = p == null ? null : each.capture();
+				if (update == null) {
+					each.update();
+				} else {
+					p.submit(scope, update);
+				}
+			}
 		});
 		if (GAMA.isSynchronized() && !inInitPhase) {
 			while (!allOutputsRendered()) {
@@ -325,6 +341,31 @@ public abstract class AbstractOutputManager extends Symbol implements IOutputMan
 		return true;
 	}
 
+	/**
+	 * The pipeline of the outputs, created (or stopped) according to the preference
+	 * {@link GamaPreferences.Runtime#CORE_PIPELINED_OUTPUTS}.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @return the pipeline or null if the outputs are updated synchronously
+	 */
+	private OutputPipeline pipeline(final IScope scope) {
+		if (GamaPreferences.Runtime.CORE_PIPELINED_OUTPUTS.getValue()) {
+			if (pipeline == null) {
+				pipeline = new OutputPipeline(name, GamaPreferences.Runtime.CORE_PIPELINE_CAPACITY.getValue());
+			}
+		} else if (pipeline != null) {
+			final OutputPipeline p = pipeline;
+			pipeline = null;
+			try {
+				p.flush(scope);
+			} finally {
+				p.stop();
+			}
+		}
+		return pipeline;
+	}
+
 	/**
 	 * All outputs rendered.
 	 *
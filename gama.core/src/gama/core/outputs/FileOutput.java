@@ -31,6 +31,7 @@ import gama.annotations.precompiler.GamlAnnotations.inside;
 import gama.annotations.precompiler.GamlAnnotations.symbol;
 import gama.core.kernel.experiment.IExperimentPlan;
 import gama.core.kernel.experiment.ParametersSet;
+import gama.core.runtime.GamaMetrics;
 import gama.core.runtime.IScope;
 import gama.core.runtime.exceptions.GamaRuntimeException;
 import gama.core.util.IMap;
@@ -407,6 +408,14 @@ public class FileOutput extends AbstractOutput {
 	public void update() throws GamaRuntimeException {
 		writeToFile(getScope().getClock().getCycle());
 	}
+
+	@Override
+	public Runnable capture() {
+		final long cycle = getScope().getClock().getCycle();
+		// The value is copied, as the next cycle can modify it before it is written
+		final Object value = OutputPipeline.snapshot(getScope(), getLastValue());
+		return () -> writeToFile(cycle, String.valueOf(value));
+	}
 	
 	/**
 	 * Do write report and close.
@@ -488,18 +497,30 @@ public class FileOutput extends AbstractOutput {
 	 * @param cycle the cycle
 	 */
 	void writeToFile(final long cycle) {
+		writeToFile(cycle, String.valueOf(getLastValue()));
+	}
+
+	/**
+	 * Write a value to file.
+	 *
+	 * @param cycle the cycle
+	 * @param value the value, as a string
+	 */
+	void writeToFile(final long cycle, final String value) {
+		final long start = System.nanoTime();
 		switch (type) {
 			case CSV:
 			case TEXT:
-				getWriter().println(getLastValue());
+				getWriter().println(value);
 				getWriter().flush();
 				break;
 			case XML:
-				getWriter().println("<data step=\"" + cycle + "\" value=\"" + getLastValue() + "\" />");
+				getWriter().println("<data step=\"" + cycle + "\" value=\"" + value + "\" />");
 				getWriter().flush();
 				break;
 			default:
 		}
+		GamaMetrics.OUTPUT_WRITES.record(start);
 	}
 
 	/**
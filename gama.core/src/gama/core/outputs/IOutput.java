@@ -88,6 +88,18 @@ public interface IOutput extends ISymbol, IStepable, IScoped {
 	 */
 	void update() throws GamaRuntimeException;
 
+	/**
+	 * Called at the end of a cycle, after step(), when the outputs are pipelined (see {@link OutputPipeline}): the
+	 * output captures the values its update needs and returns this update, which is then performed on another thread
+	 * while the next cycle is computed. Returns null (the default) if the output can only be updated in the
+	 * simulation thread, by update().
+	 *
+	 * @return the update to perform, or null
+	 */
+	default Runnable capture() {
+		return null;
+	}
+
 	/**
 	 * Returns the scope of the output, i.e. the scope it uses to perform its computations, independently of the main
 	 * simulation scope. Access to this scope should be limited to a strict necessity
@@ -226,6 +226,13 @@ public class MonitorOutput extends AbstractValuedDisplayOutput implements IExper
 		return true;
 	}
 
+	@Override
+	public Runnable capture() {
+		// The value is copied, as the next cycle can modify it (or its elements) while the view displays it
+		lastValue = OutputPipeline.snapshot(getScope(), lastValue);
+		return this::update;
+	}
+
 	/**
 	 * Gets the color.
 	 *
@@ -0,0 +1,194 @@
+/*******************************************************************************************************
+ *
+ * OutputPipeline.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.outputs;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import gama.core.common.preferences.GamaPreferences;
+import gama.core.metamodel.shape.GamaPoint;
+import gama.core.runtime.IScope;
+import gama.core.runtime.exceptions.GamaRuntimeException;
+import gama.core.util.IList;
+import gama.core.util.IMap;
+import gama.core.util.matrix.GamaObjectMatrix;
+import gama.core.util.matrix.IMatrix;
+import gama.dev.DEBUG;
+
+/**
+ * The Class OutputPipeline. Performs the updates of the outputs of a manager (see {@link IOutput#capture()}) on a
+ * dedicated thread, in the order in which they are submitted, while the simulation computes the next cycle (see
+ * {@link GamaPreferences.Runtime#CORE_PIPELINED_OUTPUTS}).
+ *
+ * The queue of the pending updates is bounded ({@link GamaPreferences.Runtime#CORE_PIPELINE_CAPACITY}): when it is
+ * full, the simulation waits for the outputs to catch up. The first error raised by an update is thrown in the
+ * simulation thread at the next submission or flush.
+ *
+ * @since 2026
+ *
+ */
+public final class OutputPipeline {
+
+	static {
+		DEBUG.OFF();
+	}
+
+	/** The update that stops the thread. */
+	private static final Runnable STOP = () -> {};
+
+	/** The pending updates. */
+	private final BlockingQueue<Runnable> queue;
+
+	/** The thread. */
+	private final Thread thread;
+
+	/** The first error raised by an update, or null. */
+	private volatile Throwable failure;
+
+	/**
+	 * Instantiates a new output pipeline.
+	 *
+	 * @param name
+	 *            the name of the manager
+	 * @param capacity
+	 *            the maximal number of pending updates
+	 */
+	OutputPipeline(final String name, final int capacity) {
+		queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+		thread = new Thread(this::run, "Outputs of " + name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Performs the updates until the pipeline is stopped.
+	 */
+	private void run() {
+		try {
+			for (Runnable update = queue.take(); update != STOP; update = queue.take()) {
+				try {
+					update.run();
+				} catch (final Throwable e) {
+					if (failure == null) { failure = e; }
+				}
+			}
+		} catch (final InterruptedException e) {
+			DEBUG.OUT("Output pipeline interrupted");
+		}
+	}
+
+	/**
+	 * Submits an update, waiting if the queue is full. If the pipeline has been stopped, the update is performed in
+	 * the calling thread.
+	 *
+	 * @param scope
+	 *            the scope of the simulation
+	 * @param update
+	 *            the update
+	 */
+	void submit(final IScope scope, final Runnable update) {
+		rethrow(scope);
+		if (!thread.isAlive()) {
+			update.run();
+			return;
+		}
+		try {
+			queue.put(update);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Waits until all the updates submitted have been performed.
+	 *
+	 * @param scope
+	 *            the scope of the simulation
+	 */
+	void flush(final IScope scope) {
+		drain();
+		rethrow(scope);
+	}
+
+	/**
+	 * Waits until all the updates submitted have been performed, without throwing their errors.
+	 */
+	void drain() {
+		if (!thread.isAlive()) return;
+		final CountDownLatch done = new CountDownLatch(1);
+		try {
+			queue.put(done::countDown);
+			done.await();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Performs the pending updates and stops the thread. Errors are not thrown anymore.
+	 */
+	void stop() {
+		if (!thread.isAlive()) return;
+		try {
+			queue.put(STOP);
+			thread.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Throws the first error raised by an update, if any.
+	 */
+	private void rethrow(final IScope scope) {
+		final Throwable e = failure;
+		if (e == null) return;
+		failure = null;
+		throw e instanceof GamaRuntimeException g ? g : GamaRuntimeException.create(e, scope);
+	}
+
+	/**
+	 * Copies a value captured by an output deeply enough for its update to read it on the thread of the pipeline
+	 * while the next cycle modifies the original: the lists, maps and matrices are copied with their contents, and
+	 * the points are copied. The other values (numbers, strings, agents...) are returned as they are.
+	 *
+	 * @param scope
+	 *            the scope of the output
+	 * @param value
+	 *            the value
+	 * @return the copy
+	 */
+	@SuppressWarnings ("unchecked")
+	static Object snapshot(final IScope scope, final Object value) {
+		if (value instanceof IList<?> list) {
+			final IList<Object> copy = (IList<Object>) list.copy(scope);
+			copy.replaceAll(each -> snapshot(scope, each));
+			return copy;
+		}
+		if (value instanceof IMap<?, ?> map) {
+			final IMap<Object, Object> copy = (IMap<Object, Object>) map.copy(scope);
+			copy.replaceAll((k, v) -> snapshot(scope, v));
+			return copy;
+		}
+		if (value instanceof IMatrix<?> matrix) {
+			final IMatrix<?> copy = matrix.copy(scope);
+			if (copy instanceof GamaObjectMatrix objects) {
+				final Object[] cells = objects.getMatrix();
+				for (int i = 0; i < cells.length; i++) { cells[i] = snapshot(scope, cells[i]); }
+			}
+			return copy;
+		}
+		if (value instanceof GamaPoint point) return point.copy(scope);
+		return value;
+	}
+
+}
@@ -0,0 +1,325 @@
+/*******************************************************************************************************
+ *
+ * GamaMetrics.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.runtime;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import gama.core.common.util.PoolUtils;
+import gama.core.common.util.PoolUtils.ObjectPool;
+
+/**
+ * The Class GamaMetrics. The registry of the metrics of the platform, always recorded: duration of the cycles of the
+ * simulations, agents created and killed, spatial queries, writings of file outputs, object pools, garbage collection
+ * and heap. The counters are {@link LongAdder}s (striped between the threads), so that recording a value costs a few
+ * nanoseconds; the gauges are read when the metrics are collected.
+ *
+ * The metrics can be read as a map (variable 'metrics' of the platform agent, see {@link #asMap()}) or in the
+ * Prometheus text format ({@link #asPrometheusText()}), served by the {@link MetricsEndpoint} if it is enabled.
+ *
+ * @since 2026
+ *
+ */
+public final class GamaMetrics {
+
+	/**
+	 * A counter of events.
+	 */
+	public static final class Counter {
+
+		/** The name. */
+		final String name;
+
+		/** The help. */
+		final String help;
+
+		/** The value. */
+		private final LongAdder value = new LongAdder();
+
+		/**
+		 * Instantiates a new counter.
+		 *
+		 * @param name
+		 *            the name, without the '_total' suffix
+		 * @param help
+		 *            the description
+		 */
+		Counter(final String name, final String help) {
+			this.name = name;
+			this.help = help;
+		}
+
+		/**
+		 * Increments the counter.
+		 */
+		public void increment() {
+			value.increment();
+		}
+
+		/**
+		 * The value.
+		 *
+		 * @return the value
+		 */
+		public long get() {
+			return value.sum();
+		}
+	}
+
+	/**
+	 * A timer of operations: their number, total and maximal durations.
+	 */
+	public static final class Timer {
+
+		/** The name. */
+		final String name;
+
+		/** The help. */
+		final String help;
+
+		/** The number of operations. */
+		private final LongAdder count = new LongAdder();
+
+		/** The total duration, in nanoseconds. */
+		private final LongAdder nanos = new LongAdder();
+
+		/** The maximal duration, in nanoseconds. */
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+		/**
+		 * Instantiates a new timer.
+		 *
+		 * @param name
+		 *            the name, without the '_seconds' suffix
+		 * @param help
+		 *            the description
+		 */
+		Timer(final String name, final String help) {
+			this.name = name;
+			this.help = help;
+		}
+
+		/**
+		 * Records an operation started at a given time.
+		 *
+		 * @param start
+		 *            the value of {@link System#nanoTime()} at the start of the operation
+		 */
+		public void record(final long start) {
+			final long duration = System.nanoTime() - start;
+			count.increment();
+			nanos.add(duration);
+			max.accumulate(duration);
+		}
+
+		/**
+		 * The number of operations.
+		 *
+		 * @return the count
+		 */
+		public long getCount() { return count.sum(); }
+	}
+
+	/** The duration of the cycles of the simulations. */
+	public static final Timer CYCLES = new Timer("gama_cycle_duration", "Duration of the cycles of the simulations");
+
+	/** The agents created. */
+	public static final Counter AGENTS_CREATED = new Counter("gama_agents_created", "Number of agents created");
+
+	/** The agents killed. */
+	public static final Counter AGENTS_KILLED = new Counter("gama_agents_killed", "Number of agents killed");
+
+	/** The spatial queries. */
+	public static final Timer SPATIAL_QUERIES =
+			new Timer("gama_spatial_query_duration", "Duration of the queries of the spatial indexes");
+
+	/** The shortest paths found in the caches of the graphs. */
+	public static final Counter SHORTEST_PATHS_HITS =
+			new Counter("gama_shortest_paths_cache_hits", "Number of shortest paths found in the caches of the graphs");
+
+	/** The shortest paths not found in the caches of the graphs. */
+	public static final Counter SHORTEST_PATHS_MISSES = new Counter("gama_shortest_paths_cache_misses",
+			"Number of shortest paths not found in the caches of the graphs");
+
+	/** The shortest paths evicted from the caches of the graphs. */
+	public static final Counter SHORTEST_PATHS_EVICTIONS = new Counter("gama_shortest_paths_cache_evictions",
+			"Number of shortest paths evicted from the caches of the graphs");
+
+	/** The writings of file outputs. */
+	public static final Timer OUTPUT_WRITES =
+			new Timer("gama_output_write_duration", "Duration of the writings of the file outputs");
+
+	/** The agents created and killed at the end of the last cycle. */
+	private static volatile long createdMark, killedMark;
+
+	/** The agents created and killed during the last cycle. */
+	private static volatile long createdLastCycle, killedLastCycle;
+
+	/**
+	 * Instantiates a new gama metrics.
+	 */
+	private GamaMetrics() {}
+
+	/**
+	 * Records the end of a cycle of a simulation. When several simulations run concurrently, the agents created and
+	 * killed during the last cycle are the ones of all the simulations since the end of the previous cycle of any of
+	 * them.
+	 *
+	 * @param start
+	 *            the value of {@link System#nanoTime()} at the beginning of the cycle
+	 */
+	public static void endCycle(final long start) {
+		CYCLES.record(start);
+		final long created = AGENTS_CREATED.get(), killed = AGENTS_KILLED.get();
+		createdLastCycle = created - createdMark;
+		killedLastCycle = killed - killedMark;
+		createdMark = created;
+		killedMark = killed;
+	}
+
+	/**
+	 * A value of a metric.
+	 *
+	 * @param name
+	 *            the name of the metric
+	 * @param type
+	 *            its Prometheus type (counter, gauge or summary)
+	 * @param help
+	 *            its description
+	 * @param label
+	 *            the label distinguishing this value (e.g. 'pool="name"'), or null
+	 * @param value
+	 *            the value
+	 */
+	private record Sample(String name, String type, String help, String label, double value) {
+
+		/**
+		 * The name, followed by the label if any.
+		 */
+		String key() {
+			return label == null ? name : name + "{" + label + "}";
+		}
+	}
+
+	/**
+	 * Reads the current values of the metrics.
+	 */
+	@SuppressWarnings ("rawtypes")
+	private static void collect(final Consumer<Sample> samples) {
+		samples.accept(new Sample(AGENTS_CREATED.name + "_total", "counter", AGENTS_CREATED.help, null,
+				AGENTS_CREATED.get()));
+		samples.accept(new Sample(AGENTS_KILLED.name + "_total", "counter", AGENTS_KILLED.help, null,
+				AGENTS_KILLED.get()));
+		for (final Counter counter : new Counter[] { SHORTEST_PATHS_HITS, SHORTEST_PATHS_MISSES,
+				SHORTEST_PATHS_EVICTIONS }) {
+			samples.accept(new Sample(counter.name + "_total", "counter", counter.help, null, counter.get()));
+		}
+		samples.accept(new Sample("gama_agents_created_last_cycle", "gauge",
+				"Number of agents created during the last cycle", null, createdLastCycle));
+		samples.accept(new Sample("gama_agents_killed_last_cycle", "gauge",
+				"Number of agents killed during the last cycle", null, killedLastCycle));
+		for (final Timer timer : new Timer[] { CYCLES, SPATIAL_QUERIES, OUTPUT_WRITES }) {
+			final String name = timer.name + "_seconds";
+			samples.accept(new Sample(name + "_count", "summary", timer.help, null, timer.count.sum()));
+			samples.accept(new Sample(name + "_sum", "summary", timer.help, null, timer.nanos.sum() / 1e9));
+			samples.accept(new Sample(name + "_max", "gauge", "Maximal " + timer.help.toLowerCase(Locale.ROOT), null,
+					timer.max.get() / 1e9));
+		}
+		final List<ObjectPool> pools = PoolUtils.getPools();
+		for (final ObjectPool pool : pools) {
+			samples.accept(new Sample("gama_pool_accessed_total", "counter", "Number of objects asked to the pools",
+					"pool=\"" + pool.getName() + "\"", pool.getAccessed()));
+		}
+		for (final ObjectPool pool : pools) {
+			samples.accept(new Sample("gama_pool_created_total", "counter", "Number of objects created by the pools",
+					"pool=\"" + pool.getName() + "\"", pool.getCreated()));
+		}
+		for (final ObjectPool pool : pools) {
+			samples.accept(new Sample("gama_pool_released_total", "counter", "Number of objects returned to the pools",
+					"pool=\"" + pool.getName() + "\"", pool.getReleased()));
+		}
+		for (final ObjectPool pool : pools) {
+			final long accessed = pool.getAccessed();
+			samples.accept(new Sample("gama_pool_hit_ratio", "gauge",
+					"Proportion of the objects asked to the pools that have been reused",
+					"pool=\"" + pool.getName() + "\"", accessed == 0 ? 1d : 1d - (double) pool.getCreated() / accessed));
+		}
+		final List<GarbageCollectorMXBean> gcs = ManagementFactory.getGarbageCollectorMXBeans();
+		for (final GarbageCollectorMXBean gc : gcs) {
+			samples.accept(new Sample("gama_gc_collections_total", "counter", "Number of garbage collections",
+					"gc=\"" + gc.getName() + "\"", Math.max(0, gc.getCollectionCount())));
+		}
+		for (final GarbageCollectorMXBean gc : gcs) {
+			samples.accept(new Sample("gama_gc_seconds_total", "counter", "Time spent in garbage collections",
+					"gc=\"" + gc.getName() + "\"", Math.max(0, gc.getCollectionTime()) / 1e3));
+		}
+		final MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		samples.accept(new Sample("gama_heap_used_bytes", "gauge", "Heap memory used", null, heap.getUsed()));
+		samples.accept(
+				new Sample("gama_heap_committed_bytes", "gauge", "Heap memory committed", null, heap.getCommitted()));
+		samples.accept(new Sample("gama_heap_max_bytes", "gauge", "Maximal heap memory", null, heap.getMax()));
+	}
+
+	/**
+	 * The current values of the metrics, by name (followed by their label, if any).
+	 *
+	 * @return the map
+	 */
+	public static Map<String, Double> asMap() {
+		final Map<String, Double> result = new LinkedHashMap<>();
+		collect(s -> result.put(s.key(), s.value));
+		return result;
+	}
+
+	/**
+	 * The current values of the metrics, in the Prometheus text format (version 0.0.4).
+	 *
+	 * @return the text
+	 */
+	public static String asPrometheusText() {
+		final StringBuilder sb = new StringBuilder();
+		final String[] last = { null };
+		collect(s -> {
+			final String family = "summary".equals(s.type) ? s.name.substring(0, s.name.lastIndexOf('_')) : s.name;
+			if (!family.equals(last[0])) {
+				last[0] = family;
+				sb.append("# HELP ").append(family).append(' ').append(s.help).append('\n');
+				sb.append("# TYPE ").append(family).append(' ').append(s.type).append('\n');
+			}
+			sb.append(s.key()).append(' ').append(s.value).append('\n');
+		});
+		return sb.toString();
+	}
+
+	/**
+	 * The current values of the metrics, as a JSON object.
+	 *
+	 * @return the text
+	 */
+	public static String asJson() {
+		final StringBuilder sb = new StringBuilder("{");
+		collect(s -> {
+			if (sb.length() > 1) { sb.append(','); }
+			sb.append('"').append(s.key().replace("\\", "\\\\").replace("\"", "\\\"")).append("\":")
+					.append(s.value);
+		});
+		return sb.append('}').toString();
+	}
+
+}
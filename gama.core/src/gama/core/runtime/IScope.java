@@ -370,6 +370,18 @@ public interface IScope extends Closeable, IBenchmarkable {
 
 	RandomUtils getRandom();
 
+	/**
+	 * Replaces, in this scope and the ones copied from it, the random number generator of the root agent by another
+	 * one (or restores it if null is passed).
+	 *
+	 * @param random
+	 *            the random number generator to use, or null
+	 * @return the generator previously set in this scope, or null
+	 */
+	default RandomUtils setRandom(final RandomUtils random) {
+		return null;
+	}
+
 	/**
 	 * Gets the gui.
 	 *
@@ -0,0 +1,135 @@
+/*******************************************************************************************************
+ *
+ * MetricsEndpoint.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.runtime;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import gama.dev.DEBUG;
+
+/**
+ * The Class MetricsEndpoint. A minimal HTTP server, listening on the loopback interface only, that serves the metrics
+ * of the platform ({@link GamaMetrics}) in the Prometheus text format on '/metrics' and as a JSON object on
+ * '/metrics.json'. It runs on a single daemon thread and answers one request at a time, which is enough for a scraper
+ * or a person watching a headless run. Enabled by the preference 'pref_metrics_endpoint'.
+ *
+ * @since 2026
+ *
+ */
+public final class MetricsEndpoint {
+
+	static {
+		DEBUG.OFF();
+	}
+
+	/** The socket, or null if the endpoint is stopped. */
+	private static ServerSocket socket;
+
+	/**
+	 * Instantiates a new metrics endpoint.
+	 */
+	private MetricsEndpoint() {}
+
+	/**
+	 * Starts the endpoint, if it is not already started.
+	 *
+	 * @param port
+	 *            the port
+	 */
+	public static synchronized void start(final int port) {
+		if (socket != null) return;
+		final ServerSocket server;
+		try {
+			server = new ServerSocket(port, 16, InetAddress.getLoopbackAddress());
+		} catch (final IOException e) {
+			DEBUG.ERR("Impossible to serve the metrics on port " + port + ": " + e.getMessage());
+			return;
+		}
+		socket = server;
+		final Thread thread = new Thread(() -> serve(server), "Metrics endpoint");
+		thread.setDaemon(true);
+		thread.start();
+		DEBUG.OUT("Metrics served on http://localhost:" + port + "/metrics");
+	}
+
+	/**
+	 * Stops the endpoint.
+	 */
+	public static synchronized void stop() {
+		if (socket == null) return;
+		try {
+			socket.close();
+		} catch (final IOException e) {}
+		socket = null;
+	}
+
+	/**
+	 * Answers the requests until the socket is closed.
+	 */
+	private static void serve(final ServerSocket server) {
+		while (!server.isClosed()) {
+			try (Socket client = server.accept()) {
+				client.setSoTimeout(2000);
+				answer(client);
+			} catch (final IOException e) {
+				if (!server.isClosed()) { DEBUG.OUT("Metrics request failed: " + e.getMessage()); }
+			}
+		}
+	}
+
+	/**
+	 * Answers a request.
+	 */
+	private static void answer(final Socket client) throws IOException {
+		final BufferedReader in =
+				new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+		final String request = in.readLine();
+		if (request == null) return;
+		// The headers are read up to the empty line that ends them, so that the client does not see its request
+		// reset by the closing of a socket with unread data
+		for (String header = in.readLine(); header != null && !header.isEmpty(); header = in.readLine()) {}
+		final String[] parts = request.split(" ");
+		String path = parts.length > 1 ? parts[1] : "";
+		final int query = path.indexOf('?');
+		if (query >= 0) { path = path.substring(0, query); }
+		final String status, type, body;
+		if (!"GET".equals(parts[0])) {
+			status = "405 Method Not Allowed";
+			type = "text/plain";
+			body = "";
+		} else if ("/metrics".equals(path)) {
+			status = "200 OK";
+			type = "text/plain; version=0.0.4; charset=utf-8";
+			body = GamaMetrics.asPrometheusText();
+		} else if ("/metrics.json".equals(path)) {
+			status = "200 OK";
+			type = "application/json";
+			body = GamaMetrics.asJson();
+		} else {
+			status = "404 Not Found";
+			type = "text/plain";
+			body = "";
+		}
+		final byte[] content = body.getBytes(StandardCharsets.UTF_8);
+		final OutputStream out = client.getOutputStream();
+		out.write(("HTTP/1.1 " + status + "\r\nContent-Type: " + type + "\r\nContent-Length: " + content.length
+				+ "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+		out.write(content);
+		out.flush();
+	}
+
+}
@@ -9,24 +9,32 @@
  ********************************************************************************************************/
 package gama.core.runtime.benchmark;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import gama.annotations.common.interfaces.IBenchmarkable;
 import gama.core.kernel.experiment.IExperimentPlan;
+import gama.core.kernel.simulation.SimulationClock;
 import gama.core.runtime.IScope;
-import gama.core.runtime.benchmark.Benchmark.ScopeRecord;
 
 /**
- * The Class Benchmark.
+ * The Class Benchmark. Measures, with {@link System#nanoTime()}, the executions of the symbols of an experiment.
+ *
+ * Each thread records them in its own {@link Accumulator}, without synchronization: a tree of {@link Frame frames}
+ * (one per call path, used to export collapsed stacks) and a {@link BenchmarkRecord record} per scope and symbol
+ * (durations, invocations and distribution of the durations per cycle). They are merged when the benchmark is saved.
  */
-public class Benchmark extends ConcurrentHashMap<IScope, ScopeRecord> {
+public class Benchmark {
 
 	/**
-	 * The Class ScopeRecord.
+	 * The Class ScopeRecord. The records of the symbols executed in a scope.
 	 */
-	public static class ScopeRecord extends ConcurrentHashMap<IBenchmarkable, BenchmarkRecord> {
+	public static class ScopeRecord extends HashMap<IBenchmarkable, BenchmarkRecord> {
 
-		/** The own record. */
+		/** The own record: the duration of the executions started directly in the scope. */
 		final BenchmarkRecord ownRecord;
 
 		/**
@@ -44,28 +52,191 @@ public class Benchmark extends ConcurrentHashMap<IScope, ScopeRecord> {
 		 *
 		 * @param object
 		 *            the object
-		 * @return the benchmark record
+		 * @return the benchmark record, or {@link BenchmarkRecord#NULL} if the object has not been executed
 		 */
 		public BenchmarkRecord find(final IBenchmarkable object) {
+			return getOrDefault(object, BenchmarkRecord.NULL);
+		}
+
+		/**
+		 * Find or create.
+		 *
+		 * @param object
+		 *            the object
+		 * @return the benchmark record
+		 */
+		BenchmarkRecord findOrCreate(final IBenchmarkable object) {
 			return computeIfAbsent(object, BenchmarkRecord::new);
 		}
 
+	}
+
+	/**
+	 * The Class Frame. A node of the call tree of a thread: the executions of a symbol called from the same path. It
+	 * is the stop watch of these executions.
+	 */
+	static final class Frame extends StopWatch {
+
+		/** The accumulator. */
+		final Accumulator accumulator;
+
+		/** The parent, or null for the root. */
+		final Frame parent;
+
+		/** The symbol, or null for the root. */
+		final IBenchmarkable symbol;
+
+		/** The children, created when first called. */
+		Map<IBenchmarkable, Frame> children;
+
+		/** The total duration, in nanoseconds. */
+		long total;
+
+		/** The start of the current execution. */
+		private long start;
+
+		/** The scope of the current execution. */
+		private IScope scope;
+
+		/** The record of the symbol in this scope. */
+		private BenchmarkRecord record;
+
+		/**
+		 * Instantiates a new frame.
+		 *
+		 * @param accumulator
+		 *            the accumulator
+		 * @param parent
+		 *            the parent
+		 * @param symbol
+		 *            the symbol
+		 */
+		Frame(final Accumulator accumulator, final Frame parent, final IBenchmarkable symbol) {
+			this.accumulator = accumulator;
+			this.parent = parent;
+			this.symbol = symbol;
+		}
+
+		/**
+		 * Starts an execution.
+		 *
+		 * @param s
+		 *            the scope
+		 * @return this
+		 */
+		Frame start(final IScope s) {
+			if (s != scope) {
+				scope = s;
+				record = accumulator.find(s).findOrCreate(symbol);
+			}
+			start = System.nanoTime();
+			return this;
+		}
+
+		@Override
+		public void close() {
+			final long elapsed = System.nanoTime() - start;
+			total += elapsed;
+			final SimulationClock clock = scope.getClock();
+			final long cycle = clock == null ? 0 : clock.getCycle();
+			record.add(elapsed, cycle);
+			if (parent.parent == null) { accumulator.find(scope).ownRecord.add(elapsed, cycle); }
+			accumulator.current = parent;
+		}
+
 		/**
-		 * Gets the stop watch for.
+		 * The frame of a symbol called from this one.
 		 *
-		 * @param desc
-		 *            the desc
-		 * @return the stop watch for
+		 * @param s
+		 *            the symbol
+		 * @return the frame
 		 */
-		public StopWatch getStopWatchFor(final IBenchmarkable desc) {
-			return new StopWatch(ownRecord, find(desc));
+		Frame child(final IBenchmarkable s) {
+			if (children == null) { children = new HashMap<>(); }
+			return children.computeIfAbsent(s, k -> new Frame(accumulator, this, k));
 		}
 
+		/**
+		 * Adds the duration spent in each call path below this frame (excluding the one of the children) to the stacks.
+		 *
+		 * @param path
+		 *            the path of the parent, in the collapsed stack format
+		 * @param stacks
+		 *            the durations in nanoseconds by call path
+		 */
+		void collapse(final String path, final Map<String, Long> stacks) {
+			final String name = path.isEmpty() ? frameName() : path + ";" + frameName();
+			long self = total;
+			if (children != null) {
+				for (final Frame child : children.values()) {
+					self -= child.total;
+					child.collapse(name, stacks);
+				}
+			}
+			if (self > 0) { stacks.merge(name, self, Long::sum); }
+		}
+
+		/**
+		 * The name of the frame, without the characters reserved by the collapsed stack format.
+		 */
+		private String frameName() {
+			return symbol.getNameForBenchmarks().replace(';', ',').replace('\n', ' ').replace('\r', ' ');
+		}
+	}
+
+	/**
+	 * The Class Accumulator. The frames and records of a thread.
+	 */
+	static final class Accumulator {
+
+		/** The root of the call tree. */
+		final Frame root = new Frame(this, null, null);
+
+		/** The current frame. */
+		Frame current = root;
+
+		/** The records by scope. */
+		final Map<IScope, ScopeRecord> scopes = new HashMap<>();
+
+		/**
+		 * The records of a scope.
+		 *
+		 * @param scope
+		 *            the scope
+		 * @return the scope record
+		 */
+		ScopeRecord find(final IScope scope) {
+			return scopes.computeIfAbsent(scope, ScopeRecord::new);
+		}
+
+		/**
+		 * Starts the execution of a symbol, called from the current frame.
+		 *
+		 * @param scope
+		 *            the scope
+		 * @param symbol
+		 *            the symbol
+		 * @return the stop watch
+		 */
+		StopWatch start(final IScope scope, final IBenchmarkable symbol) {
+			current = current.child(symbol).start(scope);
+			return current;
+		}
 	}
 
 	/** The tree. */
 	public final BenchmarkTree tree;
 
+	/** The accumulators of all the threads. */
+	private final Queue<Accumulator> accumulators = new ConcurrentLinkedQueue<>();
+
+	/** The accumulator of the current thread. */
+	private final ThreadLocal<Accumulator> accumulator = ThreadLocal.withInitial(() -> {
+		final Accumulator result = new Accumulator();
+		accumulators.add(result);
+		return result;
+	});
+
 	/**
 	 * Instantiates a new benchmark.
 	 *
@@ -86,7 +257,37 @@ public class Benchmark extends ConcurrentHashMap<IScope, ScopeRecord> {
 	 * @return the stop watch
 	 */
 	public StopWatch record(final IScope scope, final IBenchmarkable symbol) {
-		return computeIfAbsent(scope, ScopeRecord::new).getStopWatchFor(symbol).start();
+		return accumulator.get().start(scope, symbol);
+	}
+
+	/**
+	 * The records of all the threads, merged by scope and symbol.
+	 *
+	 * @return the records by scope
+	 */
+	public Map<IScope, ScopeRecord> getScopes() {
+		final Map<IScope, ScopeRecord> result = new LinkedHashMap<>();
+		for (final Accumulator a : accumulators) {
+			a.scopes.forEach((scope, records) -> {
+				final ScopeRecord merged = result.computeIfAbsent(scope, ScopeRecord::new);
+				merged.ownRecord.merge(records.ownRecord);
+				records.forEach((symbol, record) -> merged.findOrCreate(symbol).merge(record));
+			});
+		}
+		return result;
+	}
+
+	/**
+	 * The durations spent in each call path of all the threads, excluding the ones of the symbols called.
+	 *
+	 * @return the durations in nanoseconds by call path, in the collapsed stack format ('symbol;symbol;symbol')
+	 */
+	public Map<String, Long> getStacks() {
+		final Map<String, Long> result = new LinkedHashMap<>();
+		for (final Accumulator a : accumulators) {
+			if (a.root.children != null) { a.root.children.values().forEach(f -> f.collapse("", result)); }
+		}
+		return result;
 	}
 
 	/**
@@ -96,10 +297,12 @@ public class Benchmark extends ConcurrentHashMap<IScope, ScopeRecord> {
 	 *            the experiment
 	 */
 	public void saveAndDispose(final IExperimentPlan experiment) {
-		new BenchmarkConsolePrinter().print(this);
-		new BenchmarkCSVExporter().save(experiment, this);
+		final Map<IScope, ScopeRecord> scopes = getScopes();
+		new BenchmarkConsolePrinter().print(this, scopes);
+		new BenchmarkCSVExporter().save(experiment, this, scopes);
+		new BenchmarkStacksExporter().save(experiment, this);
 		tree.dispose();
-		clear();
+		accumulators.clear();
 	}
 
 }
@@ -14,6 +14,7 @@ import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import gama.annotations.common.interfaces.IBenchmarkable;
 import gama.core.common.util.FileUtils;
@@ -21,12 +22,9 @@ import gama.core.kernel.experiment.IExperimentPlan;
 import gama.core.runtime.GAMA;
 import gama.core.runtime.IScope;
 import gama.core.runtime.exceptions.GamaRuntimeException;
-import gama.core.util.GamaMapFactory;
-import gama.core.util.IMap;
 import gama.core.util.file.csv.CsvWriter;
 import gama.core.util.tree.GamaTree.Order;
 import gaml.core.operators.Files;
-import gaml.core.types.Types;
 
 /**
  * The Class BenchmarkCSVExporter.
@@ -34,15 +32,17 @@ import gaml.core.types.Types;
 public class BenchmarkCSVExporter {
 	
 	/** The Constant exportFolder. */
-	private static final String exportFolder = "benchmarks";
+	static final String exportFolder = "benchmarks";
 
 	/**
 	 * Save.
 	 *
 	 * @param experiment the experiment
 	 * @param records the records
+	 * @param scopes the records by scope
 	 */
-	public void save(final IExperimentPlan experiment, final Benchmark records) {
+	public void save(final IExperimentPlan experiment, final Benchmark records,
+			final Map<IScope, Benchmark.ScopeRecord> scopes) {
 		final IScope scope = experiment.getExperimentScope();
 		try {
 			Files.newFolder(scope, exportFolder);
@@ -52,7 +52,6 @@ public class BenchmarkCSVExporter {
 			e1.printStackTrace();
 			return;
 		}
-		final IMap<IScope, Benchmark.ScopeRecord> scopes = GamaMapFactory.wrap(Types.NO_TYPE, Types.NO_TYPE, records);
 		final String exportFileName = FileUtils.constructAbsoluteFilePath(scope, exportFolder + "/"
 				+ experiment.getModel().getName() + "_benchmark_" + Instant.now().toString().replace(':', '_') + ".csv", false);
 
@@ -62,6 +61,9 @@ public class BenchmarkCSVExporter {
 		scopes.forEach((scopeRecord, record) -> {
 			headers.add("Time in ms in " + scopeRecord);
 			headers.add("Invocations in " + scopeRecord);
+			headers.add("p50 per cycle in ms in " + scopeRecord);
+			headers.add("p99 per cycle in ms in " + scopeRecord);
+			headers.add("Max per cycle in ms in " + scopeRecord);
 		});
 		contents.add(headers);
 		records.tree.visit(Order.PRE_ORDER, (n) -> {
@@ -71,8 +73,12 @@ public class BenchmarkCSVExporter {
 			line.add(r.getNameForBenchmarks());
 			scopes.forEach((scope1, scopeRecord) -> {
 				final BenchmarkRecord record1 = scopeRecord.find(r);
-				line.add(record1.isUnrecorded() ? "" : String.valueOf(record1.milliseconds));
-				line.add(record1.isUnrecorded() ? "" : String.valueOf(record1.times));
+				final boolean none = record1.isUnrecorded();
+				line.add(none ? "" : BenchmarkConsolePrinter.format(record1.getMilliseconds()));
+				line.add(none ? "" : String.valueOf(record1.getTimes()));
+				line.add(none ? "" : BenchmarkConsolePrinter.format(record1.getPercentilePerCycle(0.5)));
+				line.add(none ? "" : BenchmarkConsolePrinter.format(record1.getPercentilePerCycle(0.99)));
+				line.add(none ? "" : BenchmarkConsolePrinter.format(record1.getMaxPerCycle()));
 			});
 		});
 
@@ -10,6 +10,10 @@
  ********************************************************************************************************/
 package gama.core.runtime.benchmark;
 
+import java.util.Locale;
+import java.util.Map;
+
+import gama.core.runtime.IScope;
 import gama.core.util.tree.GamaTree.Order;
 import gama.dev.DEBUG;
 import gaml.core.operators.Strings;
@@ -25,19 +29,23 @@ public class BenchmarkConsolePrinter {
 	/**
 	 * Prints the.
 	 *
-	 * @param scopes the scopes
+	 * @param benchmark the benchmark
+	 * @param scopes the records by scope
 	 */
-	public void print(final Benchmark scopes) {
+	public void print(final Benchmark benchmark, final Map<IScope, Benchmark.ScopeRecord> scopes) {
 		final StringBuilder sb = new StringBuilder();
 		scopes.forEach((s, r) -> {
 			final BenchmarkRecord sr = r.ownRecord;
-			sb.append(S).append(sr.object.getNameForBenchmarks()).append(" (").append(sr.milliseconds).append(" ms)")
-					.append(S);
-			scopes.tree.visit(Order.PRE_ORDER, (n) -> {
+			sb.append(S).append(sr.object.getNameForBenchmarks()).append(" (").append(format(sr.getMilliseconds()))
+					.append(" ms)").append(S);
+			benchmark.tree.visit(Order.PRE_ORDER, (n) -> {
 				final BenchmarkRecord br = r.find(n.getData());
 				if (br != BenchmarkRecord.NULL && !br.isUnrecorded()) {
-					sb.append(Strings.LN)
-							.append(String.format("%30s", "[" + br.milliseconds + " ms, " + br.times + " calls] "));
+					sb.append(Strings.LN).append(String.format("%70s",
+							"[" + format(br.getMilliseconds()) + " ms, " + br.getTimes() + " calls, per cycle p50 "
+									+ format(br.getPercentilePerCycle(0.5)) + " p99 "
+									+ format(br.getPercentilePerCycle(0.99)) + " max "
+									+ format(br.getMaxPerCycle()) + " ms] "));
 					for (int i = 0; i < n.getWeight(); i++) {
 						sb.append("-" + Strings.TAB);
 					}
@@ -50,4 +58,14 @@ public class BenchmarkConsolePrinter {
 		DEBUG.LOG(sb.toString());
 	}
 
+	/**
+	 * Formats a duration in milliseconds with a precision of a microsecond.
+	 *
+	 * @param ms the duration
+	 * @return the string
+	 */
+	static String format(final double ms) {
+		return String.format(Locale.US, "%.3f", ms);
+	}
+
 }
@@ -0,0 +1,120 @@
+/*******************************************************************************************************
+ *
+ * BenchmarkHistogram.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.runtime.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * The Class BenchmarkHistogram. The distribution of durations in nanoseconds, in buckets whose width is 1/16th of the
+ * power of two below them (i.e. a precision of 6.25%), so that percentiles can be computed without keeping the
+ * durations. Not thread safe: each thread fills its own histograms, merged at the end of the benchmark.
+ *
+ * @since 2026
+ *
+ */
+final class BenchmarkHistogram {
+
+	/** The number of bits of the sub-buckets of each power of two. */
+	private static final int SUB_BUCKET_BITS = 4;
+
+	/** The number of sub-buckets of each power of two. */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/** The counts, by bucket. */
+	private long[] counts = new long[0];
+
+	/** The number of values. */
+	private long count;
+
+	/** The maximal value. */
+	private long max;
+
+	/**
+	 * Adds a value.
+	 *
+	 * @param value
+	 *            the value in nanoseconds
+	 */
+	void add(final long value) {
+		final int index = index(value);
+		if (index >= counts.length) { counts = Arrays.copyOf(counts, index + 1); }
+		counts[index]++;
+		count++;
+		if (value > max) { max = value; }
+	}
+
+	/**
+	 * Adds the values of another histogram.
+	 *
+	 * @param other
+	 *            the other histogram
+	 */
+	void merge(final BenchmarkHistogram other) {
+		if (other.counts.length > counts.length) { counts = Arrays.copyOf(counts, other.counts.length); }
+		for (int i = 0; i < other.counts.length; i++) { counts[i] += other.counts[i]; }
+		count += other.count;
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * The number of values.
+	 *
+	 * @return the count
+	 */
+	long getCount() { return count; }
+
+	/**
+	 * The maximal value.
+	 *
+	 * @return the max in nanoseconds
+	 */
+	long getMax() { return max; }
+
+	/**
+	 * The value under which a proportion of the values are, rounded to the upper bound of its bucket.
+	 *
+	 * @param proportion
+	 *            the proportion, between 0 and 1
+	 * @return the value in nanoseconds, or 0 if the histogram is empty
+	 */
+	long getPercentile(final double proportion) {
+		if (count == 0) return 0;
+		final long rank = Math.max(1, (long) Math.ceil(proportion * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) return Math.min(upperBound(i), max);
+		}
+		return max;
+	}
+
+	/**
+	 * The bucket of a value: the values below SUB_BUCKETS have their own; the others share it with the values having
+	 * the same highest bit and the same SUB_BUCKET_BITS following bits.
+	 */
+	private static int index(final long value) {
+		if (value < SUB_BUCKETS) return (int) Math.max(0, value);
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int shift = exponent - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift & SUB_BUCKETS - 1);
+	}
+
+	/**
+	 * The highest value of a bucket.
+	 */
+	private static long upperBound(final int index) {
+		if (index < SUB_BUCKETS) return index;
+		final int shift = index / SUB_BUCKETS - 1;
+		final long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lower + (1L << shift) - 1;
+	}
+
+}
@@ -10,21 +10,34 @@
  ********************************************************************************************************/
 package gama.core.runtime.benchmark;
 
-import java.util.concurrent.atomic.LongAdder;
-
 import gama.annotations.common.interfaces.IBenchmarkable;
 
 /**
- * The Class BenchmarkRecord.
+ * The Class BenchmarkRecord. The durations of the executions of a symbol in a scope: their total, their number and
+ * the distribution of their sums per cycle. Each thread fills its own records (see {@link Benchmark}), which are merged
+ * at the end of the benchmark. When the executions of a symbol during a cycle are divided between several threads,
+ * the distribution is the one of the sums per cycle and per thread.
  */
 public class BenchmarkRecord {
 
 	/** The null. */
 	public static BenchmarkRecord NULL = new BenchmarkRecord(() -> "unknown");
-	
-	/** The times. */
-	public final LongAdder milliseconds = new LongAdder(), times = new LongAdder();
-	
+
+	/** The total duration, in nanoseconds. */
+	private long nanoseconds;
+
+	/** The number of executions. */
+	private long times;
+
+	/** The distribution of the durations per cycle. */
+	private final BenchmarkHistogram cycles = new BenchmarkHistogram();
+
+	/** The cycle being accumulated (-1 if none). */
+	private long cycle = -1;
+
+	/** The duration of the executions during this cycle, in nanoseconds. */
+	private long cycleNanoseconds;
+
 	/** The object. */
 	public final IBenchmarkable object;
 
@@ -37,13 +50,85 @@ public class BenchmarkRecord {
 		this.object = object;
 	}
 
+	/**
+	 * Adds the duration of an execution.
+	 *
+	 * @param nanos
+	 *            the duration in nanoseconds
+	 * @param currentCycle
+	 *            the cycle of the simulation during which it has been executed
+	 */
+	void add(final long nanos, final long currentCycle) {
+		nanoseconds += nanos;
+		times++;
+		if (currentCycle != cycle) {
+			endCycle();
+			cycle = currentCycle;
+		}
+		cycleNanoseconds += nanos;
+	}
+
+	/**
+	 * Adds the duration of the cycle being accumulated to the distribution.
+	 */
+	void endCycle() {
+		if (cycle >= 0) { cycles.add(cycleNanoseconds); }
+		cycle = -1;
+		cycleNanoseconds = 0;
+	}
+
+	/**
+	 * Adds the durations of another record of the same symbol.
+	 *
+	 * @param other
+	 *            the other record
+	 */
+	void merge(final BenchmarkRecord other) {
+		other.endCycle();
+		nanoseconds += other.nanoseconds;
+		times += other.times;
+		cycles.merge(other.cycles);
+	}
+
+	/**
+	 * The total duration.
+	 *
+	 * @return the duration in milliseconds
+	 */
+	public double getMilliseconds() { return nanoseconds / 1_000_000d; }
+
+	/**
+	 * The number of executions.
+	 *
+	 * @return the number of executions
+	 */
+	public long getTimes() { return times; }
+
+	/**
+	 * The duration per cycle under which a proportion of the cycles are.
+	 *
+	 * @param proportion
+	 *            the proportion, between 0 and 1 (e.g. 0.99 for the 99th percentile)
+	 * @return the duration in milliseconds
+	 */
+	public double getPercentilePerCycle(final double proportion) {
+		return cycles.getPercentile(proportion) / 1_000_000d;
+	}
+
+	/**
+	 * The maximal duration per cycle.
+	 *
+	 * @return the duration in milliseconds
+	 */
+	public double getMaxPerCycle() { return cycles.getMax() / 1_000_000d; }
+
 	/**
 	 * Checks if is unrecorded.
 	 *
 	 * @return true, if is unrecorded
 	 */
 	public boolean isUnrecorded() {
-		return times.longValue() == 0l;
+		return times == 0l;
 	}
 
 }
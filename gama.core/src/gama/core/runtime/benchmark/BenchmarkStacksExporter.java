@@ -0,0 +1,70 @@
+/*******************************************************************************************************
+ *
+ * BenchmarkStacksExporter.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.runtime.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+
+import gama.core.common.util.FileUtils;
+import gama.core.kernel.experiment.IExperimentPlan;
+import gama.core.runtime.GAMA;
+import gama.core.runtime.IScope;
+import gama.core.runtime.exceptions.GamaRuntimeException;
+import gaml.core.operators.Files;
+
+/**
+ * The Class BenchmarkStacksExporter. Saves the durations of the call paths of a benchmark as collapsed stacks (one
+ * line per path: the names of the symbols separated by ';', a space and the duration in nanoseconds spent in the last
+ * one), the format read by flame graph tools (e.g. flamegraph.pl, speedscope).
+ *
+ * @since 2026
+ *
+ */
+public class BenchmarkStacksExporter {
+
+	/**
+	 * Save.
+	 *
+	 * @param experiment
+	 *            the experiment
+	 * @param records
+	 *            the records
+	 */
+	public void save(final IExperimentPlan experiment, final Benchmark records) {
+		final IScope scope = experiment.getExperimentScope();
+		try {
+			Files.newFolder(scope, BenchmarkCSVExporter.exportFolder);
+		} catch (final GamaRuntimeException e1) {
+			e1.addContext("Impossible to create folder " + BenchmarkCSVExporter.exportFolder);
+			GAMA.reportError(scope, e1, false);
+			return;
+		}
+		final String exportFileName = FileUtils.constructAbsoluteFilePath(scope,
+				BenchmarkCSVExporter.exportFolder + "/" + experiment.getModel().getName() + "_benchmark_"
+						+ Instant.now().toString().replace(':', '_') + ".folded",
+				false);
+		try (final BufferedWriter writer = new BufferedWriter(new FileWriter(exportFileName, StandardCharsets.UTF_8))) {
+			for (final Map.Entry<String, Long> stack : records.getStacks().entrySet()) {
+				writer.write(stack.getKey());
+				writer.write(' ');
+				writer.write(String.valueOf(stack.getValue()));
+				writer.newLine();
+			}
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+}
@@ -11,63 +11,23 @@
 package gama.core.runtime.benchmark;
 
 import java.io.Closeable;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * The Class StopWatch.
+ * The Class StopWatch. Returned by {@link Benchmark#record}, it measures the execution of a symbol until it is closed.
+ * The default one, {@link #NULL}, measures nothing and is returned when the experiment is not benchmarked. The ones
+ * returned by a benchmark are the frames of the call trees of each thread (see {@link Benchmark.Frame}), reused from
+ * one execution of the symbol to the next.
  */
 public class StopWatch implements Closeable {
-	
+
 	/** The Constant NULL. */
-	public final static StopWatch NULL = new StopWatch(BenchmarkRecord.NULL, BenchmarkRecord.NULL);
-	
-	/** The Constant notRunning. */
-	final static long notRunning = -1;
-	
-	/** The scope. */
-	private final BenchmarkRecord numbers, scope;
-	
-	/** The last start. */
-	private long lastStart = notRunning;
-	
-	/** The reentrant. */
-	private final AtomicInteger reentrant = new AtomicInteger();
+	public final static StopWatch NULL = new StopWatch();
 
 	/**
 	 * Instantiates a new stop watch.
-	 *
-	 * @param scope the scope
-	 * @param numbers the numbers
-	 */
-	StopWatch(final BenchmarkRecord scope, final BenchmarkRecord numbers) {
-		this.numbers = numbers;
-		this.scope = scope;
-	}
-
-	/**
-	 * Start.
-	 *
-	 * @return the stop watch
 	 */
-	public StopWatch start() {
-		if (lastStart == notRunning) {
-			lastStart = System.currentTimeMillis();
-		}
-		reentrant.incrementAndGet();
-		return this;
-	}
+	StopWatch() {}
 
 	@Override
-	public void close() {
-		if (lastStart != notRunning) {
-			final int value = reentrant.decrementAndGet();
-			if (value == 0) {
-				final long milli = System.currentTimeMillis() - lastStart;
-				numbers.milliseconds.add(milli);
-				scope.milliseconds.add(milli);
-				numbers.times.increment();
-				lastStart = notRunning;
-			}
-		}
-	}
-}
\ No newline at end of file
+	public void close() {}
+}
@@ -14,6 +14,7 @@ import java.util.List;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 
 import gama.core.metamodel.agent.IAgent;
 import gama.core.metamodel.shape.IShape;
@@ -47,6 +48,20 @@ public class AgentSpliterator implements Spliterator<IAgent> {
 		return new AgentSpliterator(agents.toArray(new IAgent[size]), 0, size, threshold);
 	}
 
+	/**
+	 * Returns a spliterator that divides the agents according to their costs: each part is split where the cumulated
+	 * cost reaches half of its cost, until its cost is below the grain.
+	 *
+	 * @param agents the agents
+	 * @param costs the cumulated costs: costs[i] is the cost of the agents before position i (length + 1 values)
+	 * @param grain the cost under which a part is not divided
+	 * @return the spliterator
+	 */
+	public static Spliterator<IAgent> of(final IShape[] agents, final double[] costs, final double grain) {
+		if (agents == null || agents.length == 0) { return Spliterators.<IAgent> emptySpliterator(); }
+		return new AgentSpliterator(agents, 0, agents.length, 1, costs, grain);
+	}
+
 	/** The begin. */
 	int begin;
 	
@@ -56,6 +71,12 @@ public class AgentSpliterator implements Spliterator<IAgent> {
 	/** The agents. */
 	final IShape[] agents;
 
+	/** The cumulated costs of the agents, or null to divide them by number. */
+	final double[] costs;
+
+	/** The cost under which a part is not divided. */
+	final double grain;
+
 	/**
 	 * Instantiates a new agent spliterator.
 	 *
@@ -65,9 +86,26 @@ public class AgentSpliterator implements Spliterator<IAgent> {
 	 * @param threshold the threshold
 	 */
 	private AgentSpliterator(final IShape[] array, final int begin, final int end, final int threshold) {
+		this(array, begin, end, threshold, null, 0d);
+	}
+
+	/**
+	 * Instantiates a new agent spliterator.
+	 *
+	 * @param array the array
+	 * @param begin the begin
+	 * @param end the end
+	 * @param threshold the threshold
+	 * @param costs the cumulated costs, or null
+	 * @param grain the grain
+	 */
+	private AgentSpliterator(final IShape[] array, final int begin, final int end, final int threshold,
+			final double[] costs, final double grain) {
 		this.begin = begin;
 		this.end = end;
 		this.threshold = threshold;
+		this.costs = costs;
+		this.grain = grain;
 		agents = array;
 	}
 
@@ -78,6 +116,18 @@ public class AgentSpliterator implements Spliterator<IAgent> {
 		}
 	}
 
+	/**
+	 * Performs the action for each remaining agent, passing its position in the array of agents. As the array is
+	 * split in halves when no cost is given (see {@link #trySplit()}), the positions processed by each part then only
+	 * depend on the number of agents and on the threshold.
+	 *
+	 * @param action
+	 *            the action
+	 */
+	public void forEachRemaining(final ObjIntConsumer<IAgent> action) {
+		for (int i = begin; i < end; ++i) { action.accept((IAgent) agents[i], i); }
+	}
+
 	@Override
 	public boolean tryAdvance(final Consumer<? super IAgent> action) {
 		return true;
@@ -87,12 +137,37 @@ public class AgentSpliterator implements Spliterator<IAgent> {
 	public AgentSpliterator trySplit() {
 		final int size = end - begin;
 		if (size <= threshold) { return null; }
-		final int mid = begin + size / 2;
-		final AgentSpliterator split = new AgentSpliterator(agents, begin, mid, threshold);
+		final int mid;
+		if (costs == null) {
+			mid = begin + size / 2;
+		} else {
+			if (costs[end] - costs[begin] <= grain) { return null; }
+			mid = middleOfCosts();
+		}
+		final AgentSpliterator split = new AgentSpliterator(agents, begin, mid, threshold, costs, grain);
 		begin = mid;
 		return split;
 	}
 
+	/**
+	 * The first position, strictly between begin and end, where the cumulated cost reaches half of the cost of the part
+	 *
+	 * @return the position
+	 */
+	private int middleOfCosts() {
+		final double half = (costs[begin] + costs[end]) / 2;
+		int low = begin + 1, high = end - 1;
+		while (low < high) {
+			final int m = low + high >>> 1;
+			if (costs[m] < half) {
+				low = m + 1;
+			} else {
+				high = m;
+			}
+		}
+		return low;
+	}
+
 	@Override
 	public long estimateSize() {
 		return (long) end - begin;
@@ -0,0 +1,325 @@
+/*******************************************************************************************************
+ *
+ * DeterministicStep.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.runtime.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import gama.core.common.util.RandomUtils;
+import gama.core.kernel.simulation.SimulationAgent;
+import gama.core.metamodel.agent.IAgent;
+import gama.core.metamodel.population.IPopulation;
+import gama.core.metamodel.shape.IShape;
+import gama.core.metamodel.topology.ISpatialIndex;
+import gama.core.metamodel.topology.ITopology;
+import gama.core.runtime.IScope;
+import gama.core.runtime.exceptions.GamaRuntimeException;
+import gama.core.util.random.CounterRNG;
+import gaml.core.statements.IExecutable;
+
+/**
+ * The Class DeterministicStep. A parallel execution of agents whose results do not depend on the number of threads nor
+ * on their timing (see {@link GamaExecutorService#CONCURRENCY_DETERMINISTIC}):
+ * <ul>
+ * <li>each agent draws its random numbers from its own {@link CounterRNG} stream, keyed on the seed, the cycle, a number
+ * drawn from the generator of the caller and the species and index of the agent;</li>
+ * <li>the agents are divided by {@link AgentSpliterator}, whose parts only depend on the number of agents;</li>
+ * <li>the side effects that depend on the order of the agents are recorded by each task and applied at the end, in the
+ * order of the agents: deaths (the agents killed during the step die at its end), additions of the created agents to
+ * their populations (their indices are computed from the position of their creator, see
+ * {@link Stream#nextIndex(IPopulation, int)}) and updates of the spatial indexes (which all defer them in this
+ * mode).</li>
+ * </ul>
+ * The parallel executions nested in a deterministic one are run sequentially, with the stream of the calling agent.
+ *
+ * @since 2026
+ *
+ */
+public final class DeterministicStep {
+
+	/** The name of the generator of the streams. */
+	private static final String GENERATOR = "counter";
+
+	/** The scope of the caller, in which the recorded side effects are applied. */
+	final IScope scope;
+
+	/** The key of the step. */
+	final long key;
+
+	/** The number of agents. */
+	final int size;
+
+	/** The seed of the caller. */
+	final Double seed;
+
+	/** The index of the first agent created in each population. */
+	final Map<IPopulation<? extends IAgent>, Integer> bases = new ConcurrentHashMap<>();
+
+	/** The streams of the tasks. */
+	final Queue<Stream> streams = new ConcurrentLinkedQueue<>();
+
+	/** The spatial index of the simulation, whose updates are deferred. */
+	final ISpatialIndex.Compound index;
+
+	/**
+	 * Steps the agents in parallel.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param array
+	 *            the agents
+	 * @param threshold
+	 *            the number of agents under which a task is not divided
+	 * @return true if all the agents have been stepped
+	 */
+	public static Boolean step(final IScope scope, final IShape[] array, final int threshold) {
+		final DeterministicStep step = new DeterministicStep(scope, array.length);
+		try {
+			return ParallelAgentRunner
+					.execute(new ParallelAgentStepper(scope, AgentSpliterator.of(array, threshold), step));
+		} finally {
+			step.commit();
+		}
+	}
+
+	/**
+	 * Executes the executable on the agents in parallel.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param executable
+	 *            the executable
+	 * @param array
+	 *            the agents
+	 * @param threshold
+	 *            the number of agents under which a task is not divided
+	 */
+	public static void execute(final IScope scope, final IExecutable executable, final IShape[] array,
+			final int threshold) {
+		final DeterministicStep step = new DeterministicStep(scope, array.length);
+		try {
+			ParallelAgentRunner
+					.execute(new ParallelAgentExecuter(scope, executable, AgentSpliterator.of(array, threshold), step));
+		} finally {
+			step.commit();
+		}
+	}
+
+	/**
+	 * Whether the scope is used by an agent of a deterministic step.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @return true, if is running
+	 */
+	public static boolean isRunning(final IScope scope) {
+		return streamOf(scope) != null;
+	}
+
+	/**
+	 * The stream of the agent using the scope, or null if it does not belong to a deterministic step.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @return the stream
+	 */
+	public static Stream streamOf(final IScope scope) {
+		return scope != null && scope.getRandom() instanceof Stream s ? s : null;
+	}
+
+	/**
+	 * Defers the death of the agent to the end of the deterministic step to which the scope belongs, if any.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param agent
+	 *            the agent
+	 * @return true if the death has been deferred, false if the agent must die now
+	 */
+	public static boolean deferDeath(final IScope scope, final IAgent agent) {
+		final Stream stream = streamOf(scope);
+		if (stream == null) return false;
+		stream.defer(s -> agent.dispose());
+		return true;
+	}
+
+	/**
+	 * Instantiates a new deterministic step.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param size
+	 *            the number of agents
+	 */
+	private DeterministicStep(final IScope scope, final int size) {
+		this.scope = scope;
+		this.size = size;
+		final RandomUtils random = scope.getRandom();
+		seed = random.getSeed();
+		final long cycle = scope.getClock() == null ? 0 : scope.getClock().getCycle();
+		key = CounterRNG.combine(CounterRNG.combine(Double.doubleToLongBits(seed), cycle),
+				random.getGenerator().nextLong());
+		final SimulationAgent simulation = scope.getSimulation();
+		final ITopology topology = simulation == null ? null : simulation.getTopology();
+		if (topology != null && topology.getSpatialIndex() instanceof ISpatialIndex.Compound compound) {
+			index = compound;
+			index.beginDeferringAll();
+		} else {
+			index = null;
+		}
+	}
+
+	/**
+	 * Runs the action on the agents of a task, each with its own random stream, and stops at the first failure
+	 *
+	 * @param scope
+	 *            the scope of the task
+	 * @param agents
+	 *            the agents
+	 * @param action
+	 *            the action
+	 * @return true if the action has succeeded on all the agents
+	 */
+	Boolean run(final IScope scope, final Spliterator<IAgent> agents, final Predicate<IAgent> action) {
+		if (!(agents instanceof AgentSpliterator split)) return Boolean.TRUE;
+		final Stream stream = new Stream(this, new CounterRNG());
+		final RandomUtils previous = scope.setRandom(stream);
+		try {
+			final boolean[] passed = { true };
+			split.forEachRemaining((agent, position) -> {
+				if (!passed[0] || agent.dead()) return;
+				stream.enter(agent, position);
+				passed[0] = action.test(agent);
+			});
+			return passed[0];
+		} finally {
+			scope.setRandom(previous);
+		}
+	}
+
+	/**
+	 * Applies the side effects recorded by the tasks in the order of the agents, then the updates of the spatial
+	 * indexes
+	 */
+	private void commit() {
+		final List<Effect> effects = new ArrayList<>();
+		for (final Stream stream : streams) { effects.addAll(stream.effects); }
+		effects.sort(null);
+		for (final Effect effect : effects) { effect.action.accept(scope); }
+		if (index != null) { index.commitAll(); }
+	}
+
+	/**
+	 * A side effect recorded by an agent
+	 *
+	 * @param position
+	 *            the position of the agent
+	 * @param order
+	 *            the order of the effect among the ones of the agent
+	 * @param action
+	 *            the action to apply at the end of the step
+	 */
+	private record Effect(int position, int order, Consumer<IScope> action) implements Comparable<Effect> {
+
+		@Override
+		public int compareTo(final Effect o) {
+			final int c = Integer.compare(position, o.position);
+			return c != 0 ? c : Integer.compare(order, o.order);
+		}
+	}
+
+	/**
+	 * The random number generator of a task, positioned on the stream of the agent being executed, which also records
+	 * its side effects
+	 */
+	public static final class Stream extends RandomUtils {
+
+		/** The step. */
+		final DeterministicStep step;
+
+		/** The generator. */
+		final CounterRNG rng;
+
+		/** The side effects recorded by the agents of the task. */
+		final List<Effect> effects = new ArrayList<>();
+
+		/** The position of the current agent. */
+		int position;
+
+		/** The number of agents created and of side effects recorded by the current agent. */
+		int created, recorded;
+
+		/**
+		 * Instantiates a new stream.
+		 *
+		 * @param step
+		 *            the step
+		 * @param rng
+		 *            the generator
+		 */
+		Stream(final DeterministicStep step, final CounterRNG rng) {
+			super(step.seed, GENERATOR, rng);
+			this.step = step;
+			this.rng = rng;
+			step.streams.add(this);
+		}
+
+		/**
+		 * Positions the stream on an agent
+		 */
+		void enter(final IAgent agent, final int positionOfAgent) {
+			rng.setStream(CounterRNG.combine(CounterRNG.combine(step.key, agent.getSpeciesName().hashCode()),
+					agent.getIndex()));
+			position = positionOfAgent;
+			created = 0;
+			recorded = 0;
+		}
+
+		/**
+		 * Records a side effect of the current agent, applied at the end of the step.
+		 *
+		 * @param action
+		 *            the action
+		 */
+		public void defer(final Consumer<IScope> action) {
+			effects.add(new Effect(position, recorded++, action));
+		}
+
+		/**
+		 * The index of the next agent created by the current agent in the population. The n-th agent created by the
+		 * agent at position p receives the index base + n * size + p, where base is the index the population would have
+		 * given at the beginning of the step: the indices are unique and do not depend on the other agents.
+		 *
+		 * @param population
+		 *            the population
+		 * @param current
+		 *            the index the population would give
+		 * @return the index
+		 */
+		public int nextIndex(final IPopulation<? extends IAgent> population, final int current) {
+			final long index =
+					step.bases.computeIfAbsent(population, p -> current) + (long) created++ * step.size + position;
+			if (index > Integer.MAX_VALUE) throw GamaRuntimeException.error(
+					"Too many agents of " + population.getName() + " created during a deterministic parallel step",
+					step.scope);
+			return (int) index;
+		}
+
+	}
+
+}
@@ -95,6 +95,11 @@ public abstract class GamaExecutorService {
 			"In batch mode, allow to run simulations with different parameter sets in parallel", false, IType.BOOL,
 			true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
 
+	/** The Constant CONCURRENCY_BATCH_ASYNCHRONOUS. */
+	public static final Pref<Boolean> CONCURRENCY_BATCH_ASYNCHRONOUS = create("pref_parallel_batch_asynchronous",
+			"In batch mode, run each simulation to its end independently of the others, instead of stepping all of them in lock-step",
+			true, IType.BOOL, true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
+
 	/** The Constant CONCURRENCY_GRID. */
 	public static final Pref<Boolean> CONCURRENCY_GRID = create("pref_parallel_grids",
 			"Make grids schedule their agents in parallel (beware that setting this to true no longer allows GAMA to ensure the reproducibility of simulations)",
@@ -105,11 +110,26 @@ public abstract class GamaExecutorService {
 			"Make species schedule their agents in parallel (beware that setting this to true no longer allows GAMA to ensure the reproducibility of simulations)",
 			false, IType.BOOL, true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
 
+	/** The Constant CONCURRENCY_DETERMINISTIC. */
+	public static final Pref<Boolean> CONCURRENCY_DETERMINISTIC = create("pref_parallel_deterministic",
+			"Make the parallel scheduling of agents reproducible: each agent draws from its own random stream and the creations, deaths and moves of agents are applied at the end of the step, in the order of the agents (requires a deterministic random number generator)",
+			false, IType.BOOL, true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
+
+	/** The Constant CONCURRENCY_ADAPTIVE. */
+	public static final Pref<Boolean> CONCURRENCY_ADAPTIVE = create("pref_parallel_adaptive",
+			"Divide the agents scheduled in parallel according to the measured durations of their steps rather than to their number (except for the species whose 'parallel' facet sets the threshold)",
+			true, IType.BOOL, true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
+
 	/** The Constant CONCURRENCY_THRESHOLD. */
 	public static final Pref<Integer> CONCURRENCY_THRESHOLD =
 			create("pref_parallel_threshold", "Number under which agents are executed sequentially", 20, IType.INT,
 					true).between(1, null).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
 
+	/** The Constant CONCURRENCY_DIFFUSION_THRESHOLD. */
+	public static final Pref<Integer> CONCURRENCY_DIFFUSION_THRESHOLD = create("pref_parallel_diffusion_threshold",
+			"Number of cells under which diffusions are computed sequentially", 250000, IType.INT, true)
+					.between(1, null).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
+
 	/** The Constant THREADS_NUMBER. */
 	public static final Pref<Integer> THREADS_NUMBER =
 			create("pref_parallel_threads",
@@ -286,7 +306,10 @@ public abstract class GamaExecutorService {
 			final ISpecies species) {
 		try (final StopWatch w = GAMA.benchmark(scope, species)) {
 			int concurrency = threshold;
-			if (array.length <= threshold) { concurrency = 0; }
+			// Parallel executions nested in a deterministic one are sequential
+			if (array.length <= threshold || DeterministicStep.isRunning(scope)) { concurrency = 0; }
+			if (concurrency > 0 && CONCURRENCY_DETERMINISTIC.getValue())
+				return DeterministicStep.step(scope, array, concurrency);
 			switch (concurrency) {
 				case 0:
 					for (final A aa : array) {
@@ -297,16 +320,33 @@ public abstract class GamaExecutorService {
 						if (!scope.step(agent).passed()) return false;
 					}
 					break;
-				case 1:
-					for (final A agent : array) { executeThreaded(() -> scope.step((IAgent) agent)); }
-					break;
 				default:
-					ParallelAgentRunner.step(scope, array, threshold);
+					// The agents are divided by number (with a threshold of 1, each agent is stepped in its own task)
+					// or, once the durations of their steps are measured, by cost, unless the species sets its own
+					// threshold. The tasks are joined at the end and the first failure (or exception) is propagated
+					final boolean passed = CONCURRENCY_ADAPTIVE.getValue() && species != null
+							&& !hasExplicitThreshold(species)
+									? ParallelAgentRunner.step(scope, array, concurrency, species.getStepCosts())
+									: ParallelAgentRunner.step(scope, array, concurrency);
+					if (!passed) return false;
 			}
 		}
 		return true;
 	}
 
+	/**
+	 * Whether the species sets the number of agents under which they are stepped sequentially (e.g. 'parallel: 1'),
+	 * in which case its agents are always divided by number
+	 *
+	 * @param species
+	 *            the species
+	 * @return true, if the facet 'parallel' of the species is an integer
+	 */
+	private static boolean hasExplicitThreshold(final ISpecies species) {
+		final IExpression concurrency = species.getConcurrency();
+		return concurrency != null && concurrency.getGamlType().id() == IType.INT;
+	}
+
 	/**
 	 * Execute.
 	 *
@@ -326,7 +366,11 @@ public abstract class GamaExecutorService {
 	public static <A extends IShape> void execute(final IScope scope, final IExecutable executable, final A[] array,
 			final IExpression parallel) throws GamaRuntimeException {
 		int threshold = getParallelism(scope, parallel, Caller.NONE);
-		if (array.length <= threshold) { threshold = 0; }
+		if (array.length <= threshold || DeterministicStep.isRunning(scope)) { threshold = 0; }
+		if (threshold > 0 && CONCURRENCY_DETERMINISTIC.getValue()) {
+			DeterministicStep.execute(scope, executable, array, threshold);
+			return;
+		}
 		switch (threshold) {
 			case 0:
 				for (final A agent : array) {
@@ -334,10 +378,8 @@ public abstract class GamaExecutorService {
 					if (scope.getAndClearBreakStatus() == FlowStatus.BREAK) { break; }
 				}
 				return;
-			// Break doesnt really make sense for parallel execution
-			case 1:
-				for (final A agent : array) { executeThreaded(() -> scope.execute(executable, (IAgent) agent, null)); }
-				return;
+			// Break doesnt really make sense for parallel execution. With a threshold of 1, each agent is executed in its
+			// own task
 			default:
 				ParallelAgentRunner.execute(scope, executable, array, threshold);
 		}
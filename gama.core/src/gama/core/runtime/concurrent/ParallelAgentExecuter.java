@@ -33,12 +33,27 @@ public class ParallelAgentExecuter extends ParallelAgentRunner<Object> {
 	 * @param agents the agents
 	 */
 	public ParallelAgentExecuter(final IScope scope, final IExecutable executable, final Spliterator<IAgent> agents) {
-		super(scope, agents);
+		this(scope, executable, agents, null);
+	}
+
+	/**
+	 * Instantiates a new parallel agent executer.
+	 *
+	 * @param scope the scope
+	 * @param executable the executable
+	 * @param agents the agents
+	 * @param deterministic the deterministic step to which the agents belong, or null
+	 */
+	ParallelAgentExecuter(final IScope scope, final IExecutable executable, final Spliterator<IAgent> agents,
+			final DeterministicStep deterministic) {
+		super(scope, agents, deterministic);
 		this.executable = executable;
 	}
 
 	@Override
 	public Object executeOn(final IScope scope) throws GamaRuntimeException {
+		if (deterministic != null)
+			return deterministic.run(scope, agents, each -> scope.execute(executable, each, null).passed());
 		final Boolean[] mutableBoolean = { Boolean.TRUE };
 		// final AccumulatingExecutionResult result = new AccumulatingExecutionResult();
 		agents.forEachRemaining(each -> {
@@ -52,9 +67,14 @@ public class ParallelAgentExecuter extends ParallelAgentRunner<Object> {
 		// return result.passed() ? result.getValue() : null;
 	}
 
+	@Override
+	Object combine(final Object first, final Object second) {
+		return Boolean.TRUE.equals(first) ? second : first;
+	}
+
 	@Override
 	ParallelAgentExecuter subTask(final Spliterator<IAgent> sub) {
-		return new ParallelAgentExecuter(originalScope, executable, sub);
+		return new ParallelAgentExecuter(originalScope, executable, sub, deterministic);
 	}
 
 }
\ No newline at end of file
@@ -33,6 +33,9 @@ public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements
 	/** The original scope. */
 	final IScope originalScope;
 
+	/** The deterministic step to which the agents belong, or null. */
+	final DeterministicStep deterministic;
+
 	/**
 	 * Execute.
 	 *
@@ -63,6 +66,27 @@ public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements
 		return execute(runner);
 	}
 
+	/**
+	 * Steps the agents in parallel, divided according to the estimated costs of their steps (see {@link StepCosts}),
+	 * and updates these estimates when the step is measured.
+	 *
+	 * @param <A> the generic type
+	 * @param scope the scope
+	 * @param array the array
+	 * @param threshold the threshold, used while the costs are not estimated
+	 * @param costs the estimated costs of the agents
+	 * @return the boolean
+	 * @throws GamaRuntimeException the gama runtime exception
+	 */
+	public static <A extends IShape> Boolean step(final IScope scope, final A[] array, final int threshold,
+			final StepCosts costs) throws GamaRuntimeException {
+		if (array.length <= threshold) { return step(scope, array, threshold); }
+		final StepCosts.Sample sample = costs.sample(array.length);
+		final Boolean result = execute(new ParallelAgentStepper(scope, costs.split(array, threshold), null, sample));
+		if (sample != null) { costs.update(array, sample); }
+		return result;
+	}
+
 	/**
 	 * Execute.
 	 *
@@ -120,8 +144,21 @@ public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements
 	 * @param agents the agents
 	 */
 	protected <A extends IShape> ParallelAgentRunner(final IScope scope, final Spliterator<IAgent> agents) {
+		this(scope, agents, null);
+	}
+
+	/**
+	 * Instantiates a new parallel agent runner.
+	 *
+	 * @param scope the scope
+	 * @param agents the agents
+	 * @param deterministic the deterministic step to which the agents belong, or null
+	 */
+	protected ParallelAgentRunner(final IScope scope, final Spliterator<IAgent> agents,
+			final DeterministicStep deterministic) {
 		this.agents = agents;
 		this.originalScope = scope.copy(" - forked - ");
+		this.deterministic = deterministic;
 	}
 
 	/**
@@ -132,6 +169,17 @@ public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements
 	 */
 	abstract ParallelAgentRunner<T> subTask(Spliterator<IAgent> sub);
 
+	/**
+	 * Combines the results of two parts of the agents. Returns the result of the second part by default.
+	 *
+	 * @param first the result of the first part
+	 * @param second the result of the second part
+	 * @return the result of both parts
+	 */
+	T combine(final T first, final T second) {
+		return second;
+	}
+
 	@Override
 	protected T compute() throws GamaRuntimeException {
 		final Spliterator<IAgent> sub = agents.trySplit();
@@ -141,8 +189,9 @@ public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements
 		} else {
 			final ParallelAgentRunner<T> left = subTask(sub);
 			left.fork();
-			result = compute();
-			left.join();
+			// The second part is computed before joining the first one, which runs meanwhile
+			final T second = compute();
+			result = combine(left.join(), second);
 		}
 		return result;
 	}
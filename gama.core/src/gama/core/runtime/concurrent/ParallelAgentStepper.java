@@ -11,6 +11,8 @@
 package gama.core.runtime.concurrent;
 
 import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ObjIntConsumer;
 
 import gama.core.metamodel.agent.IAgent;
 import gama.core.runtime.IScope;
@@ -21,6 +23,12 @@ import gama.core.runtime.exceptions.GamaRuntimeException;
  */
 public class ParallelAgentStepper extends ParallelAgentRunner<Boolean> {
 
+	/** The sample in which the durations of the steps are recorded, or null. */
+	final StepCosts.Sample sample;
+
+	/** Whether an agent of the population has failed its step, shared by all the tasks to stop the others. */
+	final AtomicBoolean failed;
+
 	/**
 	 * Instantiates a new parallel agent stepper.
 	 *
@@ -28,23 +36,93 @@ public class ParallelAgentStepper extends ParallelAgentRunner<Boolean> {
 	 * @param agents the agents
 	 */
 	public ParallelAgentStepper(final IScope scope, final Spliterator<IAgent> agents) {
-		super(scope, agents);
+		this(scope, agents, null, null);
+	}
+
+	/**
+	 * Instantiates a new parallel agent stepper.
+	 *
+	 * @param scope the scope
+	 * @param agents the agents
+	 * @param deterministic the deterministic step to which the agents belong, or null
+	 */
+	ParallelAgentStepper(final IScope scope, final Spliterator<IAgent> agents,
+			final DeterministicStep deterministic) {
+		this(scope, agents, deterministic, null);
+	}
+
+	/**
+	 * Instantiates a new parallel agent stepper.
+	 *
+	 * @param scope the scope
+	 * @param agents the agents
+	 * @param deterministic the deterministic step to which the agents belong, or null
+	 * @param sample the sample in which the durations of the steps are recorded, or null
+	 */
+	ParallelAgentStepper(final IScope scope, final Spliterator<IAgent> agents, final DeterministicStep deterministic,
+			final StepCosts.Sample sample) {
+		this(scope, agents, deterministic, sample, new AtomicBoolean());
+	}
+
+	/**
+	 * Instantiates a new parallel agent stepper.
+	 *
+	 * @param scope the scope
+	 * @param agents the agents
+	 * @param deterministic the deterministic step to which the agents belong, or null
+	 * @param sample the sample in which the durations of the steps are recorded, or null
+	 * @param failed whether an agent of the population has failed its step
+	 */
+	private ParallelAgentStepper(final IScope scope, final Spliterator<IAgent> agents,
+			final DeterministicStep deterministic, final StepCosts.Sample sample, final AtomicBoolean failed) {
+		super(scope, agents, deterministic);
+		this.sample = sample;
+		this.failed = failed;
+	}
+
+	/**
+	 * Steps an agent, unless an agent of the population has already failed its step: as in the sequential scheduling,
+	 * the first failure stops the step of the population, the agents not started yet in the other tasks being skipped
+	 *
+	 * @param scope the scope
+	 * @param each the agent
+	 * @return false if the agent or another one has failed its step
+	 */
+	private boolean step(final IScope scope, final IAgent each) {
+		if (failed.get()) return false;
+		if (scope.step(each).passed()) return true;
+		failed.set(true);
+		return false;
 	}
 
 	@Override
 	public Boolean executeOn(final IScope scope) throws GamaRuntimeException {
+		if (deterministic != null) return deterministic.run(scope, agents, each -> step(scope, each));
 		final Boolean[] mutableBoolean = { Boolean.TRUE };
-		agents.forEachRemaining(each -> {
-			if (mutableBoolean[0].booleanValue()) {
-				mutableBoolean[0] = Boolean.valueOf(scope.step(each).passed());
-			}
-		});
+		final ObjIntConsumer<IAgent> stepper = (each, position) -> {
+			// Avoids the activation of dead agents, as in the sequential scheduling
+			if (!mutableBoolean[0].booleanValue() || each.dead()) return;
+			final long start = sample == null ? 0L : System.nanoTime();
+			mutableBoolean[0] = Boolean.valueOf(step(scope, each));
+			if (sample != null) { sample.record(position, System.nanoTime() - start); }
+		};
+		// The samples are only taken on AgentSpliterators, which give the positions of the agents
+		if (agents instanceof AgentSpliterator split) {
+			split.forEachRemaining(stepper);
+		} else {
+			agents.forEachRemaining(each -> stepper.accept(each, -1));
+		}
 		return mutableBoolean[0];
 	}
 
+	@Override
+	Boolean combine(final Boolean first, final Boolean second) {
+		return first && second;
+	}
+
 	@Override
 	ParallelAgentRunner<Boolean> subTask(final Spliterator<IAgent> sub) {
-		return new ParallelAgentStepper(originalScope, sub);
+		return new ParallelAgentStepper(originalScope, sub, deterministic, sample, failed);
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+/*******************************************************************************************************
+ *
+ * PhasedSimulationRunner.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.runtime.concurrent;
+
+import static gama.core.runtime.concurrent.GamaExecutorService.EXCEPTION_HANDLER;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Class PhasedSimulationRunner. A runner for experiments hosting many small simulations (facet 'phased' of
+ * experiments), in which submitting one task per simulation and per cycle to an executor, and waiting for all of them,
+ * costs more than stepping the simulations.
+ *
+ * The simulations are stepped by long-lived worker threads (at most the number of threads allowed, the thread calling
+ * {@link #step()} being one of them), which wait between two cycles on a {@link Phaser}. During a cycle, each of them
+ * takes the next simulation not yet stepped, so that no task is created and the work is balanced between the threads.
+ *
+ * @since 2026
+ *
+ */
+public class PhasedSimulationRunner extends SimulationRunner {
+
+	/** The barrier of the cycles: the threads arrive on it at the beginning and at the end of each cycle. */
+	private final Phaser phaser = new Phaser(1);
+
+	/** The number of workers, in addition to the thread calling step(). */
+	private int workers;
+
+	/** The maximal number of threads stepping the simulations. */
+	private final int threads;
+
+	/** The simulations of the current cycle. */
+	private volatile Callable<Boolean>[] current;
+
+	/** The index of the next simulation to step. */
+	private final AtomicInteger next = new AtomicInteger();
+
+	/**
+	 * Instantiates a new phased simulation runner.
+	 *
+	 * @param concurrency
+	 *            the concurrency (0 to step the simulations in the calling thread only)
+	 */
+	PhasedSimulationRunner(final int concurrency) {
+		super(concurrency);
+		threads = concurrency == 0 ? 1 : GamaExecutorService.THREADS_NUMBER.getValue();
+	}
+
+	@SuppressWarnings ("unchecked")
+	@Override
+	public void step() {
+		final Callable<Boolean>[] simulations = runnables.values().toArray(new Callable[0]);
+		if (simulations.length == 0 || phaser.isTerminated()) return;
+		current = simulations;
+		next.set(0);
+		addWorkers(Math.min(threads, simulations.length) - 1);
+		if (phaser.arriveAndAwaitAdvance() < 0) return;
+		stepSimulations();
+		phaser.arriveAndAwaitAdvance();
+	}
+
+	/**
+	 * Adds workers until there are as many as required. Called before the beginning of a cycle, when the existing
+	 * workers wait for it: the new ones start by waiting for it too.
+	 *
+	 * @param required
+	 *            the number of workers required
+	 */
+	private void addWorkers(final int required) {
+		while (workers < required) {
+			phaser.register();
+			final Thread worker = new Thread(this::work, "Simulation runner " + ++workers);
+			worker.setDaemon(true);
+			worker.start();
+		}
+	}
+
+	/**
+	 * The loop of the workers, until the runner is disposed.
+	 */
+	private void work() {
+		while (phaser.arriveAndAwaitAdvance() >= 0) {
+			stepSimulations();
+			if (phaser.arriveAndAwaitAdvance() < 0) return;
+		}
+	}
+
+	/**
+	 * Steps the simulations of the current cycle not yet taken by another thread.
+	 */
+	private void stepSimulations() {
+		final Callable<Boolean>[] simulations = current;
+		for (int i = next.getAndIncrement(); i < simulations.length; i = next.getAndIncrement()) {
+			try {
+				simulations[i].call();
+			} catch (final Throwable t) {
+				EXCEPTION_HANDLER.uncaughtException(Thread.currentThread(), t);
+			}
+		}
+	}
+
+	@Override
+	protected int computeNumberOfThreads() {
+		return Math.min(Math.max(concurrency, 1), threads);
+	}
+
+	@Override
+	public void dispose() {
+		runnables.clear();
+		phaser.forceTermination();
+	}
+
+}
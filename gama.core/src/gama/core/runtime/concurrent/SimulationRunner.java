@@ -63,6 +63,7 @@ public class SimulationRunner {
 		} else {
 			concurrency = getParallelism(pop.getHost().getScope(), plan.getConcurrency(), Caller.SIMULATION);
 		}
+		if (plan.isPhased()) return new PhasedSimulationRunner(concurrency < 0 ? 1 : concurrency);
 		return withConcurrency(concurrency);
 	}
 
@@ -81,7 +82,7 @@ public class SimulationRunner {
 	 *
 	 * @param concurrency the concurrency
 	 */
-	private SimulationRunner(final int concurrency) {
+	SimulationRunner(final int concurrency) {
 		this.concurrency = concurrency;
 		runnables = new LinkedHashMap<>();
 	}
@@ -134,7 +135,7 @@ public class SimulationRunner {
 	 *
 	 * @return the int
 	 */
-	private int computeNumberOfThreads() {
+	protected int computeNumberOfThreads() {
 		final ExecutorService executor = getExecutor();
 		if (executor instanceof ThreadPoolExecutor)
 			return Math.min(concurrency, ((ThreadPoolExecutor) executor).getActiveCount());
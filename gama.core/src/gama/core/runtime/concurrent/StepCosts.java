@@ -0,0 +1,221 @@
+/*******************************************************************************************************
+ *
+ * StepCosts.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.runtime.concurrent;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gama.core.metamodel.agent.IAgent;
+import gama.core.metamodel.shape.IShape;
+
+/**
+ * The Class StepCosts. The estimated durations of the steps of the agents of a species, used to divide the agents
+ * scheduled in parallel by cost rather than by number (see {@link GamaExecutorService#CONCURRENCY_ADAPTIVE}). The
+ * species whose facet 'parallel' sets the threshold explicitly keep being divided by number.
+ *
+ * One parallel step out of {@link #SAMPLING} is measured: the duration of the step of each agent is recorded (see
+ * {@link Sample}) and averaged with its previous estimate. The other steps reuse the estimates, so that the cost of the
+ * measures (two calls to {@link System#nanoTime()} per agent) is amortized. The agents without estimate (e.g. the ones
+ * created since the last measure) are given the mean duration of the species. The agents are then divided in parts of
+ * similar costs, each costing at least {@link #MIN_TASK_COST} (below which forking a task costs more than it saves),
+ * and numerous enough ({@link #TASKS_PER_THREAD} per thread) to let idle threads steal the remaining work.
+ *
+ * @since 2026
+ *
+ */
+public final class StepCosts {
+
+	/** One parallel step out of SAMPLING is measured. */
+	static final int SAMPLING = 8;
+
+	/** The minimal cost of a task, in nanoseconds. */
+	static final double MIN_TASK_COST = 50_000d;
+
+	/** The number of tasks created for each thread. */
+	static final int TASKS_PER_THREAD = 4;
+
+	/** The number of parallel steps. */
+	private final AtomicInteger steps = new AtomicInteger();
+
+	/** The estimates of the last measure, or null if the species has never been measured. */
+	private volatile Estimates estimates;
+
+	/**
+	 * The mean duration of the step of an agent, measured during the last parallel steps
+	 *
+	 * @return the duration in milliseconds, or 0 if the agents of the species have never been stepped in parallel
+	 */
+	public double getMeanDuration() {
+		final Estimates e = estimates;
+		return e == null ? 0d : e.mean / 1_000_000d;
+	}
+
+	/**
+	 * Returns a sample in which the durations of the step of the agents are to be recorded, if this step is to be
+	 * measured
+	 *
+	 * @param size
+	 *            the number of agents
+	 * @return the sample or null
+	 */
+	Sample sample(final int size) {
+		return steps.getAndIncrement() % SAMPLING == 0 ? new Sample(size) : null;
+	}
+
+	/**
+	 * Divides the agents according to their estimated costs or, if they have never been measured, according to their
+	 * number
+	 *
+	 * @param array
+	 *            the agents
+	 * @param threshold
+	 *            the number of agents under which a task is not divided, used when there is no estimate
+	 * @return the spliterator
+	 */
+	Spliterator<IAgent> split(final IShape[] array, final int threshold) {
+		final Estimates e = estimates;
+		if (e == null) return AgentSpliterator.of(array, threshold);
+		final double[] prefix = new double[array.length + 1];
+		for (int i = 0; i < array.length; i++) {
+			prefix[i + 1] = prefix[i] + e.get(((IAgent) array[i]).getIndex());
+		}
+		final double tasks = (double) GamaExecutorService.THREADS_NUMBER.getValue() * TASKS_PER_THREAD;
+		return AgentSpliterator.of(array, prefix, Math.max(MIN_TASK_COST, prefix[array.length] / tasks));
+	}
+
+	/**
+	 * Updates the estimates with the durations recorded in the sample. Each estimate is the mean of its previous value
+	 * and of the new measure; the agents that have not been stepped (dead ones, or the ones following a failure) keep
+	 * no estimate.
+	 *
+	 * @param array
+	 *            the agents
+	 * @param sample
+	 *            the sample
+	 */
+	synchronized void update(final IShape[] array, final Sample sample) {
+		final Estimates previous = estimates;
+		final Estimates next = new Estimates(array.length);
+		double sum = 0d;
+		int count = 0;
+		for (int i = 0; i < array.length; i++) {
+			final float measure = sample.durations[i];
+			if (measure < 0) { continue; }
+			final int index = ((IAgent) array[i]).getIndex();
+			final float last = previous == null ? -1 : previous.find(index);
+			next.put(index, last < 0 ? measure : (measure + last) / 2);
+			sum += measure;
+			count++;
+		}
+		if (count == 0) return;
+		next.mean = previous == null ? sum / count : (sum / count + previous.mean) / 2;
+		estimates = next;
+	}
+
+	/**
+	 * The durations of the step of the agents, in nanoseconds, by position in the array of agents (-1 for the agents
+	 * that have not been stepped). Each task writes the positions of its own agents.
+	 */
+	static final class Sample {
+
+		/** The durations. */
+		final float[] durations;
+
+		/**
+		 * Instantiates a new sample.
+		 *
+		 * @param size
+		 *            the number of agents
+		 */
+		Sample(final int size) {
+			durations = new float[size];
+			Arrays.fill(durations, -1f);
+		}
+
+		/**
+		 * Records the duration of the step of an agent.
+		 *
+		 * @param position
+		 *            the position of the agent
+		 * @param nanos
+		 *            the duration
+		 */
+		void record(final int position, final long nanos) {
+			durations[position] = nanos;
+		}
+	}
+
+	/**
+	 * The estimated durations, as an open addressing table indexed by the index of the agents (which can be shared by
+	 * agents of different hosts: they then share their estimate, which only affects the division of the tasks)
+	 */
+	private static final class Estimates {
+
+		/** The indices of the agents (-1 for empty slots). */
+		final int[] keys;
+
+		/** The estimated durations. */
+		final float[] values;
+
+		/** The mean duration. */
+		double mean;
+
+		/**
+		 * Instantiates new estimates.
+		 *
+		 * @param size
+		 *            the expected number of agents
+		 */
+		Estimates(final int size) {
+			final int capacity = Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+			keys = new int[capacity];
+			values = new float[capacity];
+			Arrays.fill(keys, -1);
+		}
+
+		/**
+		 * The slot of the index: either the one holding it or the empty one where it would be inserted
+		 */
+		private int slot(final int index) {
+			final int mask = keys.length - 1;
+			int slot = index * 0x9E3779B9 >>> 1 & mask;
+			while (keys[slot] != -1 && keys[slot] != index) { slot = slot + 1 & mask; }
+			return slot;
+		}
+
+		/**
+		 * Puts the estimate of an agent.
+		 */
+		void put(final int index, final float value) {
+			final int slot = slot(index);
+			keys[slot] = index;
+			values[slot] = value;
+		}
+
+		/**
+		 * The estimate of an agent, or -1 if it is not known.
+		 */
+		float find(final int index) {
+			final int slot = slot(index);
+			return keys[slot] == -1 ? -1 : values[slot];
+		}
+
+		/**
+		 * The estimate of an agent, or the mean if it is not known.
+		 */
+		double get(final int index) {
+			final float value = find(index);
+			return value < 0 ? mean : value;
+		}
+	}
+
+}
@@ -12,16 +12,17 @@ package gama.core.util.graph;
 import static gama.core.runtime.concurrent.GamaExecutorService.THREADS_NUMBER;
 import static java.util.concurrent.Executors.newFixedThreadPool;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.function.Supplier;
 
@@ -65,6 +66,7 @@ import gama.core.metamodel.topology.graph.AStar;
 import gama.core.metamodel.topology.graph.FloydWarshallShortestPathsGAMA;
 import gama.core.metamodel.topology.graph.NBAStarPathfinder;
 import gama.core.metamodel.topology.graph.GamaSpatialGraph.VertexRelationship;
+import gama.core.runtime.GAMA;
 import gama.core.runtime.IScope;
 import gama.core.runtime.exceptions.GamaRuntimeException;
 import gama.core.util.Collector;
@@ -131,7 +133,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	protected final IContainerType type;
 
 	/** The shortest path computed. */
-	protected Map<Pair<V, V>, IList<IList<E>>> shortestPathComputed = null;
+	protected ShortestPathCache<V, E> shortestPathComputed = null;
 
 	/** The vertex relation. */
 	protected VertexRelationship vertexRelation;
@@ -139,6 +141,9 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	/** The shortest path matrix. */
 	protected GamaIntMatrix shortestPathMatrix = null;
 
+	/** The shortest path matrix mapped from a file, used instead of the one above when not null. */
+	protected MappedShortestPathMatrix mappedShortestPathMatrix = null;
+
 	/** The default node weight. */
 	protected static double DEFAULT_NODE_WEIGHT = 0.0;
 
@@ -175,7 +180,10 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 		BidirectionalDijkstra,
 
 		/** The Transit node routing. */
-		TransitNodeRouting;
+		TransitNodeRouting,
+
+		/** The contraction hierarchies (preprocessed once, for static graphs). */
+		ContractionHierarchies;
 	}
 
 	/**
@@ -253,7 +261,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 		version = 1;
 		agentEdge = false;
 		this.graphScope = scope;
-		shortestPathComputed = new ConcurrentHashMap<>();
+		shortestPathComputed = new ShortestPathCache<>(ShortestPathCache.DEFAULT_BUDGET);
 		type = Types.GRAPH.of(nodeType, vertexType);
 	}
 
@@ -282,7 +290,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 			final IType edgeType) {
 		vertexMap = GamaMapFactory.create();
 		edgeMap = GamaMapFactory.create();
-		shortestPathComputed = new ConcurrentHashMap<>();
+		shortestPathComputed = new ShortestPathCache<>(ShortestPathCache.DEFAULT_BUDGET);
 		this.graphScope = scope;
 		// WARNING TODO Verify this
 		// IType nodeType = byEdge ? Types.NO_TYPE :
@@ -307,7 +315,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	public GamaGraph(final IScope scope, final IType nodeType, final IType edgeType) {
 		vertexMap = GamaMapFactory.create();
 		edgeMap = GamaMapFactory.create();
-		shortestPathComputed = new ConcurrentHashMap<>();
+		shortestPathComputed = new ShortestPathCache<>(ShortestPathCache.DEFAULT_BUDGET);
 		this.graphScope = scope;
 		type = Types.GRAPH.of(nodeType, edgeType);
 	}
@@ -871,6 +879,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 		}
 		// if ( edge == null ) { return false; }
 		edgeMap.put((E) e, edge);
+		invalidateShortestPaths();
 		dispatchEvent(graphScope, new GraphEvent(graphScope, this, this, e, null, GraphEventType.EDGE_ADDED));
 		return true;
 
@@ -1200,7 +1209,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	@Override
 	public IList<E> computeBestRouteBetween(final IScope scope, final V source, final V target) {
 		if (source.equals(target)) return GamaListFactory.create(getGamlType().getContentType());
-		if (shortestPathMatrix != null) {
+		if (hasShortestPathMatrix()) {
 			final IList<E> edges = getShortestPathFromMatrix(source, target);
 			if (saveComputedShortestPaths) { saveShortestPaths(edges, source, target); }
 			return edges;
@@ -1211,46 +1220,118 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 			if (path == null) return GamaListFactory.create(getGamlType().getContentType());
 			return GamaListFactory.create(scope, getGamlType().getContentType(), path.getEdgeList());
 		}
-		IList<IList<E>> sp = null;
-		if (saveComputedShortestPaths) { sp = shortestPathComputed.get(new Pair<>(source, target)); }
+		List<E> sp = null;
+		if (saveComputedShortestPaths) { sp = shortestPathComputed.get(source, target); }
 		IList<E> spl = null;
-		if (sp == null || sp.isEmpty() || sp.get(0).isEmpty()) {
-			if (pathFindingAlgo == shortestPathAlgorithm.NBAStar) {
-				final NBAStarPathfinder<V, E> p = new NBAStarPathfinder<>(this, false);
-				spl = p.search(source, target);
-			} else if (pathFindingAlgo == shortestPathAlgorithm.NBAStarApprox) {
-				final NBAStarPathfinder<V, E> p = new NBAStarPathfinder<>(this, true);
-				spl = p.search(source, target);
-			} else if (pathFindingAlgo == shortestPathAlgorithm.AStar) {
-				final AStar<V, E> astarAlgo = new AStar(this, source, target);
-				spl = astarAlgo.compute();
-			} else if (pathFindingAlgo == shortestPathAlgorithm.Dijkstra) {
-				spl = getShortestPath(scope, new DijkstraShortestPath<>(this), source, target);
-			} else if (pathFindingAlgo == shortestPathAlgorithm.BellmannFord) {
-				spl = getShortestPath(scope, new BellmanFordShortestPath<>(this), source, target);
-			} else if (pathFindingAlgo == shortestPathAlgorithm.DeltaStepping) {
-				ThreadPoolExecutor executor = (ThreadPoolExecutor) newFixedThreadPool(THREADS_NUMBER.getValue());
-				spl = getShortestPath(scope, new DeltaSteppingShortestPath<>(this, executor), source, target);
-			} else if (pathFindingAlgo == shortestPathAlgorithm.TransitNodeRouting) {
-				if (transitNodeRouting == null) {
-					ThreadPoolExecutor executor = (ThreadPoolExecutor) newFixedThreadPool(THREADS_NUMBER.getValue());
-					transitNodeRouting = new TransitNodeRoutingShortestPath<>(this, executor);
-				}
-				spl = getShortestPath(scope, transitNodeRouting, source, target);
-			} else if (pathFindingAlgo == shortestPathAlgorithm.CHBidirectionalDijkstra) {
-				if (contractionHierarchyBD == null) {
-					ThreadPoolExecutor executor = (ThreadPoolExecutor) newFixedThreadPool(THREADS_NUMBER.getValue());
-					contractionHierarchyBD = new ContractionHierarchyBidirectionalDijkstra<>(this, executor);
-				}
-				spl = getShortestPath(scope, contractionHierarchyBD, source, target);
-			} else if (pathFindingAlgo == shortestPathAlgorithm.BidirectionalDijkstra) {
-				spl = getShortestPath(scope, new BidirectionalDijkstraShortestPath<>(this), source, target);
-			}
-
+		if (sp == null || sp.isEmpty()) {
+			spl = computeShortestPath(scope, source, target);
 			if (saveComputedShortestPaths) { saveShortestPaths(spl, source, target); }
-
 		} else {
-			spl = GamaListFactory.create(scope, getGamlType().getContentType(), sp.get(0));
+			spl = GamaListFactory.create(scope, getGamlType().getContentType(), sp);
+		}
+		return spl;
+	}
+
+	@Override
+	public IList<IPath<V, E, IGraph<V, E>>> computeShortestPathsBetween(final IScope scope, final List<V> sources,
+			final List<V> targets) {
+		final IList<IList<E>> routes = computeBestRoutesBetween(scope, sources, targets);
+		final IList<IPath<V, E, IGraph<V, E>>> result = GamaListFactory.create(Types.PATH);
+		for (int i = 0; i < routes.size(); i++) {
+			result.add(pathFromEdges(scope, sources.get(i), targets.get(i), routes.get(i)));
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the best routes between pairs of vertices in one batch, grouping the pairs by source (and storing the
+	 * routes in the cache of the graph, if it is used).
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param sources
+	 *            the sources of the pairs
+	 * @param targets
+	 *            the targets of the pairs, in the same order
+	 * @return the routes, in the order of the pairs
+	 */
+	public IList<IList<E>> computeBestRoutesBetween(final IScope scope, final List<V> sources, final List<V> targets) {
+		final Map<V, List<Integer>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < sources.size(); i++) {
+			groups.computeIfAbsent(sources.get(i), k -> new ArrayList<>()).add(i);
+		}
+		final IList<E>[] routes = new IList[sources.size()];
+		computeBestRoutesFrom(scope, groups, targets, routes);
+		final IList<IList<E>> result = GamaListFactory.create(Types.LIST.of(getGamlType().getContentType()));
+		Collections.addAll(result, routes);
+		return result;
+	}
+
+	/**
+	 * Computes the shortest paths from the sources of a batch to their targets. By default, the paths are computed one
+	 * by one, like with {@link #computeBestRouteBetween(IScope, Object, Object)}.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param groups
+	 *            the indices of the pairs of the batch, by source
+	 * @param targets
+	 *            the targets of the pairs
+	 * @param routes
+	 *            the edges of the paths, filled by index of pair
+	 */
+	protected void computeBestRoutesFrom(final IScope scope, final Map<V, List<Integer>> groups,
+			final List<V> targets, final IList<E>[] routes) {
+		groups.forEach((source, indices) -> {
+			for (final int i : indices) { routes[i] = computeBestRouteBetween(scope, source, targets.get(i)); }
+		});
+	}
+
+	/**
+	 * Computes the shortest path between two vertices with the algorithm chosen for this graph, without using the
+	 * cache.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return the edges of the path
+	 */
+	protected IList<E> computeShortestPath(final IScope scope, final V source, final V target) {
+		IList<E> spl = null;
+		if (pathFindingAlgo == shortestPathAlgorithm.NBAStar) {
+			final NBAStarPathfinder<V, E> p = new NBAStarPathfinder<>(this, false);
+			spl = p.search(source, target);
+		} else if (pathFindingAlgo == shortestPathAlgorithm.NBAStarApprox) {
+			final NBAStarPathfinder<V, E> p = new NBAStarPathfinder<>(this, true);
+			spl = p.search(source, target);
+		} else if (pathFindingAlgo == shortestPathAlgorithm.AStar) {
+			final AStar<V, E> astarAlgo = new AStar(this, source, target);
+			spl = astarAlgo.compute();
+		} else if (pathFindingAlgo == shortestPathAlgorithm.Dijkstra) {
+			spl = getShortestPath(scope, new DijkstraShortestPath<>(this), source, target);
+		} else if (pathFindingAlgo == shortestPathAlgorithm.BellmannFord) {
+			spl = getShortestPath(scope, new BellmanFordShortestPath<>(this), source, target);
+		} else if (pathFindingAlgo == shortestPathAlgorithm.DeltaStepping) {
+			ThreadPoolExecutor executor = (ThreadPoolExecutor) newFixedThreadPool(THREADS_NUMBER.getValue());
+			spl = getShortestPath(scope, new DeltaSteppingShortestPath<>(this, executor), source, target);
+		} else if (pathFindingAlgo == shortestPathAlgorithm.TransitNodeRouting) {
+			if (transitNodeRouting == null) {
+				ThreadPoolExecutor executor = (ThreadPoolExecutor) newFixedThreadPool(THREADS_NUMBER.getValue());
+				transitNodeRouting = new TransitNodeRoutingShortestPath<>(this, executor);
+			}
+			spl = getShortestPath(scope, transitNodeRouting, source, target);
+		} else if (pathFindingAlgo == shortestPathAlgorithm.CHBidirectionalDijkstra
+				|| pathFindingAlgo == shortestPathAlgorithm.ContractionHierarchies) {
+			if (contractionHierarchyBD == null) {
+				ThreadPoolExecutor executor = (ThreadPoolExecutor) newFixedThreadPool(THREADS_NUMBER.getValue());
+				contractionHierarchyBD = new ContractionHierarchyBidirectionalDijkstra<>(this, executor);
+			}
+			spl = getShortestPath(scope, contractionHierarchyBD, source, target);
+		} else if (pathFindingAlgo == shortestPathAlgorithm.BidirectionalDijkstra) {
+			spl = getShortestPath(scope, new BidirectionalDijkstraShortestPath<>(this), source, target);
 		}
 		return spl;
 	}
@@ -1265,27 +1346,18 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	 * @param target
 	 *            the target
 	 */
-	private void saveShortestPaths(final List<E> edges, final V source, final V target) {
+	protected void saveShortestPaths(final List<E> edges, final V source, final V target) {
+		if (edges == null) return;
 		V s = source;
-		final IList<IList<E>> spl = GamaListFactory.create(Types.LIST.of(getGamlType().getContentType()));
-		spl.add(GamaListFactory.createWithoutCasting(getGamlType().getContentType(), edges));
-		shortestPathComputed.put(new Pair<>(source, target), spl);
-		final List<E> edges2 = GamaListFactory.create(graphScope, getGamlType().getContentType(), edges);
-		for (int i = 0; i < edges.size(); i++) {
-			final E edge = edges2.remove(0);
-			if (edges2.isEmpty()) { break; }
-			// DEBUG.LOG("s : " + s + " j : " + j + " i: " + i);
+		final List<V> intermediates = new ArrayList<>(Math.max(0, edges.size() - 1));
+		for (int i = 0; i < edges.size() - 1; i++) {
+			final E edge = edges.get(i);
 			V nwS = (V) this.getEdgeTarget(edge);
 			if (!directed && nwS.equals(s)) { nwS = (V) this.getEdgeSource(edge); }
-			final Pair<V, V> pp = new Pair<>(nwS, target);
-			if (!shortestPathComputed.containsKey(pp)) {
-				final IList<IList<E>> spl2 = GamaListFactory.create(getGamlType().getContentType());
-				spl2.add(GamaListFactory.createWithoutCasting(getGamlType().getContentType(), edges2));
-				shortestPathComputed.put(pp, spl2);
-			}
+			intermediates.add(nwS);
 			s = nwS;
-
 		}
+		shortestPathComputed.put(source, target, edges, intermediates);
 	}
 
 	@Override
@@ -1329,7 +1401,6 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 				useLinkedGraph ? target.toString() : target, k);
 
 		if (pathsJGT == null) return GamaListFactory.create(getGamlType().getContentType());
-		final IList<IList<E>> el = GamaListFactory.create(Types.LIST.of(getGamlType().getContentType()));
 		final IList<IList<E>> paths = GamaListFactory.create(Types.LIST.of(getGamlType().getContentType()));
 
 		for (final GraphPath p : pathsJGT) {
@@ -1340,19 +1411,17 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 				path.addAll(p.getEdgeList());
 			}
 			paths.add(path);
-			if (saveComputedShortestPaths) { el.add(path); }
 		}
-		if (saveComputedShortestPaths) { shortestPathComputed.put(new Pair<>(source, target), el); }
+		if (saveComputedShortestPaths) { shortestPathComputed.putAll(source, target, paths); }
 		return paths;
 	}
 
 	@Override
 	public IList<IList<E>> computeKBestRoutesBetween(final IScope scope, final V source, final V target, final int k) {
-		final Pair<V, V> pp = new Pair<>(source, target);
-		final IList<IList<E>> sps = shortestPathComputed.get(pp);
+		final List<List<E>> sps = saveComputedShortestPaths ? shortestPathComputed.getAll(source, target) : null;
 		if (sps != null && sps.size() >= k) {
 			IList<IList<E>> paths = GamaListFactory.create(Types.LIST.of(getGamlType().getContentType()));
-			for (final IList<E> sp : sps) {
+			for (final List<E> sp : sps) {
 				paths.add(GamaListFactory.create(scope, getGamlType().getContentType(), sp));
 			}
 			return paths;
@@ -1543,6 +1612,19 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	@Override
 	public void setDirected(final boolean b) { directed = b; }
 
+	/**
+	 * Creates an empty graph with the same class, orientation, vertex relationship, edge species and types as this one.
+	 * Used to copy graphs while replacing their vertices and edges (see SimulationSnapshot).
+	 *
+	 * @param scope
+	 *            the scope of the new graph
+	 * @return the empty graph
+	 */
+	public GamaGraph<V, E> emptyCopy(final IScope scope) {
+		return new GamaGraph<>(scope, GamaListFactory.EMPTY_LIST, true, directed, false, vertexRelation, edgeSpecies,
+				type.getKeyType(), type.getContentType());
+	}
+
 	@Override
 	public IGraph copy(final IScope scope) {
 		final GamaGraph g = new GamaGraph(scope, GamaListFactory.EMPTY_LIST, true, directed, false, vertexRelation,
@@ -1617,19 +1699,39 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	@Override
 	public void setVersion(final int version) {
 		this.version = version;
-		shortestPathComputed.clear();
+		invalidateShortestPaths();
 	}
 
 	@Override
 	public void incVersion() {
 		version++;
-		shortestPathComputed.clear();
+		invalidateShortestPaths();
 		contractionHierarchyBD = null;
 		transitNodeRouting = null;
 		linkedJGraph = null;
 		fromLinkedGtoEdges = null;
 	}
 
+	/**
+	 * Invalidates the shortest paths computed so far, when the edges or their weights are modified.
+	 */
+	protected void invalidateShortestPaths() {
+		shortestPathComputed.invalidate();
+		setMappedShortestPathMatrix(null);
+	}
+
+	/**
+	 * Sets the mapped shortest paths matrix, releasing the previous one.
+	 *
+	 * @param matrix
+	 *            the matrix, or null
+	 */
+	private void setMappedShortestPathMatrix(final MappedShortestPathMatrix matrix) {
+		final MappedShortestPathMatrix previous = mappedShortestPathMatrix;
+		mappedShortestPathMatrix = matrix;
+		if (previous != null) { previous.release(); }
+	}
+
 	@Override
 	public java.lang.Iterable<E> iterable(final IScope scope) {
 		return listValue(scope, Types.NO_TYPE, false);
@@ -1671,6 +1773,13 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	@Override
 	public void setSaveComputedShortestPaths(final boolean saveComputedShortestPaths) {
 		this.saveComputedShortestPaths = saveComputedShortestPaths;
+		if (!saveComputedShortestPaths) { shortestPathComputed.invalidate(); }
+	}
+
+	@Override
+	public void setShortestPathsCacheBudget(final int budget) {
+		shortestPathComputed = new ShortestPathCache<>(Math.max(budget, 0));
+		saveComputedShortestPaths = budget > 0;
 	}
 
 	@Override
@@ -1691,7 +1800,51 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	 */
 	public void loadShortestPaths(final IScope scope, final GamaMatrix matrix) {
 		shortestPathMatrix = GamaIntMatrix.from(scope, matrix);
+		setMappedShortestPathMatrix(null);
+	}
+
+	/**
+	 * Maps the shortest paths matrix saved in a file, computing it (in parallel) and saving it to the file first if the
+	 * file does not exist or has been saved for another graph. The matrix is not loaded on the heap, and is shared with
+	 * the other graphs using the same file. It is discarded if the graph is modified. If the file is used by other
+	 * graphs for which it has been saved, it is not replaced: the matrix of this graph is kept in a temporary file.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param path
+	 *            the absolute path of the file
+	 */
+	public void loadShortestPaths(final IScope scope, final String path) {
+		try {
+			final MappedShortestPathMatrix matrix = MappedShortestPathMatrix.open(this, path);
+			setMappedShortestPathMatrix(matrix);
+			shortestPathMatrix = null;
+			if (!matrix.isSaved()) {
+				GAMA.reportError(scope, GamaRuntimeException.warning("The shortest paths could not be saved in " + path
+						+ ", which is used by other graphs: they are kept in a temporary file", scope), false);
+			}
+		} catch (final IOException e) {
+			throw GamaRuntimeException.error("Impossible to map the shortest paths in " + path + ": " + e.getMessage(),
+					scope);
+		}
+	}
 
+	/**
+	 * Whether the shortest paths are read from a matrix (loaded or mapped).
+	 *
+	 * @return true, if the graph has a shortest path matrix
+	 */
+	protected boolean hasShortestPathMatrix() {
+		return shortestPathMatrix != null || mappedShortestPathMatrix != null;
+	}
+
+	/**
+	 * Returns the index of the vertex following a source in the shortest path towards a target, in the matrix.
+	 */
+	private int nextInShortestPath(final int source, final int target) {
+		final MappedShortestPathMatrix mapped = mappedShortestPathMatrix;
+		if (mapped != null) return mapped.next(source, target);
+		return shortestPathMatrix.get(graphScope, target, source);
 	}
 
 	/**
@@ -1710,7 +1863,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 		final int indexS = vertices.indexOf(vs);
 		final int indexT = vertices.indexOf(t);
 		int previous = indexS;
-		Integer next = shortestPathMatrix.get(graphScope, indexT, previous);
+		int next = nextInShortestPath(previous, indexT);
 		if (previous == next) return edges;
 		do {
 			if (next == -1) return GamaListFactory.create(getGamlType().getContentType());
@@ -1722,7 +1875,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 			if (edge == null) return GamaListFactory.create(getGamlType().getContentType());
 			edges.add(edge);
 			previous = next;
-			next = shortestPathMatrix.get(graphScope, indexT, next);
+			next = nextInShortestPath(next, indexT);
 			vs = vn;
 		} while (previous != indexT);
 		return edges;
@@ -1839,12 +1992,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 				next = M[next];
 				vc = vn;
 			} while (previous != i);
-			final Pair vv = new Pair(v1, vt);
-			if (!shortestPathComputed.containsKey(vv)) {
-				final IList<IList<E>> ssp = GamaListFactory.create(Types.LIST.of(getGamlType().getContentType()));
-				ssp.add(edges);
-				shortestPathComputed.put(vv, ssp);
-			}
+			if (!shortestPathComputed.contains((V) v1, vt)) { shortestPathComputed.put((V) v1, vt, edges, null); }
 			if (j == t) { edgesVertices = edges; }
 		}
 		return edgesVertices;
@@ -1947,7 +2095,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	 *
 	 * @return the shortest path computed
 	 */
-	public Map<Pair<V, V>, IList<IList<E>>> getShortestPathComputed() { return shortestPathComputed; }
+	public ShortestPathCache<V, E> getShortestPathComputed() { return shortestPathComputed; }
 
 	/**
 	 * Gets the shortest path.
@@ -1959,10 +2107,9 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	 * @return the shortest path
 	 */
 	public IList<E> getShortestPath(final V s, final V t) {
-		final Pair<V, V> vp = new Pair<>(s, t);
-		final IList<IList<E>> ppc = shortestPathComputed.get(vp);
-		if (ppc == null || ppc.isEmpty()) return null;
-		return ppc.get(0);
+		final List<E> ppc = shortestPathComputed.get(s, t);
+		if (ppc == null) return null;
+		return GamaListFactory.createWithoutCasting(getGamlType().getContentType(), ppc);
 	}
 
 	/**
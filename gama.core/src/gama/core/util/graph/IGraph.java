@@ -286,6 +286,21 @@ public interface IGraph<Node, Edge>
 	 */
 	IList<Edge> computeBestRouteBetween(IScope scope, final Node source, final Node target);
 
+	/**
+	 * Computes the shortest paths between pairs of vertices in one batch, grouping the pairs by source (and storing
+	 * the routes in the cache of the graph, if it is used).
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param sources
+	 *            the sources of the pairs
+	 * @param targets
+	 *            the targets of the pairs, in the same order
+	 * @return the paths, in the order of the pairs
+	 */
+	IList<IPath<Node, Edge, IGraph<Node, Edge>>> computeShortestPathsBetween(IScope scope, final List<Node> sources,
+			final List<Node> targets);
+
 	/**
 	 * Compute weight.
 	 *
@@ -317,6 +332,14 @@ public interface IGraph<Node, Edge>
 	 */
 	void setSaveComputedShortestPaths(boolean saveComputedShortestPaths);
 
+	/**
+	 * Sets the budget of the cache of the shortest paths, and empties it.
+	 *
+	 * @param budget
+	 *            the maximal number of edges stored in the cache (each path counting for a few more), 0 to disable it
+	 */
+	void setShortestPathsCacheBudget(int budget);
+
 	/**
 	 * Compute K shortest paths between.
 	 *
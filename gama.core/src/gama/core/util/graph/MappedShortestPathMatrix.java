@@ -0,0 +1,399 @@
+/*******************************************************************************************************
+ *
+ * MappedShortestPathMatrix.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.util.graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import gama.core.runtime.concurrent.GamaExecutorService;
+
+/**
+ * The Class MappedShortestPathMatrix. The successor matrix of the shortest paths between all the pairs of vertices of
+ * a graph (the cell (i,j) contains the index of the vertex following i in the shortest path from i to j, or i itself
+ * if j is not reachable), stored row by row in a file and memory-mapped, so that it is never materialized on the heap:
+ * the operating system loads its pages on demand and shares them between the simulations using the same file. The
+ * cells are stored as unsigned shorts when the graph has at most 65536 vertices, as ints otherwise.
+ *
+ * The matrix is computed in parallel by blocks of rows, each row with a single Dijkstra search from its vertex. The
+ * vertices are indexed in the order of {@link GamaGraph#getVertices()}, like the matrices of
+ * {@link GamaGraph#saveShortestPaths(gama.core.runtime.IScope)}. A fingerprint of the graph is stored with the matrix,
+ * which is computed again if the file has been written for another graph. The matrices opened are shared by path, so
+ * that the replicates of a batch map the file only once, and forgotten when the last graph using them releases them
+ * (or is collected). A file still used by other graphs is never replaced: the matrix of a different graph is then
+ * mapped from a temporary file, private to its graph.
+ *
+ * @since 2026
+ *
+ */
+public final class MappedShortestPathMatrix {
+
+	/** The first bytes of the files (and the version of their format). */
+	private static final long MAGIC = 0x47414D414E480001L;
+
+	/** The size of the header: magic, fingerprint, number of vertices and size of the cells. */
+	private static final int HEADER = 24;
+
+	/** The number of rows computed by a task. */
+	private static final int BLOCK = 64;
+
+	/** The matrices opened and used by graphs, by absolute path. */
+	private static final Map<String, WeakReference<MappedShortestPathMatrix>> OPENED = new ConcurrentHashMap<>();
+
+	/** The locks of the files, by absolute path. */
+	private static final Map<String, Object> LOCKS = new ConcurrentHashMap<>();
+
+	/** The number of vertices. */
+	private final int n;
+
+	/** The size of a cell, in bytes (2 or 4). */
+	private final int cell;
+
+	/** The number of rows of a chunk. */
+	private final int rowsPerChunk;
+
+	/** The chunks of rows mapped (each smaller than 2GB). */
+	private final MappedByteBuffer[] chunks;
+
+	/** The fingerprint of the graph. */
+	private final long fingerprint;
+
+	/** Whether the matrix is mapped from the file it has been loaded from or saved to (or from a temporary file). */
+	private boolean saved;
+
+	/** The absolute path under which the matrix is shared, or null if it is private to its graph. */
+	private String key;
+
+	/** The number of graphs using the matrix, if it is shared (guarded by the lock of its file). */
+	private int users;
+
+	/**
+	 * Instantiates a new matrix, mapping the rows of the file.
+	 *
+	 * @param channel
+	 *            the channel of the file
+	 * @param mode
+	 *            the mode of the mapping
+	 * @param n
+	 *            the number of vertices
+	 * @param fingerprint
+	 *            the fingerprint of the graph
+	 */
+	private MappedShortestPathMatrix(final FileChannel channel, final MapMode mode, final int n,
+			final long fingerprint) throws IOException {
+		this.n = n;
+		this.fingerprint = fingerprint;
+		cell = n <= 1 << 16 ? Short.BYTES : Integer.BYTES;
+		final long row = (long) n * cell;
+		rowsPerChunk = (int) Math.max(1, Math.min(n, Integer.MAX_VALUE / Math.max(1, row)));
+		chunks = new MappedByteBuffer[n == 0 ? 0 : (n - 1) / rowsPerChunk + 1];
+		for (int c = 0; c < chunks.length; c++) {
+			final int rows = Math.min(rowsPerChunk, n - c * rowsPerChunk);
+			chunks[c] = channel.map(mode, HEADER + c * rowsPerChunk * row, rows * row);
+		}
+	}
+
+	/**
+	 * Opens the matrix of a graph saved in a file, computing it (and saving it to the file) if the file does not exist
+	 * or has been written for another graph. The graph must {@link #release()} the matrix when it stops using it.
+	 *
+	 * @param graph
+	 *            the graph
+	 * @param path
+	 *            the absolute path of the file
+	 * @return the matrix
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static MappedShortestPathMatrix open(final GamaGraph<?, ?> graph, final String path) throws IOException {
+		final File file = new File(path).getAbsoluteFile();
+		final String key = file.getPath();
+		final Map<Object, Integer> index = index(graph);
+		final long fingerprint = fingerprint(graph, index);
+		OPENED.values().removeIf(reference -> reference.get() == null);
+		synchronized (LOCKS.computeIfAbsent(key, k -> new Object())) {
+			final WeakReference<MappedShortestPathMatrix> reference = OPENED.get(key);
+			final MappedShortestPathMatrix shared = reference == null ? null : reference.get();
+			if (shared != null && shared.fingerprint == fingerprint) {
+				shared.users++;
+				return shared;
+			}
+			MappedShortestPathMatrix result = load(file, index.size(), fingerprint);
+			// The file is not replaced while other graphs map it
+			if (result == null) { result = compute(graph, index, file, fingerprint, shared == null); }
+			if (result.saved && shared == null) {
+				result.key = key;
+				result.users = 1;
+				OPENED.put(key, new WeakReference<>(result));
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Releases the matrix: it is forgotten (and its file can be replaced) once all the graphs using it have released
+	 * it.
+	 */
+	public void release() {
+		if (key == null) return;
+		synchronized (LOCKS.get(key)) {
+			if (--users == 0) {
+				OPENED.computeIfPresent(key, (k, reference) -> reference.get() == this ? null : reference);
+			}
+		}
+	}
+
+	/**
+	 * Whether the matrix is mapped from the file it has been loaded from or saved to, or from a temporary file (if the
+	 * file could not be replaced).
+	 *
+	 * @return true, if the matrix is saved in its file
+	 */
+	public boolean isSaved() { return saved; }
+
+	/**
+	 * Loads the matrix saved in a file.
+	 *
+	 * @return the matrix, or null if the file does not exist or has been written for another graph
+	 */
+	private static MappedShortestPathMatrix load(final File file, final int n, final long fingerprint)
+			throws IOException {
+		if (!file.isFile()) return null;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER);
+			while (header.hasRemaining() && channel.read(header) >= 0) {}
+			if (header.hasRemaining()) return null;
+			header.flip();
+			if (header.getLong() != MAGIC || header.getLong() != fingerprint || header.getInt() != n) return null;
+			final int cell = header.getInt();
+			if (channel.size() != HEADER + (long) n * n * cell) return null;
+			final MappedShortestPathMatrix result = new MappedShortestPathMatrix(channel, MapMode.READ_ONLY, n,
+					fingerprint);
+			result.saved = true;
+			return result.cell == cell ? result : null;
+		}
+	}
+
+	/**
+	 * Computes the matrix of a graph in a file. The matrix is written in a temporary file, renamed once complete, so
+	 * that a file left incomplete is never loaded. If the file must not be replaced (because it is mapped by other
+	 * graphs), or cannot be (on systems where mapped files are locked), the matrix stays mapped from the temporary
+	 * file, which is deleted as soon as possible.
+	 */
+	private static MappedShortestPathMatrix compute(final GamaGraph<?, ?> graph, final Map<Object, Integer> index,
+			final File file, final long fingerprint, final boolean replace) throws IOException {
+		if (file.getParentFile() != null) { file.getParentFile().mkdirs(); }
+		final int n = index.size();
+		final int[] offsets = new int[n + 1];
+		final List<?> edges = List.copyOf(graph.edgeSet());
+		final boolean directed = graph.isDirected();
+		final int[] from = new int[edges.size()];
+		final int[] to = new int[edges.size()];
+		for (int e = 0; e < from.length; e++) {
+			from[e] = index.get(graph.getEdgeSource(edges.get(e)));
+			to[e] = index.get(graph.getEdgeTarget(edges.get(e)));
+			offsets[from[e] + 1]++;
+			if (!directed) { offsets[to[e] + 1]++; }
+		}
+		for (int v = 0; v < n; v++) { offsets[v + 1] += offsets[v]; }
+		final int[] targets = new int[offsets[n]];
+		final double[] weights = new double[offsets[n]];
+		final int[] next = Arrays.copyOf(offsets, n);
+		for (int e = 0; e < from.length; e++) {
+			final double w = graph.getEdgeWeight(edges.get(e));
+			targets[next[from[e]]] = to[e];
+			weights[next[from[e]]++] = w;
+			if (!directed) {
+				targets[next[to[e]]] = from[e];
+				weights[next[to[e]]++] = w;
+			}
+		}
+		final File temp = File.createTempFile("." + file.getName() + "-", ".tmp", file.getParentFile());
+		try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			final MappedShortestPathMatrix result = new MappedShortestPathMatrix(channel, MapMode.READ_WRITE, n,
+					fingerprint);
+			GamaExecutorService.executeThreaded(() -> IntStream.range(0, (n + BLOCK - 1) / BLOCK).parallel()
+					.forEach(b -> result.computeRows(b * BLOCK, Math.min(n, (b + 1) * BLOCK), offsets, targets,
+							weights)));
+			for (final MappedByteBuffer chunk : result.chunks) { chunk.force(); }
+			final ByteBuffer header = ByteBuffer.allocate(HEADER);
+			header.putLong(MAGIC).putLong(fingerprint).putInt(n).putInt(result.cell).flip();
+			while (header.hasRemaining()) { channel.write(header, HEADER - header.remaining()); }
+			channel.force(true);
+			if (replace) {
+				try {
+					Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+					result.saved = true;
+				} catch (final IOException e) {
+					// The file is still mapped by a matrix not yet collected: the result remains private
+				}
+			}
+			return result;
+		} finally {
+			try {
+				Files.deleteIfExists(temp.toPath());
+			} catch (final IOException e) {
+				temp.deleteOnExit();
+			}
+		}
+	}
+
+	/**
+	 * Computes a block of rows, each with a Dijkstra search from its vertex that records the first vertex of the path
+	 * leading to each vertex settled.
+	 */
+	private void computeRows(final int start, final int end, final int[] offsets, final int[] targets,
+			final double[] weights) {
+		final double[] dist = new double[n];
+		final int[] first = new int[n];
+		final int[] heap = new int[n];
+		final int[] position = new int[n];
+		for (int s = start; s < end; s++) {
+			Arrays.fill(dist, Double.POSITIVE_INFINITY);
+			Arrays.fill(first, s);
+			Arrays.fill(position, -1);
+			dist[s] = 0;
+			heap[0] = s;
+			position[s] = 0;
+			int size = 1;
+			while (size > 0) {
+				final int u = heap[0];
+				position[u] = -2;
+				if (--size > 0) { siftDown(heap, position, dist, heap[size], 0, size); }
+				for (int k = offsets[u], last = offsets[u + 1]; k < last; k++) {
+					final int v = targets[k];
+					final double d = dist[u] + weights[k];
+					if (position[v] == -2 || d >= dist[v]) { continue; }
+					dist[v] = d;
+					first[v] = u == s ? v : first[u];
+					if (position[v] == -1) { position[v] = size++; }
+					siftUp(heap, position, dist, v, position[v]);
+				}
+			}
+			write(s, first);
+		}
+	}
+
+	/**
+	 * Moves a vertex up the heap from a position.
+	 */
+	private static void siftUp(final int[] heap, final int[] position, final double[] dist, final int v, int i) {
+		while (i > 0) {
+			final int parent = i - 1 >>> 1;
+			if (dist[heap[parent]] <= dist[v]) { break; }
+			heap[i] = heap[parent];
+			position[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = v;
+		position[v] = i;
+	}
+
+	/**
+	 * Moves a vertex down the heap from a position.
+	 */
+	private static void siftDown(final int[] heap, final int[] position, final double[] dist, final int v, int i,
+			final int size) {
+		int child;
+		while ((child = 2 * i + 1) < size) {
+			if (child + 1 < size && dist[heap[child + 1]] < dist[heap[child]]) { child++; }
+			if (dist[v] <= dist[heap[child]]) { break; }
+			heap[i] = heap[child];
+			position[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = v;
+		position[v] = i;
+	}
+
+	/**
+	 * Writes a row, through a duplicate of its chunk (so that the rows can be written concurrently).
+	 */
+	private void write(final int row, final int[] cells) {
+		final int offset = row % rowsPerChunk * n * cell;
+		final ByteBuffer buffer = chunks[row / rowsPerChunk].duplicate().position(offset);
+		if (cell == Short.BYTES) {
+			final short[] values = new short[n];
+			for (int j = 0; j < n; j++) { values[j] = (short) cells[j]; }
+			buffer.asShortBuffer().put(values);
+		} else {
+			buffer.asIntBuffer().put(cells);
+		}
+	}
+
+	/**
+	 * Returns the index of the vertex following a source in the shortest path towards a target.
+	 *
+	 * @param source
+	 *            the index of the source
+	 * @param target
+	 *            the index of the target
+	 * @return the index of the next vertex, or the source itself if the target is not reachable
+	 */
+	public int next(final int source, final int target) {
+		final MappedByteBuffer chunk = chunks[source / rowsPerChunk];
+		final int offset = (source % rowsPerChunk * n + target) * cell;
+		return cell == Short.BYTES ? Short.toUnsignedInt(chunk.getShort(offset)) : chunk.getInt(offset);
+	}
+
+	/**
+	 * Gets the number of vertices.
+	 *
+	 * @return the number of vertices
+	 */
+	public int size() {
+		return n;
+	}
+
+	/**
+	 * The indices of the vertices of a graph, in the order of {@link GamaGraph#getVertices()}.
+	 */
+	private static Map<Object, Integer> index(final GamaGraph<?, ?> graph) {
+		final Map<Object, Integer> index = new HashMap<>();
+		for (final Object v : graph.vertexSet()) { index.put(v, index.size()); }
+		return index;
+	}
+
+	/**
+	 * A hash of the edges of a graph (indices of their extremities and weights).
+	 */
+	private static long fingerprint(final GamaGraph<?, ?> graph, final Map<Object, Integer> index) {
+		long h = mix(0xcbf29ce484222325L, index.size());
+		h = mix(h, graph.isDirected() ? 1 : 0);
+		for (final Object e : graph.edgeSet()) {
+			h = mix(h, index.get(graph.getEdgeSource(e)));
+			h = mix(h, index.get(graph.getEdgeTarget(e)));
+			h = mix(h, Double.doubleToLongBits(graph.getEdgeWeight(e)));
+		}
+		return h;
+	}
+
+	/**
+	 * Mixes a value into a hash.
+	 */
+	private static long mix(final long h, final long value) {
+		return (h ^ value) * 0x100000001b3L;
+	}
+
+}
@@ -0,0 +1,266 @@
+/*******************************************************************************************************
+ *
+ * ShortestPathCache.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.util.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jgrapht.alg.util.Pair;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import gama.core.runtime.GamaMetrics;
+
+/**
+ * The Class ShortestPathCache. The cache of the shortest paths computed in a graph, by source and target. The paths
+ * are stored as arrays of indices of edges, and the paths starting from the intermediate vertices of a path share its
+ * array. The cache is bounded by a budget expressed in edges, each entry counting for {@link #ENTRY_WEIGHT} edges in
+ * addition to the ones of its paths; the least recently used entries are evicted when it is exceeded. The hits, misses
+ * and evictions are counted in {@link GamaMetrics}.
+ *
+ * @param <V>
+ *            the type of the vertices
+ * @param <E>
+ *            the type of the edges
+ * @since 2026
+ */
+public class ShortestPathCache<V, E> {
+
+	/** The default budget, in edges. */
+	public static final int DEFAULT_BUDGET = 4_000_000;
+
+	/** The weight of an entry, in addition to the edges of its paths (approximately its size in memory). */
+	static final int ENTRY_WEIGHT = 32;
+
+	/**
+	 * The paths from a source to a target: the first ones from their offset (when they are the end of a path starting
+	 * before the source), the others entirely.
+	 *
+	 * @param paths
+	 *            the indices of the edges of the paths
+	 * @param offset
+	 *            the index of the first edge of the first path
+	 */
+	record Routes(int[][] paths, int offset) {
+
+		/**
+		 * The weight of the entry.
+		 */
+		int weight() {
+			int result = ENTRY_WEIGHT - offset;
+			for (final int[] path : paths) { result += path.length; }
+			return result;
+		}
+	}
+
+	/**
+	 * The Class Store. The entries and the indices of the edges they refer to, replaced together when the cache is
+	 * invalidated.
+	 */
+	private final class Store {
+
+		/** The entries. */
+		final Cache<Pair<V, V>, Routes> routes = CacheBuilder.newBuilder().concurrencyLevel(8).maximumWeight(budget)
+				.<Pair<V, V>, Routes> weigher((k, v) -> v.weight()).removalListener(n -> {
+					if (n.wasEvicted()) { GamaMetrics.SHORTEST_PATHS_EVICTIONS.increment(); }
+				}).build();
+
+		/** The indices of the edges. */
+		final Map<E, Integer> indices = new ConcurrentHashMap<>();
+
+		/** The edges, by index. */
+		volatile Object[] edges = new Object[64];
+
+		/** The number of edges. */
+		int size;
+
+		/**
+		 * The index of an edge, allocated when first asked.
+		 */
+		int indexOf(final E edge) {
+			return indices.computeIfAbsent(edge, this::append);
+		}
+
+		/**
+		 * Appends an edge.
+		 */
+		synchronized int append(final E edge) {
+			if (size == edges.length) { edges = Arrays.copyOf(edges, size * 2); }
+			edges[size] = edge;
+			return size++;
+		}
+
+		/**
+		 * Encodes a path.
+		 */
+		int[] encode(final List<E> path) {
+			final int[] result = new int[path.size()];
+			for (int i = 0; i < result.length; i++) { result[i] = indexOf(path.get(i)); }
+			return result;
+		}
+
+		/**
+		 * Decodes a path, from an offset.
+		 */
+		@SuppressWarnings ("unchecked")
+		List<E> decode(final int[] path, final int offset) {
+			final Object[] all = edges;
+			final List<E> result = new ArrayList<>(path.length - offset);
+			for (int i = offset; i < path.length; i++) { result.add((E) all[path[i]]); }
+			return result;
+		}
+	}
+
+	/** The budget, in edges. */
+	private final int budget;
+
+	/** The current store. */
+	private volatile Store store;
+
+	/**
+	 * Instantiates a new shortest path cache.
+	 *
+	 * @param budget
+	 *            the budget, in edges
+	 */
+	public ShortestPathCache(final int budget) {
+		this.budget = budget;
+		store = new Store();
+	}
+
+	/**
+	 * Gets the budget.
+	 *
+	 * @return the budget, in edges
+	 */
+	public int getBudget() { return budget; }
+
+	/**
+	 * The routes from a source to a target, counting the hit or the miss.
+	 */
+	private Routes routes(final Store s, final V source, final V target) {
+		final Routes result = s.routes.getIfPresent(new Pair<>(source, target));
+		(result == null ? GamaMetrics.SHORTEST_PATHS_MISSES : GamaMetrics.SHORTEST_PATHS_HITS).increment();
+		return result;
+	}
+
+	/**
+	 * The first path stored from a source to a target.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return the edges of the path, or null if no path is stored
+	 */
+	public List<E> get(final V source, final V target) {
+		final Store s = store;
+		final Routes r = routes(s, source, target);
+		if (r == null || r.paths.length == 0) return null;
+		return s.decode(r.paths[0], r.offset);
+	}
+
+	/**
+	 * All the paths stored from a source to a target.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return the edges of the paths, or null if no path is stored
+	 */
+	public List<List<E>> getAll(final V source, final V target) {
+		final Store s = store;
+		final Routes r = routes(s, source, target);
+		if (r == null) return null;
+		final List<List<E>> result = new ArrayList<>(r.paths.length);
+		for (int i = 0; i < r.paths.length; i++) { result.add(s.decode(r.paths[i], i == 0 ? r.offset : 0)); }
+		return result;
+	}
+
+	/**
+	 * Whether paths are stored from a source to a target (without counting a hit or a miss).
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return true, if successful
+	 */
+	public boolean contains(final V source, final V target) {
+		return store.routes.getIfPresent(new Pair<>(source, target)) != null;
+	}
+
+	/**
+	 * Stores the paths from a source to a target.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param paths
+	 *            the edges of the paths
+	 */
+	public void putAll(final V source, final V target, final List<? extends List<E>> paths) {
+		final Store s = store;
+		final int[][] encoded = new int[paths.size()][];
+		for (int i = 0; i < encoded.length; i++) { encoded[i] = s.encode(paths.get(i)); }
+		s.routes.put(new Pair<>(source, target), new Routes(encoded, 0));
+	}
+
+	/**
+	 * Stores a path from a source to a target, and, if they are not already stored, the paths to the same target from
+	 * each of its intermediate vertices.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param path
+	 *            the edges of the path
+	 * @param intermediates
+	 *            the vertices reached by the edges of the path, except the last one (the target), or null to store
+	 *            only the path from the source
+	 */
+	public void put(final V source, final V target, final List<E> path, final List<V> intermediates) {
+		final Store s = store;
+		final int[][] encoded = { s.encode(path) };
+		s.routes.put(new Pair<>(source, target), new Routes(encoded, 0));
+		if (intermediates == null) return;
+		for (int i = 0; i < intermediates.size(); i++) {
+			final Pair<V, V> key = new Pair<>(intermediates.get(i), target);
+			if (s.routes.getIfPresent(key) == null) { s.routes.put(key, new Routes(encoded, i + 1)); }
+		}
+	}
+
+	/**
+	 * Removes all the paths (when the graph is modified).
+	 */
+	public void invalidate() {
+		final Store s = store;
+		if (s.routes.size() == 0 && s.indices.isEmpty()) return;
+		store = new Store();
+	}
+
+	/**
+	 * The number of entries.
+	 *
+	 * @return the number of entries
+	 */
+	public long size() {
+		return store.routes.size();
+	}
+
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************************************
+ *
+ * CounterRNG.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gama.core.util.random;
+
+/**
+ * A counter-based random number generator: the n-th number of a stream is a hash (the finalizer of SplitMix64) of the
+ * key of the stream and of n. Streams can then be created or repositioned in constant time, without any state shared
+ * between them, which makes it possible to give one stream to each agent stepped in parallel and to obtain the same
+ * numbers whatever the number of threads.
+ *
+ * @since 2026
+ *
+ */
+public class CounterRNG extends GamaRNG {
+
+	/** The increment of the counter (the golden ratio, as in SplitMix64). */
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/** The key of the stream. */
+	private long key;
+
+	/** The counter. */
+	private long counter;
+
+	/**
+	 * Instantiates a new counter RNG on the stream 0.
+	 */
+	public CounterRNG() {
+		super(new byte[8]);
+	}
+
+	/**
+	 * Positions the generator at the beginning of a stream.
+	 *
+	 * @param streamKey
+	 *            the key of the stream
+	 */
+	public void setStream(final long streamKey) {
+		key = streamKey;
+		counter = 0;
+		usage = 0;
+		// Clears the gaussian kept by java.util.Random
+		super.setSeed(streamKey);
+	}
+
+	@Override
+	public void setUsage(final int newUsage) {
+		counter = newUsage;
+		usage = newUsage;
+	}
+
+	@Override
+	protected int internalNext(final int bits) {
+		return (int) (mix(key + ++counter * GOLDEN_GAMMA) >>> 64 - bits);
+	}
+
+	/**
+	 * Combines a key with a value to obtain the key of another stream.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @return the combined key
+	 */
+	public static long combine(final long key, final long value) {
+		return mix(key ^ mix(value + GOLDEN_GAMMA));
+	}
+
+	/**
+	 * The finalizer of SplitMix64, a bijective hash of 64 bits values.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the hashed value
+	 */
+	private static long mix(final long value) {
+		long z = value;
+		z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+		return z ^ z >>> 31;
+	}
+
+}
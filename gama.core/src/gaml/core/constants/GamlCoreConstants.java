@@ -186,6 +186,14 @@ public interface GamlCoreConstants {
 			doc = @doc ("TransitNodeRouting shortest path computation algorithm")) String TransitNodeRouting =
 					"TransitNodeRouting";
 
+	/** The Contraction hierarchies. */
+	@constant (
+			value = "ContractionHierarchies",
+			category = { IConstantCategory.CONSTANT },
+			concept = { IConcept.GRAPH, IConcept.CONSTANT },
+			doc = @doc ("ContractionHierarchies shortest path computation algorithm")) String ContractionHierarchies =
+					"ContractionHierarchies";
+
 	/** The Yen. */
 	@constant (
 			value = "Yen",
@@ -30,6 +30,7 @@ import gama.core.metamodel.agent.GamlAgent;
 import gama.core.metamodel.agent.IAgent;
 import gama.core.metamodel.agent.IMacroAgent;
 import gama.core.metamodel.agent.MinimalAgent;
+import gama.core.metamodel.agent.SlotLayout;
 import gama.core.metamodel.topology.grid.GamaSpatialMatrix.GridPopulation.GamlGridAgent;
 import gama.core.metamodel.topology.grid.GamaSpatialMatrix.GridPopulation.MinimalGridAgent;
 import gama.core.util.GamaMapFactory;
@@ -86,6 +87,9 @@ public class SpeciesDescription extends TypeDescription {
 	/** The java base. */
 	protected Class javaBase;
 
+	/** The layout of the slots in which the agents of this species store their attributes. Lazily computed */
+	private SlotLayout slotLayout;
+
 	/**
 	 * Instantiates a new species description.
 	 *
@@ -187,6 +191,7 @@ public class SpeciesDescription extends TypeDescription {
 			control = null;
 		}
 		microSpecies = null;
+		slotLayout = null;
 
 	}
 
@@ -986,6 +991,38 @@ public class SpeciesDescription extends TypeDescription {
 		return javaBase;
 	}
 
+	/**
+	 * Returns the layout of the slots in which the agents of this species store the values of their attributes. The
+	 * layout begins with the one of the parent species, so that an attribute keeps the same index in all the
+	 * sub-species. Only the attributes declared in GAML and not relying on a Java setter are stored in slots. Computed
+	 * once, when it is first asked for (i.e. after the compilation of the species)
+	 *
+	 * @return the slot layout
+	 */
+	public SlotLayout getSlotLayout() {
+		if (slotLayout == null) {
+			final SpeciesDescription p = getParent();
+			final SlotLayout base = p != null && p != this && !p.isBuiltIn() ? p.getSlotLayout() : SlotLayout.EMPTY;
+			final SlotLayout.Builder builder = base.extend();
+			for (final VariableDescription v : getAttributes()) {
+				if (v == null) { continue; }
+				if (v.isBuiltIn() || v.isSyntheticSpeciesContainer() || v.getSetter() != null) {
+					builder.exclude(v.getName());
+					continue;
+				}
+				final byte kind = switch (v.getGamlType().id()) {
+					case IType.FLOAT -> SlotLayout.FLOAT;
+					case IType.INT -> SlotLayout.INT;
+					case IType.BOOL -> SlotLayout.BOOL;
+					default -> SlotLayout.OBJECT;
+				};
+				builder.add(v.getName(), kind, !v.isFunction() && v.getGetter() == null);
+			}
+			slotLayout = builder.build();
+		}
+		return slotLayout;
+	}
+
 	/**
 	 * Sets the java base.
 	 *
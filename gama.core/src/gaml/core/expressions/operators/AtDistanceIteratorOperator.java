@@ -0,0 +1,180 @@
+/*******************************************************************************************************
+ *
+ * AtDistanceIteratorOperator.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.9.0).
+ *
+ * (c) 2007-2026 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package gaml.core.expressions.operators;
+
+import java.util.Set;
+
+import gama.core.common.preferences.GamaPreferences;
+import gama.core.metamodel.agent.IAgent;
+import gama.core.metamodel.topology.ITopology;
+import gama.core.metamodel.topology.filter.IAgentFilter;
+import gama.core.metamodel.topology.filter.In;
+import gama.core.runtime.IScope;
+import gama.core.runtime.exceptions.GamaRuntimeException;
+import gama.core.util.IContainer;
+import gaml.core.descriptions.IDescription;
+import gaml.core.descriptions.OperatorProto;
+import gaml.core.expressions.IExpression;
+import gaml.core.operators.Cast;
+import gaml.core.types.IType;
+
+/**
+ * The Class AtDistanceIteratorOperator. Replaces, at compile time, expressions like
+ * {@code (prey at_distance 10) count (each.energy > 5)}: instead of building the list of the agents at distance and
+ * then iterating over it, the iterator visits the agents directly in the spatial index of the topology. 'one_matches'
+ * stops the visit as soon as an agent matches.
+ *
+ * The original evaluation is used whenever the visit would not return the same agents (non continuous or torus
+ * topologies, queries evaluated outside of an agent) or when at_distance would scan a small list instead of querying
+ * the index. Only the sums of int or float values are rewritten.
+ *
+ * Unlike at_distance, the visit does not shuffle the agents (see Issue 722) and does not draw from the random generator
+ * of the scope: the results are the same (except for the rounding of the sums of floats, which can be done in another
+ * order), and the random draws that follow are reproducible for a given seed, but they are not the ones that would
+ * follow the list-based evaluation. A model that relies on the exact random sequence of a former version must build
+ * the list first (e.g. {@code list l <- prey at_distance 10; ... l count ...}).
+ *
+ * @since 2026
+ *
+ */
+public class AtDistanceIteratorOperator extends BinaryOperator {
+
+	/** The iterators that can be rewritten. */
+	private static final Set<String> ITERATORS = Set.of("count", "one_matches", "one_verifies", "sum_of");
+
+	/**
+	 * Whether the expression built with this prototype and these arguments can be rewritten
+	 *
+	 * @param proto
+	 *            the proto
+	 * @param child
+	 *            the child
+	 * @return true, if successful
+	 */
+	static boolean accepts(final OperatorProto proto, final IExpression... child) {
+		if (child.length != 2 || !ITERATORS.contains(proto.getName())) return false;
+		if (!(child[0] instanceof BinaryOperator query) || !"at_distance".equals(query.getName())) return false;
+		if (!query.exprs[0].getGamlType().getContentType().isAgentType()) return false;
+		if (!"sum_of".equals(proto.getName())) return true;
+		final int t = child[1].getGamlType().id();
+		return t == IType.INT || t == IType.FLOAT;
+	}
+
+	/**
+	 * Instantiates a new at distance iterator operator.
+	 *
+	 * @param proto
+	 *            the proto
+	 * @param context
+	 *            the context
+	 * @param args
+	 *            the args
+	 */
+	AtDistanceIteratorOperator(final OperatorProto proto, final IDescription context, final IExpression... args) {
+		super(proto, context, args);
+	}
+
+	@Override
+	public Object _value(final IScope scope) throws GamaRuntimeException {
+		final BinaryOperator query = (BinaryOperator) exprs[0];
+		final Object list = query.exprs[0].value(scope);
+		final Object distance = query.exprs[1].value(scope);
+		final IAgent agent = scope.getAgent();
+		final ITopology topology = scope.getTopology();
+		if (!(list instanceof IContainer targets) || agent == null || topology == null || !topology.isContinuous()
+				|| topology.isTorus() || isScannedByAtDistance(scope, agent, targets))
+			return evaluate(scope, query, list, distance);
+		final IExpression filter = exprs[1];
+		final double radius = Cast.asFloat(scope, distance);
+		// No filter is built for an empty list of targets: the result is the one of an empty iteration
+		final IAgentFilter agents = In.list(scope, targets);
+		if (agents == null) return switch (getName()) {
+			case "count" -> 0;
+			case "sum_of" -> filter.getGamlType().id() == IType.INT ? 0 : 0d;
+			default -> false;
+		};
+		try {
+			switch (getName()) {
+				case "count": {
+					final int[] count = { 0 };
+					topology.forEachAtDistance(scope, agent, radius, agents, a -> {
+						scope.setEach(a);
+						if ((Boolean) filter.value(scope)) { count[0]++; }
+						return true;
+					});
+					return count[0];
+				}
+				case "sum_of": {
+					final IType type = filter.getGamlType();
+					if (type.id() == IType.INT) {
+						final int[] sum = { 0 };
+						topology.forEachAtDistance(scope, agent, radius, agents, a -> {
+							scope.setEach(a);
+							sum[0] += (Integer) type.cast(scope, filter.value(scope), null, false);
+							return true;
+						});
+						return sum[0];
+					}
+					final double[] sum = { 0d };
+					topology.forEachAtDistance(scope, agent, radius, agents, a -> {
+						scope.setEach(a);
+						sum[0] += (Double) type.cast(scope, filter.value(scope), null, false);
+						return true;
+					});
+					return sum[0];
+				}
+				default:
+					return !topology.forEachAtDistance(scope, agent, radius, agents, a -> {
+						scope.setEach(a);
+						return !(Boolean) filter.value(scope);
+					});
+			}
+		} catch (final GamaRuntimeException ge) {
+			throw ge;
+		} catch (final Throwable ex) {
+			final GamaRuntimeException e1 = GamaRuntimeException.create(ex, scope);
+			e1.addContext("when applying the " + literalValue() + " operator on " + query.literalValue());
+			throw e1;
+		}
+	}
+
+	/**
+	 * Whether at_distance would scan the list instead of querying the spatial index (see
+	 * {@link GamaPreferences.External#AT_DISTANCE_OPTIMIZATION}), which is faster for small lists
+	 */
+	private boolean isScannedByAtDistance(final IScope scope, final IAgent agent, final IContainer targets) {
+		return GamaPreferences.External.AT_DISTANCE_OPTIMIZATION.getValue() && agent.isPoint()
+				&& (double) targets.length(scope) / (double) scope.getSimulation().getMembersSize(scope) < 0.1;
+	}
+
+	/**
+	 * Evaluates the expression as it would have been without the rewriting, reusing the values of the operands of
+	 * at_distance
+	 */
+	private Object evaluate(final IScope scope, final BinaryOperator query, final Object list, final Object distance) {
+		try {
+			return prototype.getHelper().get(scope, query.getPrototype().getHelper().get(scope, list, distance),
+					exprs[1]);
+		} catch (final GamaRuntimeException ge) {
+			throw ge;
+		} catch (final Throwable ex) {
+			final GamaRuntimeException e1 = GamaRuntimeException.create(ex, scope);
+			e1.addContext("when applying the " + literalValue() + " operator on " + query.literalValue());
+			throw e1;
+		}
+	}
+
+	@Override
+	public AtDistanceIteratorOperator copy() {
+		return new AtDistanceIteratorOperator(prototype, null, exprs);
+	}
+
+}
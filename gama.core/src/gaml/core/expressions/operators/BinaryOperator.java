@@ -45,7 +45,8 @@ public class BinaryOperator extends AbstractNAryOperator {
 	 */
 	public static IExpression create(final OperatorProto proto, final IDescription context,
 			final IExpression... child) {
-		final BinaryOperator u = new BinaryOperator(proto, context, child);
+		final BinaryOperator u = AtDistanceIteratorOperator.accepts(proto, child)
+				? new AtDistanceIteratorOperator(proto, context, child) : new BinaryOperator(proto, context, child);
 		if (u.isConst() && GamaPreferences.External.CONSTANT_OPTIMIZATION.getValue())
 			return GAML.getExpressionFactory().createConst(u.getConstValue(), u.getGamlType(), u.serialize(false));
 		return u;
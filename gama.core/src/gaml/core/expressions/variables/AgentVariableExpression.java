@@ -11,6 +11,10 @@
 package gaml.core.expressions.variables;
 
 import gama.annotations.precompiler.GamlProperties;
+import gama.core.metamodel.agent.AgentSlots;
+import gama.core.metamodel.agent.GamlAgent;
+import gama.core.metamodel.agent.IAgent;
+import gama.core.metamodel.agent.SlotLayout;
 import gama.core.runtime.IScope;
 import gama.core.runtime.exceptions.GamaRuntimeException;
 import gama.core.util.ICollector;
@@ -27,6 +31,12 @@ import gaml.core.types.IType;
  */
 public class AgentVariableExpression extends VariableExpression implements IVarExpression.Agent {
 
+	/** The value of slot when it has not been resolved yet */
+	private static final int UNRESOLVED = -2;
+
+	/** The index of the slot of the variable in the layout of the species where it is defined */
+	private int slot = UNRESOLVED;
+
 	/**
 	 * Instantiates a new agent variable expression.
 	 *
@@ -52,7 +62,34 @@ public class AgentVariableExpression extends VariableExpression implements IVarE
 
 	@Override
 	public Object _value(final IScope scope) throws GamaRuntimeException {
-		return scope.getAgentVarValue(scope.getAgent(), getName());
+		final IAgent agent = scope.getAgent();
+		// Fast path: direct read of the slot of the agent, if it has been assigned and is not computed by a getter or
+		// a function in the species of the agent
+		if (agent instanceof GamlAgent ga && !agent.dead() && !scope.interrupted()) {
+			final AgentSlots slots = ga.getSlots();
+			if (slots != null) {
+				final int index = getSlot();
+				final SlotLayout layout = slots.getLayout();
+				if (layout.matches(index, name) && layout.isDirect(index) && slots.isSet(index))
+					return slots.get(index);
+			}
+		}
+		return scope.getAgentVarValue(agent, getName());
+	}
+
+	/**
+	 * Returns the index of the slot of this variable in the layout of the species where it is defined. Resolved only
+	 * once, as the layout is fixed once the species has been compiled.
+	 *
+	 * @return the index or SlotLayout.NONE
+	 */
+	private int getSlot() {
+		if (slot == UNRESOLVED) {
+			final IDescription def = getDefinitionDescription();
+			final SpeciesDescription sd = def == null ? null : def.getSpeciesContext();
+			slot = sd == null ? SlotLayout.NONE : sd.getSlotLayout().indexOf(name);
+		}
+		return slot;
 	}
 
 	@Override
@@ -58,10 +58,12 @@ import gama.annotations.precompiler.GamlAnnotations.test;
 import gama.annotations.precompiler.GamlAnnotations.usage;
 import gama.core.common.geometry.Envelope3D;
 import gama.core.common.geometry.GeometryUtils;
+import gama.core.common.util.FileUtils;
 import gama.core.metamodel.agent.IAgent;
 import gama.core.metamodel.shape.GamaPoint;
 import gama.core.metamodel.shape.IShape;
 import gama.core.metamodel.topology.graph.GamaSpatialGraph;
+import gama.core.metamodel.topology.graph.GraphTopology;
 import gama.core.metamodel.topology.graph.ISpatialGraph;
 import gama.core.metamodel.topology.graph.GamaSpatialGraph.VertexRelationship;
 import gama.core.runtime.IScope;
@@ -2003,6 +2005,31 @@ public class Graphs {
 		return GamaGraphType.useChacheForShortestPath(g, useCache);
 	}
 
+	/**
+	 * Use cache for shortest paths, with a budget.
+	 *
+	 * @param g
+	 *            the g
+	 * @param budget
+	 *            the budget
+	 * @return the i graph
+	 */
+	@operator (
+			value = "use_cache",
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH })
+	@doc (
+			value = "the operand graph will store in a cache the previously computed shortest paths, within the budget given by the second operand (the maximal number of edges stored, each path counting for 32 more); the least recently used paths are removed when it is exceeded, and the cache is cleared if the graph is modified. A budget of 0 disables the cache.",
+			comment = "WARNING / side effect: this operator modifies the operand and does not create a new graph.",
+			examples = { @example (
+					value = "graph road_network <- as_edge_graph(road) use_cache 1000000;",
+					isExecutable = false) },
+			see = { "path_between" })
+	@no_test
+	public static IGraph useCacheForShortestPaths(final IGraph g, final int budget) {
+		return GamaGraphType.useChacheForShortestPath(g, budget);
+	}
+
 	/**
 	 * As directed graph.
 	 *
@@ -2172,7 +2199,7 @@ public class Graphs {
 					IConcept.ALGORITHM })
 	@doc (
 			value = "changes the shortest path computation algorithm of the given graph",
-			comment = "the right-hand operand can be #Djikstra, #BidirectionalDijkstra, #BellmannFord, #FloydWarshall, #Astar, #NBAStar, #NBAStarApprox, #DeltaStepping, #CHBidirectionalDijkstra, #TransitNodeRouting to use the associated algorithm. ",
+			comment = "the right-hand operand can be #Djikstra, #BidirectionalDijkstra, #BellmannFord, #FloydWarshall, #Astar, #NBAStar, #NBAStarApprox, #DeltaStepping, #CHBidirectionalDijkstra, #TransitNodeRouting, #ContractionHierarchies to use the associated algorithm. ",
 			examples = @example (
 					value = "road_network <- road_network with_shortestpath_algorithm #TransitNodeRouting;",
 					isExecutable = false))
@@ -2187,6 +2214,44 @@ public class Graphs {
 		return graph;
 	}
 
+	/**
+	 * Uses contraction hierarchies to compute the shortest paths, saved to a file.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param graph
+	 *            the graph
+	 * @param file
+	 *            the path of the file
+	 * @return the i graph
+	 */
+	@operator (
+			value = "with_contraction_hierarchies",
+			content_type = ITypeProvider.CONTENT_TYPE_AT_INDEX + 1,
+			index_type = ITypeProvider.KEY_TYPE_AT_INDEX + 1,
+			category = { IOperatorCategory.GRAPH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH, IConcept.OPTIMIZATION, IConcept.ALGORITHM })
+	@doc (
+			value = "uses contraction hierarchies (#ContractionHierarchies) to compute the shortest paths of the given "
+					+ "graph, and saves the hierarchy to the given file once computed",
+			comment = "The graph is preprocessed when the first shortest path is asked, and again each time it is "
+					+ "modified: contraction hierarchies suit graphs that do not change, like road networks. "
+					+ "If the file contains the hierarchy of the same graph (saved by a previous run), it is "
+					+ "loaded instead of being computed. The file is only used by spatial graphs.",
+			examples = @example (
+					value = "road_network <- road_network with_contraction_hierarchies \"../includes/roads.ch\";",
+					isExecutable = false),
+			see = { "with_shortest_path_algorithm" })
+	@no_test
+	public static IGraph withContractionHierarchies(final IScope scope, final IGraph graph, final String file) {
+		graph.setShortestPathAlgorithm(shortestPathAlgorithm.ContractionHierarchies.name());
+		if (graph instanceof GamaSpatialGraph sg) {
+			sg.setContractionHierarchyFile(
+					file == null ? null : FileUtils.constructAbsoluteFilePath(scope, file, false));
+		}
+		return graph;
+	}
+
 	/**
 	 * Sets the optimize type.
 	 *
@@ -2208,7 +2273,7 @@ public class Graphs {
 	@doc (
 			value = "changes the shortest path computation method of the given graph",
 			deprecated = "with_shortestpath_algorithm instead",
-			comment = "the right-hand operand can be Djikstra, BidirectionalDijkstra, BellmannFord, FloydWarshall, Astar, NBAStar, NBAStarApprox, DeltaStepping, CHBidirectionalDijkstra, TransitNodeRouting to use the associated algorithm. ",
+			comment = "the right-hand operand can be Djikstra, BidirectionalDijkstra, BellmannFord, FloydWarshall, Astar, NBAStar, NBAStarApprox, DeltaStepping, CHBidirectionalDijkstra, TransitNodeRouting, ContractionHierarchies to use the associated algorithm. ",
 			examples = @example (
 					value = "road_network <- road_network with_optimizer_type TransitNodeRouting;",
 					isExecutable = false),
@@ -2427,6 +2492,58 @@ public class Graphs {
 		return Cast.asTopology(scope, graph).KpathsBetween(scope, (IShape) sourTarg.key, (IShape) sourTarg.value, k);
 	}
 
+	/**
+	 * Paths between.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param graph
+	 *            the graph
+	 * @param pairs
+	 *            the pairs of sources and targets
+	 * @return the i list
+	 * @throws GamaRuntimeException
+	 *             the gama runtime exception
+	 */
+	@operator (
+			value = "paths_between",
+			type = IType.LIST,
+			content_type = IType.PATH,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH })
+	@doc (
+			value = "The shortest paths between the sources and the targets of a list of pairs in a graph, in the "
+					+ "order of the pairs (nil when there is no path)",
+			comment = "The paths are computed together: those starting from the same source share a single search, "
+					+ "and the sources are processed in parallel when the shortest paths of the graph are computed on "
+					+ "its compressed snapshot. This is faster than calling path_between for each pair when many pairs "
+					+ "share their source, like commuters leaving from the same places. The routes found are stored "
+					+ "in the cache of the graph, if it is used.",
+			examples = { @example (
+					value = "paths_between(road_network, [home1::work1, home1::work2, home2::work1])",
+					equals = "the 3 shortest paths between home1 and work1, home1 and work2, home2 and work1",
+					isExecutable = false) },
+			see = { "path_between" })
+	@test ("graph<geometry, geometry> g <- as_edge_graph([edge({10,5}, {20,3}), edge({10,5}, {30,30}),"
+			+ "edge({30,30}, {80,35})]);\r\n"
+			+ " length(paths_between(g, [{10,5}::{80,35}, {10,5}::{20,3}, {30,30}::{20,3}])) = 3 ")
+	public static IList<IPath> pathsBetween(final IScope scope, final IGraph graph, final IList<GamaPair> pairs)
+			throws GamaRuntimeException {
+		final List<Object> sources = new ArrayList<>(pairs.size()), targets = new ArrayList<>(pairs.size());
+		for (final GamaPair pair : pairs) {
+			sources.add(pair.key);
+			targets.add(pair.value);
+		}
+		final IList<IPath> result = GamaListFactory.create(Types.PATH);
+		if (graph instanceof GamaSpatialGraph) {
+			result.addAll(((GraphTopology) Cast.asTopology(scope, graph)).pathsBetween(scope, (List) sources,
+					(List) targets));
+		} else {
+			result.addAll(graph.computeShortestPathsBetween(scope, sources, targets));
+		}
+		return result;
+	}
+
 	/**
 	 * Max flow between.
 	 *
@@ -2534,6 +2651,45 @@ public class Graphs {
 
 	}
 
+	/**
+	 * Maps the shortest paths matrix saved in a file.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param graph
+	 *            the graph
+	 * @param file
+	 *            the path of the file
+	 * @return the i graph
+	 * @throws GamaRuntimeException
+	 *             the gama runtime exception
+	 */
+	@operator (
+			value = "load_shortest_paths",
+			content_type = ITypeProvider.CONTENT_TYPE_AT_INDEX + 1,
+			index_type = ITypeProvider.KEY_TYPE_AT_INDEX + 1,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH })
+	@doc (
+			value = "makes the graph compute its shortest paths with the successor matrix of all its shortest paths "
+					+ "saved in the given file, computed and saved first if the file does not exist or has been "
+					+ "saved for another graph",
+			comment = "The matrix is computed in parallel, and mapped in memory instead of being loaded: its parts "
+					+ "are read from the file when needed, and shared by all the simulations using the same file "
+					+ "(like the replicates of a batch experiment). It is discarded if the graph is modified.",
+			examples = { @example (
+					value = "road_network <- load_shortest_paths(road_network, \"../includes/roads.paths\");",
+					isExecutable = false) },
+			see = { "all_pairs_shortest_path" })
+	@no_test
+	public static IGraph primShortestPathFile(final IScope scope, final GamaGraph graph, final String file)
+			throws GamaRuntimeException {
+		if (graph == null) throw GamaRuntimeException
+				.error("In the load_shortest_paths operator, the graph should not be null!", scope);
+		graph.loadShortestPaths(scope, FileUtils.constructAbsoluteFilePath(scope, file, false));
+		return graph;
+	}
+
 	/**
 	 * Prim all pair shortest paths.
 	 *
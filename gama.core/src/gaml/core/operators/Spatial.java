@@ -6938,7 +6938,8 @@ public abstract class Spatial {
 				comment = "In order to use this operator, users have to create a map which map the agents with"
 						+ " one of their attributes (for example color or size,..). In the example below, "
 						+ "'map' is the map that I mention above, 'k' is the number of the nearest agents that we are"
-						+ "considering",
+						+ " considering. If the agent itself is a key of the map, it is counted among its nearest"
+						+ " neighbours (at a distance of 0)",
 				examples = { @example (
 						value = "self k_nearest_neighbors (map,k)",
 						equals = "this will return the attribute which has highest frequency in the "
@@ -6968,16 +6969,33 @@ public abstract class Spatial {
 						return -1;
 				}
 			}
-			ArrayList<DistanceCalc> result = new ArrayList<>();
-			for (var key : agents.getKeys()) { result.add(new DistanceCalc(agent, key, agents.get(key))); }
-			Collections.sort(result);
-			// store k nearest neighbors
 			ArrayList<Object> K_neighbors = new ArrayList<>();
-			for (int i = 0; i < Math.min(k, result.size()); i++) { K_neighbors.add(result.get(i).label); }
+			final ITopology topology = scope.getTopology();
+			if (topology != null && topology.isContinuous()) {
+				// In continuous topologies, the k nearest neighbors are directly searched
+				// in the spatial index. As the search excludes the agent itself, it is added first if it is in the map
+				int others = k;
+				if (k > 0 && agents.containsKey(agent)) {
+					K_neighbors.add(agents.get(agent));
+					others--;
+				}
+				final IAgentFilter filter = In.list(scope, agents.getKeys());
+				if (filter != null && others > 0) {
+					for (final IAgent a : topology.getAgentClosestTo(scope, agent, filter, others)) {
+						K_neighbors.add(agents.get(a));
+					}
+				}
+			} else {
+				ArrayList<DistanceCalc> result = new ArrayList<>();
+				for (var key : agents.getKeys()) { result.add(new DistanceCalc(agent, key, agents.get(key))); }
+				Collections.sort(result);
+				// store k nearest neighbors
+				for (int i = 0; i < Math.min(k, result.size()); i++) { K_neighbors.add(result.get(i).label); }
+			}
 			// find most frequent element (majority voting)
 			int mostFrequent = 0;
 			Object predictedLabel = null;
-			for (int i = 0; i < k; i++) {
+			for (int i = 0; i < K_neighbors.size(); i++) {
 				int temp = Collections.frequency(K_neighbors, K_neighbors.get(i));
 				if (temp > mostFrequent) {
 					mostFrequent = temp;
@@ -18,6 +18,7 @@ import static org.apache.commons.lang3.ArrayUtils.indexOf;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -47,6 +48,7 @@ import gama.core.metamodel.topology.grid.GamaSpatialMatrix;
 import gama.core.metamodel.topology.grid.GridTopology;
 import gama.core.runtime.GAMA;
 import gama.core.runtime.IScope;
+import gama.core.runtime.concurrent.DeterministicStep;
 import gama.core.runtime.exceptions.GamaRuntimeException;
 import gama.core.util.Collector;
 import gama.core.util.GamaListFactory;
@@ -831,6 +833,81 @@ public class MovingSkill extends Skill {
 		return null;
 	}
 
+	/**
+	 * Prim prepare goto.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @return the number of paths computed
+	 * @throws GamaRuntimeException
+	 *             the gama runtime exception
+	 */
+	@action (
+			name = "prepare_goto",
+			args = { @arg (
+					name = "agents",
+					type = IType.LIST,
+					optional = false,
+					doc = @doc ("the agents that will move")),
+					@arg (
+							name = "targets",
+							type = IType.LIST,
+							optional = false,
+							doc = @doc ("the locations or entities towards which the agents will move, in the "
+									+ "same order")),
+					@arg (
+							name = "on",
+							type = IType.GRAPH,
+							optional = false,
+							doc = @doc ("the graph on which the agents will move")) },
+			doc = @doc (
+					value = "computes in one batch the paths that the given agents will follow when moving towards "
+							+ "their targets on a graph with 'goto', so that their next 'goto' (with the same "
+							+ "target and graph) reuses them instead of computing them one by one. The paths "
+							+ "starting from the same places are computed together, in parallel when possible; "
+							+ "calling this action once, at the beginning of the step, speeds up the populations "
+							+ "whose agents share their origins. As the paths are written on the agents given, this "
+							+ "action cannot be called by an agent scheduled in parallel in the reproducible mode "
+							+ "('pref_parallel_deterministic'): call it from the world (or from an agent that is not "
+							+ "scheduled in parallel) before the agents step.",
+					returns = "the number of paths computed.",
+					examples = { @example ("ask first(people) { do prepare_goto agents: people targets: people collect "
+							+ "each.the_target on: road_network; }") }))
+	public Integer primPrepareGoto(final IScope scope) throws GamaRuntimeException {
+		// The paths are written on other agents, which may have already moved in the same step: the order of these
+		// writes would depend on the timing of the callers
+		if (DeterministicStep.isRunning(scope)) throw GamaRuntimeException.error(
+				"prepare_goto cannot be called by agents scheduled in parallel in the reproducible mode: call it from the "
+						+ "world before the agents step",
+				scope);
+		final IList agents = Cast.asList(scope, scope.getArg("agents", IType.LIST));
+		final IList targets = Cast.asList(scope, scope.getArg("targets", IType.LIST));
+		final IGraph graph = Cast.asGraph(scope, scope.getArg("on", IType.GRAPH));
+		if (!(graph instanceof GamaSpatialGraph) || !(Cast.asTopology(scope, graph) instanceof GraphTopology topo))
+			return 0;
+		final List<IAgent> movers = new ArrayList<>();
+		final List<IShape> goals = new ArrayList<>();
+		for (int i = 0; i < Math.min(agents.size(), targets.size()); i++) {
+			if (!(agents.get(i) instanceof IAgent agent) || agent.dead()
+					|| !(targets.get(i) instanceof IShape goal)
+					|| agent.getLocation().equals(goal.getLocation())) {
+				continue;
+			}
+			movers.add(agent);
+			goals.add(goal);
+		}
+		final IList<GamaSpatialPath> paths = topo.pathsBetween(scope, movers, goals);
+		final Map<IAgent, GamaSpatialPath> prepared = new LinkedHashMap<>();
+		int result = 0;
+		for (int i = 0; i < paths.size(); i++) {
+			if (paths.get(i) == null) { continue; }
+			prepared.put(movers.get(i), paths.get(i));
+			result++;
+		}
+		prepared.forEach((agent, path) -> agent.setAttribute("current_path", path));
+		return result;
+	}
+
 	/**
 	 * Not moving.
 	 *
@@ -24,6 +24,7 @@ import gama.core.metamodel.population.IPopulation;
 import gama.core.metamodel.shape.GamaPoint;
 import gama.core.runtime.GAMA;
 import gama.core.runtime.IScope;
+import gama.core.runtime.concurrent.StepCosts;
 import gama.core.runtime.exceptions.GamaRuntimeException;
 import gama.core.util.GamaListFactory;
 import gama.core.util.GamaMapFactory;
@@ -86,6 +87,9 @@ public abstract class AbstractSpecies extends Symbol implements ISpecies {
 	/** The control. */
 	final IArchitecture control;
 
+	/** The estimated durations of the steps of the agents. */
+	private final StepCosts stepCosts = new StepCosts();
+
 	/**
 	 * Instantiates a new abstract species.
 	 *
@@ -204,6 +208,12 @@ public abstract class AbstractSpecies extends Symbol implements ISpecies {
 	@Override
 	public Collection<String> getMicroSpeciesNames() { return microSpecies.keySet(); }
 
+	@Override
+	public StepCosts getStepCosts() { return stepCosts; }
+
+	@Override
+	public Double getStepCost() { return stepCosts.getMeanDuration(); }
+
 	/**
 	 * Returns a micro-species with the specified name or null otherwise.
 	 *
@@ -11,6 +11,7 @@
 package gaml.core.species;
 
 import java.util.Collection;
+import java.util.List;
 
 import gama.annotations.common.interfaces.IGamlIssue;
 import gama.annotations.common.interfaces.IKeyword;
@@ -196,6 +197,21 @@ import one.util.streamex.StreamEx;
 						type = IType.TOPOLOGY,
 						optional = true,
 						doc = @doc ("The topology of the population of agents defined by this species. In case of nested species, it can for example be the shape of the macro-agent. In case of grid or graph species, the topology is automatically computed and cannot be redefined")),
+				@facet (
+						name = "static",
+						type = IType.BOOL,
+						optional = true,
+						doc = @doc ("(experimental) if true, the agents of this species are not supposed to move once created (e.g. buildings or roads loaded from a shapefile) and are indexed in a spatial index bulk-loaded at once, which is faster to query. If false, they are always indexed in a dynamic quadtree. By default, species are not static: the facet must be set explicitly. In any case, moving, creating or killing an agent of a static species after its creation is still possible, but replaces its index by a dynamic one")),
+				@facet (
+						name = "defer_spatial_updates",
+						type = IType.BOOL,
+						optional = true,
+						doc = @doc ("(experimental, false by default) if true, the moves of the agents of this species made while the species is scheduled are not immediately reflected in the spatial index, but applied all at once at the end of the step of the population (several moves of the same agent being merged into one). Spatial queries made in the meantime take the moves into account. Useful for species where a lot of agents move every cycle")),
+				@facet (
+						name = "spatial_index",
+						type = IType.STRING,
+						optional = true,
+						doc = @doc ("(experimental) the spatial index used for the agents of this species: \"quadtree\" (the default) or \"grid\", a uniform grid of cells whose size adapts to the distances used in the queries. \"grid\" is faster for dense populations of small agents queried with small and similar distances (e.g. 'agents at_distance 2.0'). Ignored for grids, whose cells are their own index")),
 				@facet (
 						name = IKeyword.VIRTUAL,
 						type = IType.BOOL,
@@ -277,6 +293,7 @@ public class GamlSpecies extends AbstractSpecies {
 			// Issue 1138
 			verifyFrequency(sd);
 			verifyTorus(sd);
+			verifySpatialIndex(sd);
 
 			final String name = sd.getName();
 			if (GAML.isUnaryOperator(name)) {
@@ -317,6 +334,21 @@ public class GamlSpecies extends AbstractSpecies {
 			}
 		}
 
+		/**
+		 * Verify the spatial index.
+		 *
+		 * @param desc
+		 *            the desc
+		 */
+		private void verifySpatialIndex(final IDescription desc) {
+			final IExpression index = desc.getFacetExpr("spatial_index");
+			if (index == null) return;
+			if (!index.isConst() || !SPATIAL_INDEXES.contains(index.getConstValue())) {
+				desc.warning("'spatial_index' should be a constant among " + SPATIAL_INDEXES
+						+ ". The default quadtree will be used", IGamlIssue.WRONG_VALUE, "spatial_index");
+			}
+		}
+
 		/**
 		 * Verify files.
 		 *
@@ -385,6 +417,18 @@ public class GamlSpecies extends AbstractSpecies {
 	/** The frequency. */
 	private final IExpression frequency;
 
+	/** Whether the updates of the spatial index are deferred. */
+	private final boolean deferSpatialUpdates;
+
+	/** Whether the agents of the species are static. */
+	private final boolean isStatic;
+
+	/** The spatial indexes that can be chosen with the facet 'spatial_index'. */
+	static final List<String> SPATIAL_INDEXES = List.of("quadtree", "grid");
+
+	/** Whether the agents of the species are indexed in a hash grid. */
+	private final boolean isIndexedByGrid;
+
 	/**
 	 * Instantiates a new gaml species.
 	 *
@@ -409,6 +453,12 @@ public class GamlSpecies extends AbstractSpecies {
 			schedule = this.getFacet(IKeyword.SCHEDULES);
 		}
 		frequency = this.getFacet(IKeyword.FREQUENCY);
+		final IExpression defer = this.getFacet("defer_spatial_updates");
+		deferSpatialUpdates = defer != null && defer.isConst() && Boolean.TRUE.equals(defer.getConstValue());
+		final IExpression stat = this.getFacet("static");
+		isStatic = stat != null && stat.isConst() && Boolean.TRUE.equals(stat.getConstValue());
+		final IExpression index = this.getFacet("spatial_index");
+		isIndexedByGrid = index != null && index.isConst() && "grid".equals(index.getConstValue());
 	}
 
 	@Override
@@ -423,6 +473,15 @@ public class GamlSpecies extends AbstractSpecies {
 	@Override
 	public IExpression getConcurrency() { return concurrency; }
 
+	@Override
+	public boolean isStatic() { return isStatic && !isGrid(); }
+
+	@Override
+	public boolean isDeferringSpatialUpdates() { return deferSpatialUpdates && !isGrid(); }
+
+	@Override
+	public boolean isIndexedByGrid() { return isIndexedByGrid && !isGrid(); }
+
 	/**
 	 * Method getSpecies()
 	 *
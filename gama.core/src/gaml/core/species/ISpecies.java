@@ -23,6 +23,7 @@ import gama.core.metamodel.agent.IAgent;
 import gama.core.metamodel.population.IPopulation;
 import gama.core.metamodel.population.IPopulationSet;
 import gama.core.runtime.IScope;
+import gama.core.runtime.concurrent.StepCosts;
 import gama.core.util.GamaListFactory;
 import gama.core.util.IAddressableContainer;
 import gama.core.util.IList;
@@ -83,7 +84,11 @@ import one.util.streamex.StreamEx;
 				name = ISpecies.POPULATION,
 				type = IType.LIST,
 				of = ITypeProvider.CONTENT_TYPE_AT_INDEX + 1,
-				doc = @doc ("The population that corresponds to this species in an instance of its host")) })
+				doc = @doc ("The population that corresponds to this species in an instance of its host")),
+		@variable (
+				name = ISpecies.STEP_COST,
+				type = IType.FLOAT,
+				doc = @doc ("The estimated duration, in milliseconds, of the step of one agent of this species, measured when its agents are scheduled in parallel (0 if they have never been). Read-only")) })
 public interface ISpecies
 		extends ISymbol, IAddressableContainer<Integer, IAgent, Integer, IAgent>, IPopulationSet<IAgent> {
 
@@ -108,6 +113,9 @@ public interface ISpecies
 	/** The aspects. */
 	String ASPECTS = "aspects";
 
+	/** The step cost. */
+	String STEP_COST = "step_cost";
+
 	/**
 	 * Gets the frequency.
 	 *
@@ -129,6 +137,31 @@ public interface ISpecies
 	 */
 	IExpression getConcurrency();
 
+	/**
+	 * Whether the agents of this species are considered as static, i.e. never moving once created. Only the species
+	 * that declare 'static: true' (with a constant value) are static. The agents of static species are indexed in a
+	 * bulk-loaded R-tree
+	 *
+	 * @return true, if the species is static
+	 */
+	boolean isStatic();
+
+	/**
+	 * Whether the updates of the spatial index caused by the moves of the agents of this species are deferred to the
+	 * end of the step of their population (facet 'defer_spatial_updates')
+	 *
+	 * @return true, if the updates are deferred
+	 */
+	boolean isDeferringSpatialUpdates();
+
+	/**
+	 * Whether the agents of this species are indexed in a uniform hash grid rather than in a quadtree (facet
+	 * 'spatial_index: "grid"')
+	 *
+	 * @return true, if the species uses a hash grid
+	 */
+	boolean isIndexedByGrid();
+
 	/**
 	 * Extends species.
 	 *
@@ -428,6 +461,23 @@ public interface ISpecies
 	@doc ("Returns the population of agents that belong to this species")
 	IPopulation<? extends IAgent> getPopulation(IScope scope);
 
+	/**
+	 * The estimated durations of the steps of the agents of this species, used to divide them when they are scheduled
+	 * in parallel
+	 *
+	 * @return the step costs
+	 */
+	StepCosts getStepCosts();
+
+	/**
+	 * Gets the estimated duration of the step of one agent.
+	 *
+	 * @return the duration in milliseconds
+	 */
+	@getter (STEP_COST)
+	@doc ("Returns the estimated duration, in milliseconds, of the step of one agent of this species")
+	Double getStepCost();
+
 	/**
 	 * Adds the temporary action.
 	 *
@@ -45,10 +45,14 @@ import gama.core.metamodel.agent.IAgent;
 import gama.core.metamodel.agent.IMacroAgent;
 import gama.core.metamodel.population.IPopulation;
 import gama.core.metamodel.shape.IShape;
+import gama.core.metamodel.topology.GamaSTRTree;
+import gama.core.metamodel.topology.ISpatialIndex;
+import gama.core.metamodel.topology.ITopology;
 import gama.core.runtime.IScope;
 import gama.core.runtime.exceptions.GamaRuntimeException;
 import gama.core.util.GamaListFactory;
 import gama.core.util.IList;
+import gama.core.util.file.GamaGeometryFile;
 import gaml.core.compilation.IDescriptionValidator;
 import gaml.core.compilation.ISymbol;
 import gaml.core.compilation.annotations.serializer;
@@ -472,10 +476,27 @@ public class CreateStatement extends AbstractStatementSequence implements IState
 		}
 		// and we create and return the agent(s)
 		final IList<? extends IAgent> agents = createAgents(scope, pop, inits);
+		if (source instanceof GamaGeometryFile) { packSpatialIndex(pop); }
 		if (returns != null) { scope.setVarValue(returns, agents); }
 		return agents;
 	}
 
+	/**
+	 * Packs the spatial index of the population once all its agents have been created from a geometry file, if its
+	 * species is static
+	 *
+	 * @param pop
+	 *            the population
+	 */
+	private void packSpatialIndex(final IPopulation pop) {
+		if (!pop.getSpecies().isStatic()) return;
+		final ITopology topology = pop.getTopology();
+		if (topology != null && topology.getSpatialIndex() instanceof ISpatialIndex.Compound compound
+				&& compound.getIndex(pop.getSpecies()) instanceof GamaSTRTree tree) {
+			tree.build();
+		}
+	}
+
 	/**
 	 * A check made in order to address issues #2621 and #2611
 	 *
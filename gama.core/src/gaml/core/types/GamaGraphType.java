@@ -158,6 +158,18 @@ public class GamaGraphType extends GamaContainerType<IGraph> {
 		return source; // TODO Clone ?
 	}
 
+	/**
+	 * Use chache for shortest path, with a budget.
+	 *
+	 * @param source the source
+	 * @param budget the budget, in edges
+	 * @return the i graph
+	 */
+	public static IGraph useChacheForShortestPath(final IGraph source, final int budget) {
+		source.setShortestPathsCacheBudget(budget);
+		return source;
+	}
+
 	/**
 	 * As directed graph.
 	 *
@@ -32,7 +32,10 @@ import gama.annotations.precompiler.GamlAnnotations.symbol;
 import gama.core.common.interfaces.ISkill;
 import gama.core.common.interfaces.IVarAndActionSupport;
 import gama.core.common.util.JavaUtils;
+import gama.core.metamodel.agent.AgentSlots;
+import gama.core.metamodel.agent.GamlAgent;
 import gama.core.metamodel.agent.IAgent;
+import gama.core.metamodel.agent.SlotLayout;
 import gama.core.runtime.GAMA;
 import gama.core.runtime.IScope;
 import gama.core.runtime.benchmark.StopWatch;
@@ -515,6 +518,9 @@ public class Variable extends Symbol implements IVariable {
 
 	/** The must notify of changes. */
 	protected boolean mustNotifyOfChanges;
+
+	/** The index of the slot of this variable in the layout of its species, or SlotLayout.NONE */
+	protected int slot = SlotLayout.NONE;
 	// private Object speciesWideValue;
 
 	/**
@@ -556,6 +562,8 @@ public class Variable extends Symbol implements IVariable {
 		initer = getDescription().getIniter();
 		setter = getDescription().getSetter();
 		if (setter != null) { sSkill = species.getSkillInstanceFor(setter.getSkillClass()); }
+		final SpeciesDescription sd = species.getDescription();
+		if (setter == null && sd != null) { slot = sd.getSlotLayout().indexOf(getName()); }
 		addListeners(species);
 		mustNotifyOfChanges =
 				listeners != null && listeners.size() > 0 || onChangeExpression != null || on_changer != null;
@@ -781,9 +789,7 @@ public class Variable extends Symbol implements IVariable {
 		val = checkAmong(agent, scope, val);
 		if (setter != null) {
 			setter.run(scope, agent, sSkill == null ? agent : sSkill, val);
-		} else {
-			agent.setAttribute(name, val);
-		}
+		} else if (slot == SlotLayout.NONE || !setSlot(agent, val)) { agent.setAttribute(name, val); }
 		// if (isSpeciesConst) {
 		// speciesWideValue = val;
 		// }
@@ -823,10 +829,30 @@ public class Variable extends Symbol implements IVariable {
 		if (functionExpression != null) return scope.evaluate(functionExpression, agent).getValue();
 		// Var not yet initialized. May happen when asking for its value while initializing an editor
 		// See Issue #2781
+		if (slot != SlotLayout.NONE && agent instanceof GamlAgent ga) {
+			final AgentSlots slots = ga.getSlots();
+			if (slots != null && slots.getLayout().matches(slot, name) && slots.isSet(slot)) return slots.get(slot);
+		}
 		if (!agent.hasAttribute(name) && isNotModifiable && !description.isBuiltIn()) return getInitialValue(scope);
 		return agent.getAttribute(name);
 	}
 
+	/**
+	 * Directly stores the value in the slot of the agent, if the agent uses the same layout as the species of this
+	 * variable.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @param val
+	 *            the val
+	 * @return true if the value has been stored, false if it needs to be stored by the agent itself
+	 */
+	private boolean setSlot(final IAgent agent, final Object val) {
+		if (!(agent instanceof GamlAgent ga)) return false;
+		final AgentSlots slots = ga.getSlots();
+		return slots != null && slots.getLayout().matches(slot, name) && slots.set(slot, val);
+	}
+
 	@Override
 	public Object getUpdatedValue(final IScope scope) {
 		return updateExpression.value(scope);